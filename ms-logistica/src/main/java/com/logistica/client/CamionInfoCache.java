@@ -0,0 +1,114 @@
+package com.logistica.client;
+
+import com.logistica.client.dto.CamionInfo;
+import com.logistica.util.CacheLruTtl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cache local de datos de camiones (consumo, costo por km) por dominio.
+ * Evita llamar a MS Flota al finalizar un tramo: la transacción sólo lee la cache
+ * y, si no está el camión, el costo queda provisorio y se recalcula después.
+ * MS Flota avisa cuando cambia un camión (invalidación o reemplazo de la entrada).
+ */
+@Component
+@Slf4j
+public class CamionInfoCache {
+
+    private final FlotaApiClient flotaApiClient;
+    private final CacheLruTtl<String, CamionInfo> cache;
+
+    public CamionInfoCache(FlotaApiClient flotaApiClient,
+            @Value("${app.flota.camiones.cache.max-entradas:2000}") int maxEntradas,
+            @Value("${app.flota.camiones.cache.ttl-segundos:1800}") long ttlSegundos) {
+        this.flotaApiClient = flotaApiClient;
+        this.cache = new CacheLruTtl<>(maxEntradas, ttlSegundos);
+    }
+
+    /**
+     * Sólo cache, sin llamadas remotas: null si el camión no está
+     */
+    public CamionInfo obtener(String dominio) {
+        return dominio == null ? null : cache.get(clave(dominio));
+    }
+
+    /**
+     * Cache o, si no está, MS Flota. No usar dentro de una transacción.
+     */
+    public CamionInfo consultar(String dominio) {
+        CamionInfo camion = obtener(dominio);
+        if (camion == null) {
+            camion = flotaApiClient.obtenerCamionPorDominio(dominio);
+            guardar(camion);
+        }
+        return camion;
+    }
+
+    public void guardar(CamionInfo camion) {
+        if (camion != null && camion.getDominio() != null) {
+            cache.put(clave(camion.getDominio()), camion);
+        }
+    }
+
+    public void invalidar(String dominio) {
+        cache.invalidar(clave(dominio));
+        log.info("Cache de camiones: invalidado {}", dominio);
+    }
+
+    /**
+     * Carga los dominios que falten con una sola consulta a MS Flota
+     *
+     * @return cantidad de camiones agregados a la cache
+     */
+    public int precargar(Collection<String> dominios) {
+        Set<String> faltantes = dominios.stream()
+                .filter(d -> d != null && !d.isBlank())
+                .map(this::clave)
+                .filter(d -> !cache.contiene(d))
+                .collect(Collectors.toSet());
+        if (faltantes.isEmpty()) {
+            return 0;
+        }
+
+        int cargados = 0;
+        for (CamionInfo camion : flotaApiClient.listarCamiones()) {
+            if (camion.getDominio() != null && faltantes.contains(clave(camion.getDominio()))) {
+                guardar(camion);
+                cargados++;
+            }
+        }
+        log.info("Cache de camiones: precargados {} de {} dominios pedidos", cargados, faltantes.size());
+        return cargados;
+    }
+
+    public long getAciertos() {
+        return cache.getAciertos();
+    }
+
+    public long getFallos() {
+        return cache.getFallos();
+    }
+
+    public long getDesalojos() {
+        return cache.getDesalojos();
+    }
+
+    public int getTamanio() {
+        return cache.tamanio();
+    }
+
+    public int getMaxEntradas() {
+        return cache.getMaxEntradas();
+    }
+
+    // MS Flota guarda los dominios en mayúsculas
+    private String clave(String dominio) {
+        return dominio.trim().toUpperCase(Locale.ROOT);
+    }
+}
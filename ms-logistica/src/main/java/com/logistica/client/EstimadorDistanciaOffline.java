@@ -0,0 +1,50 @@
+package com.logistica.client;
+
+import com.logistica.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * Estimación de distancia y tiempo sin motor de ruteo, para cuando OSRM
+ * no responde: distancia en línea recta por un factor de tortuosidad, y
+ * duración con una velocidad urbana para tramos cortos y de ruta para el resto.
+ * Las respuestas quedan marcadas como aproximadas.
+ */
+@Component
+public class EstimadorDistanciaOffline {
+
+    private final double factorTortuosidad;
+    private final double velocidadUrbanaKmh;
+    private final double velocidadRutaKmh;
+    private final double limiteUrbanoKm;
+
+    public EstimadorDistanciaOffline(
+            @Value("${app.osrm.fallback.factor-tortuosidad:1.3}") double factorTortuosidad,
+            @Value("${app.osrm.fallback.velocidad-urbana-kmh:35}") double velocidadUrbanaKmh,
+            @Value("${app.osrm.fallback.velocidad-ruta-kmh:75}") double velocidadRutaKmh,
+            @Value("${app.osrm.fallback.limite-urbano-km:30}") double limiteUrbanoKm) {
+        this.factorTortuosidad = factorTortuosidad;
+        this.velocidadUrbanaKmh = velocidadUrbanaKmh;
+        this.velocidadRutaKmh = velocidadRutaKmh;
+        this.limiteUrbanoKm = limiteUrbanoKm;
+    }
+
+    public OsrmDistanceResponse estimar(double lat1, double lon1, double lat2, double lon2) {
+        double km = GeoUtils.haversineKm(lat1, lon1, lat2, lon2) * factorTortuosidad;
+
+        // Los primeros km a velocidad urbana, el resto a velocidad de ruta
+        double kmUrbanos = Math.min(km, limiteUrbanoKm);
+        double horas = kmUrbanos / velocidadUrbanaKmh + (km - kmUrbanos) / velocidadRutaKmh;
+
+        OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+        route.setDistance(km * 1000.0);
+        route.setDuration(horas * 3600.0);
+
+        OsrmDistanceResponse response = new OsrmDistanceResponse();
+        response.setRoutes(Collections.singletonList(route));
+        response.setAproximada(true);
+        return response;
+    }
+}
@@ -3,10 +3,7 @@ package com.logistica.client;
 import com.logistica.client.dto.CamionInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.client.RestClient;
 
 @Component
@@ -14,15 +11,16 @@ import org.springframework.web.client.RestClient;
 public class FlotaApiClient {
     private final RestClient restClient;
 
-    public FlotaApiClient(@Value("${app.flota.base-url:http://ms-flota:8083}") String flotaBaseUrl) {
+    public FlotaApiClient(@Value("${app.flota.base-url:http://ms-flota:8083}") String flotaBaseUrl,
+            TokenServicio tokenServicio) {
         this.restClient = RestClient.builder()
                 .baseUrl(flotaBaseUrl)
                 // --- CAMBIO CLAVE: Agregamos este interceptor ---
                 .requestInterceptor((request, body, execution) -> {
-                    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                    if (authentication != null && authentication.getCredentials() instanceof Jwt) {
-                        Jwt jwt = (Jwt) authentication.getCredentials();
-                        request.getHeaders().setBearerAuth(jwt.getTokenValue());
+                    // JWT del usuario o, en segundo plano, el token del servicio
+                    String token = tokenServicio.tokenActual();
+                    if (token != null) {
+                        request.getHeaders().setBearerAuth(token);
                     }
                     return execution.execute(request, body);
                 })
@@ -56,6 +54,22 @@ public class FlotaApiClient {
         }
     }
 
+    /**
+     * Todos los camiones de la flota en una sola llamada (para precargar la cache)
+     */
+    public java.util.List<CamionInfo> listarCamiones() {
+        try {
+            java.util.List<CamionInfo> camiones = restClient.get()
+                    .uri("/api/flota/camiones")
+                    .retrieve()
+                    .body(new org.springframework.core.ParameterizedTypeReference<java.util.List<CamionInfo>>() {});
+            return camiones != null ? camiones : java.util.List.of();
+        } catch (Exception e) {
+            log.error("Error listando camiones: {}", e.getMessage());
+            throw new RuntimeException("Error al listar camiones de la flota", e);
+        }
+    }
+
     /**
      * Consultar disponibilidad de camiones por fecha y capacidad
      */
@@ -1,43 +1,205 @@
 package com.logistica.client;
 
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
 import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.client.routing.RoutingEngine;
+import com.logistica.exception.LogisticaException;
+import com.logistica.util.GeometriaCodec;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
 
 @Component
 @Slf4j
 public class OsrmClient2 {
-    private final RestClient restClient;
+    private final RoutingEngine motor;
+    private final OsrmLegCache legCache;
+    private final OsrmResiliencia resiliencia;
+    private final EstimadorDistanciaOffline estimador;
 
-    @SuppressWarnings("null")
-    public OsrmClient2(@org.springframework.beans.factory.annotation.Value("${app.osrm.base-url}") String osrmUrl) {
-        // OSRM local o remoto
-        this.restClient = RestClient.builder().baseUrl(osrmUrl).build();
+    public OsrmClient2(RoutingEngine motor,
+            OsrmLegCache legCache,
+            OsrmResiliencia resiliencia,
+            EstimadorDistanciaOffline estimador) {
+        // El motor (OSRM remoto o grafo local) se elige con app.routing.motor
+        this.motor = motor;
+        this.legCache = legCache;
+        this.resiliencia = resiliencia;
+        this.estimador = estimador;
+        log.info("Motor de ruteo: {}", motor.nombre());
+    }
+
+    public String getNombreMotor() {
+        return motor.nombre();
     }
 
     /**
-     * Calcula distancia y tiempo entre dos puntos
+     * Calcula distancia y tiempo entre dos puntos.
+     * Primero consulta la cache de tramos; sólo va a OSRM si no hay entrada vigente.
+     * Si OSRM no está disponible devuelve una estimación marcada como aproximada;
+     * una consulta que OSRM rechaza (4xx) o cualquier otro error se propaga.
      */
     public OsrmDistanceResponse calcularDistancia(Double lat1, Double lon1, Double lat2, Double lon2) {
+        OsrmDistanceResponse.Route cacheado = legCache.obtener(lat1, lon1, lat2, lon2);
+        if (cacheado != null) {
+            log.debug("Cache OSRM hit: ({}, {}) -> ({}, {})", lat1, lon1, lat2, lon2);
+            return respuestaDeTramo(cacheado);
+        }
+
         try {
             log.info("Calculando distancia: ({}, {}) -> ({}, {})", lat1, lon1, lat2, lon2);
 
-            String uri = String.format("/route/v1/driving/%.6f,%.6f;%.6f,%.6f",
-                    lon1, lat1, lon2, lat2);
-
-            OsrmDistanceResponse response = restClient.get()
-                    .uri(uri)
-                    .retrieve()
-                    .body(OsrmDistanceResponse.class);
+            java.util.List<Coordenada> puntos = java.util.List.of(new Coordenada(lat1, lon1), new Coordenada(lat2, lon2));
+            OsrmDistanceResponse response = resiliencia.ejecutar("route", motor.admiteHedging(),
+                    () -> motor.ruta(puntos));
 
             log.info("Distancia calculada: {} km, {} segundos",
                     response.getDistanceKm(), response.getDurationSeconds());
 
+            if (response.getRoutes() != null && !response.getRoutes().isEmpty()) {
+                legCache.guardar(lat1, lon1, lat2, lon2, response.getRoutes().get(0));
+            }
+
             return response;
-        } catch (Exception e) {
-            log.error("Error al llamar OSRM", e);
-            throw new RuntimeException("Error calculando distancia con OSRM: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            if (!OsrmResiliencia.esFalloDeDisponibilidad(e)) {
+                throw noRecuperable(e);
+            }
+            log.warn("OSRM no disponible ({}), se usa distancia aproximada", e.getMessage());
+            return estimador.estimar(lat1, lon1, lat2, lon2);
+        }
+    }
+
+    /**
+     * Calcula todos los tramos de una ruta con una sola consulta a OSRM.
+     * Recibe la lista completa de waypoints (origen, depósitos..., destino) y
+     * devuelve un OsrmDistanceResponse por cada tramo, en el mismo orden.
+     * Si todos los tramos están en cache no se consulta OSRM. Si OSRM no está
+     * disponible, los tramos que no estaban en cache se estiman (aproximados).
+     */
+    public java.util.List<OsrmDistanceResponse> calcularTramos(java.util.List<Coordenada> puntos) {
+        if (puntos == null || puntos.size() < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos dos puntos para calcular una ruta");
+        }
+
+        int cantidadTramos = puntos.size() - 1;
+        java.util.List<OsrmDistanceResponse> resultado = new java.util.ArrayList<>(cantidadTramos);
+        boolean todosEnCache = true;
+        for (int i = 0; i < cantidadTramos; i++) {
+            Coordenada a = puntos.get(i);
+            Coordenada b = puntos.get(i + 1);
+            OsrmDistanceResponse.Route cacheado = legCache.obtener(a.latitud(), a.longitud(), b.latitud(), b.longitud());
+            if (cacheado == null) {
+                todosEnCache = false;
+                break;
+            }
+            resultado.add(respuestaDeTramo(cacheado));
+        }
+        if (todosEnCache) {
+            log.debug("Cache OSRM hit para los {} tramos de la ruta", cantidadTramos);
+            return resultado;
+        }
+
+        try {
+            log.info("Calculando ruta de {} tramos en una sola consulta OSRM", cantidadTramos);
+
+            OsrmDistanceResponse response = resiliencia.ejecutar("route", motor.admiteHedging(),
+                    () -> motor.ruta(puntos));
+
+            if (response == null || response.getRoutes() == null || response.getRoutes().isEmpty()
+                    || response.getRoutes().get(0).getLegs() == null
+                    || response.getRoutes().get(0).getLegs().size() != cantidadTramos) {
+                throw new OsrmNoDisponibleException("OSRM no devolvió un leg por cada tramo");
+            }
+
+            resultado.clear();
+            java.util.List<OsrmDistanceResponse.Leg> legs = response.getRoutes().get(0).getLegs();
+            for (int i = 0; i < cantidadTramos; i++) {
+                OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+                route.setDistance(legs.get(i).getDistance());
+                route.setDuration(legs.get(i).getDuration());
+
+                Coordenada a = puntos.get(i);
+                Coordenada b = puntos.get(i + 1);
+                legCache.guardar(a.latitud(), a.longitud(), b.latitud(), b.longitud(), route);
+                resultado.add(respuestaDeTramo(route));
+            }
+            return resultado;
+        } catch (RuntimeException e) {
+            if (!OsrmResiliencia.esFalloDeDisponibilidad(e)) {
+                throw noRecuperable(e);
+            }
+            log.warn("OSRM no disponible ({}), se usan distancias aproximadas", e.getMessage());
+            resultado.clear();
+            for (int i = 0; i < cantidadTramos; i++) {
+                Coordenada a = puntos.get(i);
+                Coordenada b = puntos.get(i + 1);
+                OsrmDistanceResponse.Route cacheado = legCache.obtener(a.latitud(), a.longitud(), b.latitud(), b.longitud());
+                resultado.add(cacheado != null
+                        ? respuestaDeTramo(cacheado)
+                        : estimador.estimar(a.latitud(), a.longitud(), b.latitud(), b.longitud()));
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Trazado de la ruta entre dos puntos, en E6. Sin caché: quien lo pide lo guarda.
+     * Null si el motor no está disponible; otros errores se propagan.
+     */
+    public GeometriaCodec.Puntos calcularGeometria(Coordenada origen, Coordenada destino) {
+        try {
+            OsrmDistanceResponse response = resiliencia.ejecutar("route", motor.admiteHedging(),
+                    () -> motor.rutaConGeometria(origen, destino));
+            if (response == null || response.getRoutes() == null || response.getRoutes().isEmpty()
+                    || response.getRoutes().get(0).getGeometry() == null) {
+                throw new OsrmNoDisponibleException("OSRM no devolvió el trazado");
+            }
+            return GeometriaCodec.decodificarPolyline(response.getRoutes().get(0).getGeometry(), 6);
+        } catch (RuntimeException e) {
+            if (!OsrmResiliencia.esFalloDeDisponibilidad(e)) {
+                throw noRecuperable(e);
+            }
+            log.warn("No se pudo obtener el trazado {} -> {}: {}", origen, destino, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Indica si todos los tramos consecutivos de la lista de puntos están en cache
+     * (es decir, si calcularTramos no necesitaría consultar OSRM)
+     */
+    public boolean tramosEnCache(java.util.List<Coordenada> puntos) {
+        for (int i = 0; i + 1 < puntos.size(); i++) {
+            Coordenada a = puntos.get(i);
+            Coordenada b = puntos.get(i + 1);
+            if (!legCache.contiene(a.latitud(), a.longitud(), b.latitud(), b.longitud())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matriz de distancias/duraciones con el servicio /table de OSRM.
+     * Los índices de fuentes y destinos refieren a posiciones dentro de puntos.
+     */
+    public OsrmTableResponse calcularTabla(java.util.List<Coordenada> puntos,
+            java.util.List<Integer> fuentes, java.util.List<Integer> destinos) {
+        try {
+            log.info("Calculando tabla OSRM de {}x{}", fuentes.size(), destinos.size());
+
+            // Sin hedging: una tabla es cara y duplicarla sólo agrega carga
+            OsrmTableResponse response = resiliencia.ejecutar("table", false,
+                    () -> motor.tabla(puntos, fuentes, destinos));
+
+            if (response == null || response.getDistances() == null || response.getDurations() == null) {
+                throw new OsrmNoDisponibleException("OSRM devolvió una tabla vacía");
+            }
+            return response;
+        } catch (RuntimeException e) {
+            log.error("Error al llamar OSRM /table: {}", e.getMessage());
+            throw noRecuperable(e);
         }
     }
 
@@ -51,13 +213,8 @@ public class OsrmClient2 {
         try {
             log.info("Buscando rutas alternativas: ({}, {}) -> ({}, {})", lat1, lon1, lat2, lon2);
 
-            String uri = String.format("/route/v1/driving/%.6f,%.6f;%.6f,%.6f?overview=false&alternatives=3",
-                    lon1, lat1, lon2, lat2);
-
-            OsrmDistanceResponse fullResponse = restClient.get()
-                    .uri(uri)
-                    .retrieve()
-                    .body(OsrmDistanceResponse.class);
+            OsrmDistanceResponse fullResponse = resiliencia.ejecutar("route", motor.admiteHedging(),
+                    () -> motor.alternativas(new Coordenada(lat1, lon1), new Coordenada(lat2, lon2)));
 
             java.util.List<OsrmDistanceResponse> resultList = new java.util.ArrayList<>();
 
@@ -75,9 +232,30 @@ public class OsrmClient2 {
             log.info("Se encontraron {} rutas alternativas", resultList.size());
             return resultList;
 
-        } catch (Exception e) {
-            log.error("Error al obtener rutas alternativas de OSRM", e);
-            throw new RuntimeException("Error obteniendo rutas alternativas: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            if (!OsrmResiliencia.esFalloDeDisponibilidad(e)) {
+                throw noRecuperable(e);
+            }
+            log.warn("OSRM no disponible ({}), se devuelve sólo la ruta aproximada", e.getMessage());
+            return java.util.List.of(estimador.estimar(lat1, lon1, lat2, lon2));
         }
     }
+
+    /**
+     * Un 4xx de OSRM es una consulta inválida (coordenadas fuera del mapa, sin ruta):
+     * se informa como error de negocio. El resto se propaga sin cambios.
+     */
+    private RuntimeException noRecuperable(RuntimeException e) {
+        if (e instanceof HttpClientErrorException http) {
+            return new LogisticaException("OSRM rechazó la consulta (" + http.getStatusCode().value() + "): "
+                    + http.getResponseBodyAsString(), e);
+        }
+        return e;
+    }
+
+    private OsrmDistanceResponse respuestaDeTramo(OsrmDistanceResponse.Route route) {
+        OsrmDistanceResponse response = new OsrmDistanceResponse();
+        response.setRoutes(java.util.Collections.singletonList(route));
+        return response;
+    }
 }
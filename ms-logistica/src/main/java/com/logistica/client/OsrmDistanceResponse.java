@@ -1,5 +1,6 @@
 package com.logistica.client;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -11,6 +12,10 @@ public class OsrmDistanceResponse {
     @JsonProperty("routes")
     private List<Route> routes;
 
+    // true si no viene de OSRM sino de la estimación offline (haversine)
+    @JsonIgnore
+    private boolean aproximada;
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Route {
@@ -19,6 +24,24 @@ public class OsrmDistanceResponse {
 
         @JsonProperty("duration")
         private double duration; // en segundos
+
+        // Un leg por cada par de waypoints consecutivos
+        @JsonProperty("legs")
+        private List<Leg> legs;
+
+        // Trazado en polyline6; sólo se pide con RoutingEngine.rutaConGeometria
+        @JsonProperty("geometry")
+        private String geometry;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Leg {
+        @JsonProperty("distance")
+        private double distance; // en metros
+
+        @JsonProperty("duration")
+        private double duration; // en segundos
     }
 
     public double getDistanceKm() {
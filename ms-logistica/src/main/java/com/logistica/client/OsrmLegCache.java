@@ -0,0 +1,89 @@
+package com.logistica.client;
+
+import com.logistica.util.CacheLruTtl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache de tramos (origen -> destino) calculados por OSRM.
+ * La clave son las coordenadas redondeadas a una precisión configurable
+ * (4 decimales ~ 11 metros), de modo que puntos prácticamente iguales
+ * comparten la misma entrada.
+ */
+@Component
+@Slf4j
+public class OsrmLegCache {
+
+    private final double escala;
+    private final CacheLruTtl<Clave, OsrmDistanceResponse.Route> cache;
+
+    public OsrmLegCache(@Value("${app.osrm.cache.precision:4}") int precision,
+            @Value("${app.osrm.cache.max-entradas:50000}") int maxEntradas,
+            @Value("${app.osrm.cache.ttl-segundos:21600}") long ttlSegundos) {
+        this.escala = Math.pow(10, precision);
+        this.cache = new CacheLruTtl<>(maxEntradas, ttlSegundos);
+    }
+
+    public OsrmDistanceResponse.Route obtener(double lat1, double lon1, double lat2, double lon2) {
+        return cache.get(clave(lat1, lon1, lat2, lon2));
+    }
+
+    public boolean contiene(double lat1, double lon1, double lat2, double lon2) {
+        return cache.contiene(clave(lat1, lon1, lat2, lon2));
+    }
+
+    public void guardar(double lat1, double lon1, double lat2, double lon2, OsrmDistanceResponse.Route route) {
+        OsrmDistanceResponse.Route copia = new OsrmDistanceResponse.Route();
+        copia.setDistance(route.getDistance());
+        copia.setDuration(route.getDuration());
+        cache.put(clave(lat1, lon1, lat2, lon2), copia);
+    }
+
+    /**
+     * Invalida todos los tramos que empiezan o terminan en el punto indicado
+     * (por ejemplo, cuando un depósito cambia de coordenadas)
+     */
+    public void invalidarPunto(double lat, double lon) {
+        long qLat = cuantizar(lat);
+        long qLon = cuantizar(lon);
+        int eliminadas = cache.invalidarSi(c -> (c.lat1() == qLat && c.lon1() == qLon)
+                || (c.lat2() == qLat && c.lon2() == qLon));
+        log.info("Cache OSRM: invalidados {} tramos del punto ({}, {})", eliminadas, lat, lon);
+    }
+
+    public void limpiar() {
+        cache.limpiar();
+    }
+
+    public long getAciertos() {
+        return cache.getAciertos();
+    }
+
+    public long getFallos() {
+        return cache.getFallos();
+    }
+
+    public long getDesalojos() {
+        return cache.getDesalojos();
+    }
+
+    public int getTamanio() {
+        return cache.tamanio();
+    }
+
+    public int getMaxEntradas() {
+        return cache.getMaxEntradas();
+    }
+
+    private Clave clave(double lat1, double lon1, double lat2, double lon2) {
+        return new Clave(cuantizar(lat1), cuantizar(lon1), cuantizar(lat2), cuantizar(lon2));
+    }
+
+    private long cuantizar(double valor) {
+        return Math.round(valor * escala);
+    }
+
+    private record Clave(long lat1, long lon1, long lat2, long lon2) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.logistica.client;
+
+/**
+ * OSRM no está disponible (circuito abierto) o no devolvió una respuesta utilizable
+ */
+public class OsrmNoDisponibleException extends RuntimeException {
+    public OsrmNoDisponibleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,226 @@
+package com.logistica.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Protección de las llamadas a OSRM:
+ * - circuit breaker: tras N fallos consecutivos deja de llamar durante un tiempo
+ *   y las consultas fallan enseguida (el cliente usa la estimación offline);
+ * - hedging: en consultas idempotentes, si la primera no respondió en el p95
+ *   de las latencias recientes se lanza una segunda y gana la primera en volver.
+ * Sólo cuentan como fallo del circuito los errores de E/S, timeouts y 5xx;
+ * un 4xx es una respuesta de OSRM (la consulta era inválida) y no lo abre.
+ */
+@Component
+@Slf4j
+public class OsrmResiliencia {
+
+    public enum Estado { CERRADO, ABIERTO, SEMI_ABIERTO }
+
+    private static final int VENTANA_LATENCIAS = 200;
+
+    private final int umbralFallos;
+    private final long aperturaMs;
+    private final boolean hedgingHabilitado;
+    private final long demoraMinimaHedgeMs;
+    private final ExecutorService osrmExecutor;
+
+    // Estado del circuito (protegido por this)
+    private Estado estado = Estado.CERRADO;
+    private int fallosConsecutivos;
+    private long abiertoHasta;
+    private boolean pruebaEnCurso;
+
+    // Latencias recientes en ms (ventana circular, protegida por this)
+    private final long[] latencias = new long[VENTANA_LATENCIAS];
+    private int cantidadLatencias;
+    private int posicionLatencia;
+
+    public OsrmResiliencia(@Value("${app.osrm.circuito.umbral-fallos:5}") int umbralFallos,
+            @Value("${app.osrm.circuito.apertura-segundos:30}") long aperturaSegundos,
+            @Value("${app.osrm.hedging.habilitado:true}") boolean hedgingHabilitado,
+            @Value("${app.osrm.hedging.demora-minima-ms:50}") long demoraMinimaHedgeMs,
+            ExecutorService osrmExecutor) {
+        this.umbralFallos = umbralFallos;
+        this.aperturaMs = aperturaSegundos * 1000;
+        this.hedgingHabilitado = hedgingHabilitado && osrmExecutor != null;
+        this.demoraMinimaHedgeMs = demoraMinimaHedgeMs;
+        this.osrmExecutor = osrmExecutor;
+    }
+
+    /**
+     * Indica si el error es de disponibilidad de OSRM (E/S, timeout, 5xx o circuito
+     * abierto). El resto (4xx, errores de programación) no se debe tapar con una estimación.
+     */
+    public static boolean esFalloDeDisponibilidad(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof OsrmNoDisponibleException
+                    || t instanceof ResourceAccessException
+                    || t instanceof HttpServerErrorException
+                    || t instanceof IOException
+                    || t instanceof UncheckedIOException
+                    || t instanceof TimeoutException) {
+                return true;
+            }
+            if (t instanceof HttpStatusCodeException) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ejecuta una llamada a OSRM pasando por el circuito.
+     * Lanza OsrmNoDisponibleException sin llamar si el circuito está abierto.
+     */
+    public <T> T ejecutar(String operacion, boolean idempotente, Supplier<T> llamada) {
+        if (!permitirLlamada()) {
+            throw new OsrmNoDisponibleException("Circuito OSRM abierto, se omite " + operacion);
+        }
+        long inicio = System.nanoTime();
+        try {
+            T resultado = idempotente && hedgingHabilitado ? conHedging(llamada) : llamada.get();
+            registrarExito(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            return resultado;
+        } catch (RuntimeException e) {
+            if (esFalloDeDisponibilidad(e)) {
+                registrarFallo(operacion, e);
+            } else if (e instanceof HttpStatusCodeException) {
+                // OSRM respondió (4xx): está disponible aunque la consulta sea inválida
+                registrarExito(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            } else {
+                liberarPrueba();
+            }
+            throw e;
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * Percentil 95 de las latencias recientes (0 si todavía no hay muestras)
+     */
+    public synchronized long p95Ms() {
+        if (cantidadLatencias == 0) {
+            return 0;
+        }
+        long[] copia = Arrays.copyOf(latencias, cantidadLatencias);
+        Arrays.sort(copia);
+        return copia[(int) Math.ceil(cantidadLatencias * 0.95) - 1];
+    }
+
+    private <T> T conHedging(Supplier<T> llamada) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        AtomicInteger pendientes = new AtomicInteger(1);
+
+        CompletableFuture<T> primera = CompletableFuture.supplyAsync(llamada, osrmExecutor);
+        primera.whenComplete((valor, error) -> completar(resultado, pendientes, valor, error));
+
+        try {
+            return resultado.get(Math.max(demoraMinimaHedgeMs, p95Ms()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // La primera viene lenta: se lanza una segunda y gana la que llegue antes
+            pendientes.incrementAndGet();
+            log.debug("OSRM lento, se lanza consulta de respaldo");
+            CompletableFuture.supplyAsync(llamada, osrmExecutor)
+                    .whenComplete((valor, error) -> completar(resultado, pendientes, valor, error));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta OSRM interrumpida", e);
+        } catch (ExecutionException e) {
+            throw causa(e);
+        }
+
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta OSRM interrumpida", e);
+        } catch (ExecutionException e) {
+            throw causa(e);
+        }
+    }
+
+    private <T> void completar(CompletableFuture<T> resultado, AtomicInteger pendientes, T valor, Throwable error) {
+        if (error == null) {
+            resultado.complete(valor);
+        } else if (pendientes.decrementAndGet() == 0) {
+            // Sólo falla si fallaron todas las consultas lanzadas
+            resultado.completeExceptionally(error);
+        }
+    }
+
+    private RuntimeException causa(ExecutionException e) {
+        Throwable causa = e.getCause() instanceof java.util.concurrent.CompletionException && e.getCause().getCause() != null
+                ? e.getCause().getCause()
+                : e.getCause();
+        return causa instanceof RuntimeException re ? re : new IllegalStateException(causa);
+    }
+
+    private synchronized boolean permitirLlamada() {
+        if (estado == Estado.CERRADO) {
+            return true;
+        }
+        if (estado == Estado.ABIERTO && System.currentTimeMillis() >= abiertoHasta) {
+            estado = Estado.SEMI_ABIERTO;
+            pruebaEnCurso = false;
+        }
+        if (estado == Estado.SEMI_ABIERTO && !pruebaEnCurso) {
+            // Una sola consulta de prueba decide si el circuito se cierra
+            pruebaEnCurso = true;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void registrarExito(long latenciaMs) {
+        if (estado != Estado.CERRADO) {
+            log.info("OSRM respondió, se cierra el circuito");
+        }
+        estado = Estado.CERRADO;
+        fallosConsecutivos = 0;
+        pruebaEnCurso = false;
+
+        latencias[posicionLatencia] = latenciaMs;
+        posicionLatencia = (posicionLatencia + 1) % VENTANA_LATENCIAS;
+        cantidadLatencias = Math.min(cantidadLatencias + 1, VENTANA_LATENCIAS);
+    }
+
+    /**
+     * Error que no dice nada de OSRM: si era la consulta de prueba, deja lanzar otra
+     */
+    private synchronized void liberarPrueba() {
+        pruebaEnCurso = false;
+    }
+
+    private synchronized void registrarFallo(String operacion, RuntimeException e) {
+        fallosConsecutivos++;
+        if (estado == Estado.SEMI_ABIERTO || fallosConsecutivos >= umbralFallos) {
+            if (estado != Estado.ABIERTO) {
+                log.warn("Se abre el circuito OSRM por {} s tras fallar {}: {}",
+                        aperturaMs / 1000, operacion, e.getMessage());
+            }
+            estado = Estado.ABIERTO;
+            abiertoHasta = System.currentTimeMillis() + aperturaMs;
+            pruebaEnCurso = false;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.logistica.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * Respuesta del servicio /table de OSRM.
+ * distances[i][j] y durations[i][j] corresponden a sources[i] -> destinations[j]
+ * (null si OSRM no encontró camino).
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OsrmTableResponse {
+    @JsonProperty("code")
+    private String code;
+
+    @JsonProperty("distances")
+    private Double[][] distances; // en metros
+
+    @JsonProperty("durations")
+    private Double[][] durations; // en segundos
+}
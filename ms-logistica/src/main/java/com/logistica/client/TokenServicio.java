@@ -0,0 +1,88 @@
+package com.logistica.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.util.Map;
+
+/**
+ * Token para llamar a otros microservicios.
+ * Dentro de un request se propaga el JWT del usuario; en tareas en segundo plano
+ * (sin usuario) se usa el token propio del servicio, obtenido de Keycloak con
+ * client credentials. Sin client-secret configurado la llamada sale sin token.
+ */
+@Component
+@Slf4j
+public class TokenServicio {
+
+    private static final long MARGEN_VENCIMIENTO_MS = 30_000;
+
+    private final RestClient restClient;
+    private final String clientId;
+    private final String clientSecret;
+
+    private String token;
+    private long venceEn;
+
+    public TokenServicio(@Value("${app.seguridad.cliente.token-uri:}") String tokenUri,
+            @Value("${app.seguridad.cliente.client-id:ms-logistica}") String clientId,
+            @Value("${app.seguridad.cliente.client-secret:}") String clientSecret) {
+        this.restClient = tokenUri.isBlank() ? null : RestClient.builder().baseUrl(tokenUri).build();
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+    }
+
+    /**
+     * JWT del usuario del request actual o, si no hay, el token del servicio
+     */
+    public String tokenActual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getCredentials() instanceof Jwt jwt) {
+            return jwt.getTokenValue();
+        }
+        return tokenDelServicio();
+    }
+
+    /**
+     * Token del servicio, reutilizado hasta poco antes de su vencimiento
+     */
+    public synchronized String tokenDelServicio() {
+        if (restClient == null || clientSecret.isBlank()) {
+            return null;
+        }
+        if (token != null && System.currentTimeMillis() < venceEn) {
+            return token;
+        }
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "client_credentials");
+        form.add("client_id", clientId);
+        form.add("client_secret", clientSecret);
+        try {
+            Map<?, ?> respuesta = restClient.post()
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(form)
+                    .retrieve()
+                    .body(Map.class);
+            if (respuesta == null || respuesta.get("access_token") == null) {
+                log.warn("Keycloak no devolvió access_token para el cliente {}", clientId);
+                return null;
+            }
+            long expiraSegundos = respuesta.get("expires_in") instanceof Number n ? n.longValue() : 60;
+            token = (String) respuesta.get("access_token");
+            venceEn = System.currentTimeMillis() + expiraSegundos * 1000 - MARGEN_VENCIMIENTO_MS;
+            return token;
+        } catch (Exception e) {
+            log.error("No se pudo obtener el token del servicio: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.logistica.client.dto;
 
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 public class CamionInfo {
     private Long id;
@@ -10,4 +12,6 @@ public class CamionInfo {
     private Double capacidadVolumen;
     private Double consumoCombustiblePromedio;
     private Double costoPorKm;
+    private String estado;                       // DISPONIBLE, ASIGNADO, PROGRAMADO, EN_VIAJE, MANTENIMIENTO
+    private LocalDateTime proximaDisponibilidad; // null si no tiene tramos programados
 }
\ No newline at end of file
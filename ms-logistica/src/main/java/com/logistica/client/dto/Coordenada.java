@@ -0,0 +1,7 @@
+package com.logistica.client.dto;
+
+/**
+ * Punto geográfico (latitud, longitud) usado como waypoint de ruteo
+ */
+public record Coordenada(double latitud, double longitud) {
+}
@@ -0,0 +1,568 @@
+package com.logistica.client.routing;
+
+import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.exception.LogisticaException;
+import com.logistica.util.GeoUtils;
+import com.logistica.util.GeometriaCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Motor de ruteo en el mismo proceso, sin red: camino más rápido sobre un
+ * GrafoVial mapeado en memoria con Dijkstra bidireccional.
+ * Los puntos se ajustan al nodo más cercano con una grilla; el tramo de acceso
+ * (punto -> nodo) se suma en línea recta a velocidad de acceso.
+ * No calcula rutas alternativas: devuelve sólo la mejor. El trazado es la
+ * secuencia de nodos del camino, más los puntos de acceso en los extremos.
+ * Puntos fuera del grafo o sin camino son consultas inválidas (como un 4xx de OSRM).
+ */
+@Component
+@ConditionalOnProperty(name = "app.routing.motor", havingValue = "local")
+@Slf4j
+public class GrafoLocalRoutingEngine implements RoutingEngine {
+
+    private final GrafoVial grafo;
+    private final double maxAjusteKm;
+    private final double velocidadAccesoKmh;
+
+    // Grilla de nodos: celdas ordenadas y, para cada una, su rango en nodosPorCelda
+    private final double celdaGrados;
+    private final int columnas;
+    private final int[] celdas;
+    private final int[] inicioCelda;
+    private final int[] nodosPorCelda;
+
+    // Los arreglos de búsqueda ocupan O(nodos): se reutilizan y se limita la concurrencia
+    private final Semaphore permisos;
+    private final ConcurrentLinkedQueue<Busqueda> busquedasLibres = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public GrafoLocalRoutingEngine(@Value("${app.routing.local.archivo}") String archivo,
+            @Value("${app.routing.local.max-ajuste-km:5}") double maxAjusteKm,
+            @Value("${app.routing.local.velocidad-acceso-kmh:20}") double velocidadAccesoKmh,
+            @Value("${app.routing.local.celda-grados:0.05}") double celdaGrados,
+            @Value("${app.routing.local.busquedas-concurrentes:4}") int busquedasConcurrentes) throws IOException {
+        this(GrafoVial.abrir(Path.of(archivo)), maxAjusteKm, velocidadAccesoKmh, celdaGrados, busquedasConcurrentes);
+        log.info("Grafo vial local cargado de {}: {} nodos, {} aristas", archivo, grafo.getNodos(), grafo.getAristas());
+    }
+
+    GrafoLocalRoutingEngine(GrafoVial grafo, double maxAjusteKm, double velocidadAccesoKmh,
+            double celdaGrados, int busquedasConcurrentes) {
+        if (celdaGrados < 0.01) {
+            throw new IllegalArgumentException("celda-grados debe ser al menos 0.01");
+        }
+        this.grafo = grafo;
+        this.maxAjusteKm = maxAjusteKm;
+        this.velocidadAccesoKmh = velocidadAccesoKmh;
+        this.celdaGrados = celdaGrados;
+        this.columnas = (int) Math.ceil(360 / celdaGrados);
+        this.permisos = new Semaphore(Math.max(1, busquedasConcurrentes));
+
+        // Ordenar los nodos por celda empaquetando (celda, nodo) en un long
+        int n = grafo.getNodos();
+        long[] claves = new long[n];
+        for (int v = 0; v < n; v++) {
+            claves[v] = ((long) celda(grafo.latitud(v), grafo.longitud(v)) << 32) | v;
+        }
+        Arrays.sort(claves);
+        this.nodosPorCelda = new int[n];
+        int[] celdasTmp = new int[n];
+        int[] inicioTmp = new int[n + 1];
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            int c = (int) (claves[i] >>> 32);
+            nodosPorCelda[i] = (int) claves[i];
+            if (distintas == 0 || celdasTmp[distintas - 1] != c) {
+                celdasTmp[distintas] = c;
+                inicioTmp[distintas] = i;
+                distintas++;
+            }
+        }
+        inicioTmp[distintas] = n;
+        this.celdas = Arrays.copyOf(celdasTmp, distintas);
+        this.inicioCelda = Arrays.copyOf(inicioTmp, distintas + 1);
+    }
+
+    @Override
+    public String nombre() {
+        return "local";
+    }
+
+    @Override
+    public boolean admiteHedging() {
+        return false;
+    }
+
+    @Override
+    public OsrmDistanceResponse ruta(List<Coordenada> puntos) {
+        int[] nodos = new int[puntos.size()];
+        double[] accesoKm = new double[puntos.size()];
+        for (int i = 0; i < puntos.size(); i++) {
+            ajustar(puntos.get(i), nodos, accesoKm, i);
+        }
+
+        List<OsrmDistanceResponse.Leg> legs = new ArrayList<>(puntos.size() - 1);
+        double metrosTotal = 0;
+        double segundosTotal = 0;
+        Busqueda busqueda = tomar();
+        try {
+            for (int i = 0; i + 1 < puntos.size(); i++) {
+                double[] camino = busqueda.bidireccional(nodos[i], nodos[i + 1]);
+                if (camino == null) {
+                    throw new LogisticaException("Sin camino en el grafo local entre " + puntos.get(i)
+                            + " y " + puntos.get(i + 1));
+                }
+                double accesoKmTramo = accesoKm[i] + accesoKm[i + 1];
+                OsrmDistanceResponse.Leg leg = new OsrmDistanceResponse.Leg();
+                leg.setDistance(camino[0] + accesoKmTramo * 1000);
+                leg.setDuration(camino[1] + accesoKmTramo / velocidadAccesoKmh * 3600);
+                legs.add(leg);
+                metrosTotal += leg.getDistance();
+                segundosTotal += leg.getDuration();
+            }
+        } finally {
+            devolver(busqueda);
+        }
+
+        OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+        route.setDistance(metrosTotal);
+        route.setDuration(segundosTotal);
+        route.setLegs(legs);
+        OsrmDistanceResponse response = new OsrmDistanceResponse();
+        response.setRoutes(Collections.singletonList(route));
+        return response;
+    }
+
+    @Override
+    public OsrmDistanceResponse rutaConGeometria(Coordenada origen, Coordenada destino) {
+        int[] nodos = new int[2];
+        double[] accesoKm = new double[2];
+        ajustar(origen, nodos, accesoKm, 0);
+        ajustar(destino, nodos, accesoKm, 1);
+
+        ListaEnteros camino = new ListaEnteros();
+        double[] resultado;
+        Busqueda busqueda = tomar();
+        try {
+            resultado = busqueda.bidireccional(nodos[0], nodos[1], camino);
+        } finally {
+            devolver(busqueda);
+        }
+        if (resultado == null) {
+            throw new LogisticaException("Sin camino en el grafo local entre " + origen + " y " + destino);
+        }
+
+        // Punto de origen, nodos del camino y punto de destino
+        int[] latE6 = new int[camino.tamanio + 2];
+        int[] lonE6 = new int[camino.tamanio + 2];
+        latE6[0] = e6(origen.latitud());
+        lonE6[0] = e6(origen.longitud());
+        for (int i = 0; i < camino.tamanio; i++) {
+            latE6[i + 1] = e6(grafo.latitud(camino.valores[i]));
+            lonE6[i + 1] = e6(grafo.longitud(camino.valores[i]));
+        }
+        latE6[latE6.length - 1] = e6(destino.latitud());
+        lonE6[lonE6.length - 1] = e6(destino.longitud());
+
+        double acceso = accesoKm[0] + accesoKm[1];
+        OsrmDistanceResponse.Leg leg = new OsrmDistanceResponse.Leg();
+        leg.setDistance(resultado[0] + acceso * 1000);
+        leg.setDuration(resultado[1] + acceso / velocidadAccesoKmh * 3600);
+        OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+        route.setDistance(leg.getDistance());
+        route.setDuration(leg.getDuration());
+        route.setLegs(List.of(leg));
+        route.setGeometry(GeometriaCodec.codificarPolyline(new GeometriaCodec.Puntos(latE6, lonE6), 6));
+        OsrmDistanceResponse response = new OsrmDistanceResponse();
+        response.setRoutes(Collections.singletonList(route));
+        return response;
+    }
+
+    @Override
+    public OsrmDistanceResponse alternativas(Coordenada origen, Coordenada destino) {
+        return ruta(List.of(origen, destino));
+    }
+
+    @Override
+    public OsrmTableResponse tabla(List<Coordenada> puntos, List<Integer> fuentes, List<Integer> destinos) {
+        int[] nodos = new int[puntos.size()];
+        double[] accesoKm = new double[puntos.size()];
+        for (int i = 0; i < puntos.size(); i++) {
+            ajustar(puntos.get(i), nodos, accesoKm, i);
+        }
+
+        Double[][] distancias = new Double[fuentes.size()][destinos.size()];
+        Double[][] duraciones = new Double[fuentes.size()][destinos.size()];
+        int[] nodosDestino = new int[destinos.size()];
+        for (int j = 0; j < destinos.size(); j++) {
+            nodosDestino[j] = nodos[destinos.get(j)];
+        }
+
+        Busqueda busqueda = tomar();
+        try {
+            for (int i = 0; i < fuentes.size(); i++) {
+                int fuente = fuentes.get(i);
+                double[][] resultados = busqueda.unoAMuchos(nodos[fuente], nodosDestino);
+                for (int j = 0; j < destinos.size(); j++) {
+                    if (resultados[j] == null) {
+                        continue; // inalcanzable: null como en OSRM
+                    }
+                    double acceso = accesoKm[fuente] + accesoKm[destinos.get(j)];
+                    distancias[i][j] = resultados[j][0] + acceso * 1000;
+                    duraciones[i][j] = resultados[j][1] + acceso / velocidadAccesoKmh * 3600;
+                }
+            }
+        } finally {
+            devolver(busqueda);
+        }
+
+        OsrmTableResponse response = new OsrmTableResponse();
+        response.setCode("Ok");
+        response.setDistances(distancias);
+        response.setDurations(duraciones);
+        return response;
+    }
+
+    /**
+     * Nodo del grafo más cercano al punto (búsqueda por anillos de celdas)
+     */
+    int nodoMasCercano(double lat, double lon) {
+        int fila = (int) Math.floor((lat + 90) / celdaGrados);
+        int columna = (int) Math.floor((lon + 180) / celdaGrados);
+        // Lado de celda más corto en la zona de búsqueda (las celdas se angostan hacia los polos)
+        double latMaxima = Math.min(89.0, Math.abs(lat) + 1);
+        double ladoMinimoKm = 111.0 * celdaGrados * Math.cos(Math.toRadians(latMaxima));
+        int maxAnillo = (int) Math.ceil(maxAjusteKm / ladoMinimoKm) + 1;
+
+        int mejor = -1;
+        double mejorKm = Double.POSITIVE_INFINITY;
+        for (int r = 0; r <= maxAnillo; r++) {
+            for (int f = fila - r; f <= fila + r; f++) {
+                for (int c = columna - r; c <= columna + r; c++) {
+                    if (Math.abs(f - fila) != r && Math.abs(c - columna) != r) {
+                        continue; // interior, ya visitado
+                    }
+                    int indice = Arrays.binarySearch(celdas, f * columnas + Math.floorMod(c, columnas));
+                    if (indice < 0) {
+                        continue;
+                    }
+                    for (int k = inicioCelda[indice]; k < inicioCelda[indice + 1]; k++) {
+                        int v = nodosPorCelda[k];
+                        double km = GeoUtils.haversineKm(lat, lon, grafo.latitud(v), grafo.longitud(v));
+                        if (km < mejorKm) {
+                            mejorKm = km;
+                            mejor = v;
+                        }
+                    }
+                }
+            }
+            // Cualquier nodo del anillo r+1 está al menos a r celdas completas
+            if (mejorKm <= r * ladoMinimoKm) {
+                break;
+            }
+        }
+        return mejorKm <= maxAjusteKm ? mejor : -1;
+    }
+
+    private void ajustar(Coordenada punto, int[] nodos, double[] accesoKm, int i) {
+        int nodo = nodoMasCercano(punto.latitud(), punto.longitud());
+        if (nodo < 0) {
+            throw new LogisticaException("Punto fuera del grafo local: " + punto);
+        }
+        nodos[i] = nodo;
+        accesoKm[i] = GeoUtils.haversineKm(punto.latitud(), punto.longitud(), grafo.latitud(nodo), grafo.longitud(nodo));
+    }
+
+    private static int e6(double grados) {
+        return (int) Math.round(grados * 1e6);
+    }
+
+    private int celda(double lat, double lon) {
+        int fila = (int) Math.floor((lat + 90) / celdaGrados);
+        int columna = Math.floorMod((int) Math.floor((lon + 180) / celdaGrados), columnas);
+        return fila * columnas + columna;
+    }
+
+    private Busqueda tomar() {
+        permisos.acquireUninterruptibly();
+        Busqueda busqueda = busquedasLibres.poll();
+        return busqueda != null ? busqueda : new Busqueda(grafo);
+    }
+
+    private void devolver(Busqueda busqueda) {
+        busquedasLibres.offer(busqueda);
+        permisos.release();
+    }
+
+    /**
+     * Estado reutilizable de una búsqueda: etiquetas por nodo (sólo se limpian
+     * las tocadas) y los dos heaps. El peso es la duración; la distancia y el
+     * nodo previo se registran sobre el mismo árbol de caminos más rápidos.
+     */
+    private static final class Busqueda {
+        private final GrafoVial grafo;
+        private final float[] segundosAdelante;
+        private final float[] metrosAdelante;
+        private final float[] segundosAtras;
+        private final float[] metrosAtras;
+        private final int[] previoAdelante;
+        private final int[] previoAtras; // en la búsqueda hacia atrás: el siguiente nodo hacia t
+        private final ListaEnteros tocadosAdelante = new ListaEnteros();
+        private final ListaEnteros tocadosAtras = new ListaEnteros();
+        private final HeapMinimo heapAdelante = new HeapMinimo();
+        private final HeapMinimo heapAtras = new HeapMinimo();
+
+        Busqueda(GrafoVial grafo) {
+            this.grafo = grafo;
+            int n = grafo.getNodos();
+            this.segundosAdelante = new float[n];
+            this.metrosAdelante = new float[n];
+            this.segundosAtras = new float[n];
+            this.metrosAtras = new float[n];
+            this.previoAdelante = new int[n];
+            this.previoAtras = new int[n];
+            Arrays.fill(segundosAdelante, Float.POSITIVE_INFINITY);
+            Arrays.fill(segundosAtras, Float.POSITIVE_INFINITY);
+        }
+
+        double[] bidireccional(int s, int t) {
+            return bidireccional(s, t, null);
+        }
+
+        /**
+         * Camino más rápido de s a t: {metros, segundos}, o null si no hay camino
+         *
+         * @param camino si no es null, recibe los nodos del camino de s a t
+         */
+        double[] bidireccional(int s, int t, ListaEnteros camino) {
+            if (s == t) {
+                if (camino != null) {
+                    camino.agregar(s);
+                }
+                return new double[]{0, 0};
+            }
+            try {
+                etiquetar(segundosAdelante, metrosAdelante, previoAdelante, tocadosAdelante, s, 0, 0, -1);
+                heapAdelante.agregar(0, s);
+                etiquetar(segundosAtras, metrosAtras, previoAtras, tocadosAtras, t, 0, 0, -1);
+                heapAtras.agregar(0, t);
+
+                double mejor = Double.POSITIVE_INFINITY;
+                int encuentro = -1;
+                while (!heapAdelante.vacio() && !heapAtras.vacio()) {
+                    if (heapAdelante.minimo() + heapAtras.minimo() >= mejor) {
+                        break;
+                    }
+                    boolean adelante = heapAdelante.minimo() <= heapAtras.minimo();
+                    HeapMinimo heap = adelante ? heapAdelante : heapAtras;
+                    float[] segundos = adelante ? segundosAdelante : segundosAtras;
+                    float[] metros = adelante ? metrosAdelante : metrosAtras;
+                    int[] previo = adelante ? previoAdelante : previoAtras;
+                    float[] segundosOtro = adelante ? segundosAtras : segundosAdelante;
+                    ListaEnteros tocados = adelante ? tocadosAdelante : tocadosAtras;
+                    GrafoVial.Adyacencia ady = adelante ? grafo.salida() : grafo.entrada();
+
+                    double clave = heap.minimo();
+                    int u = heap.extraer();
+                    if (clave > segundos[u]) {
+                        continue; // entrada vieja
+                    }
+                    for (int e = ady.inicio().get(u); e < ady.inicio().get(u + 1); e++) {
+                        int v = ady.vecino().get(e);
+                        float nuevo = (float) (clave + ady.segundos().get(e));
+                        if (nuevo < segundos[v]) {
+                            etiquetar(segundos, metros, previo, tocados, v, nuevo, metros[u] + ady.metros().get(e), u);
+                            heap.agregar(nuevo, v);
+                            if (segundosOtro[v] != Float.POSITIVE_INFINITY && nuevo + segundosOtro[v] < mejor) {
+                                mejor = nuevo + segundosOtro[v];
+                                encuentro = v;
+                            }
+                        }
+                    }
+                }
+                if (encuentro < 0) {
+                    return null;
+                }
+                if (camino != null) {
+                    reconstruir(encuentro, camino);
+                }
+                return new double[]{
+                        (double) metrosAdelante[encuentro] + metrosAtras[encuentro],
+                        (double) segundosAdelante[encuentro] + segundosAtras[encuentro]};
+            } finally {
+                limpiar();
+            }
+        }
+
+        /**
+         * Dijkstra desde s hasta asentar todos los destinos: {metros, segundos} por destino
+         */
+        double[][] unoAMuchos(int s, int[] destinos) {
+            double[][] resultados = new double[destinos.length][];
+            Map<Integer, List<Integer>> pendientes = new HashMap<>();
+            for (int j = 0; j < destinos.length; j++) {
+                pendientes.computeIfAbsent(destinos[j], k -> new ArrayList<>()).add(j);
+            }
+            try {
+                etiquetar(segundosAdelante, metrosAdelante, previoAdelante, tocadosAdelante, s, 0, 0, -1);
+                heapAdelante.agregar(0, s);
+                GrafoVial.Adyacencia ady = grafo.salida();
+                while (!heapAdelante.vacio() && !pendientes.isEmpty()) {
+                    double clave = heapAdelante.minimo();
+                    int u = heapAdelante.extraer();
+                    if (clave > segundosAdelante[u]) {
+                        continue;
+                    }
+                    List<Integer> columnas = pendientes.remove(u);
+                    if (columnas != null) {
+                        for (int j : columnas) {
+                            resultados[j] = new double[]{metrosAdelante[u], segundosAdelante[u]};
+                        }
+                    }
+                    for (int e = ady.inicio().get(u); e < ady.inicio().get(u + 1); e++) {
+                        int v = ady.vecino().get(e);
+                        float nuevo = (float) (clave + ady.segundos().get(e));
+                        if (nuevo < segundosAdelante[v]) {
+                            etiquetar(segundosAdelante, metrosAdelante, previoAdelante, tocadosAdelante, v, nuevo,
+                                    metrosAdelante[u] + ady.metros().get(e), u);
+                            heapAdelante.agregar(nuevo, v);
+                        }
+                    }
+                }
+                return resultados;
+            } finally {
+                limpiar();
+            }
+        }
+
+        private void etiquetar(float[] segundos, float[] metros, int[] previo, ListaEnteros tocados,
+                int v, float s, float m, int desde) {
+            if (segundos[v] == Float.POSITIVE_INFINITY) {
+                tocados.agregar(v);
+            }
+            segundos[v] = s;
+            metros[v] = m;
+            previo[v] = desde;
+        }
+
+        // Desde el encuentro: hacia atrás hasta s con previoAdelante y hacia t con previoAtras
+        private void reconstruir(int encuentro, ListaEnteros camino) {
+            int inicio = camino.tamanio;
+            for (int v = encuentro; v >= 0; v = previoAdelante[v]) {
+                camino.agregar(v);
+            }
+            for (int i = inicio, j = camino.tamanio - 1; i < j; i++, j--) {
+                int aux = camino.valores[i];
+                camino.valores[i] = camino.valores[j];
+                camino.valores[j] = aux;
+            }
+            for (int v = previoAtras[encuentro]; v >= 0; v = previoAtras[v]) {
+                camino.agregar(v);
+            }
+        }
+
+        private void limpiar() {
+            for (int i = 0; i < tocadosAdelante.tamanio; i++) {
+                segundosAdelante[tocadosAdelante.valores[i]] = Float.POSITIVE_INFINITY;
+            }
+            for (int i = 0; i < tocadosAtras.tamanio; i++) {
+                segundosAtras[tocadosAtras.valores[i]] = Float.POSITIVE_INFINITY;
+            }
+            tocadosAdelante.tamanio = 0;
+            tocadosAtras.tamanio = 0;
+            heapAdelante.tamanio = 0;
+            heapAtras.tamanio = 0;
+        }
+    }
+
+    private static final class ListaEnteros {
+        private int[] valores = new int[1024];
+        private int tamanio;
+
+        void agregar(int v) {
+            if (tamanio == valores.length) {
+                valores = Arrays.copyOf(valores, tamanio * 2);
+            }
+            valores[tamanio++] = v;
+        }
+    }
+
+    /**
+     * Heap binario de (clave, nodo) sobre arreglos primitivos; admite entradas
+     * repetidas de un nodo (las viejas se descartan al extraerlas)
+     */
+    private static final class HeapMinimo {
+        private double[] claves = new double[1024];
+        private int[] nodos = new int[1024];
+        private int tamanio;
+
+        boolean vacio() {
+            return tamanio == 0;
+        }
+
+        double minimo() {
+            return claves[0];
+        }
+
+        void agregar(double clave, int nodo) {
+            if (tamanio == claves.length) {
+                claves = Arrays.copyOf(claves, tamanio * 2);
+                nodos = Arrays.copyOf(nodos, tamanio * 2);
+            }
+            int i = tamanio++;
+            while (i > 0) {
+                int padre = (i - 1) >>> 1;
+                if (claves[padre] <= clave) {
+                    break;
+                }
+                claves[i] = claves[padre];
+                nodos[i] = nodos[padre];
+                i = padre;
+            }
+            claves[i] = clave;
+            nodos[i] = nodo;
+        }
+
+        int extraer() {
+            int resultado = nodos[0];
+            tamanio--;
+            double clave = claves[tamanio];
+            int nodo = nodos[tamanio];
+            int i = 0;
+            while (true) {
+                int hijo = 2 * i + 1;
+                if (hijo >= tamanio) {
+                    break;
+                }
+                if (hijo + 1 < tamanio && claves[hijo + 1] < claves[hijo]) {
+                    hijo++;
+                }
+                if (claves[hijo] >= clave) {
+                    break;
+                }
+                claves[i] = claves[hijo];
+                nodos[i] = nodos[hijo];
+                i = hijo;
+            }
+            claves[i] = clave;
+            nodos[i] = nodo;
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.logistica.client.routing;
+
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grafo vial compacto en formato CSR, mapeado en memoria desde un archivo.
+ * Guarda la adyacencia de salida (para la búsqueda hacia adelante) y la de
+ * entrada (para la búsqueda hacia atrás); el heap sólo contiene los buffers.
+ *
+ * Formato del archivo (big-endian):
+ * <pre>
+ *   int   magic ("GRF1"), int version, int nodos (n), int aristas (m)
+ *   int[n]   latitud  en microgrados (E6)
+ *   int[n]   longitud en microgrados (E6)
+ *   int[n+1] inicio de salida de cada nodo | int[m] destino | float[m] metros | float[m] segundos
+ *   int[n+1] inicio de entrada de cada nodo | int[m] origen | float[m] metros | float[m] segundos
+ * </pre>
+ * Un único MappedByteBuffer admite hasta 2 GB (alcanza para Argentina completa).
+ */
+public final class GrafoVial {
+
+    static final int MAGIC = 0x47524631; // "GRF1"
+    static final int VERSION = 1;
+    private static final int ENCABEZADO = 16;
+
+    private final int nodos;
+    private final int aristas;
+    private final IntBuffer latitudes;
+    private final IntBuffer longitudes;
+    private final Adyacencia salida;
+    private final Adyacencia entrada;
+
+    /**
+     * Lista de adyacencia CSR: las aristas del nodo v van de inicio[v] a inicio[v+1]
+     */
+    record Adyacencia(IntBuffer inicio, IntBuffer vecino, FloatBuffer metros, FloatBuffer segundos) {
+    }
+
+    private GrafoVial(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("El archivo no es un grafo vial válido (GRF1 v" + VERSION + ")");
+        }
+        this.nodos = buffer.getInt(8);
+        this.aristas = buffer.getInt(12);
+
+        int posicion = ENCABEZADO;
+        this.latitudes = buffer.slice(posicion, 4 * nodos).asIntBuffer();
+        posicion += 4 * nodos;
+        this.longitudes = buffer.slice(posicion, 4 * nodos).asIntBuffer();
+        posicion += 4 * nodos;
+        this.salida = adyacencia(buffer, posicion);
+        posicion += bytesAdyacencia();
+        this.entrada = adyacencia(buffer, posicion);
+    }
+
+    public static GrafoVial abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("El grafo supera los 2 GB mapeables: " + archivo);
+            }
+            // El mapeo sigue vigente después de cerrar el canal
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return new GrafoVial(buffer);
+        }
+    }
+
+    public int getNodos() {
+        return nodos;
+    }
+
+    public int getAristas() {
+        return aristas;
+    }
+
+    public double latitud(int nodo) {
+        return latitudes.get(nodo) / 1e6;
+    }
+
+    public double longitud(int nodo) {
+        return longitudes.get(nodo) / 1e6;
+    }
+
+    Adyacencia salida() {
+        return salida;
+    }
+
+    Adyacencia entrada() {
+        return entrada;
+    }
+
+    /**
+     * Escribe un grafo en el formato de este archivo a partir de una lista de aristas
+     * dirigidas (para tramos doble mano, una arista por sentido).
+     */
+    public static void escribir(Path archivo, double[] lat, double[] lon,
+            int[] origen, int[] destino, float[] metros, float[] segundos) throws IOException {
+        int n = lat.length;
+        int m = origen.length;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(m);
+            for (double v : lat) {
+                out.writeInt((int) Math.round(v * 1e6));
+            }
+            for (double v : lon) {
+                out.writeInt((int) Math.round(v * 1e6));
+            }
+            escribirCsr(out, n, origen, destino, metros, segundos);
+            escribirCsr(out, n, destino, origen, metros, segundos);
+        }
+    }
+
+    private static void escribirCsr(DataOutputStream out, int n, int[] desde, int[] hacia,
+            float[] metros, float[] segundos) throws IOException {
+        int m = desde.length;
+        int[] inicio = new int[n + 1];
+        for (int d : desde) {
+            inicio[d + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inicio[v + 1] += inicio[v];
+        }
+        // Ordenamiento por conteo de las aristas según su nodo de partida
+        int[] orden = new int[m];
+        int[] siguiente = java.util.Arrays.copyOf(inicio, n);
+        for (int e = 0; e < m; e++) {
+            orden[siguiente[desde[e]]++] = e;
+        }
+        for (int v : inicio) {
+            out.writeInt(v);
+        }
+        for (int e : orden) {
+            out.writeInt(hacia[e]);
+        }
+        for (int e : orden) {
+            out.writeFloat(metros[e]);
+        }
+        for (int e : orden) {
+            out.writeFloat(segundos[e]);
+        }
+    }
+
+    private Adyacencia adyacencia(ByteBuffer buffer, int posicion) {
+        IntBuffer inicio = buffer.slice(posicion, 4 * (nodos + 1)).asIntBuffer();
+        posicion += 4 * (nodos + 1);
+        IntBuffer vecino = buffer.slice(posicion, 4 * aristas).asIntBuffer();
+        posicion += 4 * aristas;
+        FloatBuffer metros = buffer.slice(posicion, 4 * aristas).asFloatBuffer();
+        posicion += 4 * aristas;
+        FloatBuffer segundos = buffer.slice(posicion, 4 * aristas).asFloatBuffer();
+        return new Adyacencia(inicio, vecino, metros, segundos);
+    }
+
+    private int bytesAdyacencia() {
+        return 4 * (nodos + 1) + 12 * aristas;
+    }
+}
@@ -0,0 +1,108 @@
+package com.logistica.client.routing;
+
+import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.client.dto.Coordenada;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Motor de ruteo remoto: servidor OSRM (osrm-routed) por HTTP
+ */
+@Component
+@ConditionalOnProperty(name = "app.routing.motor", havingValue = "osrm", matchIfMissing = true)
+@Slf4j
+public class OsrmHttpRoutingEngine implements RoutingEngine {
+
+    private final RestClient restClient;
+
+    @SuppressWarnings("null")
+    public OsrmHttpRoutingEngine(@Value("${app.osrm.base-url}") String osrmUrl,
+            @Value("${app.osrm.timeout.conexion-ms:1000}") long timeoutConexionMs,
+            @Value("${app.osrm.timeout.lectura-ms:5000}") long timeoutLecturaMs) {
+        // OSRM local o remoto, con timeouts para no colgar la planificación
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutConexionMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutLecturaMs));
+
+        this.restClient = RestClient.builder().baseUrl(osrmUrl).requestFactory(requestFactory).build();
+    }
+
+    @Override
+    public String nombre() {
+        return "osrm";
+    }
+
+    @Override
+    public OsrmDistanceResponse ruta(List<Coordenada> puntos) {
+        String uri = "/route/v1/driving/" + coordenadasPath(puntos) + "?overview=false";
+        return restClient.get()
+                .uri(uri)
+                .retrieve()
+                .body(OsrmDistanceResponse.class);
+    }
+
+    @Override
+    public OsrmDistanceResponse rutaConGeometria(Coordenada origen, Coordenada destino) {
+        String uri = "/route/v1/driving/" + coordenadasPath(List.of(origen, destino))
+                + "?overview=full&geometries=polyline6";
+        return restClient.get()
+                .uri(uri)
+                .retrieve()
+                .body(OsrmDistanceResponse.class);
+    }
+
+    @Override
+    public OsrmDistanceResponse alternativas(Coordenada origen, Coordenada destino) {
+        String uri = "/route/v1/driving/" + coordenadasPath(List.of(origen, destino))
+                + "?overview=false&alternatives=3";
+        return restClient.get()
+                .uri(uri)
+                .retrieve()
+                .body(OsrmDistanceResponse.class);
+    }
+
+    @Override
+    public OsrmTableResponse tabla(List<Coordenada> puntos, List<Integer> fuentes, List<Integer> destinos) {
+        String uri = "/table/v1/driving/" + coordenadasPath(puntos)
+                + "?sources=" + indicesPath(fuentes)
+                + "&destinations=" + indicesPath(destinos)
+                + "&annotations=distance,duration";
+        return restClient.get()
+                .uri(uri)
+                .retrieve()
+                .body(OsrmTableResponse.class);
+    }
+
+    private String coordenadasPath(List<Coordenada> puntos) {
+        StringBuilder coordenadas = new StringBuilder();
+        for (Coordenada punto : puntos) {
+            if (coordenadas.length() > 0) {
+                coordenadas.append(';');
+            }
+            coordenadas.append(String.format("%.6f,%.6f", punto.longitud(), punto.latitud()));
+        }
+        return coordenadas.toString();
+    }
+
+    private String indicesPath(List<Integer> indices) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer indice : indices) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(indice);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.logistica.client.routing;
+
+import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.client.dto.Coordenada;
+
+import java.util.List;
+
+/**
+ * Motor de ruteo detrás de OsrmClient2. Las respuestas usan el mismo formato
+ * que OSRM (metros y segundos) para que cache, circuito y estimación offline
+ * funcionen igual con cualquier implementación.
+ * Se elige con app.routing.motor (osrm | local).
+ */
+public interface RoutingEngine {
+
+    String nombre();
+
+    /**
+     * Ruta que pasa por todos los puntos en orden, con un leg por cada tramo
+     */
+    OsrmDistanceResponse ruta(List<Coordenada> puntos);
+
+    /**
+     * Ruta entre dos puntos con su trazado (Route.geometry en polyline6).
+     * Sin trazado propio la respuesta no trae geometry: quien llama usa la línea
+     * recta como aproximada y no la guarda.
+     */
+    default OsrmDistanceResponse rutaConGeometria(Coordenada origen, Coordenada destino) {
+        return ruta(List.of(origen, destino));
+    }
+
+    /**
+     * Rutas alternativas entre dos puntos (la primera es la mejor)
+     */
+    OsrmDistanceResponse alternativas(Coordenada origen, Coordenada destino);
+
+    /**
+     * Matriz de distancias/duraciones; los índices refieren a posiciones dentro de puntos
+     */
+    OsrmTableResponse tabla(List<Coordenada> puntos, List<Integer> fuentes, List<Integer> destinos);
+
+    /**
+     * Si conviene duplicar consultas lentas (sólo tiene sentido con un motor remoto)
+     */
+    default boolean admiteHedging() {
+        return true;
+    }
+}
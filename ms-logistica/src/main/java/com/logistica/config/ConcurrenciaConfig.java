@@ -0,0 +1,41 @@
+package com.logistica.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class ConcurrenciaConfig {
+
+    /**
+     * Executor para llamadas bloqueantes a OSRM en paralelo (un hilo virtual por tarea)
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService osrmExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Executor de los métodos @Async (tareas posteriores al commit) y de las respuestas
+     * asincrónicas de MVC (NDJSON en streaming), con hilos virtuales y concurrencia acotada.
+     * Lleva el nombre del de Spring Boot: al haber otro Executor (osrmExecutor) Boot no
+     * crea el suyo y MVC usaría uno sin límite de hilos.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(
+            @Value("${app.tareas.max-concurrencia:200}") int maxConcurrencia) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("tareas-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrencia);
+        return executor;
+    }
+}
@@ -2,6 +2,7 @@ package com.logistica.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
@@ -14,12 +15,18 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable()) // Deshabilitar CSRF para APIs sin estado
                 .authorizeHttpRequests(authorize -> authorize
+                        // Posiciones GPS: el transportista del camión asignado (se valida en el controlador) o el operador
+                        .requestMatchers(HttpMethod.POST, "/api/v1/tramos/posiciones").hasAnyRole("TRANSPORTISTA", "OPERADOR")
+                        // Propuesta de asignación: resolución pesada (matriz tramos x camiones), sólo el operador
+                        .requestMatchers("/api/v1/tramos/asignacion-optima").hasRole("OPERADOR")
                         // Endpoints internos para otros microservicios
                         .requestMatchers("/api/v1/tramos/**").authenticated()
                         // Endpoints de gestión para el OPERADOR
                         .requestMatchers("/api/v1/depositos/**").hasRole("OPERADOR")
                         .requestMatchers("/api/v1/tarifas/**").hasRole("OPERADOR")
                         .requestMatchers("/api/v1/rutas/**").hasRole("OPERADOR")
+                        // Cache de camiones: la invalida MS Flota con el token del operador que editó el camión
+                        .requestMatchers("/api/v1/camiones/**").hasRole("OPERADOR")
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(
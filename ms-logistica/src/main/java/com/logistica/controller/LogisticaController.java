@@ -6,18 +6,55 @@ import com.logistica.dto.AsignarCamionRequest;
 import com.logistica.dto.AsignarTramosConsecutivosRequest;
 import com.logistica.dto.ReasignarTramoRequest;
 import com.logistica.dto.AsignacionResponse;
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmLegCache;
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.dto.CamionInfo;
+import com.logistica.client.OsrmResiliencia;
 import com.logistica.exception.TramoNotFoundException;
 import com.logistica.model.*;
+import com.logistica.repository.TramoVista;
 import com.logistica.service.RutaService;
+import com.logistica.service.AsignacionOptimaService;
+import com.logistica.dto.request.AsignacionOptimaRequest;
+import com.logistica.service.OptimizadorRutaService;
+import com.logistica.service.PlanificacionLoteService;
+import com.logistica.service.PlanificacionRutaService;
+import com.logistica.dto.request.PlanificarRutaOptimaRequest;
 import com.logistica.service.DepositoService;
+import com.logistica.service.EstadiaDepositoService;
+import com.logistica.service.GeometriaTramoService;
+import com.logistica.service.SeguimientoService;
+import com.logistica.dto.request.PosicionRequest;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.logistica.exception.LogisticaException;
+import java.io.InputStream;
+import com.logistica.util.GeometriaCodec;
 import com.logistica.service.TarifaService;
 import com.logistica.service.TramoService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.MediaType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistica.dto.request.FiltroTramos;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.time.LocalDate;
+import org.springframework.format.annotation.DateTimeFormat;
 import com.logistica.dto.mapper.TramoMapper;
 import com.logistica.dto.request.CrearTarifaRequest;
 import com.logistica.dto.mapper.TarifaMapper;
@@ -40,6 +77,30 @@ public class LogisticaController {
     private final TarifaMapper tarifaMapper;
     private final DepositoMapper depositoMapper;
     private final RutaMapper rutaMapper;
+    private final OsrmLegCache osrmLegCache;
+    private final CamionInfoCache camionInfoCache;
+    private final OsrmClient2 osrmClient;
+    private final OsrmResiliencia osrmResiliencia;
+    private final OptimizadorRutaService optimizadorRutaService;
+    private final PlanificacionLoteService planificacionLoteService;
+    private final PlanificacionRutaService planificacionRutaService;
+    private final AsignacionOptimaService asignacionOptimaService;
+    private final EstadiaDepositoService estadiaDepositoService;
+    private final GeometriaTramoService geometriaTramoService;
+    private final SeguimientoService seguimientoService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.tramos.listado.limite-defecto:500}")
+    private int limiteTramosDefecto = 500;
+
+    @Value("${app.tramos.listado.limite-maximo:5000}")
+    private int limiteTramosMaximo = 5000;
+
+    @Value("${app.tramos.geometria.cache-segundos:86400}")
+    private long geometriaCacheSegundos = 86400;
+
+    @Value("${app.posiciones.claim-dominio:dominio_camion}")
+    private String claimDominio = "dominio_camion";
 
     //ENDPOINTS DE RUTAS
 
@@ -48,19 +109,15 @@ public class LogisticaController {
      * POST /api/v1/rutas/planificar
      */
     @PostMapping("/rutas/planificar")
-    public ResponseEntity<RutaPlanningResponse> planificarRuta(@RequestBody PlanificarRutaRequest request) {
+    public ResponseEntity<RutaPlanningResponse> planificarRuta(@Valid @RequestBody PlanificarRutaRequest request) {
         log.info("Planificando ruta para solicitud: {}", request.getNroSolicitud());
 
         try {
-            List<Deposito> depositos = request.getIdDepositos() != null && !request.getIdDepositos().isEmpty()
-                    ? request.getIdDepositos().stream()
-                            .map(depositoService::obtenerDeposito)
-                            .toList()
-                    : List.of();
+            List<Deposito> depositos = depositoService.obtenerDepositos(request.getIdDepositos());
 
             Tarifa tarifa = tarifaService.obtenerTarifa(request.getIdTarifa());
 
-            RutaPlanningResponse response = rutaService.planificarRuta(
+            RutaPlanningResponse response = planificacionRutaService.planificarRuta(
                     request.getNroSolicitud(),
                     depositos,
                     request.getLatOrigen(),
@@ -76,6 +133,48 @@ public class LogisticaController {
         }
     }
 
+    /**
+     * Planifica una ruta eligiendo automáticamente los depósitos intermedios
+     * de menor costo (hasta maxParadas)
+     * POST /api/v1/rutas/planificar/optima
+     */
+    @PostMapping("/rutas/planificar/optima")
+    public ResponseEntity<RutaPlanningResponse> planificarRutaOptima(
+            @Valid @RequestBody PlanificarRutaOptimaRequest request) {
+        log.info("Planificando ruta óptima para solicitud: {} (máx. {} paradas)",
+                request.getNroSolicitud(), request.getMaxParadas());
+
+        Tarifa tarifa = tarifaService.obtenerTarifa(request.getIdTarifa());
+
+        List<Deposito> depositos = optimizadorRutaService.secuenciaOptima(
+                request.getLatOrigen(), request.getLonOrigen(),
+                request.getLatDestino(), request.getLonDestino(),
+                request.getMaxParadas(), tarifa);
+
+        RutaPlanningResponse response = planificacionRutaService.planificarRuta(
+                request.getNroSolicitud(),
+                depositos,
+                request.getLatOrigen(),
+                request.getLonOrigen(),
+                request.getLatDestino(),
+                request.getLonDestino(),
+                tarifa);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Planifica muchas solicitudes de una vez, resolviendo los tramos comunes
+     * con la menor cantidad de consultas a OSRM. Informa el resultado de cada una.
+     * POST /api/v1/rutas/planificar/lote
+     */
+    @PostMapping("/rutas/planificar/lote")
+    public ResponseEntity<PlanificacionLoteResponse> planificarLote(
+            @RequestBody List<PlanificarRutaRequest> solicitudes) {
+        log.info("Planificando lote de {} solicitudes", solicitudes.size());
+        return ResponseEntity.ok(planificacionLoteService.planificarLote(solicitudes));
+    }
+
     @GetMapping("/rutas/calcular")
     public ResponseEntity<CalculoResponse> calcularRuta(
             @RequestParam Double latOrigen,
@@ -111,6 +210,35 @@ public class LogisticaController {
         }
     }
 
+    /**
+     * Cotiza un tramo sin indicar tarifa: usa la vigente en la fecha planificada
+     * (hoy si no se indica)
+     * GET /api/v1/rutas/cotizar
+     */
+    @GetMapping("/rutas/cotizar")
+    public ResponseEntity<CotizacionResponse> cotizarTramo(
+            @RequestParam Double latOrigen,
+            @RequestParam Double lonOrigen,
+            @RequestParam Double latDestino,
+            @RequestParam Double lonDestino,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+
+        LocalDate fechaCotizacion = fecha != null ? fecha : LocalDate.now();
+        Tarifa tarifa = tarifaService.obtenerTarifaVigente(fechaCotizacion);
+
+        DistanciaResponse distancia = rutaService.calcularDistancia(
+                latOrigen, lonOrigen, latDestino, lonDestino, List.of());
+
+        return ResponseEntity.ok(CotizacionResponse.builder()
+                .distanciaKM(distancia.getDistanciaKm())
+                .tiempoEstimado(distancia.getTiempoSegundos())
+                .costoEstimado(distancia.getDistanciaKm() * tarifa.getValorKMBase())
+                .idTarifa(tarifa.getId())
+                .fechaVigenciaTarifa(tarifa.getFechaVigencia())
+                .fecha(fechaCotizacion)
+                .build());
+    }
+
     /**
      * Obtener una ruta por ID
      * GET /api/v1/rutas/{id}
@@ -134,15 +262,40 @@ public class LogisticaController {
         return ResponseEntity.ok(rutaMapper.toResponse(ruta));
     }
 
+    /**
+     * Estadísticas de la cache de tramos OSRM
+     * GET /api/v1/rutas/osrm/cache
+     */
+    @GetMapping("/rutas/osrm/cache")
+    public ResponseEntity<CacheEstadisticasResponse> estadisticasCacheOsrm() {
+        return ResponseEntity.ok(new CacheEstadisticasResponse(
+                osrmLegCache.getAciertos(),
+                osrmLegCache.getFallos(),
+                osrmLegCache.getDesalojos(),
+                osrmLegCache.getTamanio(),
+                osrmLegCache.getMaxEntradas()));
+    }
+
+    /**
+     * Motor de ruteo activo, estado del circuito y latencia p95 reciente
+     * (para comparar OSRM contra el grafo local)
+     * GET /api/v1/rutas/motor
+     */
+    @GetMapping("/rutas/motor")
+    public ResponseEntity<MotorRuteoResponse> estadoMotorRuteo() {
+        return ResponseEntity.ok(new MotorRuteoResponse(
+                osrmClient.getNombreMotor(),
+                osrmResiliencia.getEstado().name(),
+                osrmResiliencia.p95Ms()));
+    }
+
     // REQUERIMIENTO 3: Consultar rutas tentativas
     @PostMapping("/rutas/tentativas")
     public ResponseEntity<List<RutaTentativaResponse>> consultarRutasTentativas(@RequestBody PlanificarRutaRequest request) {
         log.info("Consultando rutas tentativas para solicitud: {}", request.getNroSolicitud());
 
         // Recuperar entidades necesarias (igual que en planificar)
-        List<Deposito> depositos = request.getIdDepositos() != null
-                ? request.getIdDepositos().stream().map(depositoService::obtenerDeposito).toList()
-                : List.of();
+        List<Deposito> depositos = depositoService.obtenerDepositos(request.getIdDepositos());
 
         Tarifa tarifa = tarifaService.obtenerTarifa(request.getIdTarifa());
 
@@ -234,6 +387,62 @@ public class LogisticaController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Los k depósitos más cercanos a un punto
+     * GET /api/v1/depositos/cercanos?lat=&lon=&k=
+     */
+    @GetMapping("/depositos/cercanos")
+    public ResponseEntity<List<DepositoCercanoResponse>> depositosCercanos(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(defaultValue = "5") int k) {
+        List<DepositoCercanoResponse> response = depositoService.buscarCercanos(lat, lon, k).stream()
+                .map(c -> depositoMapper.toCercanoResponse(c.deposito(), c.distanciaKm()))
+                .toList();
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Depósitos dentro de un radio (km) alrededor de un punto
+     * GET /api/v1/depositos/radio?lat=&lon=&radioKm=
+     */
+    @GetMapping("/depositos/radio")
+    public ResponseEntity<List<DepositoCercanoResponse>> depositosEnRadio(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam Double radioKm) {
+        List<DepositoCercanoResponse> response = depositoService.buscarEnRadio(lat, lon, radioKm).stream()
+                .map(c -> depositoMapper.toCercanoResponse(c.deposito(), c.distanciaKm()))
+                .toList();
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Contenedores en cada depósito con días y costo de estadía hasta ahora
+     * GET /api/v1/depositos/ocupacion
+     */
+    @GetMapping("/depositos/ocupacion")
+    public ResponseEntity<List<OcupacionDepositoResponse>> ocupacionDepositos() {
+        return ResponseEntity.ok(estadiaDepositoService.ocupacion(null));
+    }
+
+    /**
+     * Ocupación de un depósito (vacía si no tiene contenedores)
+     * GET /api/v1/depositos/{id}/ocupacion
+     */
+    @GetMapping("/depositos/{id}/ocupacion")
+    public ResponseEntity<OcupacionDepositoResponse> ocupacionDeposito(@PathVariable Long id) {
+        Deposito deposito = depositoService.obtenerDeposito(id);
+        OcupacionDepositoResponse response = estadiaDepositoService.ocupacion(id).stream()
+                .findFirst()
+                .orElseGet(() -> OcupacionDepositoResponse.builder()
+                        .idDeposito(id)
+                        .nombre(deposito.getNombre())
+                        .estadias(List.of())
+                        .build());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Actualiza un depósito existente
      * PUT /api/v1/depositos/{id}
@@ -320,27 +529,195 @@ public class LogisticaController {
     }
 
     /**
-     * Consulta contenedores pendientes de entrega y su ubicación
-     * GET /api/v1/contenedores/pendientes
+     * Trazado del tramo en formato polyline (precisión 6), simplificado según el nivel
+     * (0 = más grueso; sin nivel, el completo). Con ETag: If-None-Match responde 304.
+     * GET /api/v1/tramos/{id}/geometria?nivel=
+     */
+    @GetMapping("/tramos/{id}/geometria")
+    public ResponseEntity<GeometriaTramoResponse> obtenerGeometriaTramo(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer nivel,
+            WebRequest request) {
+        GeometriaTramoService.Trazado trazado = geometriaTramoService.obtener(id);
+        int nivelMaximo = geometriaTramoService.cantidadNiveles() - 1;
+        int nivelPedido = nivel == null ? nivelMaximo : Math.max(0, Math.min(nivelMaximo, nivel));
+
+        String etag = "\"" + id + "-" + nivelPedido + "-" + Long.toHexString(trazado.firma()) + "\"";
+        if (!trazado.aproximado() && request.checkNotModified(etag)) {
+            return null; // 304
+        }
+
+        GeometriaCodec.Puntos puntos = GeometriaCodec.filtrar(trazado.puntos(), trazado.niveles(), nivelPedido);
+        GeometriaTramoResponse response = GeometriaTramoResponse.builder()
+                .idTramo(id)
+                .nivel(nivelPedido)
+                .nivelesDisponibles(nivelMaximo + 1)
+                .cantidadPuntos(puntos.size())
+                .precision(6)
+                .polyline(GeometriaCodec.codificarPolyline(puntos, 6))
+                .aproximada(trazado.aproximado())
+                .build();
+
+        // La línea recta no se cachea: el próximo pedido puede traer el trazado real
+        CacheControl cache = trazado.aproximado()
+                ? CacheControl.noStore()
+                : CacheControl.maxAge(geometriaCacheSegundos, TimeUnit.SECONDS).cachePrivate();
+        return ResponseEntity.ok().eTag(etag).cacheControl(cache).body(response);
+    }
+
+    /**
+     * Registra la posición GPS de un camión en un tramo en curso y devuelve el avance
+     * calculado. 503 si el buffer de posiciones está lleno (reintentar); 403 si el tramo
+     * no es del camión del transportista.
+     * POST /api/v1/tramos/posiciones
+     */
+    @PostMapping(value = "/tramos/posiciones", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ProgresoTramoResponse> registrarPosicion(@Valid @RequestBody PosicionRequest request,
+            Authentication autenticacion) {
+        ProgresoTramoResponse progreso = seguimientoService.registrar(request, dominioAutorizado(autenticacion));
+        if (progreso == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(progreso);
+    }
+
+    /**
+     * Lote de posiciones como NDJSON (una por línea), leído en streaming. Las inválidas
+     * se cuentan como rechazadas y las que no entran en el buffer como descartadas.
+     * POST /api/v1/tramos/posiciones  (Content-Type: application/x-ndjson)
+     */
+    @PostMapping(value = "/tramos/posiciones", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<IngestaPosicionesResponse> registrarPosiciones(InputStream cuerpo,
+            Authentication autenticacion) throws IOException {
+        String dominio = dominioAutorizado(autenticacion);
+        try (MappingIterator<PosicionRequest> posiciones =
+                     objectMapper.readerFor(PosicionRequest.class).readValues(cuerpo)) {
+            IngestaPosicionesResponse response = seguimientoService.registrarLote(posiciones, dominio);
+            HttpStatus estado = response.getDescartadas() > 0 && response.getAceptadas() == 0
+                    ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(estado).body(response);
+        } catch (RuntimeJsonMappingException e) {
+            // Las posiciones anteriores a la línea inválida ya quedaron registradas
+            throw new LogisticaException("Lote de posiciones con una línea inválida: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Camión del que puede informar posiciones quien llama: el del token para el
+     * transportista, null (cualquiera) para el operador
+     */
+    private String dominioAutorizado(Authentication autenticacion) {
+        if (autenticacion != null && autenticacion.getAuthorities().stream()
+                .anyMatch(a -> "ROLE_OPERADOR".equals(a.getAuthority()))) {
+            return null;
+        }
+        String dominio = autenticacion != null && autenticacion.getPrincipal() instanceof Jwt jwt
+                ? jwt.getClaimAsString(claimDominio) : null;
+        if (dominio == null || dominio.isBlank()) {
+            throw new AccessDeniedException("El token no indica el camión del transportista");
+        }
+        return dominio;
+    }
+
+    /**
+     * Último avance conocido del tramo (progreso, km y tiempo restantes)
+     * GET /api/v1/tramos/{id}/progreso
+     */
+    @GetMapping("/tramos/{id}/progreso")
+    public ResponseEntity<ProgresoTramoResponse> obtenerProgresoTramo(@PathVariable Long id) {
+        return ResponseEntity.ok(seguimientoService.obtenerProgreso(id));
+    }
+
+    /**
+     * Consulta contenedores pendientes de entrega y su ubicación, paginado por id
+     * como /tramos (header X-Siguiente-Cursor si hay más)
+     * GET /api/v1/contenedores/pendientes?cursor=&limite=&dominio=&desde=&hasta=
      */
     @GetMapping("/contenedores/pendientes")
-    public ResponseEntity<List<TramoResponse>> obtenerContenedoresPendientes() {
-        List<TramoResponse> response = tramoService.obtenerTramosPendientes().stream()
-                .map(tramoMapper::toResponse)
-                .toList();
-        return ResponseEntity.ok(response);
+    public ResponseEntity<List<TramoResponse>> obtenerContenedoresPendientes(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String dominio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        return paginaTramos(new FiltroTramos(null, dominio, desde, hasta, true), cursor, limite);
     }
 
     /**
-     * Listar todos los tramos
-     * GET /api/v1/tramos
+     * Pendientes como NDJSON (un tramo por línea), sin límite y con memoria constante
+     * GET /api/v1/contenedores/pendientes  (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/contenedores/pendientes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarContenedoresPendientes(
+            @RequestParam(required = false) String dominio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        return streamTramos(new FiltroTramos(null, dominio, desde, hasta, true));
+    }
+
+    /**
+     * Listar tramos paginados por id (keyset). Si hay más resultados, la respuesta
+     * trae el header X-Siguiente-Cursor con el valor a enviar como "cursor".
+     * GET /api/v1/tramos?cursor=&limite=&estado=&dominio=&desde=&hasta=
      */
     @GetMapping("/tramos")
-    public ResponseEntity<List<TramoResponse>> listarTramos() {
-        List<TramoResponse> response = tramoService.listarTramos().stream()
+    public ResponseEntity<List<TramoResponse>> listarTramos(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) EstadoTramo estado,
+            @RequestParam(required = false) String dominio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        return paginaTramos(new FiltroTramos(estado, dominio, desde, hasta, false), cursor, limite);
+    }
+
+    /**
+     * Todos los tramos del filtro como NDJSON, leídos con cursor y escritos a medida
+     * GET /api/v1/tramos  (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/tramos", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarTramos(
+            @RequestParam(required = false) EstadoTramo estado,
+            @RequestParam(required = false) String dominio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        return streamTramos(new FiltroTramos(estado, dominio, desde, hasta, false));
+    }
+
+    private ResponseEntity<List<TramoResponse>> paginaTramos(FiltroTramos filtro, Long cursor, Integer limite) {
+        int tamanio = Math.min(limite != null && limite > 0 ? limite : limiteTramosDefecto, limiteTramosMaximo);
+
+        // Se pide uno de más para saber si hay otra página
+        List<TramoVista> tramos = tramoService.listarTramos(filtro, cursor, tamanio + 1);
+        boolean hayMas = tramos.size() > tamanio;
+        List<TramoResponse> response = tramos.stream()
+                .limit(tamanio)
                 .map(tramoMapper::toResponse)
                 .toList();
-        return ResponseEntity.ok(response);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (hayMas) {
+            builder.header("X-Siguiente-Cursor", String.valueOf(response.get(response.size() - 1).getId()));
+        }
+        return builder.body(response);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamTramos(FiltroTramos filtro) {
+        StreamingResponseBody cuerpo = salida -> {
+            long cantidad = tramoService.recorrerTramos(filtro, tramo -> {
+                try {
+                    // writeValueAsBytes: writeValue cerraría el stream de la respuesta
+                    salida.write(objectMapper.writeValueAsBytes(tramoMapper.toResponse(tramo)));
+                    salida.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.debug("Exportados {} tramos en NDJSON", cantidad);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
     }
 
     /**
@@ -349,7 +726,7 @@ public class LogisticaController {
      */
     @GetMapping("/rutas/{rutaId}/tramos")
     public ResponseEntity<List<TramoResponse>> obtenerTramosPorRuta(@PathVariable Long rutaId) {
-        List<TramoResponse> response = tramoService.obtenerTramosPorRuta(rutaId).stream()
+        List<TramoResponse> response = tramoService.obtenerVistaPorRuta(rutaId).stream()
                 .map(tramoMapper::toResponse)
                 .toList();
         return ResponseEntity.ok(response);
@@ -375,6 +752,17 @@ public class LogisticaController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Propuesta de asignación de costo mínimo para los tramos ESTIMADO de la ventana
+     * y los camiones libres de MS Flota (capacidad y horarios viables). No asigna.
+     * POST /api/v1/tramos/asignacion-optima
+     */
+    @PostMapping("/tramos/asignacion-optima")
+    public ResponseEntity<AsignacionOptimaResponse> asignacionOptima(
+            @Valid @RequestBody AsignacionOptimaRequest request) {
+        return ResponseEntity.ok(asignacionOptimaService.optimizar(request));
+    }
+
     /**
      * Reasignar tramo a otro camión
      * POST /api/v1/tramos/{id}/reasignar
@@ -393,4 +781,50 @@ public class LogisticaController {
         // 2. Convertir a DTO usando el Mapper
         return ResponseEntity.ok(tramoMapper.toResponse(tramoActualizado));
     }
-}
\ No newline at end of file
+
+    // --- Cache de camiones (datos de MS Flota para el costo real) ---
+
+    /**
+     * INTERNO: MS Flota avisa que cambió un camión. Si manda los datos nuevos se
+     * reemplaza la entrada; si no, se invalida y se vuelve a pedir cuando haga falta.
+     * POST /api/v1/camiones/{dominio}/actualizado
+     */
+    @PostMapping("/camiones/{dominio}/actualizado")
+    public ResponseEntity<Void> camionActualizado(@PathVariable String dominio,
+            @RequestBody(required = false) CamionInfo camion) {
+        if (camion != null && camion.getConsumoCombustiblePromedio() != null) {
+            camion.setDominio(dominio);
+            camionInfoCache.guardar(camion);
+        } else {
+            camionInfoCache.invalidar(dominio);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Precarga en cache los camiones indicados (una sola consulta a MS Flota).
+     * Sin cuerpo, precarga los camiones con tramos asignados o en curso.
+     * POST /api/v1/camiones/cache/precargar
+     */
+    @PostMapping("/camiones/cache/precargar")
+    public ResponseEntity<CacheEstadisticasResponse> precargarCamiones(
+            @RequestBody(required = false) List<String> dominios) {
+        camionInfoCache.precargar(dominios == null || dominios.isEmpty()
+                ? tramoService.obtenerDominiosEnUso() : dominios);
+        return estadisticasCacheCamiones();
+    }
+
+    /**
+     * Estadísticas de la cache de camiones
+     * GET /api/v1/camiones/cache
+     */
+    @GetMapping("/camiones/cache")
+    public ResponseEntity<CacheEstadisticasResponse> estadisticasCacheCamiones() {
+        return ResponseEntity.ok(new CacheEstadisticasResponse(
+                camionInfoCache.getAciertos(),
+                camionInfoCache.getFallos(),
+                camionInfoCache.getDesalojos(),
+                camionInfoCache.getTamanio(),
+                camionInfoCache.getMaxEntradas()));
+    }
+}
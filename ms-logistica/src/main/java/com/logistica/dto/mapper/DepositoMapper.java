@@ -1,6 +1,7 @@
 package com.logistica.dto.mapper;
 
 import com.logistica.dto.request.CrearDepositoRequest;
+import com.logistica.dto.response.DepositoCercanoResponse;
 import com.logistica.dto.response.DepositoResponse;
 import com.logistica.model.Deposito;
 import org.springframework.stereotype.Component;
@@ -30,4 +31,11 @@ public class DepositoMapper {
                 .costoEstadiaDiario(entity.getCostoEstadiaDiario())
                 .build();
     }
-}
\ No newline at end of file
+
+    public DepositoCercanoResponse toCercanoResponse(Deposito entity, double distanciaKm) {
+        return DepositoCercanoResponse.builder()
+                .deposito(toResponse(entity))
+                .distanciaKm(distanciaKm)
+                .build();
+    }
+}
@@ -27,6 +27,10 @@ public class RutaMapper {
                 .nroSolicitudRef(entity.getNroSolicitudRef())
                 .cantidadTramos(entity.getCantidadTramos())
                 .distanciaTotal(entity.getDistanciaTotal())
+                .costoEstimadoTotal(entity.getCostoEstimadoTotal())
+                .tiempoEstimadoTotal(entity.getTiempoEstimadoTotal())
+                .tramosFinalizados(entity.getTramosFinalizados())
+                .costoRealTotal(entity.getCostoRealTotal())
                 .tramos(tramosDto)
                 .build();
     }
@@ -2,6 +2,7 @@ package com.logistica.dto.mapper;
 
 import com.logistica.dto.response.TramoResponse;
 import com.logistica.model.Tramo;
+import com.logistica.repository.TramoVista;
 import org.springframework.stereotype.Component;
 
 
@@ -42,4 +43,32 @@ public class TramoMapper {
 
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Desde la proyección de lectura: los nombres de origen/destino ya vienen resueltos
+     */
+    public TramoResponse toResponse(TramoVista vista) {
+        if (vista == null) {
+            return null;
+        }
+
+        return TramoResponse.builder()
+                .id(vista.id())
+                .estado(vista.estado().name())
+                .tipo(vista.tipo())
+                .origen(vista.origen())
+                .destino(vista.destino())
+                .dominioCamionRef(vista.dominioCamionRef())
+                .kmEstimados(vista.kmEstimados())
+                .kmRecorridos(vista.kmRecorridos())
+                .costoEstimado(vista.costoEstimado())
+                .costoReal(vista.costoReal())
+                .tiempoEstimado(vista.tiempoEstimado())
+                .tiempoReal(vista.tiempoReal())
+                .fechaHoraInicioEstimada(vista.fechaHoraInicioEstimada())
+                .fechaHoraFinEstimada(vista.fechaHoraFinEstimada())
+                .fechaHoraInicioReal(vista.fechaHoraInicioReal())
+                .fechaHoraFinReal(vista.fechaHoraFinReal())
+                .build();
+    }
+}
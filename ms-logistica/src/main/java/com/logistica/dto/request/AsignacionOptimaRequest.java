@@ -0,0 +1,39 @@
+package com.logistica.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ventana de planificación para asignar camiones a los tramos ESTIMADO.
+ * MS Logística no conoce la carga de cada solicitud: el peso y volumen del
+ * contenedor se informan acá (solicitudes sin requisito aceptan cualquier camión).
+ */
+@Data
+public class AsignacionOptimaRequest {
+
+    @NotNull(message = "La fecha desde es obligatoria")
+    private LocalDateTime desde;
+
+    @NotNull(message = "La fecha hasta es obligatoria")
+    private LocalDateTime hasta;
+
+    @Valid
+    private List<RequisitoCarga> requisitos;
+
+    @Data
+    public static class RequisitoCarga {
+        @NotBlank(message = "El número de solicitud es obligatorio")
+        private String nroSolicitud;
+
+        @PositiveOrZero(message = "El peso no puede ser negativo")
+        private Double peso;
+
+        @PositiveOrZero(message = "El volumen no puede ser negativo")
+        private Double volumen;
+    }
+}
@@ -0,0 +1,16 @@
+package com.logistica.dto.request;
+
+import com.logistica.model.EstadoTramo;
+import java.time.LocalDateTime;
+
+/**
+ * Filtros opcionales para listar tramos (null = sin filtrar).
+ * desde/hasta se comparan contra fechaHoraInicioEstimada, hasta es exclusivo.
+ */
+public record FiltroTramos(
+        EstadoTramo estado,
+        String dominio,
+        LocalDateTime desde,
+        LocalDateTime hasta,
+        boolean soloPendientes) {
+}
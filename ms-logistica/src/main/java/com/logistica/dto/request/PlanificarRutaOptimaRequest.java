@@ -0,0 +1,34 @@
+package com.logistica.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+@Data
+public class PlanificarRutaOptimaRequest {
+    @NotBlank(message = "El número de solicitud es obligatorio")
+    private String nroSolicitud;
+
+    @NotNull(message = "La latitud de origen es obligatoria")
+    private Double latOrigen;
+
+    @NotNull(message = "La longitud de origen es obligatoria")
+    private Double lonOrigen;
+
+    @NotNull(message = "La latitud de destino es obligatoria")
+    private Double latDestino;
+
+    @NotNull(message = "La longitud de destino es obligatoria")
+    private Double lonDestino;
+
+    @NotNull(message = "La tarifa es obligatoria")
+    private Long idTarifa;
+
+    // Cantidad máxima de depósitos intermedios que puede tener la ruta
+    @NotNull(message = "La cantidad máxima de paradas es obligatoria")
+    @PositiveOrZero(message = "La cantidad máxima de paradas no puede ser negativa")
+    @Max(value = 10, message = "No se permiten más de 10 paradas")
+    private Integer maxParadas;
+}
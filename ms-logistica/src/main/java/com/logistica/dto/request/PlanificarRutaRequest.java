@@ -1,10 +1,12 @@
 package com.logistica.dto.request;
 
+import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import java.util.List;
 
 @Data
 public class PlanificarRutaRequest {
+    @NotBlank(message = "El número de solicitud es obligatorio")
     private String nroSolicitud;
     private List<Long> idDepositos; // IDs de depósitos intermedios (puede ser null o vacío)
     private Double latOrigen;
@@ -0,0 +1,29 @@
+package com.logistica.dto.request;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Posición GPS de un camión durante un tramo en curso. Sin fechaHora se toma la de recepción.
+ */
+@Data
+public class PosicionRequest {
+
+    @NotNull(message = "El id de tramo es obligatorio")
+    private Long idTramo;
+
+    @NotNull(message = "La latitud es obligatoria")
+    @DecimalMin(value = "-90", message = "Latitud inválida")
+    @DecimalMax(value = "90", message = "Latitud inválida")
+    private Double latitud;
+
+    @NotNull(message = "La longitud es obligatoria")
+    @DecimalMin(value = "-180", message = "Longitud inválida")
+    @DecimalMax(value = "180", message = "Longitud inválida")
+    private Double longitud;
+
+    private LocalDateTime fechaHora;
+}
@@ -0,0 +1,15 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class AsignacionOptimaItemResponse {
+    private Long idTramo;
+    private String dominioCamion;
+    private LocalDateTime fechaHoraInicio; // planificada o la primera posible para el camión
+    private LocalDateTime fechaHoraFin;
+    private double costoEstimado;          // costo por km del camión + combustible con recargo
+}
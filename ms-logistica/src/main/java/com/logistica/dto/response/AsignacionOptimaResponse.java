@@ -0,0 +1,16 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@Builder
+public class AsignacionOptimaResponse {
+    private int tramosConsiderados;
+    private int camionesConsiderados;
+    private double costoTotal;
+    private long duracionMs;
+    private List<AsignacionOptimaItemResponse> asignaciones;
+    private List<Long> tramosSinAsignar;   // sin camión viable o con más tramos que camiones
+}
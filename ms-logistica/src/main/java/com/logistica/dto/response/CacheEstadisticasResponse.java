@@ -0,0 +1,14 @@
+package com.logistica.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheEstadisticasResponse {
+    private long aciertos;
+    private long fallos;
+    private long desalojos;
+    private int entradas;
+    private int maxEntradas;
+}
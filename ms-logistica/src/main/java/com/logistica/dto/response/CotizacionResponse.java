@@ -0,0 +1,16 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class CotizacionResponse {
+    private double distanciaKM;
+    private double tiempoEstimado; // segundos
+    private double costoEstimado;
+    private Long idTarifa;                 // tarifa vigente usada
+    private LocalDate fechaVigenciaTarifa;
+    private LocalDate fecha;               // fecha para la que se cotizó
+}
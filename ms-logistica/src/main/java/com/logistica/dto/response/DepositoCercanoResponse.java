@@ -0,0 +1,11 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DepositoCercanoResponse {
+    private DepositoResponse deposito;
+    private double distanciaKm; // en línea recta
+}
@@ -8,4 +8,9 @@ import lombok.Data;
 public class DistanciaResponse {
     private double distanciaKm;
     private double tiempoSegundos;
+    private boolean aproximada; // estimación offline, no una distancia de OSRM
+
+    public DistanciaResponse(double distanciaKm, double tiempoSegundos) {
+        this(distanciaKm, tiempoSegundos, false);
+    }
 }
\ No newline at end of file
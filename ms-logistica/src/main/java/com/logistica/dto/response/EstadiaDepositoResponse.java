@@ -0,0 +1,15 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class EstadiaDepositoResponse {
+    private String nroSolicitud; // contenedor de la solicitud
+    private Long idTramoLlegada;
+    private LocalDateTime fechaIngreso;
+    private long dias; // días completos hasta ahora
+    private double costoAcumulado;
+}
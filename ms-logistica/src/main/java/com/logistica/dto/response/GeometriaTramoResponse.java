@@ -0,0 +1,16 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class GeometriaTramoResponse {
+    private Long idTramo;
+    private int nivel; // 0 = más simplificado; nivelesDisponibles - 1 = completo
+    private int nivelesDisponibles;
+    private int cantidadPuntos;
+    private int precision; // decimales del polyline (6 = polyline6)
+    private String polyline; // formato polyline de Google
+    private boolean aproximada; // línea recta: el motor de ruteo no respondió
+}
@@ -0,0 +1,13 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IngestaPosicionesResponse {
+    private int recibidas;
+    private int aceptadas;
+    private int rechazadas; // inválidas o de tramos que no están en curso
+    private int descartadas; // buffer lleno: conviene reintentarlas más tarde
+}
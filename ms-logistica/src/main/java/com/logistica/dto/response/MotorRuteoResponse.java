@@ -0,0 +1,12 @@
+package com.logistica.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MotorRuteoResponse {
+    private String motor;     // osrm | local
+    private String circuito;  // CERRADO, ABIERTO, SEMI_ABIERTO
+    private long latenciaP95Ms;
+}
@@ -0,0 +1,16 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@Builder
+public class OcupacionDepositoResponse {
+    private Long idDeposito;
+    private String nombre;
+    private int contenedores;
+    private long diasAcumulados; // suma de los días de todos los contenedores
+    private double costoAcumulado;
+    private List<EstadiaDepositoResponse> estadias;
+}
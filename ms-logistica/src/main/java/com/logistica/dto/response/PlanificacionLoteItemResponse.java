@@ -0,0 +1,13 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PlanificacionLoteItemResponse {
+    private String nroSolicitud;
+    private boolean exitoso;
+    private RutaPlanningResponse ruta; // null si falló
+    private String error;              // null si fue exitoso
+}
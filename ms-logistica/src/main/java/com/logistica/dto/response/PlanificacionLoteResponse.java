@@ -0,0 +1,17 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@Builder
+public class PlanificacionLoteResponse {
+    private int total;
+    private int exitosas;
+    private int fallidas;
+    private int tramosUnicos;       // tramos distintos entre todas las solicitudes
+    private int consultasOsrm;      // consultas /table usadas para resolverlos
+    private long duracionMs;
+    private List<PlanificacionLoteItemResponse> resultados;
+}
@@ -0,0 +1,22 @@
+package com.logistica.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ProgresoTramoResponse {
+    private Long idTramo;
+    private String dominioCamion;
+    private LocalDateTime fechaHora; // de la última posición
+    private double latitud;
+    private double longitud;
+    private double progreso; // fracción del trazado recorrida, de 0 a 1
+    private double kmRestantes;
+    private double etaSegundos; // tiempo restante estimado
+    private LocalDateTime llegadaEstimada;
+    private double desvioMetros;
+    private boolean fueraDeRuta; // desvío mayor al umbral configurado
+    private boolean trazadoAproximado; // proyectado sobre la línea recta (el motor de ruteo no respondió)
+}
@@ -9,4 +9,5 @@ public class RutaPlanningResponse {
     private RutaResponse ruta;
     private double costoEstimadoTotal;
     private double tiempoEstimadoTotal; // en segundos
+    private boolean aproximada; // distancias estimadas sin OSRM, conviene recalcular
 }
\ No newline at end of file
@@ -11,6 +11,10 @@ public class RutaResponse {
     private String nroSolicitudRef;
     private int cantidadTramos;
     private double distanciaTotal;
+    private Double costoEstimadoTotal;
+    private Double tiempoEstimadoTotal;
+    private Integer tramosFinalizados;
+    private Double costoRealTotal;
 
     private List<TramoResponse> tramos;
 }
\ No newline at end of file
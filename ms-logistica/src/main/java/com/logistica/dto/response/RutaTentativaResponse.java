@@ -12,4 +12,5 @@ public class RutaTentativaResponse {
     private double tiempoEstimadoTotalSegundos;
     private double costoEstimadoTotal;
     private List<TramoResponse> tramosSugeridos; // Reutilizamos tu TramoResponse
+    private boolean aproximada; // algún tramo es una estimación offline (OSRM no disponible)
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.logistica.event;
+
+/**
+ * Se asignó un camión a un tramo: conviene tener sus datos en cache antes de que finalice
+ */
+public record CamionAsignadoEvent(String dominio) {
+}
@@ -0,0 +1,8 @@
+package com.logistica.event;
+
+/**
+ * Un tramo se finalizó sin datos del camión en cache: su costo real es provisorio
+ * y hay que recalcularlo cuando MS Flota responda
+ */
+public record CostoProvisorioEvent(Long idTramo) {
+}
@@ -1,41 +1,120 @@
 package com.logistica.event;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Colas de eventos de tramos que publica MS Flota (exchange "flota-viajes-events").
+ * Cada cola tiene su cola de reintento (espera con TTL y vuelve a la cola principal)
+ * y su DLQ para los mensajes que no se pueden procesar. Lo que va a la DLQ se
+ * avisa a MS Flota por "logistica-events" (tramo.rechazado) para que compense.
+ * <p>
+ * Las colas principales tienen nombre nuevo: tramos.iniciado.queue y
+ * tramos.finalizado.queue ya existen en el broker sin argumentos de DLX, y
+ * redeclararlas con otros argumentos falla con PRECONDITION_FAILED. Las viejas
+ * no tienen publicadores y se pueden borrar una vez vacías.
+ */
 @Configuration
 public class RabbitMQConfig {
 
-    // Exchange
+    public static final String EXCHANGE_FLOTA = "flota-viajes-events";
+    public static final String EXCHANGE_DLX = "tramos.dlx";
+    public static final String EXCHANGE_LOGISTICA = "logistica-events";
+
+    public static final String COLA_TRAMO_INICIADO = "logistica.tramos.iniciado";
+    public static final String COLA_TRAMO_FINALIZADO = "logistica.tramos.finalizado";
+    public static final String REINTENTO_TRAMO_INICIADO = "tramos.iniciado.reintento";
+    public static final String REINTENTO_TRAMO_FINALIZADO = "tramos.finalizado.reintento";
+    public static final String DLQ_TRAMO_INICIADO = "tramos.iniciado.dlq";
+    public static final String DLQ_TRAMO_FINALIZADO = "tramos.finalizado.dlq";
+
+    public static final String EVENTO_TRAMO_INICIADO = "tramo.iniciado";
+    public static final String EVENTO_TRAMO_FINALIZADO = "tramo.finalizado";
+    public static final String EVENTO_TRAMO_RECHAZADO = "tramo.rechazado";
+
+    public static final String FACTORY_LOTES = "tramosBatchFactory";
+
+    @Value("${app.eventos.reintentos.espera-ms:5000}")
+    private long esperaReintentoMs = 5000;
+
+    // Exchanges
     @Bean
-    public TopicExchange solicitudesExchange() {
-        return new TopicExchange("solicitudes.exchange", true, false);
+    public TopicExchange flotaExchange() {
+        return new TopicExchange(EXCHANGE_FLOTA, true, false);
     }
 
-    // Queues
+    // Eventos que publica este servicio (la cola la declara quien consume)
     @Bean
-    public Queue tramoIniciado() {
-        return new Queue("tramos.iniciado.queue", true);
+    public TopicExchange logisticaExchange() {
+        return new TopicExchange(EXCHANGE_LOGISTICA, true, false);
     }
 
     @Bean
-    public Queue tramoFinalizado() {
-        return new Queue("tramos.finalizado.queue", true);
+    public DirectExchange tramosDeadLetterExchange() {
+        return new DirectExchange(EXCHANGE_DLX, true, false);
     }
 
-    // Bindings
+    // Queues
     @Bean
-    public Binding bindingTramoIniciado(Queue tramoIniciado, TopicExchange solicitudesExchange) {
-        return BindingBuilder.bind(tramoIniciado)
-                .to(solicitudesExchange)
-                .with("tramo.iniciado");
+    public Declarables tramoIniciado(TopicExchange flotaExchange, DirectExchange tramosDeadLetterExchange) {
+        return colaConReintentoYDlq(COLA_TRAMO_INICIADO, REINTENTO_TRAMO_INICIADO, DLQ_TRAMO_INICIADO,
+                EVENTO_TRAMO_INICIADO, flotaExchange, tramosDeadLetterExchange);
     }
 
     @Bean
-    public Binding bindingTramoFinalizado(Queue tramoFinalizado, TopicExchange solicitudesExchange) {
-        return BindingBuilder.bind(tramoFinalizado)
-                .to(solicitudesExchange)
-                .with("tramo.finalizado");
+    public Declarables tramoFinalizado(TopicExchange flotaExchange, DirectExchange tramosDeadLetterExchange) {
+        return colaConReintentoYDlq(COLA_TRAMO_FINALIZADO, REINTENTO_TRAMO_FINALIZADO, DLQ_TRAMO_FINALIZADO,
+                EVENTO_TRAMO_FINALIZADO, flotaExchange, tramosDeadLetterExchange);
+    }
+
+    private Declarables colaConReintentoYDlq(String cola, String reintento, String dlq, String routingKey,
+            TopicExchange exchange, DirectExchange dlx) {
+        // Rechazado sin requeue -> DLX -> DLQ
+        Queue principal = QueueBuilder.durable(cola)
+                .deadLetterExchange(EXCHANGE_DLX)
+                .deadLetterRoutingKey(dlq)
+                .build();
+        // Al vencer el TTL vuelve a la cola principal por el exchange por defecto
+        Queue espera = QueueBuilder.durable(reintento)
+                .ttl((int) esperaReintentoMs)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(cola)
+                .build();
+        Queue muertos = QueueBuilder.durable(dlq).build();
+
+        return new Declarables(principal, espera, muertos,
+                BindingBuilder.bind(principal).to(exchange).with(routingKey),
+                BindingBuilder.bind(muertos).to(dlx).with(dlq));
+    }
+
+    /**
+     * Contenedor de listeners por lotes: cada consumidor recibe hasta "tamanio-lote"
+     * mensajes y los confirma manualmente uno a uno o en bloque
+     */
+    @Bean(FACTORY_LOTES)
+    @ConditionalOnProperty(name = "app.eventos.habilitado", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory tramosBatchFactory(ConnectionFactory connectionFactory,
+            @Value("${app.eventos.consumidor.prefetch:250}") int prefetch,
+            @Value("${app.eventos.consumidor.tamanio-lote:50}") int tamanioLote,
+            @Value("${app.eventos.consumidor.espera-lote-ms:200}") long esperaLoteMs,
+            @Value("${app.eventos.consumidor.concurrencia:2}") int concurrencia,
+            @Value("${app.eventos.consumidor.concurrencia-maxima:4}") int concurrenciaMaxima) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanioLote);
+        factory.setReceiveTimeout(esperaLoteMs);
+        factory.setPrefetchCount(Math.max(prefetch, tamanioLote));
+        factory.setConcurrentConsumers(concurrencia);
+        factory.setMaxConcurrentConsumers(Math.max(concurrencia, concurrenciaMaxima));
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.logistica.event;
+
+/**
+ * Un tramo finalizó con tiempo real medido; alimenta la calibración de ETAs.
+ * Los depósitos son null en los extremos de la ruta (origen o destino de la solicitud).
+ */
+public record TiempoRealRegistradoEvent(Long idDepositoOrigen, Long idDepositoDestino,
+        double km, double tiempoBase, double tiempoReal) {
+}
@@ -0,0 +1,168 @@
+package com.logistica.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistica.service.EventosTramoService;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consume por lotes los eventos de tramos de MS Flota.
+ * Cada mensaje se aplica en su propia transacción; los que fallan por algo
+ * pasajero (secuencia todavía incompleta, base caída) van a la cola de reintento
+ * y el resto de los fallidos a la DLQ. Los correctos se confirman en un solo ack.
+ * <p>
+ * MS Flota ya cambió el camión cuando publica: por cada evento que va a la DLQ se
+ * publica tramo.rechazado para que lo deshaga. Las publicaciones esperan la
+ * confirmación del broker (publisher confirms).
+ */
+@Component
+@ConditionalOnProperty(name = "app.eventos.habilitado", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TramoEventListener {
+
+    static final String HEADER_REINTENTOS = "x-reintentos";
+
+    private final EventosTramoService eventosTramoService;
+    private final ObjectMapper objectMapper;
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${app.eventos.reintentos.max:5}")
+    private int maxReintentos = 5;
+
+    @Value("${app.eventos.confirmacion-ms:5000}")
+    private long esperaConfirmacionMs = 5000;
+
+    @RabbitListener(queues = RabbitMQConfig.COLA_TRAMO_INICIADO, containerFactory = RabbitMQConfig.FACTORY_LOTES)
+    public void alIniciarTramos(List<Message> mensajes, Channel canal) throws IOException {
+        procesarLote(mensajes, canal, RabbitMQConfig.REINTENTO_TRAMO_INICIADO, RabbitMQConfig.EVENTO_TRAMO_INICIADO,
+                m -> eventosTramoService.procesarInicio(objectMapper.readValue(m.getBody(), TramoIniciadoEvent.class)));
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.COLA_TRAMO_FINALIZADO, containerFactory = RabbitMQConfig.FACTORY_LOTES)
+    public void alFinalizarTramos(List<Message> mensajes, Channel canal) throws IOException {
+        procesarLote(mensajes, canal, RabbitMQConfig.REINTENTO_TRAMO_FINALIZADO, RabbitMQConfig.EVENTO_TRAMO_FINALIZADO,
+                m -> eventosTramoService.procesarFin(objectMapper.readValue(m.getBody(), TramoFinalizadoEvent.class)));
+    }
+
+    @FunctionalInterface
+    interface ProcesadorMensaje {
+        void procesar(Message mensaje) throws Exception;
+    }
+
+    void procesarLote(List<Message> mensajes, Channel canal, String colaReintento, String evento,
+            ProcesadorMensaje procesador) throws IOException {
+        long ultimoConfirmable = -1;
+        for (Message mensaje : mensajes) {
+            long tag = mensaje.getMessageProperties().getDeliveryTag();
+            try {
+                procesador.procesar(mensaje);
+                ultimoConfirmable = tag;
+            } catch (Exception e) {
+                if (esReintentable(e) && reencolar(mensaje, colaReintento)) {
+                    // La copia quedó en la cola de reintento: el original se confirma
+                    ultimoConfirmable = tag;
+                } else {
+                    log.error("Evento de {} enviado a la DLQ: {}",
+                            mensaje.getMessageProperties().getConsumerQueue(), e.getMessage());
+                    rechazar(mensaje, evento, e);
+                    canal.basicNack(tag, false, false);
+                }
+            }
+        }
+        // Los tags de un canal son crecientes: un ack múltiple confirma todos los pendientes
+        if (ultimoConfirmable >= 0) {
+            canal.basicAck(ultimoConfirmable, true);
+        }
+    }
+
+    private boolean reencolar(Message mensaje, String colaReintento) {
+        MessageProperties propiedades = mensaje.getMessageProperties();
+        Object valor = propiedades.getHeader(HEADER_REINTENTOS);
+        int reintentos = valor instanceof Number n ? n.intValue() : 0;
+        if (reintentos >= maxReintentos) {
+            return false;
+        }
+        propiedades.setHeader(HEADER_REINTENTOS, reintentos + 1);
+        if (!publicar("", colaReintento, mensaje)) {
+            log.warn("No se pudo reprogramar el evento de {}", propiedades.getConsumerQueue());
+            return false;
+        }
+        log.warn("Evento de {} reprogramado (reintento {} de {})",
+                propiedades.getConsumerQueue(), reintentos + 1, maxReintentos);
+        return true;
+    }
+
+    // Avisa a MS Flota que el evento no se aplicó; el original queda en la DLQ igual
+    private void rechazar(Message mensaje, String evento, Exception motivo) {
+        try {
+            JsonNode cuerpo = objectMapper.readTree(mensaje.getBody());
+            JsonNode km = cuerpo.path("kmRecorridos");
+            TramoRechazadoEvent rechazo = new TramoRechazadoEvent(
+                    cuerpo.path("idTramo").isNumber() ? cuerpo.path("idTramo").asLong() : null,
+                    cuerpo.path("dominioCamion").textValue(),
+                    evento,
+                    km.isNumber() ? km.asDouble() : null,
+                    String.valueOf(motivo.getMessage()),
+                    LocalDateTime.now());
+            if (rechazo.idTramo() == null || rechazo.dominioCamion() == null) {
+                log.error("Evento {} sin idTramo o camión: MS Flota no se puede compensar", evento);
+                return;
+            }
+            MessageProperties propiedades = new MessageProperties();
+            propiedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            propiedades.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+            Message aviso = new Message(objectMapper.writeValueAsBytes(rechazo), propiedades);
+            if (!publicar(RabbitMQConfig.EXCHANGE_LOGISTICA, RabbitMQConfig.EVENTO_TRAMO_RECHAZADO, aviso)) {
+                log.error("El broker no confirmó el rechazo del tramo {}: compensar a mano en MS Flota",
+                        rechazo.idTramo());
+            }
+        } catch (IOException e) {
+            log.error("Evento {} ilegible: MS Flota no se puede compensar: {}", evento, e.getMessage());
+        }
+    }
+
+    /**
+     * Publica y espera el confirm del broker; false si no se confirmó o no había
+     * cola para la routing key (mensaje devuelto)
+     */
+    private boolean publicar(String exchange, String routingKey, Message mensaje) {
+        CorrelationData correlacion = new CorrelationData();
+        try {
+            rabbitTemplate.send(exchange, routingKey, mensaje, correlacion);
+            CorrelationData.Confirm confirmacion = correlacion.getFuture()
+                    .get(esperaConfirmacionMs, TimeUnit.MILLISECONDS);
+            return confirmacion.isAck() && correlacion.getReturned() == null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("No se pudo publicar en {} / {}: {}", exchange, routingKey, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean esReintentable(Exception error) {
+        return error instanceof IllegalStateException
+                || error instanceof TransientDataAccessException
+                || error instanceof CannotCreateTransactionException;
+    }
+}
@@ -0,0 +1,23 @@
+package com.logistica.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento "tramo.finalizado" que publica MS Flota, con los datos del camión
+ * necesarios para el costo real
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TramoFinalizadoEvent(
+        Long idTramo,
+        Long camionId,
+        String dominioCamion,
+        Double kmRecorridos,
+        Double latitud,
+        Double longitud,
+        Double costoPorKmCamion,
+        Double consumoCombustibleCamion,
+        LocalDateTime fechaHoraFin,
+        LocalDateTime timestamp) {
+}
@@ -0,0 +1,19 @@
+package com.logistica.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento "tramo.iniciado" que publica MS Flota (mismos campos que su TramoIniciadoEvent)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TramoIniciadoEvent(
+        Long idTramo,
+        Long camionId,
+        String dominioCamion,
+        Double latitud,
+        Double longitud,
+        LocalDateTime fechaHoraInicio,
+        LocalDateTime timestamp) {
+}
@@ -0,0 +1,18 @@
+package com.logistica.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento "tramo.rechazado": un inicio o fin que publicó MS Flota no se pudo aplicar
+ * (fue a la DLQ). MS Flota lo consume y deshace el cambio que hizo en el camión.
+ *
+ * @param evento tramo.iniciado o tramo.finalizado
+ */
+public record TramoRechazadoEvent(
+        Long idTramo,
+        String dominioCamion,
+        String evento,
+        Double kmRecorridos,
+        String motivo,
+        LocalDateTime timestamp) {
+}
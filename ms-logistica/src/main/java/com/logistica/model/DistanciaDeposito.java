@@ -0,0 +1,27 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Distancia y duración por ruta entre dos depósitos (celda de la matriz
+ * depósito-depósito calculada con OSRM /table)
+ */
+@Data
+@Entity
+@Table(name = "distancia_deposito",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"deposito_origen_id", "deposito_destino_id"}))
+public class DistanciaDeposito {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "deposito_origen_id", nullable = false)
+    private Long depositoOrigenId;
+
+    @Column(name = "deposito_destino_id", nullable = false)
+    private Long depositoDestinoId;
+
+    private double distanciaKm;
+    private double duracionSegundos; // en segundos
+}
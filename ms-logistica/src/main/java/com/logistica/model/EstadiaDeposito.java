@@ -0,0 +1,52 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Estadía de un contenedor en un depósito: se abre al finalizar el tramo que llega
+ * y se cierra al iniciar el que sale. Al abrirla se cobra un día provisorio en el
+ * tramo de llegada; al cerrarla se ajusta con los días reales.
+ */
+@Data
+@Entity
+@Table(name = "estadia_deposito",
+        uniqueConstraints = @UniqueConstraint(name = "uk_estadia_tramo_llegada", columnNames = "id_tramo_llegada"),
+        indexes = {
+                @Index(name = "idx_estadia_ruta_deposito", columnList = "id_ruta, deposito_id"),
+                @Index(name = "idx_estadia_deposito_egreso", columnList = "deposito_id, fecha_egreso")
+        })
+public class EstadiaDeposito {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "deposito_id", nullable = false)
+    private Deposito deposito;
+
+    @Column(name = "id_ruta", nullable = false)
+    private Long idRuta;
+
+    @Column(name = "nro_solicitud", nullable = false)
+    private String nroSolicitud; // el contenedor de la solicitud
+
+    @Column(name = "id_tramo_llegada", nullable = false)
+    private Long idTramoLlegada;
+
+    @Column(name = "id_tramo_salida")
+    private Long idTramoSalida;
+
+    @Column(name = "fecha_ingreso", nullable = false)
+    private LocalDateTime fechaIngreso;
+
+    @Column(name = "fecha_egreso")
+    private LocalDateTime fechaEgreso; // null mientras el contenedor sigue en el depósito
+
+    @Column(nullable = false)
+    private Double costoDiario; // el del depósito al ingresar
+
+    @Column(nullable = false)
+    private Double costoCobrado; // lo incluido en el costo real del tramo de llegada
+}
@@ -0,0 +1,5 @@
+package com.logistica.model;
+
+public enum EstadoMensajeOutbox {
+    PENDIENTE, ENVIADO, FALLIDO
+}
@@ -0,0 +1,28 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Evento de tramo ya aplicado, para descartar las entregas repetidas de RabbitMQ.
+ * La clave es (idTramo, estado): cada transición se aplica una sola vez.
+ */
+@Data
+@Entity
+@Table(name = "evento_tramo_procesado", uniqueConstraints =
+        @UniqueConstraint(name = "uk_evento_tramo_estado", columnNames = {"id_tramo", "estado"}))
+public class EventoTramoProcesado {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_tramo", nullable = false)
+    private Long idTramo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoTramo estado;
+
+    private LocalDateTime procesadoEn;
+}
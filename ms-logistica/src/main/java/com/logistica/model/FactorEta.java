@@ -0,0 +1,26 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint de un acumulador de la calibración de ETAs (ver CalibradorEta).
+ * suma y pesos ya están decaídos a actualizadoEn.
+ */
+@Data
+@Entity
+@Table(name = "factor_eta")
+public class FactorEta {
+    @Id
+    private String clave; // par:{origen}:{destino}, km:{rango} o global
+
+    @Column(nullable = false)
+    private Double suma; // suma ponderada de tiempoReal / tiempoEstimadoBase
+
+    @Column(nullable = false)
+    private Double pesos;
+
+    @Column(nullable = false)
+    private LocalDateTime actualizadoEn;
+}
@@ -0,0 +1,31 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Trazado de un tramo codificado con GeometriaCodec: coordenadas E6 en deltas
+ * zig-zag varint y un byte por punto con su nivel de simplificación.
+ * Se calcula la primera vez que se pide y no cambia.
+ */
+@Data
+@Entity
+@Table(name = "geometria_tramo")
+public class GeometriaTramo {
+    @Id
+    @Column(name = "id_tramo")
+    private Long idTramo;
+
+    @Column(name = "cantidad_puntos", nullable = false)
+    private Integer cantidadPuntos;
+
+    @Column(nullable = false, length = 4_000_000)
+    private byte[] puntos;
+
+    @Column(nullable = false, length = 1_000_000)
+    private byte[] niveles; // niveles[i]: primer nivel de detalle que incluye el punto i
+
+    @Column(name = "calculada_en", nullable = false)
+    private LocalDateTime calculadaEn;
+}
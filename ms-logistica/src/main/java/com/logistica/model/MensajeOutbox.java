@@ -0,0 +1,45 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Notificación a MS Solicitudes guardada en la misma transacción que el cambio
+ * de estado del tramo; el relay la envía después (outbox transaccional).
+ * Los mensajes de una misma solicitud se envían en orden de id.
+ */
+@Data
+@Entity
+@Table(name = "outbox_solicitudes", indexes = {
+        @Index(name = "idx_outbox_estado_proximo", columnList = "estado, proximo_intento"),
+        @Index(name = "idx_outbox_solicitud", columnList = "nro_solicitud, id")
+})
+public class MensajeOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "nro_solicitud", nullable = false)
+    private String nroSolicitud;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoMensajeSolicitudes tipo;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload; // JSON del cuerpo a enviar
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoMensajeOutbox estado;
+
+    private int intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    private String ultimoError;
+    private LocalDateTime creadoEn;
+    private LocalDateTime enviadoEn;
+}
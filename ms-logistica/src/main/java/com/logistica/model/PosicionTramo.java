@@ -0,0 +1,49 @@
+package com.logistica.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Posición GPS informada por el camión durante un tramo, con el avance calculado
+ * al recibirla. Se insertan en lotes desde SeguimientoService (JDBC, no por JPA).
+ */
+@Data
+@Entity
+@Table(name = "posicion_tramo",
+        indexes = @Index(name = "idx_posicion_tramo_fecha", columnList = "id_tramo, fecha_hora"))
+public class PosicionTramo {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_tramo", nullable = false)
+    private Long idTramo;
+
+    @Column(name = "dominio_camion")
+    private String dominioCamion;
+
+    @Column(nullable = false)
+    private Double latitud;
+
+    @Column(nullable = false)
+    private Double longitud;
+
+    @Column(name = "fecha_hora", nullable = false)
+    private LocalDateTime fechaHora; // la del GPS
+
+    @Column(nullable = false)
+    private Double progreso; // fracción del trazado recorrida, de 0 a 1
+
+    @Column(name = "km_restantes", nullable = false)
+    private Double kmRestantes;
+
+    @Column(name = "eta_segundos", nullable = false)
+    private Double etaSegundos;
+
+    @Column(name = "desvio_metros", nullable = false)
+    private Double desvioMetros; // distancia al trazado del tramo
+
+    @Column(name = "recibida_en", nullable = false)
+    private LocalDateTime recibidaEn;
+}
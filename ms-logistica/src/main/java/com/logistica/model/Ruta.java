@@ -2,19 +2,40 @@ package com.logistica.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
 import java.util.List;
 
 @Data
 @Entity
+@DynamicUpdate // un save de la ruta no pisa los agregados que se incrementan por UPDATE
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_ruta_nro_solicitud_ref", columnNames = "nro_solicitud_ref"))
 public class Ruta {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ruta_seq")
+    @SequenceGenerator(name = "ruta_seq", sequenceName = "ruta_seq", allocationSize = 50) // ids en bloque: inserts por lote
     private Long id;
 
-    private String nroSolicitudRef; // Referencia a MS Solicitudes
+    @Column(name = "nro_solicitud_ref")
+    private String nroSolicitudRef; // Referencia a MS Solicitudes (única por ruta)
     private int cantidadTramos;
     private double distanciaTotal; // en kilómetros
+    private Boolean aproximada; // algún tramo se estimó sin OSRM (null en rutas anteriores)
+
+    // Extremos de la solicitud, para trazar el primer y el último tramo (null en rutas anteriores)
+    private Double latOrigen;
+    private Double lonOrigen;
+    private Double latDestino;
+    private Double lonDestino;
+
+    // Agregados de los tramos, mantenidos con incrementos atómicos (RutaRepository)
+    private Double costoEstimadoTotal;
+    private Double tiempoEstimadoTotal; // en segundos
+    private Integer tramosFinalizados;
+    private Double costoRealTotal;
+    private Double tiempoRealTotal; // en segundos
+    private Double kmRecorridosTotal;
 
     @OneToMany(mappedBy = "ruta", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, orphanRemoval = true)
+    @OrderBy("orden ASC, id ASC")
     private List<Tramo> tramos;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.logistica.model;
+
+/**
+ * Notificaciones a MS Solicitudes que pasan por el outbox, con el endpoint (PUT) de cada una
+ */
+public enum TipoMensajeSolicitudes {
+    TRAMO_INICIADO("/api/v1/solicitudes/{nro}/estado"),
+    TRAMO_FINALIZADO("/api/v1/solicitudes/{nro}/actualizar-metricas"),
+    RUTA_COMPLETADA("/api/v1/solicitudes/{nro}/estado"),
+    AJUSTE_COSTO("/api/v1/solicitudes/{nro}/ajuste-costo");
+
+    private final String uri;
+
+    TipoMensajeSolicitudes(String uri) {
+        this.uri = uri;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+}
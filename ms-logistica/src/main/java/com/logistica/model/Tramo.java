@@ -7,10 +7,12 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_tramo_ruta_orden", columnList = "ruta_id, orden"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Tramo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tramo_seq")
+    @SequenceGenerator(name = "tramo_seq", sequenceName = "tramo_seq", allocationSize = 50) // ids en bloque: inserts por lote
     private Long id;
 
     @ManyToOne
@@ -33,6 +35,8 @@ public class Tramo {
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     private Tarifa tarifa;
 
+    private Integer orden; // posición dentro de la ruta, desde 0 (null en tramos anteriores)
+
     private String tipo; // Origen-Deposito, Deposito-Deposito, Deposito-Destino, Origen-Destino
 
     @Enumerated(EnumType.STRING)
@@ -43,8 +47,10 @@ public class Tramo {
 
     private double costoEstimado;
     private double costoReal;
+    private Boolean costoProvisorio; // costo real calculado sin datos del camión, pendiente de recálculo
 
-    private double tiempoEstimado; // en segundos
+    private double tiempoEstimado; // en segundos, calibrado con los tiempos reales históricos
+    private Double tiempoEstimadoBase; // en segundos, el de OSRM sin calibrar (null en tramos anteriores)
     private double tiempoReal; // en segundos
 
     // Fechas planificadas por el operador
@@ -0,0 +1,11 @@
+package com.logistica.repository;
+
+/**
+ * Avance de una ruta leído de sus agregados, sin cargar los tramos
+ */
+public record AvanceRuta(int cantidadTramos, int tramosFinalizados, double costoRealTotal, double tiempoRealTotal) {
+
+    public boolean completa() {
+        return cantidadTramos > 0 && tramosFinalizados >= cantidadTramos;
+    }
+}
@@ -0,0 +1,18 @@
+package com.logistica.repository;
+
+import com.logistica.model.DistanciaDeposito;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface DistanciaDepositoRepository extends JpaRepository<DistanciaDeposito, Long> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DistanciaDeposito d WHERE d.depositoOrigenId = :id OR d.depositoDestinoId = :id")
+    int deleteByDeposito(@Param("id") Long depositoId);
+}
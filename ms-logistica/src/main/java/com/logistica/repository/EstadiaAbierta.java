@@ -0,0 +1,15 @@
+package com.logistica.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contenedor que sigue en un depósito (estadía sin egreso)
+ */
+public record EstadiaAbierta(
+        Long idDeposito,
+        String nombreDeposito,
+        String nroSolicitud,
+        Long idTramoLlegada,
+        LocalDateTime fechaIngreso,
+        double costoDiario) {
+}
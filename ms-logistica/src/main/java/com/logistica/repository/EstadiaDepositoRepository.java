@@ -0,0 +1,37 @@
+package com.logistica.repository;
+
+import com.logistica.model.EstadiaDeposito;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstadiaDepositoRepository extends JpaRepository<EstadiaDeposito, Long> {
+
+    Optional<EstadiaDeposito> findByIdTramoLlegada(Long idTramoLlegada);
+
+    /**
+     * Estadía abierta del contenedor de la ruta en el depósito, bloqueada para cerrarla
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM EstadiaDeposito e WHERE e.idRuta = :idRuta AND e.deposito.id = :idDeposito " +
+           "AND e.fechaEgreso IS NULL")
+    Optional<EstadiaDeposito> buscarAbiertaParaCerrar(@Param("idRuta") Long idRuta,
+                                                       @Param("idDeposito") Long idDeposito);
+
+    /**
+     * Contenedores en depósito, de uno o de todos (idDeposito null)
+     */
+    @Query("SELECT new com.logistica.repository.EstadiaAbierta(d.id, d.nombre, e.nroSolicitud, " +
+           "e.idTramoLlegada, e.fechaIngreso, e.costoDiario) " +
+           "FROM EstadiaDeposito e JOIN e.deposito d " +
+           "WHERE e.fechaEgreso IS NULL AND (:idDeposito IS NULL OR d.id = :idDeposito) " +
+           "ORDER BY d.id, e.fechaIngreso")
+    List<EstadiaAbierta> buscarAbiertas(@Param("idDeposito") Long idDeposito);
+}
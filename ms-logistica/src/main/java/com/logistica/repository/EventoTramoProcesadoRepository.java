@@ -0,0 +1,22 @@
+package com.logistica.repository;
+
+import com.logistica.model.EventoTramoProcesado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EventoTramoProcesadoRepository extends JpaRepository<EventoTramoProcesado, Long> {
+
+    /**
+     * Registra la clave (idTramo, estado) si no existía. Atómico aun con varios
+     * consumidores: devuelve 0 si otro ya la registró (evento repetido).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO evento_tramo_procesado (id_tramo, estado, procesado_en) " +
+                   "VALUES (:idTramo, :estado, now()) ON CONFLICT (id_tramo, estado) DO NOTHING",
+           nativeQuery = true)
+    int registrar(@Param("idTramo") Long idTramo, @Param("estado") String estado);
+}
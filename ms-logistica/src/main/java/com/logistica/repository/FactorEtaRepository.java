@@ -0,0 +1,34 @@
+package com.logistica.repository;
+
+import com.logistica.model.FactorEta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface FactorEtaRepository extends JpaRepository<FactorEta, String> {
+
+    /**
+     * Suma al checkpoint guardado lo que una instancia acumuló desde el anterior.
+     * Ambos se decaen al más reciente de los dos instantes, así varias instancias
+     * aportan sus tramos sin pisarse (la última no reemplaza a las demás).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO factor_eta (clave, suma, pesos, actualizado_en) " +
+                   "VALUES (:clave, :suma, :pesos, :instante) " +
+                   "ON CONFLICT (clave) DO UPDATE SET " +
+                   "suma = factor_eta.suma * exp(-:lambda * GREATEST(0, EXTRACT(EPOCH FROM (EXCLUDED.actualizado_en - factor_eta.actualizado_en)))) " +
+                   "     + EXCLUDED.suma * exp(-:lambda * GREATEST(0, EXTRACT(EPOCH FROM (factor_eta.actualizado_en - EXCLUDED.actualizado_en)))), " +
+                   "pesos = factor_eta.pesos * exp(-:lambda * GREATEST(0, EXTRACT(EPOCH FROM (EXCLUDED.actualizado_en - factor_eta.actualizado_en)))) " +
+                   "      + EXCLUDED.pesos * exp(-:lambda * GREATEST(0, EXTRACT(EPOCH FROM (factor_eta.actualizado_en - EXCLUDED.actualizado_en)))), " +
+                   "actualizado_en = GREATEST(factor_eta.actualizado_en, EXCLUDED.actualizado_en)",
+           nativeQuery = true)
+    int sumar(@Param("clave") String clave, @Param("suma") double suma, @Param("pesos") double pesos,
+            @Param("instante") LocalDateTime instante, @Param("lambda") double lambdaPorSegundo);
+}
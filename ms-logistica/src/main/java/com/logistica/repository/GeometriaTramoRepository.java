@@ -0,0 +1,24 @@
+package com.logistica.repository;
+
+import com.logistica.model.GeometriaTramo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface GeometriaTramoRepository extends JpaRepository<GeometriaTramo, Long> {
+
+    /**
+     * Guarda el trazado si nadie lo guardó antes (dos pedidos simultáneos del mismo tramo)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO geometria_tramo (id_tramo, cantidad_puntos, puntos, niveles, calculada_en) " +
+                   "VALUES (:idTramo, :cantidad, :puntos, :niveles, now()) ON CONFLICT (id_tramo) DO NOTHING",
+           nativeQuery = true)
+    int guardarSiNoExiste(@Param("idTramo") Long idTramo, @Param("cantidad") int cantidad,
+                          @Param("puntos") byte[] puntos, @Param("niveles") byte[] niveles);
+}
@@ -0,0 +1,42 @@
+package com.logistica.repository;
+
+import com.logistica.model.MensajeOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MensajeOutboxRepository extends JpaRepository<MensajeOutbox, Long> {
+
+    /**
+     * El mensaje pendiente más antiguo de cada solicitud, si ya le toca el intento.
+     * Un mensaje no se envía mientras haya uno anterior de la misma solicitud sin enviar.
+     * Bloquea las filas y saltea las tomadas por otra instancia (FOR UPDATE SKIP LOCKED).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM MensajeOutbox m " +
+           "WHERE m.estado = com.logistica.model.EstadoMensajeOutbox.PENDIENTE " +
+           "AND m.proximoIntento <= :ahora " +
+           "AND m.id = (SELECT MIN(p.id) FROM MensajeOutbox p WHERE p.nroSolicitud = m.nroSolicitud " +
+           "            AND p.estado = com.logistica.model.EstadoMensajeOutbox.PENDIENTE) " +
+           "ORDER BY m.id")
+    List<MensajeOutbox> tomarSiguientes(@Param("ahora") LocalDateTime ahora, Pageable limite);
+
+    long countByEstado(com.logistica.model.EstadoMensajeOutbox estado);
+
+    @Modifying
+    @Query("DELETE FROM MensajeOutbox m WHERE m.estado = com.logistica.model.EstadoMensajeOutbox.ENVIADO " +
+           "AND m.enviadoEn < :limite")
+    int borrarEnviadosAntesDe(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,13 @@
+package com.logistica.repository;
+
+import com.logistica.model.PosicionTramo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PosicionTramoRepository extends JpaRepository<PosicionTramo, Long> {
+
+    Optional<PosicionTramo> findFirstByIdTramoOrderByFechaHoraDesc(Long idTramo);
+}
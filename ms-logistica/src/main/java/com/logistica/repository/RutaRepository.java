@@ -2,9 +2,61 @@ package com.logistica.repository;
 
 import com.logistica.model.Ruta;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface RutaRepository extends JpaRepository<Ruta, Long> {
     Ruta findByNroSolicitudRef(String nroSolicitudRef);
-}
\ No newline at end of file
+
+    @Query("SELECT r.nroSolicitudRef FROM Ruta r WHERE r.nroSolicitudRef IN :nros")
+    List<String> buscarSolicitudesConRuta(@Param("nros") Collection<String> nros);
+
+    /**
+     * Adelanta ruta_seq por encima del mayor id (las rutas anteriores usaban IDENTITY).
+     * Sólo la mueve hacia adelante; null si no hacía falta.
+     */
+    @Transactional // setval no corre en las transacciones de sólo lectura por defecto del repositorio
+    @Query(value = "SELECT setval('ruta_seq', x.maximo + 50) FROM (SELECT COALESCE(MAX(id), 0) AS maximo FROM ruta) x, " +
+                   "ruta_seq s WHERE x.maximo > s.last_value - 50", nativeQuery = true)
+    Long alinearSecuencia();
+
+    /**
+     * Suma a los agregados de la ruta en un solo UPDATE atómico (sin leer la fila):
+     * dos tramos de la misma ruta finalizando a la vez no se pisan
+     */
+    @Modifying
+    @Query("UPDATE Ruta r SET " +
+           "r.tramosFinalizados = COALESCE(r.tramosFinalizados, 0) + :tramos, " +
+           "r.costoRealTotal = COALESCE(r.costoRealTotal, 0) + :costo, " +
+           "r.tiempoRealTotal = COALESCE(r.tiempoRealTotal, 0) + :tiempo, " +
+           "r.kmRecorridosTotal = COALESCE(r.kmRecorridosTotal, 0) + :km " +
+           "WHERE r.id = :id")
+    int acumularFinalizacion(@Param("id") Long id, @Param("tramos") int tramos, @Param("costo") double costo,
+                             @Param("tiempo") double tiempo, @Param("km") double km);
+
+    @Query("SELECT new com.logistica.repository.AvanceRuta(r.cantidadTramos, COALESCE(r.tramosFinalizados, 0), " +
+           "COALESCE(r.costoRealTotal, 0), COALESCE(r.tiempoRealTotal, 0)) FROM Ruta r WHERE r.id = :id")
+    AvanceRuta obtenerAvance(@Param("id") Long id);
+
+    /**
+     * Calcula desde los tramos los agregados de las rutas creadas antes de que existieran
+     */
+    @Modifying
+    @Query("UPDATE Ruta r SET " +
+           "r.costoEstimadoTotal = (SELECT COALESCE(SUM(t.costoEstimado), 0) FROM Tramo t WHERE t.ruta = r), " +
+           "r.tiempoEstimadoTotal = (SELECT COALESCE(SUM(t.tiempoEstimado), 0) FROM Tramo t WHERE t.ruta = r), " +
+           "r.tramosFinalizados = (SELECT COUNT(t) FROM Tramo t WHERE t.ruta = r " +
+           "    AND t.estado = com.logistica.model.EstadoTramo.FINALIZADO), " +
+           "r.costoRealTotal = (SELECT COALESCE(SUM(t.costoReal), 0) FROM Tramo t WHERE t.ruta = r), " +
+           "r.tiempoRealTotal = (SELECT COALESCE(SUM(t.tiempoReal), 0) FROM Tramo t WHERE t.ruta = r), " +
+           "r.kmRecorridosTotal = (SELECT COALESCE(SUM(t.kmRecorridos), 0) FROM Tramo t WHERE t.ruta = r) " +
+           "WHERE r.tramosFinalizados IS NULL")
+    int completarAgregadosFaltantes();
+}
@@ -0,0 +1,19 @@
+package com.logistica.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Datos de un tramo ESTIMADO para la asignación óptima de camiones: lo justo para
+ * armar la matriz de costos (km, duración, precio del combustible y recargo de su tarifa).
+ */
+public record TramoAsignable(
+        Long id,
+        Long rutaId,
+        Integer orden,
+        String nroSolicitud,
+        double kmEstimados,
+        double tiempoEstimado,
+        LocalDateTime fechaHoraInicioEstimada,
+        double costoLitroCombustible,
+        Double porcentajeRecargo) {
+}
@@ -2,11 +2,19 @@ package com.logistica.repository;
 
 import com.logistica.model.Tramo;
 import com.logistica.model.EstadoTramo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 import java.time.LocalDateTime;
 
 @Repository
@@ -23,8 +31,108 @@ public interface TramoRepository extends JpaRepository<Tramo, Long> {
 
     List<Tramo> findByEstadoNot(EstadoTramo estado);
 
+    @Query("SELECT DISTINCT t.dominioCamionRef FROM Tramo t WHERE t.dominioCamionRef IS NOT NULL " +
+           "AND t.estado IN (com.logistica.model.EstadoTramo.ASIGNADO, com.logistica.model.EstadoTramo.EN_CURSO)")
+    List<String> findDominiosEnUso();
+
+    @Query("SELECT t.id FROM Tramo t WHERE t.costoProvisorio = true ORDER BY t.id")
+    List<Long> findIdsConCostoProvisorio();
+
+    /**
+     * Tramo bloqueado (SELECT ... FOR UPDATE) para corregir su costo: dos recálculos
+     * concurrentes se serializan y el segundo ve el costo ya definitivo
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Tramo t WHERE t.id = :id")
+    Optional<Tramo> buscarParaCorregirCosto(@Param("id") Long id);
+
+    /**
+     * Tramos ESTIMADO sin fecha planificada o planificados dentro de [desde, hasta),
+     * agrupados por ruta y en orden de recorrido
+     */
+    @Query("SELECT new com.logistica.repository.TramoAsignable(" +
+           "t.id, r.id, t.orden, r.nroSolicitudRef, t.kmEstimados, t.tiempoEstimado, t.fechaHoraInicioEstimada, " +
+           "ta.costoLitroCombustible, ta.porcentajeRecargo) " +
+           "FROM Tramo t JOIN t.ruta r JOIN t.tarifa ta " +
+           "WHERE t.estado = com.logistica.model.EstadoTramo.ESTIMADO " +
+           "AND (t.fechaHoraInicioEstimada IS NULL " +
+           "     OR (t.fechaHoraInicioEstimada >= :desde AND t.fechaHoraInicioEstimada < :hasta)) " +
+           "ORDER BY r.id, t.orden, t.id")
+    List<TramoAsignable> buscarAsignables(@Param("desde") LocalDateTime desde,
+                                          @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Primer tramo anterior de la ruta que todavía no está FINALIZADO, o null si no hay.
+     * Usa el índice (ruta_id, orden); en rutas sin orden cargado compara por id.
+     */
+    @Query("SELECT MIN(t.id) FROM Tramo t WHERE t.ruta.id = :rutaId " +
+           "AND t.estado <> com.logistica.model.EstadoTramo.FINALIZADO " +
+           "AND ((:orden IS NOT NULL AND t.orden < :orden) OR (:orden IS NULL AND t.id < :id))")
+    Long buscarAnteriorSinFinalizar(@Param("rutaId") Long rutaId,
+                                    @Param("orden") Integer orden,
+                                    @Param("id") Long id);
+
 
     @Query("SELECT t FROM Tramo t WHERE t.dominioCamionRef = :dominio " +
            "AND t.estado IN ('ASIGNADO', 'EN_CURSO')")
     List<Tramo> findByDominioCamionRefAndEstadoIn(@Param("dominio") String dominio);
-}
\ No newline at end of file
+
+    // Proyección a TramoVista: un único SELECT con los campos del listado. Los
+    // depósitos se unen con LEFT JOIN sólo para leer el nombre; ruta y tarifa no
+    // se tocan, así que no se dispara ninguna carga EAGER por fila.
+    String SELECT_VISTA = "SELECT new com.logistica.repository.TramoVista(" +
+           "t.id, t.estado, t.tipo, " +
+           "COALESCE(o.nombre, 'Origen Solicitud'), COALESCE(d.nombre, 'Destino Final'), " +
+           "t.dominioCamionRef, t.kmEstimados, t.kmRecorridos, t.tiempoEstimado, t.tiempoReal, " +
+           "t.costoEstimado, t.costoReal, " +
+           "t.fechaHoraInicioEstimada, t.fechaHoraFinEstimada, t.fechaHoraInicioReal, t.fechaHoraFinReal) " +
+           "FROM Tramo t LEFT JOIN t.depositoOrigen o LEFT JOIN t.depositoDestino d ";
+
+    String LISTADO_FILTRADO = SELECT_VISTA +
+           "WHERE t.id > :cursor " +
+           "AND (:estado IS NULL OR t.estado = :estado) " +
+           "AND (:soloPendientes = false OR t.estado <> com.logistica.model.EstadoTramo.FINALIZADO) " +
+           "AND (:dominio IS NULL OR t.dominioCamionRef = :dominio) " +
+           "AND (:desde IS NULL OR t.fechaHoraInicioEstimada >= :desde) " +
+           "AND (:hasta IS NULL OR t.fechaHoraInicioEstimada < :hasta) " +
+           "ORDER BY t.id";
+
+    /**
+     * Página por clave (keyset): tramos con id mayor al cursor, ordenados por id
+     */
+    @Query(LISTADO_FILTRADO)
+    List<TramoVista> buscarPagina(@Param("cursor") Long cursor,
+                                  @Param("estado") EstadoTramo estado,
+                                  @Param("soloPendientes") boolean soloPendientes,
+                                  @Param("dominio") String dominio,
+                                  @Param("desde") LocalDateTime desde,
+                                  @Param("hasta") LocalDateTime hasta,
+                                  Pageable limite);
+
+    /**
+     * Mismo listado como stream con cursor JDBC (requiere transacción abierta)
+     */
+    @Query(LISTADO_FILTRADO)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<TramoVista> streamFiltrado(@Param("cursor") Long cursor,
+                                      @Param("estado") EstadoTramo estado,
+                                      @Param("soloPendientes") boolean soloPendientes,
+                                      @Param("dominio") String dominio,
+                                      @Param("desde") LocalDateTime desde,
+                                      @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Tramos de una ruta para mostrar, en el orden del recorrido
+     */
+    @Query(SELECT_VISTA + "WHERE t.ruta.id = :rutaId ORDER BY t.orden, t.id")
+    List<TramoVista> vistaPorRuta(@Param("rutaId") Long rutaId);
+
+    /**
+     * Adelanta tramo_seq por encima del mayor id (los tramos anteriores usaban IDENTITY).
+     * Sólo la mueve hacia adelante; null si no hacía falta.
+     */
+    @Transactional // setval no corre en las transacciones de sólo lectura por defecto del repositorio
+    @Query(value = "SELECT setval('tramo_seq', x.maximo + 50) FROM (SELECT COALESCE(MAX(id), 0) AS maximo FROM tramo) x, " +
+                   "tramo_seq s WHERE x.maximo > s.last_value - 50", nativeQuery = true)
+    Long alinearSecuencia();
+}
@@ -0,0 +1,28 @@
+package com.logistica.repository;
+
+import com.logistica.model.EstadoTramo;
+import java.time.LocalDateTime;
+
+/**
+ * Vista de lectura de un tramo: exactamente los campos de TramoResponse.
+ * Se arma con un constructor JPQL, sin hidratar la entidad ni sus relaciones.
+ * origen/destino ya vienen resueltos (nombre del depósito o texto por defecto).
+ */
+public record TramoVista(
+        Long id,
+        EstadoTramo estado,
+        String tipo,
+        String origen,
+        String destino,
+        String dominioCamionRef,
+        double kmEstimados,
+        double kmRecorridos,
+        double tiempoEstimado,
+        double tiempoReal,
+        double costoEstimado,
+        double costoReal,
+        LocalDateTime fechaHoraInicioEstimada,
+        LocalDateTime fechaHoraFinEstimada,
+        LocalDateTime fechaHoraInicioReal,
+        LocalDateTime fechaHoraFinReal) {
+}
@@ -0,0 +1,257 @@
+package com.logistica.service;
+
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.FlotaApiClient;
+import com.logistica.client.dto.CamionInfo;
+import com.logistica.dto.request.AsignacionOptimaRequest;
+import com.logistica.dto.request.AsignacionOptimaRequest.RequisitoCarga;
+import com.logistica.dto.response.AsignacionOptimaItemResponse;
+import com.logistica.dto.response.AsignacionOptimaResponse;
+import com.logistica.exception.LogisticaException;
+import com.logistica.repository.TramoAsignable;
+import com.logistica.repository.TramoRepository;
+import com.logistica.util.AsignacionHungara;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Propone qué camión toma cada tramo ESTIMADO de una ventana de planificación,
+ * minimizando el costo total (asignación húngara, un tramo por camión en cada corrida).
+ * Un par es viable si el camión soporta la carga de la solicitud y puede hacer el
+ * tramo dentro de la ventana: los tramos sin fecha empiezan cuando terminan los
+ * anteriores de su ruta y el camión está libre; los planificados, a su hora.
+ * Las propuestas se validan después con los inicios asignados, en orden de ruta.
+ * No asigna: las propuestas se confirman con /tramos/{id}/asignar-camion.
+ */
+@Service
+@Slf4j
+public class AsignacionOptimaService {
+
+    private final TramoRepository tramoRepository;
+    private final FlotaApiClient flotaApiClient;
+    private final CamionInfoCache camionInfoCache;
+    private final int maxCeldas;
+
+    public AsignacionOptimaService(TramoRepository tramoRepository, FlotaApiClient flotaApiClient,
+            CamionInfoCache camionInfoCache,
+            @Value("${app.tramos.asignacion-optima.max-celdas:5000000}") int maxCeldas) {
+        this.tramoRepository = tramoRepository;
+        this.flotaApiClient = flotaApiClient;
+        this.camionInfoCache = camionInfoCache;
+        this.maxCeldas = maxCeldas;
+    }
+
+    public AsignacionOptimaResponse optimizar(AsignacionOptimaRequest request) {
+        if (!request.getHasta().isAfter(request.getDesde())) {
+            throw new LogisticaException("La fecha hasta debe ser posterior a la fecha desde");
+        }
+
+        List<TramoAsignable> tramos = tramoRepository.buscarAsignables(request.getDesde(), request.getHasta());
+        List<CamionInfo> camiones = flotaApiClient.listarCamiones().stream()
+                .filter(this::asignable)
+                .toList();
+        // Ya que están, quedan en cache para el costo real al finalizar
+        camiones.forEach(camionInfoCache::guardar);
+
+        Map<String, RequisitoCarga> requisitos = new HashMap<>();
+        if (request.getRequisitos() != null) {
+            for (RequisitoCarga requisito : request.getRequisitos()) {
+                requisitos.put(requisito.getNroSolicitud(), requisito);
+            }
+        }
+
+        return resolver(tramos, camiones, requisitos, request.getDesde(), request.getHasta());
+    }
+
+    // En viaje o en mantenimiento no se les puede asignar (MS Flota lo rechaza)
+    private boolean asignable(CamionInfo camion) {
+        return camion.getDominio() != null
+                && camion.getCapacidadPeso() != null && camion.getCapacidadVolumen() != null
+                && !"EN_VIAJE".equals(camion.getEstado())
+                && !"MANTENIMIENTO".equals(camion.getEstado());
+    }
+
+    AsignacionOptimaResponse resolver(List<TramoAsignable> tramos, List<CamionInfo> camiones,
+            Map<String, RequisitoCarga> requisitos, LocalDateTime desde, LocalDateTime hasta) {
+        long inicioCalculo = System.nanoTime();
+        int nt = tramos.size();
+        int nc = camiones.size();
+        if ((long) nt * nc > maxCeldas) {
+            throw new LogisticaException("Demasiados tramos (" + nt + ") x camiones (" + nc
+                    + ") para una corrida; acote la ventana de planificación");
+        }
+
+        long desdeSeg = segundos(desde);
+        long hastaSeg = segundos(hasta);
+
+        // Tramos en arreglos primitivos
+        long[] liberacion = new long[nt];
+        boolean[] horaFija = new boolean[nt];
+        long[] duracion = new long[nt];
+        double[] km = new double[nt];
+        double[] precioLitro = new double[nt];
+        double[] peso = new double[nt];
+        double[] volumen = new double[nt];
+        Long rutaAnterior = null;
+        long finAnterior = desdeSeg;
+        for (int t = 0; t < nt; t++) {
+            TramoAsignable tramo = tramos.get(t);
+            if (!Objects.equals(tramo.rutaId(), rutaAnterior)) {
+                rutaAnterior = tramo.rutaId();
+                finAnterior = desdeSeg;
+            }
+            duracion[t] = (long) Math.ceil(tramo.tiempoEstimado());
+            horaFija[t] = tramo.fechaHoraInicioEstimada() != null;
+            // Sin fecha planificada, no antes de que terminen los tramos anteriores de la ruta
+            liberacion[t] = horaFija[t] ? segundos(tramo.fechaHoraInicioEstimada()) : finAnterior;
+            finAnterior = liberacion[t] + duracion[t];
+
+            km[t] = tramo.kmEstimados();
+            double recargo = tramo.porcentajeRecargo() != null ? tramo.porcentajeRecargo() : 0.0;
+            precioLitro[t] = tramo.costoLitroCombustible() * (1 + recargo / 100.0);
+            RequisitoCarga requisito = requisitos.get(tramo.nroSolicitud());
+            peso[t] = requisito != null && requisito.getPeso() != null ? requisito.getPeso() : 0;
+            volumen[t] = requisito != null && requisito.getVolumen() != null ? requisito.getVolumen() : 0;
+        }
+
+        // Camiones en arreglos primitivos
+        long[] disponible = new long[nc];
+        double[] capacidadPeso = new double[nc];
+        double[] capacidadVolumen = new double[nc];
+        double[] costoKm = new double[nc];
+        double[] litrosKm = new double[nc];
+        for (int c = 0; c < nc; c++) {
+            CamionInfo camion = camiones.get(c);
+            disponible[c] = camion.getProximaDisponibilidad() != null
+                    ? Math.max(desdeSeg, segundos(camion.getProximaDisponibilidad())) : desdeSeg;
+            capacidadPeso[c] = camion.getCapacidadPeso();
+            capacidadVolumen[c] = camion.getCapacidadVolumen();
+            costoKm[c] = camion.getCostoPorKm() != null ? camion.getCostoPorKm() : 0;
+            litrosKm[c] = camion.getConsumoCombustiblePromedio() != null
+                    ? camion.getConsumoCombustiblePromedio() / 100.0 : 0;
+        }
+
+        // El lado más chico va en las filas (el algoritmo pide filas <= columnas)
+        boolean camionesEnFilas = nc <= nt;
+        int filas = Math.min(nc, nt);
+        int columnas = Math.max(nc, nt);
+        double[] costos = new double[filas * columnas];
+        for (int c = 0; c < nc; c++) {
+            for (int t = 0; t < nt; t++) {
+                double costo = AsignacionHungara.INVIABLE;
+                if (capacidadPeso[c] >= peso[t] && capacidadVolumen[c] >= volumen[t]) {
+                    long inicio = inicioPosible(horaFija[t], liberacion[t], disponible[c]);
+                    if (inicio >= 0 && inicio + duracion[t] <= hastaSeg) {
+                        costo = km[t] * (costoKm[c] + litrosKm[c] * precioLitro[t]);
+                    }
+                }
+                costos[camionesEnFilas ? c * columnas + t : t * columnas + c] = costo;
+            }
+        }
+
+        int[] solucion = filas == 0 ? new int[0] : AsignacionHungara.resolver(costos, filas, columnas);
+
+        // Camión elegido para cada tramo (-1: ninguno viable)
+        int[] camionDe = new int[nt];
+        double[] costoDe = new double[nt];
+        Arrays.fill(camionDe, -1);
+        for (int f = 0; f < filas; f++) {
+            double costo = costos[f * columnas + solucion[f]];
+            if (costo < AsignacionHungara.INVIABLE) {
+                int t = camionesEnFilas ? solucion[f] : f;
+                camionDe[t] = camionesEnFilas ? f : solucion[f];
+                costoDe[t] = costo;
+            }
+        }
+
+        // La matriz supone que cada tramo arranca en su liberación estimada, pero un camión
+        // que llega tarde corre a los siguientes de su ruta. Se recorre cada ruta en orden
+        // con el inicio asignado: los tramos sin fecha se corren y los de hora fija (o los
+        // que se salen de la ventana) se descartan
+        boolean[] asignado = new boolean[nt];
+        List<AsignacionOptimaItemResponse> asignaciones = new ArrayList<>();
+        double costoTotal = 0;
+        int descartados = 0;
+        rutaAnterior = null;
+        finAnterior = desdeSeg;
+        for (int t = 0; t < nt; t++) {
+            if (!Objects.equals(tramos.get(t).rutaId(), rutaAnterior)) {
+                rutaAnterior = tramos.get(t).rutaId();
+                finAnterior = desdeSeg;
+            }
+            long liberacionReal = Math.max(liberacion[t], finAnterior);
+            int c = camionDe[t];
+            long inicio = -1;
+            if (c >= 0) {
+                if (!horaFija[t] || liberacionReal == liberacion[t]) {
+                    inicio = inicioPosible(horaFija[t], liberacionReal, disponible[c]);
+                }
+                if (inicio < 0 || inicio + duracion[t] > hastaSeg) {
+                    inicio = -1;
+                    descartados++;
+                }
+            }
+            // Sin camión se estima que el tramo arranca apenas puede
+            finAnterior = (inicio >= 0 ? inicio : liberacionReal) + duracion[t];
+            if (inicio < 0) {
+                continue;
+            }
+
+            asignado[t] = true;
+            costoTotal += costoDe[t];
+            asignaciones.add(AsignacionOptimaItemResponse.builder()
+                    .idTramo(tramos.get(t).id())
+                    .dominioCamion(camiones.get(c).getDominio())
+                    .fechaHoraInicio(fecha(inicio))
+                    .fechaHoraFin(fecha(inicio + duracion[t]))
+                    .costoEstimado(costoDe[t])
+                    .build());
+        }
+
+        List<Long> sinAsignar = new ArrayList<>();
+        for (int t = 0; t < nt; t++) {
+            if (!asignado[t]) {
+                sinAsignar.add(tramos.get(t).id());
+            }
+        }
+
+        long duracionMs = (System.nanoTime() - inicioCalculo) / 1_000_000;
+        log.info("Asignación óptima: {} tramos x {} camiones -> {} asignados ({} descartados por secuencia), costo ${} ({} ms)",
+                nt, nc, asignaciones.size(), descartados, String.format("%.2f", costoTotal), duracionMs);
+
+        return AsignacionOptimaResponse.builder()
+                .tramosConsiderados(nt)
+                .camionesConsiderados(nc)
+                .costoTotal(costoTotal)
+                .duracionMs(duracionMs)
+                .asignaciones(asignaciones)
+                .tramosSinAsignar(sinAsignar)
+                .build();
+    }
+
+    // Hora fija: el camión tiene que estar libre antes; si no, arranca cuando puedan ambos. -1 si no llega
+    private static long inicioPosible(boolean horaFija, long liberacion, long disponible) {
+        if (horaFija) {
+            return disponible <= liberacion ? liberacion : -1;
+        }
+        return Math.max(liberacion, disponible);
+    }
+
+    private static long segundos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fecha(long segundos) {
+        return LocalDateTime.ofEpochSecond(segundos, 0, ZoneOffset.UTC);
+    }
+}
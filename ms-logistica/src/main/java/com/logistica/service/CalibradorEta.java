@@ -0,0 +1,242 @@
+package com.logistica.service;
+
+import com.logistica.event.TiempoRealRegistradoEvent;
+import com.logistica.model.FactorEta;
+import com.logistica.repository.FactorEtaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calibración en línea de las ETAs de OSRM con los tiempos reales de los tramos finalizados.
+ * Por cada clave (par de depósitos, rango de distancia y global) acumula el cociente
+ * tiempoReal / tiempoEstimadoBase con decaimiento exponencial en el tiempo: cada
+ * finalización es O(1) y lo viejo pierde peso según la vida media.
+ * El factor de un tramo mezcla los niveles con contracción: el par se apoya en su
+ * rango de distancia y el rango en el global, así una clave con pocos datos no se aleja
+ * del nivel de arriba. Sólo los tramos entre dos depósitos tienen factor de par: los
+ * extremos (origen y destino de la solicitud) cambian en cada ruta.
+ * Se mantiene en memoria y se guarda periódicamente en factor_eta: cada instancia suma
+ * a la fila lo que registró desde su checkpoint anterior y relee el total, que incluye
+ * lo aportado por las demás.
+ */
+@Component
+@Slf4j
+public class CalibradorEta {
+
+    private static final double[] LIMITES_KM = {10, 25, 50, 100, 250, 500, 1000};
+    private static final String[] RANGOS_KM = {
+            "km:0-10", "km:10-25", "km:25-50", "km:50-100", "km:100-250",
+            "km:250-500", "km:500-1000", "km:1000+"};
+    private static final String GLOBAL = "global";
+
+    private final FactorEtaRepository factorEtaRepository;
+    private final double lambdaPorMs;
+    private final double pesoPrevio;
+    private final double ratioMinimo;
+    private final double ratioMaximo;
+
+    private final Map<String, Acumulador> acumuladores = new ConcurrentHashMap<>();
+
+    public CalibradorEta(FactorEtaRepository factorEtaRepository,
+            @Value("${app.eta.calibracion.vida-media-horas:720}") double vidaMediaHoras,
+            @Value("${app.eta.calibracion.peso-previo:5}") double pesoPrevio,
+            @Value("${app.eta.calibracion.ratio-minimo:0.5}") double ratioMinimo,
+            @Value("${app.eta.calibracion.ratio-maximo:3}") double ratioMaximo) {
+        this.factorEtaRepository = factorEtaRepository;
+        this.lambdaPorMs = Math.log(2) / (vidaMediaHoras * 3_600_000);
+        this.pesoPrevio = pesoPrevio;
+        this.ratioMinimo = ratioMinimo;
+        this.ratioMaximo = ratioMaximo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        leerBase();
+        log.info("Calibración de ETAs cargada: {} factores", acumuladores.size());
+    }
+
+    // Totales guardados, con lo aportado por todas las instancias
+    private void leerBase() {
+        for (FactorEta factor : factorEtaRepository.findAll()) {
+            long instante = factor.getActualizadoEn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            acumuladores.computeIfAbsent(factor.getClave(), c -> new Acumulador(0, 0, instante)).tomarBase(factor);
+        }
+    }
+
+    @TransactionalEventListener
+    public void alRegistrarTiempoReal(TiempoRealRegistradoEvent evento) {
+        registrar(evento.idDepositoOrigen(), evento.idDepositoDestino(), evento.km(),
+                evento.tiempoBase(), evento.tiempoReal(), System.currentTimeMillis());
+    }
+
+    /**
+     * Tiempo de OSRM corregido con el factor del tramo
+     */
+    public double calibrar(double tiempoBase, Long idDepositoOrigen, Long idDepositoDestino, double km) {
+        return tiempoBase * factor(idDepositoOrigen, idDepositoDestino, km);
+    }
+
+    public double factor(Long idDepositoOrigen, Long idDepositoDestino, double km) {
+        return factor(idDepositoOrigen, idDepositoDestino, km, System.currentTimeMillis());
+    }
+
+    double factor(Long idDepositoOrigen, Long idDepositoDestino, double km, long ahora) {
+        double global = estimar(acumuladores.get(GLOBAL), 1.0, ahora);
+        double rango = estimar(acumuladores.get(claveRango(km)), global, ahora);
+        String par = clavePar(idDepositoOrigen, idDepositoDestino);
+        return par != null ? estimar(acumuladores.get(par), rango, ahora) : rango;
+    }
+
+    void registrar(Long idDepositoOrigen, Long idDepositoDestino, double km,
+            double tiempoBase, double tiempoReal, long ahora) {
+        if (tiempoBase <= 0 || tiempoReal <= 0) {
+            return;
+        }
+        // Acotado: una demora excepcional (o un tramo mal cerrado) no arrastra el factor
+        double ratio = Math.max(ratioMinimo, Math.min(ratioMaximo, tiempoReal / tiempoBase));
+        acumular(GLOBAL, ratio, ahora);
+        acumular(claveRango(km), ratio, ahora);
+        String par = clavePar(idDepositoOrigen, idDepositoDestino);
+        if (par != null) {
+            acumular(par, ratio, ahora);
+        }
+    }
+
+    /**
+     * Suma a factor_eta lo registrado desde el último checkpoint y relee los totales
+     */
+    @Scheduled(fixedDelayString = "${app.eta.calibracion.checkpoint-ms:60000}",
+            initialDelayString = "${app.eta.calibracion.checkpoint-ms:60000}")
+    @PreDestroy
+    public void guardar() {
+        int guardados = 0;
+        int fallidos = 0;
+        for (Map.Entry<String, Acumulador> entrada : acumuladores.entrySet()) {
+            Acumulador acumulador = entrada.getValue();
+            double[] pendiente = acumulador.pendiente();
+            if (pendiente == null) {
+                continue;
+            }
+            try {
+                factorEtaRepository.sumar(entrada.getKey(), pendiente[0], pendiente[1],
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli((long) pendiente[2]), ZoneId.systemDefault()),
+                        lambdaPorMs * 1000);
+            } catch (Exception e) {
+                // Queda pendiente para el próximo checkpoint
+                fallidos++;
+                continue;
+            }
+            // Ya está en la base: se descuenta para no mandarlo dos veces
+            acumulador.descontar(pendiente, lambdaPorMs);
+            guardados++;
+        }
+        try {
+            leerBase();
+        } catch (Exception e) {
+            log.debug("No se pudo releer la calibración de ETAs: {}", e.getMessage());
+        }
+        if (fallidos > 0) {
+            log.warn("No se pudo guardar la calibración de {} factores, se reintenta", fallidos);
+        } else if (guardados > 0) {
+            log.debug("Calibración de ETAs: {} factores guardados", guardados);
+        }
+    }
+
+    private void acumular(String clave, double ratio, long ahora) {
+        acumuladores.computeIfAbsent(clave, c -> new Acumulador(0, 0, ahora)).sumar(ratio, ahora, lambdaPorMs);
+    }
+
+    private double estimar(Acumulador acumulador, double previo, long ahora) {
+        if (acumulador == null) {
+            return previo;
+        }
+        double[] sumaYPesos = acumulador.decaido(ahora, lambdaPorMs);
+        return (sumaYPesos[0] + pesoPrevio * previo) / (sumaYPesos[1] + pesoPrevio);
+    }
+
+    private static String clavePar(Long idDepositoOrigen, Long idDepositoDestino) {
+        return idDepositoOrigen != null && idDepositoDestino != null
+                ? "par:" + idDepositoOrigen + ":" + idDepositoDestino : null;
+    }
+
+    private static String claveRango(double km) {
+        int i = 0;
+        while (i < LIMITES_KM.length && km >= LIMITES_KM[i]) {
+            i++;
+        }
+        return RANGOS_KM[i];
+    }
+
+    /**
+     * Suma y pesos decaídos al instante de la última actualización, separados en lo
+     * leído de la base y lo registrado acá que todavía no se sumó a la base
+     */
+    private static final class Acumulador {
+        private double sumaBase;
+        private double pesosBase;
+        private long instanteBase;
+        private double sumaLocal;
+        private double pesosLocal;
+        private long instanteLocal;
+
+        Acumulador(double suma, double pesos, long instante) {
+            this.sumaBase = suma;
+            this.pesosBase = pesos;
+            this.instanteBase = instante;
+            this.instanteLocal = instante;
+        }
+
+        synchronized void sumar(double ratio, long ahora, double lambda) {
+            if (ahora > instanteLocal) {
+                double decaimiento = Math.exp(-lambda * (ahora - instanteLocal));
+                sumaLocal *= decaimiento;
+                pesosLocal *= decaimiento;
+                instanteLocal = ahora;
+            }
+            sumaLocal += ratio;
+            pesosLocal += 1;
+        }
+
+        synchronized double[] decaido(long ahora, double lambda) {
+            double base = ahora > instanteBase ? Math.exp(-lambda * (ahora - instanteBase)) : 1.0;
+            double local = ahora > instanteLocal ? Math.exp(-lambda * (ahora - instanteLocal)) : 1.0;
+            return new double[]{sumaBase * base + sumaLocal * local, pesosBase * base + pesosLocal * local};
+        }
+
+        /**
+         * {suma, pesos, instante} registrados desde el último checkpoint, o null si no hay
+         */
+        synchronized double[] pendiente() {
+            return pesosLocal > 0 ? new double[]{sumaLocal, pesosLocal, instanteLocal} : null;
+        }
+
+        // Lo que siguió llegando después de tomar "enviado" queda pendiente
+        synchronized void descontar(double[] enviado, double lambda) {
+            double decaimiento = instanteLocal > enviado[2] ? Math.exp(-lambda * (instanteLocal - enviado[2])) : 1.0;
+            sumaLocal -= enviado[0] * decaimiento;
+            pesosLocal -= enviado[1] * decaimiento;
+            if (pesosLocal < 1e-9) {
+                sumaLocal = 0;
+                pesosLocal = 0;
+            }
+        }
+
+        synchronized void tomarBase(FactorEta guardado) {
+            sumaBase = guardado.getSuma();
+            pesosBase = guardado.getPesos();
+            instanteBase = guardado.getActualizadoEn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.logistica.service;
+
+import com.logistica.model.Deposito;
+import com.logistica.repository.DepositoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Foto inmutable de todos los depósitos indexada por id (copy-on-write).
+ * Cada alta o modificación arma un mapa nuevo y lo publica de una vez, así
+ * las lecturas de la planificación no toman locks ni consultan la base.
+ * Es la única copia en memoria: el índice espacial y la matriz de distancias
+ * se arman a partir de esta foto y se enteran de cada publicación.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogoDepositos {
+
+    private final DepositoRepository depositoRepository;
+
+    private final List<Consumer<List<Deposito>>> suscriptores = new CopyOnWriteArrayList<>();
+
+    private volatile Map<Long, Deposito> porId = Map.of();
+
+    /**
+     * Antes que el resto de los listeners de arranque: la matriz de distancias carga sobre esta foto
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void cargar() {
+        Map<Long, Deposito> nuevo = new HashMap<>();
+        for (Deposito deposito : depositoRepository.findAll()) {
+            nuevo.put(deposito.getId(), deposito);
+        }
+        publicar(nuevo);
+        log.info("Catálogo de depósitos cargado: {} depósitos", nuevo.size());
+    }
+
+    /**
+     * Registra una vista derivada: recibe la foto actual y, después, cada foto nueva
+     * en el orden en que se publican
+     */
+    public synchronized void suscribir(Consumer<List<Deposito>> suscriptor) {
+        suscriptores.add(suscriptor);
+        suscriptor.accept(todos());
+    }
+
+    /**
+     * Publica una foto nueva con los depósitos creados o modificados
+     */
+    public synchronized void actualizar(Collection<Deposito> depositos) {
+        Map<Long, Deposito> nuevo = new HashMap<>(porId);
+        for (Deposito deposito : depositos) {
+            nuevo.put(deposito.getId(), deposito);
+        }
+        publicar(nuevo);
+    }
+
+    /**
+     * Depósito por id, o null si no está en la foto
+     */
+    public Deposito porId(Long id) {
+        return id != null ? porId.get(id) : null;
+    }
+
+    public List<Deposito> todos() {
+        return List.copyOf(porId.values());
+    }
+
+    private void publicar(Map<Long, Deposito> nuevo) {
+        porId = Map.copyOf(nuevo);
+        List<Deposito> foto = todos();
+        for (Consumer<List<Deposito>> suscriptor : suscriptores) {
+            suscriptor.accept(foto);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.logistica.service;
+
+import com.logistica.model.Tarifa;
+import com.logistica.repository.TarifaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catálogo de tarifas en memoria: por id y por fecha de vigencia.
+ * Se reemplaza entero (copia inmutable) al crear o actualizar una tarifa,
+ * y se relee periódicamente en segundo plano por si otra instancia modificó alguna.
+ * Las lecturas no toman locks ni van a la base: mientras se relee sirven la copia anterior.
+ */
+@Component
+@Slf4j
+public class CatalogoTarifas {
+
+    private final TarifaRepository tarifaRepository;
+
+    private volatile Catalogo catalogo = new Catalogo(Collections.emptyNavigableMap(), Map.of());
+
+    record Catalogo(NavigableMap<LocalDate, Tarifa> porFecha, Map<Long, Tarifa> porId) {
+    }
+
+    public CatalogoTarifas(TarifaRepository tarifaRepository) {
+        this.tarifaRepository = tarifaRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        recargar();
+    }
+
+    /**
+     * Relectura periódica fuera del camino de las consultas. Si falla se sigue
+     * sirviendo el catálogo anterior hasta el próximo intento.
+     */
+    @Scheduled(fixedDelayString = "${app.tarifas.catalogo.refresco-segundos:300}",
+            initialDelayString = "${app.tarifas.catalogo.refresco-segundos:300}", timeUnit = TimeUnit.SECONDS)
+    public void refrescar() {
+        try {
+            recargar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo releer el catálogo de tarifas, se mantiene el anterior: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Relee todas las tarifas y publica un catálogo nuevo
+     */
+    public synchronized void recargar() {
+        NavigableMap<LocalDate, Tarifa> porFecha = new TreeMap<>();
+        Map<Long, Tarifa> porId = new HashMap<>();
+        for (Tarifa tarifa : tarifaRepository.findAll()) {
+            porId.put(tarifa.getId(), tarifa);
+            if (tarifa.getFechaVigencia() != null) {
+                // Con dos tarifas en la misma fecha vale la última creada
+                porFecha.merge(tarifa.getFechaVigencia(), tarifa,
+                        (actual, nueva) -> nueva.getId() > actual.getId() ? nueva : actual);
+            }
+        }
+        catalogo = new Catalogo(Collections.unmodifiableNavigableMap(porFecha),
+                Collections.unmodifiableMap(porId));
+        log.info("Catálogo de tarifas cargado: {} tarifas", porId.size());
+    }
+
+    /**
+     * Tarifa por id, o null si no está en el catálogo
+     */
+    public Tarifa porId(Long id) {
+        return catalogo.porId().get(id);
+    }
+
+    /**
+     * Tarifa vigente en la fecha: la de mayor fecha de vigencia que no la supere.
+     * Null si la fecha es anterior a todas las tarifas.
+     */
+    public Tarifa vigenteEn(LocalDate fecha) {
+        Map.Entry<LocalDate, Tarifa> entrada = catalogo.porFecha().floorEntry(fecha);
+        return entrada != null ? entrada.getValue() : null;
+    }
+}
@@ -1,5 +1,7 @@
 package com.logistica.service;
 
+import com.logistica.client.OsrmLegCache;
+import com.logistica.exception.NotFoundException;
 import com.logistica.model.Deposito;
 import com.logistica.repository.DepositoRepository;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +15,10 @@ import java.util.List;
 public class DepositoService {
 
     private final DepositoRepository depositoRepository;
+    private final OsrmLegCache osrmLegCache;
+    private final MatrizDistanciasDepositos matrizDistancias;
+    private final IndiceEspacialDepositos indiceEspacial;
+    private final CatalogoDepositos catalogoDepositos;
 
     public Deposito crearDeposito(Deposito deposito) {
         log.info("Creando depósito: {}", deposito.getNombre());
@@ -24,20 +30,64 @@ public class DepositoService {
             return existing.get(0);
         }
 
-        return depositoRepository.save(deposito);
+        Deposito creado = depositoRepository.save(deposito);
+        catalogoDepositos.actualizar(List.of(creado));
+        actualizarMatriz(creado);
+        return creado;
     }
 
     public List<Deposito> listarDepositos() {
         return depositoRepository.findAll();
     }
 
+    public List<IndiceEspacialDepositos.DepositoCercano> buscarCercanos(double lat, double lon, int k) {
+        return indiceEspacial.cercanos(lat, lon, k);
+    }
+
+    public List<IndiceEspacialDepositos.DepositoCercano> buscarEnRadio(double lat, double lon, double radioKm) {
+        return indiceEspacial.enRadio(lat, lon, radioKm);
+    }
+
     public Deposito obtenerDeposito(Long id) {
-        return depositoRepository.findById(id)
-                .orElseThrow(() -> new com.logistica.exception.NotFoundException("Depósito no encontrado: " + id));
+        return obtenerDepositos(java.util.Collections.singletonList(id)).get(0);
+    }
+
+    /**
+     * Depósitos en el mismo orden que los ids, leídos de la foto en memoria.
+     * Los que falten se buscan en la base con una sola consulta (pudo crearlos
+     * otra instancia); si aun así faltan, se informan todos en un único error.
+     */
+    public List<Deposito> obtenerDepositos(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<Long> faltantes = ids.stream()
+                .filter(id -> catalogoDepositos.porId(id) == null)
+                .distinct()
+                .toList();
+        if (!faltantes.isEmpty()) {
+            List<Deposito> encontrados = depositoRepository.findAllById(faltantes.stream()
+                    .filter(java.util.Objects::nonNull)
+                    .toList());
+            catalogoDepositos.actualizar(encontrados);
+            faltantes = faltantes.stream()
+                    .filter(id -> catalogoDepositos.porId(id) == null)
+                    .toList();
+            if (!faltantes.isEmpty()) {
+                throw new NotFoundException(faltantes.size() == 1
+                        ? "Depósito no encontrado: " + faltantes.get(0)
+                        : "Depósitos no encontrados: " + faltantes);
+            }
+        }
+        return ids.stream().map(catalogoDepositos::porId).toList();
     }
 
     public Deposito actualizarDeposito(Long id, Deposito depositoActualizado) {
-        Deposito deposito = obtenerDeposito(id);
+        // Se lee de la base: las instancias de la foto son compartidas y no se modifican
+        Deposito deposito = depositoRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Depósito no encontrado: " + id));
+        double latAnterior = deposito.getLatitud();
+        double lonAnterior = deposito.getLongitud();
 
         deposito.setNombre(depositoActualizado.getNombre());
         deposito.setDireccion(depositoActualizado.getDireccion());
@@ -45,6 +95,30 @@ public class DepositoService {
         deposito.setLongitud(depositoActualizado.getLongitud());
         deposito.setCostoEstadiaDiario(depositoActualizado.getCostoEstadiaDiario());
 
-        return depositoRepository.save(deposito);
+        Deposito guardado = depositoRepository.save(deposito);
+        catalogoDepositos.actualizar(List.of(guardado));
+
+        // Si el depósito se movió, los tramos cacheados desde/hacia su ubicación anterior ya no valen
+        if (latAnterior != guardado.getLatitud() || lonAnterior != guardado.getLongitud()) {
+            osrmLegCache.invalidarPunto(latAnterior, lonAnterior);
+            actualizarMatriz(guardado);
+        }
+
+        return guardado;
+    }
+
+    /**
+     * Recalcula fila y columna del depósito en la matriz de distancias.
+     * Si OSRM no responde el depósito igual queda guardado y la matriz no cambia:
+     * un depósito nuevo queda sin celdas (sus tramos se calculan con /route) hasta
+     * el próximo reinicio.
+     */
+    private void actualizarMatriz(Deposito deposito) {
+        try {
+            matrizDistancias.recalcularDeposito(deposito);
+        } catch (Exception e) {
+            log.warn("No se pudo actualizar la matriz de distancias para el depósito {}: {}",
+                    deposito.getId(), e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
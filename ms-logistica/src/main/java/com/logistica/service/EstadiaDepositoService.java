@@ -0,0 +1,159 @@
+package com.logistica.service;
+
+import com.logistica.dto.response.EstadiaDepositoResponse;
+import com.logistica.dto.response.OcupacionDepositoResponse;
+import com.logistica.exception.TramoNotFoundException;
+import com.logistica.model.EstadiaDeposito;
+import com.logistica.model.TipoMensajeSolicitudes;
+import com.logistica.model.Tramo;
+import com.logistica.repository.EstadiaAbierta;
+import com.logistica.repository.EstadiaDepositoRepository;
+import com.logistica.repository.RutaRepository;
+import com.logistica.repository.TramoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de estadías en depósito. Corre dentro de la transacción del cambio de
+ * estado del tramo: finalizar un tramo en un depósito abre la estadía (un día
+ * provisorio) e iniciar el que sale de ese depósito la cierra y ajusta el costo
+ * con los días reales, sin recorrer los tramos de la ruta.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EstadiaDepositoService {
+
+    private final EstadiaDepositoRepository estadiaRepository;
+    private final TramoRepository tramoRepository;
+    private final RutaRepository rutaRepository;
+    private final OutboxSolicitudesService outboxSolicitudes;
+
+    /**
+     * Abre la estadía del contenedor si el tramo terminó en un depósito
+     *
+     * @return costo de estadía a incluir en el costo real del tramo (0 si no terminó en un depósito)
+     */
+    @Transactional
+    public double abrir(Tramo llegada) {
+        if (llegada.getDepositoDestino() == null) {
+            return 0;
+        }
+        // Finalización repetida: se mantiene lo ya cobrado (y ajustado, si se cerró)
+        EstadiaDeposito existente = estadiaRepository.findByIdTramoLlegada(llegada.getId()).orElse(null);
+        if (existente != null) {
+            return existente.getCostoCobrado();
+        }
+
+        EstadiaDeposito estadia = new EstadiaDeposito();
+        estadia.setDeposito(llegada.getDepositoDestino());
+        estadia.setIdRuta(llegada.getRuta().getId());
+        estadia.setNroSolicitud(llegada.getRuta().getNroSolicitudRef());
+        estadia.setIdTramoLlegada(llegada.getId());
+        estadia.setFechaIngreso(llegada.getFechaHoraFinReal() != null
+                ? llegada.getFechaHoraFinReal() : LocalDateTime.now());
+        estadia.setCostoDiario(llegada.getDepositoDestino().getCostoEstadiaDiario());
+        // Hasta que salga, se cobra un día
+        estadia.setCostoCobrado(estadia.getCostoDiario());
+        estadiaRepository.save(estadia);
+
+        log.debug("Estadía abierta en depósito {} para solicitud {}: 1 día provisorio ${}",
+                llegada.getDepositoDestino().getNombre(), estadia.getNroSolicitud(), estadia.getCostoCobrado());
+        return estadia.getCostoCobrado();
+    }
+
+    /**
+     * Cierra la estadía del depósito del que sale el tramo y ajusta el costo del tramo
+     * de llegada (en la ruta y en MS Solicitudes) con los días reales
+     */
+    @Transactional
+    public void cerrar(Tramo salida) {
+        if (salida.getDepositoOrigen() == null) {
+            return;
+        }
+        EstadiaDeposito estadia = estadiaRepository.buscarAbiertaParaCerrar(
+                salida.getRuta().getId(), salida.getDepositoOrigen().getId()).orElse(null);
+        if (estadia == null) {
+            return;
+        }
+
+        LocalDateTime egreso = salida.getFechaHoraInicioReal() != null
+                ? salida.getFechaHoraInicioReal() : LocalDateTime.now();
+        long dias = diasCobrados(estadia.getFechaIngreso(), egreso);
+        double costo = dias * estadia.getCostoDiario();
+        double delta = costo - estadia.getCostoCobrado();
+
+        estadia.setIdTramoSalida(salida.getId());
+        estadia.setFechaEgreso(egreso);
+        estadia.setCostoCobrado(costo);
+        estadiaRepository.save(estadia);
+
+        log.info("Estadía cerrada en depósito {} para solicitud {}: {} días, ${} (ajuste ${})",
+                estadia.getDeposito().getNombre(), estadia.getNroSolicitud(), dias, costo, delta);
+        if (Math.abs(delta) <= 0.005) {
+            return;
+        }
+
+        Tramo llegada = tramoRepository.findById(estadia.getIdTramoLlegada())
+                .orElseThrow(() -> new TramoNotFoundException(estadia.getIdTramoLlegada()));
+        llegada.setCostoReal(llegada.getCostoReal() + delta);
+        tramoRepository.save(llegada);
+        rutaRepository.acumularFinalizacion(estadia.getIdRuta(), 0, delta, 0, 0);
+        outboxSolicitudes.registrar(estadia.getNroSolicitud(), TipoMensajeSolicitudes.AJUSTE_COSTO,
+                Map.of("idTramo", estadia.getIdTramoLlegada(), "delta", delta));
+    }
+
+    /**
+     * Costo de estadía ya incluido en el costo real del tramo (0 si no terminó en un depósito)
+     */
+    public double costoCobrado(Long idTramoLlegada) {
+        return estadiaRepository.findByIdTramoLlegada(idTramoLlegada)
+                .map(EstadiaDeposito::getCostoCobrado)
+                .orElse(0.0);
+    }
+
+    /**
+     * Contenedores en cada depósito con sus días y costo hasta ahora (idDeposito null: todos)
+     */
+    @Transactional(readOnly = true)
+    public List<OcupacionDepositoResponse> ocupacion(Long idDeposito) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Map<Long, OcupacionDepositoResponse> porDeposito = new LinkedHashMap<>();
+        for (EstadiaAbierta estadia : estadiaRepository.buscarAbiertas(idDeposito)) {
+            long dias = diasCobrados(estadia.fechaIngreso(), ahora);
+            double costo = dias * estadia.costoDiario();
+
+            OcupacionDepositoResponse ocupacion = porDeposito.computeIfAbsent(estadia.idDeposito(),
+                    id -> OcupacionDepositoResponse.builder()
+                            .idDeposito(id)
+                            .nombre(estadia.nombreDeposito())
+                            .estadias(new ArrayList<>())
+                            .build());
+            ocupacion.getEstadias().add(EstadiaDepositoResponse.builder()
+                    .nroSolicitud(estadia.nroSolicitud())
+                    .idTramoLlegada(estadia.idTramoLlegada())
+                    .fechaIngreso(estadia.fechaIngreso())
+                    .dias(dias)
+                    .costoAcumulado(costo)
+                    .build());
+            ocupacion.setContenedores(ocupacion.getContenedores() + 1);
+            ocupacion.setDiasAcumulados(ocupacion.getDiasAcumulados() + dias);
+            ocupacion.setCostoAcumulado(ocupacion.getCostoAcumulado() + costo);
+        }
+        return new ArrayList<>(porDeposito.values());
+    }
+
+    // Días completos, con mínimo de uno: la misma regla mientras está en el depósito y al salir
+    private static long diasCobrados(LocalDateTime ingreso, LocalDateTime egreso) {
+        return Math.max(1, ChronoUnit.DAYS.between(ingreso, egreso));
+    }
+}
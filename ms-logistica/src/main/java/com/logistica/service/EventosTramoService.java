@@ -0,0 +1,107 @@
+package com.logistica.service;
+
+import com.logistica.client.dto.CamionInfo;
+import com.logistica.event.TramoFinalizadoEvent;
+import com.logistica.event.TramoIniciadoEvent;
+import com.logistica.exception.TramoNotFoundException;
+import com.logistica.model.EstadoTramo;
+import com.logistica.model.Tramo;
+import com.logistica.repository.EventoTramoProcesadoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Aplica los eventos de tramos que llegan de MS Flota por RabbitMQ.
+ * Idempotente: la clave (idTramo, estado) se registra en la misma transacción
+ * que el cambio de estado, así una entrega repetida no vuelve a aplicarse.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventosTramoService {
+
+    private final EventoTramoProcesadoRepository eventosProcesados;
+    private final TramoService tramoService;
+
+    /**
+     * @return false si el evento ya estaba aplicado
+     */
+    @Transactional
+    public boolean procesarInicio(TramoIniciadoEvent evento) {
+        Long idTramo = requerirId(evento.idTramo());
+        if (!registrar(idTramo, EstadoTramo.EN_CURSO)) {
+            return false;
+        }
+
+        Tramo tramo = tramoService.obtenerTramo(idTramo)
+                .orElseThrow(() -> new TramoNotFoundException(idTramo));
+        if (tramo.getEstado() == EstadoTramo.EN_CURSO || tramo.getEstado() == EstadoTramo.FINALIZADO) {
+            // Ya iniciado por la API REST
+            log.info("Evento tramo.iniciado descartado: el tramo {} ya está {}", idTramo, tramo.getEstado());
+            return false;
+        }
+
+        tramoService.marcarTramoIniciado(idTramo);
+        return true;
+    }
+
+    /**
+     * Requiere que el tramo esté EN_CURSO: si el inicio todavía no se aplicó
+     * (otra cola) se lanza IllegalStateException y el evento se reintenta
+     *
+     * @return false si el evento ya estaba aplicado
+     */
+    @Transactional
+    public boolean procesarFin(TramoFinalizadoEvent evento) {
+        Long idTramo = requerirId(evento.idTramo());
+        if (evento.kmRecorridos() == null || evento.kmRecorridos() < 0) {
+            throw new IllegalArgumentException("Evento tramo.finalizado sin km recorridos válidos: " + idTramo);
+        }
+        if (!registrar(idTramo, EstadoTramo.FINALIZADO)) {
+            return false;
+        }
+
+        Tramo tramo = tramoService.obtenerTramo(idTramo)
+                .orElseThrow(() -> new TramoNotFoundException(idTramo));
+        if (tramo.getEstado() == EstadoTramo.FINALIZADO) {
+            log.info("Evento tramo.finalizado descartado: el tramo {} ya está finalizado", idTramo);
+            return false;
+        }
+        if (tramo.getEstado() != EstadoTramo.EN_CURSO) {
+            throw new IllegalStateException("El tramo " + idTramo + " todavía no está EN_CURSO");
+        }
+
+        tramoService.marcarTramoFinalizado(idTramo, evento.kmRecorridos(), datosCamion(evento));
+        return true;
+    }
+
+    private boolean registrar(Long idTramo, EstadoTramo estado) {
+        if (eventosProcesados.registrar(idTramo, estado.name()) == 0) {
+            log.info("Evento repetido descartado: tramo {} -> {}", idTramo, estado);
+            return false;
+        }
+        return true;
+    }
+
+    // El evento trae consumo y costo por km: el costo real no depende de la cache
+    private CamionInfo datosCamion(TramoFinalizadoEvent evento) {
+        if (evento.consumoCombustibleCamion() == null) {
+            return null;
+        }
+        CamionInfo camion = new CamionInfo();
+        camion.setId(evento.camionId());
+        camion.setDominio(evento.dominioCamion());
+        camion.setConsumoCombustiblePromedio(evento.consumoCombustibleCamion());
+        camion.setCostoPorKm(evento.costoPorKmCamion());
+        return camion;
+    }
+
+    private Long requerirId(Long idTramo) {
+        if (idTramo == null) {
+            throw new IllegalArgumentException("Evento de tramo sin idTramo");
+        }
+        return idTramo;
+    }
+}
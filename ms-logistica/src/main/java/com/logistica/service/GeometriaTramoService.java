@@ -0,0 +1,118 @@
+package com.logistica.service;
+
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.exception.LogisticaException;
+import com.logistica.exception.TramoNotFoundException;
+import com.logistica.model.GeometriaTramo;
+import com.logistica.model.Ruta;
+import com.logistica.model.Tramo;
+import com.logistica.repository.GeometriaTramoRepository;
+import com.logistica.repository.TramoRepository;
+import com.logistica.util.GeometriaCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.zip.CRC32;
+
+/**
+ * Trazado de cada tramo. Se pide al motor de ruteo la primera vez que hace falta
+ * (no en la planificación: la mayoría de los tramos nunca se dibuja) y se guarda
+ * codificado; las siguientes lecturas son una búsqueda por clave.
+ * Si el motor no responde o no da trazado se devuelve la línea recta, marcada
+ * como aproximada y sin guardarla.
+ */
+@Service
+@Slf4j
+public class GeometriaTramoService {
+
+    private final TramoRepository tramoRepository;
+    private final GeometriaTramoRepository geometriaRepository;
+    private final OsrmClient2 osrmClient;
+    private final double[] toleranciasMetros;
+
+    /**
+     * @param firma CRC32 de los puntos codificados (para el ETag)
+     */
+    public record Trazado(Long idTramo, GeometriaCodec.Puntos puntos, byte[] niveles, boolean aproximado, long firma) {
+    }
+
+    public GeometriaTramoService(TramoRepository tramoRepository, GeometriaTramoRepository geometriaRepository,
+            OsrmClient2 osrmClient,
+            @Value("${app.tramos.geometria.tolerancias-metros:500,100,20}") double[] toleranciasMetros) {
+        this.tramoRepository = tramoRepository;
+        this.geometriaRepository = geometriaRepository;
+        this.osrmClient = osrmClient;
+        this.toleranciasMetros = toleranciasMetros;
+    }
+
+    /**
+     * Cantidad de niveles de detalle; el último es el trazado completo
+     */
+    public int cantidadNiveles() {
+        return toleranciasMetros.length + 1;
+    }
+
+    public Trazado obtener(Long idTramo) {
+        GeometriaTramo guardada = geometriaRepository.findById(idTramo).orElse(null);
+        if (guardada != null) {
+            return new Trazado(idTramo, GeometriaCodec.decodificar(guardada.getPuntos()),
+                    guardada.getNiveles(), false, firma(guardada.getPuntos()));
+        }
+
+        Tramo tramo = tramoRepository.findById(idTramo)
+                .orElseThrow(() -> new TramoNotFoundException(idTramo));
+        Coordenada origen = origen(tramo);
+        Coordenada destino = destino(tramo);
+        if (origen == null || destino == null) {
+            throw new LogisticaException("La ruta del tramo " + idTramo
+                    + " no tiene las coordenadas de origen/destino de la solicitud (planificada antes de guardarlas)");
+        }
+
+        GeometriaCodec.Puntos puntos = osrmClient.calcularGeometria(origen, destino);
+        boolean aproximado = puntos == null || puntos.size() < 2;
+        if (aproximado) {
+            puntos = new GeometriaCodec.Puntos(
+                    new int[]{e6(origen.latitud()), e6(destino.latitud())},
+                    new int[]{e6(origen.longitud()), e6(destino.longitud())});
+        }
+
+        byte[] niveles = GeometriaCodec.niveles(puntos, toleranciasMetros);
+        byte[] codificados = GeometriaCodec.codificar(puntos);
+        if (!aproximado) {
+            geometriaRepository.guardarSiNoExiste(idTramo, puntos.size(), codificados, niveles);
+            log.debug("Trazado del tramo {} guardado: {} puntos en {} bytes",
+                    idTramo, puntos.size(), codificados.length + niveles.length);
+        }
+        return new Trazado(idTramo, puntos, niveles, aproximado, firma(codificados));
+    }
+
+    private static Coordenada origen(Tramo tramo) {
+        if (tramo.getDepositoOrigen() != null) {
+            return new Coordenada(tramo.getDepositoOrigen().getLatitud(), tramo.getDepositoOrigen().getLongitud());
+        }
+        Ruta ruta = tramo.getRuta();
+        return ruta.getLatOrigen() != null && ruta.getLonOrigen() != null
+                ? new Coordenada(ruta.getLatOrigen(), ruta.getLonOrigen()) : null;
+    }
+
+    private static Coordenada destino(Tramo tramo) {
+        if (tramo.getDepositoDestino() != null) {
+            return new Coordenada(tramo.getDepositoDestino().getLatitud(), tramo.getDepositoDestino().getLongitud());
+        }
+        Ruta ruta = tramo.getRuta();
+        return ruta.getLatDestino() != null && ruta.getLonDestino() != null
+                ? new Coordenada(ruta.getLatDestino(), ruta.getLonDestino()) : null;
+    }
+
+    private static int e6(double grados) {
+        return (int) Math.round(grados * 1e6);
+    }
+
+    private static long firma(byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,169 @@
+package com.logistica.service;
+
+import com.logistica.model.Deposito;
+import com.logistica.util.GeoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Índice espacial en memoria (grilla regular de lat/lon) sobre los depósitos,
+ * para consultas de "k más cercanos" y "dentro de un radio" sin recorrer la tabla.
+ * Es inmutable: se reconstruye con cada foto nueva que publica CatalogoDepositos.
+ */
+@Component
+@Slf4j
+public class IndiceEspacialDepositos {
+
+    private static final double KM_POR_GRADO = GeoUtils.RADIO_TIERRA_KM * Math.PI / 180.0;
+
+    private final double celdaGrados;
+
+    private volatile Grilla grilla;
+
+    public IndiceEspacialDepositos(CatalogoDepositos catalogoDepositos,
+            @Value("${app.depositos.indice.celda-grados:0.5}") double celdaGrados) {
+        this.celdaGrados = celdaGrados;
+        catalogoDepositos.suscribir(this::reconstruir);
+    }
+
+    private void reconstruir(List<Deposito> depositos) {
+        this.grilla = construir(depositos);
+        log.debug("Índice espacial de depósitos reconstruido: {} depósitos", depositos.size());
+    }
+
+    /**
+     * Los k depósitos más cercanos al punto, ordenados por distancia
+     */
+    public List<DepositoCercano> cercanos(double lat, double lon, int k) {
+        Grilla g = this.grilla;
+        int n = g.depositos().length;
+        if (k <= 0 || n == 0) {
+            return List.of();
+        }
+
+        // max-heap por distancia con los k mejores candidatos
+        PriorityQueue<DepositoCercano> mejores = new PriorityQueue<>(
+                Comparator.comparingDouble(DepositoCercano::distanciaKm).reversed());
+
+        int fila = celda(lat);
+        int columna = celda(lon);
+        int radioMaximo = Math.max(
+                Math.max(Math.abs(fila - g.filaMin()), Math.abs(fila - g.filaMax())),
+                Math.max(Math.abs(columna - g.columnaMin()), Math.abs(columna - g.columnaMax())));
+
+        for (int r = 0; r <= radioMaximo; r++) {
+            for (int f = fila - r; f <= fila + r; f++) {
+                for (int c = columna - r; c <= columna + r; c++) {
+                    // sólo el borde del anillo r
+                    if (Math.abs(f - fila) != r && Math.abs(c - columna) != r) {
+                        continue;
+                    }
+                    int[] indices = g.celdas().get(clave(f, c));
+                    if (indices == null) {
+                        continue;
+                    }
+                    for (int i : indices) {
+                        double d = GeoUtils.haversineKm(lat, lon, g.lat()[i], g.lon()[i]);
+                        if (mejores.size() < k) {
+                            mejores.add(new DepositoCercano(g.depositos()[i], d));
+                        } else if (d < mejores.peek().distanciaKm()) {
+                            mejores.poll();
+                            mejores.add(new DepositoCercano(g.depositos()[i], d));
+                        }
+                    }
+                }
+            }
+            // Cualquier punto del anillo r+1 está al menos a r celdas completas
+            if (mejores.size() == k && mejores.peek().distanciaKm() <= r * kmMinimoPorCelda(lat, r + 1)) {
+                break;
+            }
+        }
+
+        List<DepositoCercano> resultado = new ArrayList<>(mejores);
+        resultado.sort(Comparator.comparingDouble(DepositoCercano::distanciaKm));
+        return resultado;
+    }
+
+    /**
+     * Depósitos a no más de radioKm del punto, ordenados por distancia
+     */
+    public List<DepositoCercano> enRadio(double lat, double lon, double radioKm) {
+        Grilla g = this.grilla;
+        double dLat = radioKm / KM_POR_GRADO;
+        double cosLat = Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat) + dLat))));
+        double dLon = Math.min(180.0, radioKm / (KM_POR_GRADO * cosLat));
+
+        List<DepositoCercano> resultado = new ArrayList<>();
+        for (int f = celda(lat - dLat); f <= celda(lat + dLat); f++) {
+            for (int c = celda(lon - dLon); c <= celda(lon + dLon); c++) {
+                int[] indices = g.celdas().get(clave(f, c));
+                if (indices == null) {
+                    continue;
+                }
+                for (int i : indices) {
+                    double d = GeoUtils.haversineKm(lat, lon, g.lat()[i], g.lon()[i]);
+                    if (d <= radioKm) {
+                        resultado.add(new DepositoCercano(g.depositos()[i], d));
+                    }
+                }
+            }
+        }
+        resultado.sort(Comparator.comparingDouble(DepositoCercano::distanciaKm));
+        return resultado;
+    }
+
+    private double kmMinimoPorCelda(double lat, int anillos) {
+        // El ancho en km de una celda se achica con la latitud: se toma la peor latitud alcanzable
+        double latMaxima = Math.min(89.0, Math.abs(lat) + anillos * celdaGrados);
+        return celdaGrados * KM_POR_GRADO * Math.cos(Math.toRadians(latMaxima));
+    }
+
+    private Grilla construir(List<Deposito> depositos) {
+        int n = depositos.size();
+        Deposito[] arreglo = depositos.toArray(new Deposito[0]);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        Map<Long, List<Integer>> porCelda = new HashMap<>();
+        int filaMin = Integer.MAX_VALUE, filaMax = Integer.MIN_VALUE;
+        int columnaMin = Integer.MAX_VALUE, columnaMax = Integer.MIN_VALUE;
+
+        for (int i = 0; i < n; i++) {
+            lat[i] = arreglo[i].getLatitud();
+            lon[i] = arreglo[i].getLongitud();
+            int f = celda(lat[i]);
+            int c = celda(lon[i]);
+            filaMin = Math.min(filaMin, f);
+            filaMax = Math.max(filaMax, f);
+            columnaMin = Math.min(columnaMin, c);
+            columnaMax = Math.max(columnaMax, c);
+            porCelda.computeIfAbsent(clave(f, c), x -> new ArrayList<>()).add(i);
+        }
+
+        Map<Long, int[]> celdas = new HashMap<>(porCelda.size() * 2);
+        porCelda.forEach((k, v) -> celdas.put(k, v.stream().mapToInt(Integer::intValue).toArray()));
+        return new Grilla(arreglo, lat, lon, celdas, filaMin, filaMax, columnaMin, columnaMax);
+    }
+
+    private int celda(double grados) {
+        return (int) Math.floor(grados / celdaGrados);
+    }
+
+    private static long clave(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xffffffffL);
+    }
+
+    public record DepositoCercano(Deposito deposito, double distanciaKm) {
+    }
+
+    private record Grilla(Deposito[] depositos, double[] lat, double[] lon, Map<Long, int[]> celdas,
+            int filaMin, int filaMax, int columnaMin, int columnaMax) {
+    }
+}
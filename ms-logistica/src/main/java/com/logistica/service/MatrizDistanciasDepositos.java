@@ -0,0 +1,285 @@
+package com.logistica.service;
+
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.model.Deposito;
+import com.logistica.model.DistanciaDeposito;
+import com.logistica.repository.DistanciaDepositoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matriz en memoria de distancias y duraciones por ruta entre todos los depósitos.
+ * Se calcula con OSRM /table, se persiste en distancia_deposito y se carga al iniciar.
+ * Cuando se crea o mueve un depósito sólo se recalculan su fila y su columna.
+ * Los lectores usan una foto inmutable; cada cambio arma una copia y la publica.
+ * Los depósitos salen de CatalogoDepositos, no de la base.
+ */
+@Component
+@Slf4j
+public class MatrizDistanciasDepositos {
+
+    private final CatalogoDepositos catalogoDepositos;
+    private final DistanciaDepositoRepository distanciaRepository;
+    private final OsrmClient2 osrmClient;
+    private final TransactionTemplate transaccion;
+    private final int bloque;
+
+    private volatile Matriz matriz = new Matriz(Map.of(), 0, new double[0], new double[0]);
+
+    public MatrizDistanciasDepositos(CatalogoDepositos catalogoDepositos,
+            DistanciaDepositoRepository distanciaRepository,
+            OsrmClient2 osrmClient,
+            TransactionTemplate transaccion,
+            @Value("${app.osrm.table.max-coordenadas:100}") int maxCoordenadas) {
+        this.catalogoDepositos = catalogoDepositos;
+        this.distanciaRepository = distanciaRepository;
+        this.osrmClient = osrmClient;
+        this.transaccion = transaccion;
+        // fuentes + destinos de cada consulta no pueden superar el máximo de OSRM
+        this.bloque = Math.max(1, maxCoordenadas / 2);
+    }
+
+    /**
+     * Distancia/duración entre dos depósitos, o null si la celda no está calculada
+     */
+    public OsrmDistanceResponse tramo(Long origenId, Long destinoId) {
+        Matriz m = this.matriz;
+        Integer i = m.indice().get(origenId);
+        Integer j = m.indice().get(destinoId);
+        if (i == null || j == null) {
+            return null;
+        }
+        int celda = i * m.lado() + j;
+        double km = m.km()[celda];
+        if (Double.isNaN(km)) {
+            return null;
+        }
+        OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+        route.setDistance(km * 1000.0);
+        route.setDuration(m.segundos()[celda]);
+        OsrmDistanceResponse response = new OsrmDistanceResponse();
+        response.setRoutes(Collections.singletonList(route));
+        return response;
+    }
+
+    public double distanciaKm(Long origenId, Long destinoId) {
+        OsrmDistanceResponse tramo = tramo(origenId, destinoId);
+        return tramo != null ? tramo.getDistanceKm() : Double.NaN;
+    }
+
+    /**
+     * Copia las distancias (km) entre los depósitos indicados a una matriz plana
+     * n x n en el orden recibido; NaN donde la celda no está calculada
+     */
+    public double[] distanciasKm(List<Long> depositoIds) {
+        Matriz m = this.matriz;
+        int n = depositoIds.size();
+        int[] posiciones = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer pos = m.indice().get(depositoIds.get(i));
+            posiciones[i] = pos != null ? pos : -1;
+        }
+        double[] resultado = new double[n * n];
+        Arrays.fill(resultado, Double.NaN);
+        for (int i = 0; i < n; i++) {
+            if (posiciones[i] < 0) {
+                continue;
+            }
+            int fila = posiciones[i] * m.lado();
+            for (int j = 0; j < n; j++) {
+                if (posiciones[j] >= 0) {
+                    resultado[i * n + j] = m.km()[fila + posiciones[j]];
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Carga la matriz persistida y completa las celdas faltantes
+     * (después de que CatalogoDepositos cargó su foto)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        List<Deposito> depositos = catalogoDepositos.todos();
+        publicar(depositos.stream().map(Deposito::getId).toList(), null, distanciaRepository.findAll());
+
+        List<Deposito> incompletos = depositos.stream()
+                .filter(d -> depositos.stream().anyMatch(o -> tramo(d.getId(), o.getId()) == null))
+                .toList();
+        log.info("Matriz de depósitos cargada: {} depósitos, {} con celdas faltantes",
+                depositos.size(), incompletos.size());
+
+        try {
+            if (incompletos.size() == depositos.size() && !depositos.isEmpty()) {
+                recalcularTodo(depositos);
+            } else {
+                for (Deposito deposito : incompletos) {
+                    recalcularDeposito(deposito);
+                }
+            }
+        } catch (Exception e) {
+            // Sin OSRM la matriz queda incompleta; esos tramos se calculan con /route
+            log.warn("No se pudo completar la matriz de depósitos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcula la fila y la columna de un depósito nuevo o movido. Primero se consulta
+     * OSRM; si falla no cambia nada (ni la base ni la matriz). Después se reemplazan las
+     * filas persistidas en una transacción y se publica la matriz nueva.
+     */
+    public void recalcularDeposito(Deposito deposito) {
+        // La foto del catálogo con este depósito en su versión recibida
+        List<Deposito> todos = new ArrayList<>();
+        for (Deposito otro : catalogoDepositos.todos()) {
+            if (!otro.getId().equals(deposito.getId())) {
+                todos.add(otro);
+            }
+        }
+        todos.add(deposito);
+        List<Deposito> uno = List.of(deposito);
+
+        List<DistanciaDeposito> celdas = new ArrayList<>();
+        for (List<Deposito> destinos : particionar(todos)) {
+            celdas.addAll(calcularBloque(uno, destinos)); // fila, con la diagonal
+        }
+        // La columna sin el propio depósito: la diagonal ya está en la fila
+        for (List<Deposito> origenes : particionar(todos.subList(0, todos.size() - 1))) {
+            celdas.addAll(calcularBloque(origenes, uno));
+        }
+
+        transaccion.executeWithoutResult(estado -> {
+            distanciaRepository.deleteByDeposito(deposito.getId());
+            distanciaRepository.saveAll(celdas);
+        });
+        publicar(List.of(deposito.getId()), deposito.getId(), celdas);
+        log.info("Matriz de depósitos: recalculadas fila y columna del depósito {}", deposito.getId());
+    }
+
+    private void recalcularTodo(List<Deposito> depositos) {
+        List<DistanciaDeposito> celdas = new ArrayList<>();
+        for (List<Deposito> origenes : particionar(depositos)) {
+            for (List<Deposito> destinos : particionar(depositos)) {
+                celdas.addAll(calcularBloque(origenes, destinos));
+            }
+        }
+        transaccion.executeWithoutResult(estado -> {
+            distanciaRepository.deleteAllInBatch();
+            distanciaRepository.saveAll(celdas);
+        });
+        publicar(depositos.stream().map(Deposito::getId).toList(), null, celdas);
+        log.info("Matriz de depósitos calculada completa: {} celdas", celdas.size());
+    }
+
+    /**
+     * Una consulta /table para origenes x destinos; devuelve las celdas sin tocar la matriz
+     */
+    private List<DistanciaDeposito> calcularBloque(List<Deposito> origenes, List<Deposito> destinos) {
+        List<Coordenada> puntos = new ArrayList<>(origenes.size() + destinos.size());
+        List<Integer> fuentes = new ArrayList<>(origenes.size());
+        List<Integer> objetivos = new ArrayList<>(destinos.size());
+        for (Deposito o : origenes) {
+            fuentes.add(puntos.size());
+            puntos.add(new Coordenada(o.getLatitud(), o.getLongitud()));
+        }
+        for (Deposito d : destinos) {
+            objetivos.add(puntos.size());
+            puntos.add(new Coordenada(d.getLatitud(), d.getLongitud()));
+        }
+
+        OsrmTableResponse tabla = osrmClient.calcularTabla(puntos, fuentes, objetivos);
+
+        List<DistanciaDeposito> celdas = new ArrayList<>(origenes.size() * destinos.size());
+        for (int i = 0; i < origenes.size(); i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                Long origenId = origenes.get(i).getId();
+                Long destinoId = destinos.get(j).getId();
+                Double metros = tabla.getDistances()[i][j];
+                Double segundos = tabla.getDurations()[i][j];
+                if (origenId.equals(destinoId)) {
+                    metros = 0.0;
+                    segundos = 0.0;
+                }
+                if (metros == null || segundos == null) {
+                    continue; // sin camino
+                }
+                DistanciaDeposito celda = new DistanciaDeposito();
+                celda.setDepositoOrigenId(origenId);
+                celda.setDepositoDestinoId(destinoId);
+                celda.setDistanciaKm(metros / 1000.0);
+                celda.setDuracionSegundos(segundos);
+                celdas.add(celda);
+            }
+        }
+        return celdas;
+    }
+
+    private List<List<Deposito>> particionar(List<Deposito> depositos) {
+        List<List<Deposito>> partes = new ArrayList<>();
+        for (int i = 0; i < depositos.size(); i += bloque) {
+            partes.add(depositos.subList(i, Math.min(depositos.size(), i + bloque)));
+        }
+        return partes;
+    }
+
+    /**
+     * Arma una copia de la matriz con los depósitos agregados, la fila y columna de
+     * reemplazado (si hay) vaciadas y las celdas escritas, y la publica. Los lectores
+     * siguen con la foto anterior hasta el cambio de referencia.
+     */
+    private synchronized void publicar(Collection<Long> depositoIds, Long reemplazado,
+            Collection<DistanciaDeposito> celdas) {
+        Matriz m = this.matriz;
+        Map<Long, Integer> indice = new HashMap<>(m.indice());
+        for (Long id : depositoIds) {
+            indice.putIfAbsent(id, indice.size());
+        }
+        int lado = indice.size();
+        double[] km = new double[lado * lado];
+        double[] segundos = new double[lado * lado];
+        Arrays.fill(km, Double.NaN);
+        for (int i = 0; i < m.lado(); i++) {
+            System.arraycopy(m.km(), i * m.lado(), km, i * lado, m.lado());
+            System.arraycopy(m.segundos(), i * m.lado(), segundos, i * lado, m.lado());
+        }
+
+        Integer fila = reemplazado != null ? indice.get(reemplazado) : null;
+        if (fila != null) {
+            for (int k = 0; k < lado; k++) {
+                km[fila * lado + k] = Double.NaN;
+                km[k * lado + fila] = Double.NaN;
+            }
+        }
+        for (DistanciaDeposito d : celdas) {
+            Integer i = indice.get(d.getDepositoOrigenId());
+            Integer j = indice.get(d.getDepositoDestinoId());
+            if (i != null && j != null) {
+                km[i * lado + j] = d.getDistanciaKm();
+                segundos[i * lado + j] = d.getDuracionSegundos();
+            }
+        }
+        this.matriz = new Matriz(Map.copyOf(indice), lado, km, segundos);
+    }
+
+    /**
+     * Foto inmutable: los arreglos no se modifican después de publicarla
+     */
+    private record Matriz(Map<Long, Integer> indice, int lado, double[] km, double[] segundos) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.logistica.service;
+
+import com.logistica.model.Deposito;
+import com.logistica.model.Tarifa;
+import com.logistica.util.GeoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Elige automáticamente qué depósitos intermedios usar (y en qué orden)
+ * para ir de un origen a un destino al menor costo estimado.
+ *
+ * Costo de cada tramo: km * Tarifa.valorKMBase, más un día de estadía
+ * (Deposito.costoEstadiaDiario) por cada depósito en el que se para.
+ * Los tramos entre depósitos salen de la matriz OSRM en memoria; los tramos
+ * desde el origen y hacia el destino se estiman con haversine * tortuosidad
+ * (la ruta elegida se calcula después con OSRM al planificarla).
+ */
+@Service
+@Slf4j
+public class OptimizadorRutaService {
+
+    private final CatalogoDepositos catalogoDepositos;
+    private final MatrizDistanciasDepositos matrizDistancias;
+    private final double factorTortuosidad;
+
+    public OptimizadorRutaService(CatalogoDepositos catalogoDepositos,
+            MatrizDistanciasDepositos matrizDistancias,
+            @Value("${app.rutas.optimizacion.factor-tortuosidad:1.3}") double factorTortuosidad) {
+        this.catalogoDepositos = catalogoDepositos;
+        this.matrizDistancias = matrizDistancias;
+        this.factorTortuosidad = factorTortuosidad;
+    }
+
+    /**
+     * Devuelve la secuencia de depósitos intermedios de menor costo
+     * (lista vacía si conviene ir directo)
+     */
+    public List<Deposito> secuenciaOptima(Double latOrigen, Double lonOrigen,
+            Double latDestino, Double lonDestino,
+            int maxParadas, Tarifa tarifa) {
+        long inicio = System.nanoTime();
+
+        List<Deposito> depositos = catalogoDepositos.todos();
+        int n = depositos.size();
+        double valorKm = tarifa.getValorKMBase();
+
+        double[] kmDepositos = matrizDistancias.distanciasKm(depositos.stream().map(Deposito::getId).toList());
+        double[] costoEntre = new double[n * n];
+        double[] costoDesdeOrigen = new double[n];
+        double[] costoHaciaDestino = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Deposito d = depositos.get(i);
+            double estadia = d.getCostoEstadiaDiario();
+            costoDesdeOrigen[i] = estimarKm(latOrigen, lonOrigen, d.getLatitud(), d.getLongitud()) * valorKm + estadia;
+            costoHaciaDestino[i] = estimarKm(d.getLatitud(), d.getLongitud(), latDestino, lonDestino) * valorKm;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double km = kmDepositos[i * n + j];
+                // Sin celda en la matriz el tramo no se considera
+                costoEntre[i * n + j] = i == j || Double.isNaN(km)
+                        ? Double.POSITIVE_INFINITY
+                        : km * valorKm + depositos.get(j).getCostoEstadiaDiario();
+            }
+        }
+        double costoDirecto = estimarKm(latOrigen, lonOrigen, latDestino, lonDestino) * valorKm;
+
+        int[] secuencia = mejorSecuencia(costoDesdeOrigen, costoEntre, costoHaciaDestino, costoDirecto, maxParadas);
+
+        List<Deposito> resultado = new ArrayList<>(secuencia.length);
+        for (int indice : secuencia) {
+            resultado.add(depositos.get(indice));
+        }
+        log.info("Secuencia óptima calculada en {} ms sobre {} depósitos: {}",
+                (System.nanoTime() - inicio) / 1_000_000.0, n,
+                resultado.stream().map(Deposito::getNombre).toList());
+        return resultado;
+    }
+
+    private double estimarKm(double lat1, double lon1, double lat2, double lon2) {
+        return GeoUtils.haversineKm(lat1, lon1, lat2, lon2) * factorTortuosidad;
+    }
+
+    /**
+     * Camino de costo mínimo origen -> (a lo sumo maxParadas depósitos) -> destino.
+     * Programación dinámica por capas (Bellman-Ford acotado en saltos):
+     * costo[k][v] = menor costo para llegar al depósito v usando exactamente k depósitos.
+     * O(maxParadas * n^2) sobre arreglos primitivos.
+     *
+     * @param costoDesdeOrigen  costo origen -> depósito i (incluye su estadía)
+     * @param costoEntre        matriz plana n x n, costo depósito i -> j (incluye estadía en j)
+     * @param costoHaciaDestino costo depósito i -> destino
+     * @param costoDirecto      costo origen -> destino sin paradas
+     * @return índices de los depósitos en orden de visita
+     */
+    static int[] mejorSecuencia(double[] costoDesdeOrigen, double[] costoEntre,
+            double[] costoHaciaDestino, double costoDirecto, int maxParadas) {
+        int n = costoDesdeOrigen.length;
+        int capas = Math.min(maxParadas, n);
+
+        double[][] costo = new double[capas + 1][];
+        int[][] anterior = new int[capas + 1][];
+
+        double mejorCosto = costoDirecto;
+        int mejorCapa = 0;
+        int mejorUltimo = -1;
+
+        if (capas >= 1) {
+            costo[1] = costoDesdeOrigen.clone();
+            anterior[1] = new int[n];
+            Arrays.fill(anterior[1], -1);
+        }
+        for (int k = 2; k <= capas; k++) {
+            double[] previo = costo[k - 1];
+            double[] actual = new double[n];
+            int[] padres = new int[n];
+            Arrays.fill(actual, Double.POSITIVE_INFINITY);
+            Arrays.fill(padres, -1);
+            for (int i = 0; i < n; i++) {
+                double base = previo[i];
+                if (base == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int fila = i * n;
+                for (int j = 0; j < n; j++) {
+                    double candidato = base + costoEntre[fila + j];
+                    if (candidato < actual[j]) {
+                        actual[j] = candidato;
+                        padres[j] = i;
+                    }
+                }
+            }
+            costo[k] = actual;
+            anterior[k] = padres;
+        }
+
+        for (int k = 1; k <= capas; k++) {
+            for (int v = 0; v < n; v++) {
+                double total = costo[k][v] + costoHaciaDestino[v];
+                if (total < mejorCosto) {
+                    mejorCosto = total;
+                    mejorCapa = k;
+                    mejorUltimo = v;
+                }
+            }
+        }
+
+        int[] secuencia = new int[mejorCapa];
+        int v = mejorUltimo;
+        for (int k = mejorCapa; k >= 1; k--) {
+            secuencia[k - 1] = v;
+            v = anterior[k][v];
+        }
+        return secuencia;
+    }
+}
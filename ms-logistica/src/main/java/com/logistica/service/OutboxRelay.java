@@ -0,0 +1,46 @@
+package com.logistica.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vacía periódicamente el outbox hacia MS Solicitudes. Cada lote va en su propia
+ * transacción; varias instancias pueden correrlo a la vez (SKIP LOCKED).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private static final int MAX_LOTES_POR_PASADA = 50;
+
+    private final OutboxSolicitudesService outboxService;
+
+    @Value("${app.outbox.retencion-horas:72}")
+    private long retencionHoras = 72;
+
+    @Scheduled(fixedDelayString = "${app.outbox.intervalo-ms:1000}")
+    public void drenar() {
+        try {
+            // Un mensaje enviado habilita al siguiente de su solicitud: se sigue mientras haya trabajo
+            for (int i = 0; i < MAX_LOTES_POR_PASADA; i++) {
+                if (outboxService.procesarLote() == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Outbox: error procesando lote: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgar() {
+        int borrados = outboxService.purgarEnviados(retencionHoras);
+        if (borrados > 0) {
+            log.info("Outbox: borrados {} mensajes enviados hace más de {} h", borrados, retencionHoras);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.logistica.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistica.client.SolicitudesApiClient;
+import com.logistica.model.EstadoMensajeOutbox;
+import com.logistica.model.MensajeOutbox;
+import com.logistica.model.TipoMensajeSolicitudes;
+import com.logistica.repository.MensajeOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox de notificaciones a MS Solicitudes: el mensaje se guarda en la misma
+ * transacción que el cambio de estado y se envía después, con reintentos.
+ * Así la transacción no espera al HTTP y ningún aviso se pierde en silencio.
+ */
+@Service
+@Slf4j
+public class OutboxSolicitudesService {
+
+    private static final int MAX_LARGO_ERROR = 255;
+    private static final String PREFIJO_CLAVE = "logistica-outbox-";
+
+    private final MensajeOutboxRepository outboxRepository;
+    private final SolicitudesApiClient solicitudesApiClient;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccion;
+    private final int lote;
+    private final int maxIntentos;
+    private final long esperaInicialMs;
+    private final long esperaMaximaMs;
+    private final long reservaMs;
+
+    public OutboxSolicitudesService(MensajeOutboxRepository outboxRepository,
+            SolicitudesApiClient solicitudesApiClient,
+            ObjectMapper objectMapper,
+            TransactionTemplate transaccion,
+            @Value("${app.outbox.lote:100}") int lote,
+            @Value("${app.outbox.max-intentos:10}") int maxIntentos,
+            @Value("${app.outbox.espera-inicial-ms:2000}") long esperaInicialMs,
+            @Value("${app.outbox.espera-maxima-ms:300000}") long esperaMaximaMs,
+            @Value("${app.outbox.reserva-ms:300000}") long reservaMs) {
+        this.outboxRepository = outboxRepository;
+        this.solicitudesApiClient = solicitudesApiClient;
+        this.objectMapper = objectMapper;
+        this.transaccion = transaccion;
+        this.lote = lote;
+        this.maxIntentos = maxIntentos;
+        this.esperaInicialMs = esperaInicialMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.reservaMs = reservaMs;
+    }
+
+    /**
+     * Encola una notificación dentro de la transacción en curso (si se hace
+     * rollback, el mensaje tampoco queda)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String nroSolicitud, TipoMensajeSolicitudes tipo, Object cuerpo) {
+        MensajeOutbox mensaje = new MensajeOutbox();
+        mensaje.setNroSolicitud(nroSolicitud);
+        mensaje.setTipo(tipo);
+        try {
+            mensaje.setPayload(objectMapper.writeValueAsString(cuerpo));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar la notificación " + tipo, e);
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        mensaje.setEstado(EstadoMensajeOutbox.PENDIENTE);
+        mensaje.setCreadoEn(ahora);
+        mensaje.setProximoIntento(ahora);
+        outboxRepository.save(mensaje);
+    }
+
+    /**
+     * Envía el siguiente mensaje de cada solicitud (como máximo "lote" mensajes).
+     * Los fallidos se reprograman con espera exponencial; mientras tanto los
+     * mensajes posteriores de esa solicitud esperan, para respetar el orden.
+     * <p>
+     * Los mensajes se reservan en una transacción corta (proximoIntento pasa al fin
+     * de la reserva, así otro relay no los toma) y cada resultado se guarda en la
+     * suya: ningún lock de fila queda abierto durante el HTTP. Si el proceso cae
+     * a mitad de camino, al vencer la reserva el mensaje se reenvía con la misma
+     * clave de idempotencia y MS Solicitudes no lo aplica dos veces.
+     *
+     * @return cantidad de mensajes tomados
+     */
+    public int procesarLote() {
+        LocalDateTime vencimiento = LocalDateTime.now().plusNanos(reservaMs * 1_000_000);
+        List<MensajeOutbox> mensajes = transaccion.execute(estado -> {
+            List<MensajeOutbox> tomados = outboxRepository.tomarSiguientes(LocalDateTime.now(), PageRequest.of(0, lote));
+            tomados.forEach(m -> m.setProximoIntento(vencimiento));
+            return tomados;
+        });
+        for (MensajeOutbox mensaje : mensajes) {
+            // Vencida la reserva otro relay pudo tomar el resto; quedan para la próxima pasada
+            if (LocalDateTime.now().isAfter(vencimiento)) {
+                break;
+            }
+            try {
+                solicitudesApiClient.enviar(mensaje.getTipo().getUri(), mensaje.getNroSolicitud(),
+                        mensaje.getPayload(), PREFIJO_CLAVE + mensaje.getId());
+                mensaje.setEstado(EstadoMensajeOutbox.ENVIADO);
+                mensaje.setEnviadoEn(LocalDateTime.now());
+                mensaje.setIntentos(mensaje.getIntentos() + 1);
+            } catch (Exception e) {
+                registrarFallo(mensaje, e, LocalDateTime.now());
+            }
+            transaccion.executeWithoutResult(estado -> outboxRepository.save(mensaje));
+        }
+        return mensajes.size();
+    }
+
+    private void registrarFallo(MensajeOutbox mensaje, Exception error, LocalDateTime ahora) {
+        int intentos = mensaje.getIntentos() + 1;
+        mensaje.setIntentos(intentos);
+        String detalle = String.valueOf(error.getMessage());
+        mensaje.setUltimoError(detalle.length() > MAX_LARGO_ERROR ? detalle.substring(0, MAX_LARGO_ERROR) : detalle);
+
+        if (intentos >= maxIntentos || !esReintentable(error)) {
+            // Se descarta para no bloquear para siempre los siguientes mensajes de la solicitud
+            mensaje.setEstado(EstadoMensajeOutbox.FALLIDO);
+            log.error("Outbox: mensaje {} ({} de solicitud {}) descartado tras {} intentos: {}",
+                    mensaje.getId(), mensaje.getTipo(), mensaje.getNroSolicitud(), intentos, detalle);
+            return;
+        }
+
+        long espera = Math.min(esperaMaximaMs, esperaInicialMs << Math.min(intentos - 1, 20));
+        mensaje.setProximoIntento(ahora.plusNanos(espera * 1_000_000));
+        log.warn("Outbox: falló el envío del mensaje {} a solicitud {} (intento {}), reintento en {} ms: {}",
+                mensaje.getId(), mensaje.getNroSolicitud(), intentos, espera, detalle);
+    }
+
+    // Un 4xx (salvo auth, timeout o rate limit) no se arregla reintentando
+    private boolean esReintentable(Exception error) {
+        if (error instanceof HttpClientErrorException http) {
+            return http.getStatusCode().isSameCodeAs(HttpStatus.UNAUTHORIZED)
+                    || http.getStatusCode().isSameCodeAs(HttpStatus.FORBIDDEN)
+                    || http.getStatusCode().isSameCodeAs(HttpStatus.REQUEST_TIMEOUT)
+                    || http.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        return true;
+    }
+
+    /**
+     * Borra los mensajes ya enviados hace más de "horas" horas
+     */
+    @Transactional
+    public int purgarEnviados(long horas) {
+        return outboxRepository.borrarEnviadosAntesDe(LocalDateTime.now().minusHours(horas));
+    }
+
+    public long contarPendientes() {
+        return outboxRepository.countByEstado(EstadoMensajeOutbox.PENDIENTE);
+    }
+}
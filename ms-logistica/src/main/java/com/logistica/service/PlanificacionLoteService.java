@@ -0,0 +1,380 @@
+package com.logistica.service;
+
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.OsrmLegCache;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.dto.request.PlanificarRutaRequest;
+import com.logistica.dto.response.PlanificacionLoteItemResponse;
+import com.logistica.dto.response.PlanificacionLoteResponse;
+import com.logistica.dto.response.RutaPlanningResponse;
+import com.logistica.exception.LogisticaException;
+import com.logistica.model.Deposito;
+import com.logistica.model.Ruta;
+import com.logistica.model.Tarifa;
+import com.logistica.repository.DepositoRepository;
+import com.logistica.repository.RutaRepository;
+import com.logistica.repository.TarifaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Planificación de muchas solicitudes en una sola llamada.
+ * Junta los tramos distintos de todo el lote, los resuelve con la menor
+ * cantidad posible de consultas /table a OSRM (dejándolos en la cache de
+ * tramos), arma las rutas en memoria y las guarda en grupos, cada grupo en
+ * una transacción con los INSERT agrupados. Un error al armar una ruta sólo
+ * afecta a esa solicitud; si falla un grupo, sus rutas se guardan de a una.
+ */
+@Service
+@Slf4j
+public class PlanificacionLoteService {
+
+    private final PlanificacionRutaService planificacionRutaService;
+    private final RutaService rutaService;
+    private final RutaRepository rutaRepository;
+    private final TransactionTemplate transaccion;
+    private final DepositoRepository depositoRepository;
+    private final CatalogoDepositos catalogoDepositos;
+    private final TarifaRepository tarifaRepository;
+    private final OsrmClient2 osrmClient;
+    private final OsrmLegCache legCache;
+    private final MatrizDistanciasDepositos matrizDistancias;
+    private final ExecutorService osrmExecutor;
+    private final int tamanioBloque;
+    private final int maxItems;
+    private final int rutasPorTransaccion;
+
+    public PlanificacionLoteService(PlanificacionRutaService planificacionRutaService,
+            RutaService rutaService,
+            RutaRepository rutaRepository,
+            TransactionTemplate transaccion,
+            DepositoRepository depositoRepository,
+            CatalogoDepositos catalogoDepositos,
+            TarifaRepository tarifaRepository,
+            OsrmClient2 osrmClient,
+            OsrmLegCache legCache,
+            MatrizDistanciasDepositos matrizDistancias,
+            ExecutorService osrmExecutor,
+            @Value("${app.osrm.table.max-coordenadas:100}") int maxCoordenadas,
+            @Value("${app.rutas.lote.max-items:1000}") int maxItems,
+            @Value("${app.rutas.lote.rutas-por-transaccion:200}") int rutasPorTransaccion) {
+        this.planificacionRutaService = planificacionRutaService;
+        this.rutaService = rutaService;
+        this.rutaRepository = rutaRepository;
+        this.transaccion = transaccion;
+        this.depositoRepository = depositoRepository;
+        this.catalogoDepositos = catalogoDepositos;
+        this.tarifaRepository = tarifaRepository;
+        this.osrmClient = osrmClient;
+        this.legCache = legCache;
+        this.matrizDistancias = matrizDistancias;
+        this.osrmExecutor = osrmExecutor;
+        // fuentes + destinos de cada consulta no pueden superar el máximo de OSRM
+        this.tamanioBloque = Math.max(1, maxCoordenadas / 2);
+        this.maxItems = maxItems;
+        this.rutasPorTransaccion = Math.max(1, rutasPorTransaccion);
+    }
+
+    public PlanificacionLoteResponse planificarLote(List<PlanificarRutaRequest> solicitudes) {
+        if (solicitudes == null || solicitudes.isEmpty()) {
+            throw new LogisticaException("El lote no contiene solicitudes");
+        }
+        if (solicitudes.size() > maxItems) {
+            throw new LogisticaException("El lote supera el máximo de " + maxItems + " solicitudes");
+        }
+        long inicio = System.currentTimeMillis();
+        log.info("Planificando lote de {} solicitudes", solicitudes.size());
+
+        // 1. Depósitos desde la foto en memoria (la base sólo para los que falten) y tarifas en una consulta
+        Map<Long, Deposito> depositos = new HashMap<>();
+        Set<Long> depositosFaltantes = new HashSet<>();
+        solicitudes.stream()
+                .filter(s -> s.getIdDepositos() != null)
+                .flatMap(s -> s.getIdDepositos().stream())
+                .filter(Objects::nonNull)
+                .forEach(id -> {
+                    Deposito deposito = catalogoDepositos.porId(id);
+                    if (deposito != null) {
+                        depositos.put(id, deposito);
+                    } else {
+                        depositosFaltantes.add(id);
+                    }
+                });
+        if (!depositosFaltantes.isEmpty()) {
+            depositoRepository.findAllById(depositosFaltantes).forEach(d -> depositos.put(d.getId(), d));
+        }
+        Map<Long, Tarifa> tarifas = tarifaRepository.findAllById(solicitudes.stream()
+                        .map(PlanificarRutaRequest::getIdTarifa)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Tarifa::getId, Function.identity()));
+
+        // 2. Validar cada solicitud y armar sus waypoints
+        List<PlanificacionLoteItemResponse> resultados = new ArrayList<>(solicitudes.size());
+        List<List<Deposito>> depositosPorItem = new ArrayList<>(solicitudes.size());
+        for (PlanificarRutaRequest solicitud : solicitudes) {
+            String error = validar(solicitud, depositos, tarifas);
+            resultados.add(error == null ? null : fallido(solicitud, error));
+            depositosPorItem.add(error == null ? depositosDe(solicitud, depositos) : null);
+        }
+
+        // 3. Tramos distintos de todo el lote que todavía no se conocen
+        List<Coordenada> puntos = new ArrayList<>();
+        Map<Coordenada, Integer> indicePunto = new HashMap<>();
+        Map<Integer, Set<Integer>> destinosPorOrigen = new LinkedHashMap<>();
+        int tramosUnicos = 0;
+        for (int i = 0; i < solicitudes.size(); i++) {
+            if (depositosPorItem.get(i) == null) {
+                continue;
+            }
+            PlanificarRutaRequest s = solicitudes.get(i);
+            List<Deposito> paradas = depositosPorItem.get(i);
+            for (int t = 0; t <= paradas.size(); t++) {
+                Deposito desde = t == 0 ? null : paradas.get(t - 1);
+                Deposito hasta = t == paradas.size() ? null : paradas.get(t);
+                if (desde != null && hasta != null && matrizDistancias.tramo(desde.getId(), hasta.getId()) != null) {
+                    continue;
+                }
+                Coordenada a = desde == null
+                        ? new Coordenada(s.getLatOrigen(), s.getLonOrigen())
+                        : new Coordenada(desde.getLatitud(), desde.getLongitud());
+                Coordenada b = hasta == null
+                        ? new Coordenada(s.getLatDestino(), s.getLonDestino())
+                        : new Coordenada(hasta.getLatitud(), hasta.getLongitud());
+                if (legCache.contiene(a.latitud(), a.longitud(), b.latitud(), b.longitud())) {
+                    continue;
+                }
+                int ia = indicePunto.computeIfAbsent(a, c -> { puntos.add(c); return puntos.size() - 1; });
+                int ib = indicePunto.computeIfAbsent(b, c -> { puntos.add(c); return puntos.size() - 1; });
+                if (destinosPorOrigen.computeIfAbsent(ia, k -> new LinkedHashSet<>()).add(ib)) {
+                    tramosUnicos++;
+                }
+            }
+        }
+
+        // 4. Resolverlos con /table (en paralelo) y dejarlos en la cache de tramos
+        List<Bloque> bloques = particionar(destinosPorOrigen, tamanioBloque);
+        log.info("Lote: {} tramos distintos sin calcular, {} consultas /table", tramosUnicos, bloques.size());
+        CompletableFuture.allOf(bloques.stream()
+                        .map(b -> CompletableFuture.runAsync(() -> resolverBloque(b, puntos, destinosPorOrigen), osrmExecutor))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+
+        // 5. Armar en memoria las rutas nuevas (los tramos ya están en cache) y guardarlas por lote
+        Set<String> conRuta = new HashSet<>(rutaRepository.buscarSolicitudesConRuta(solicitudes.stream()
+                .filter(s -> s.getNroSolicitud() != null)
+                .map(PlanificarRutaRequest::getNroSolicitud)
+                .collect(Collectors.toSet())));
+        Set<String> enLote = new HashSet<>();
+        Map<Integer, Ruta> rutas = new LinkedHashMap<>();
+        List<Integer> individuales = new ArrayList<>();
+        for (int i = 0; i < solicitudes.size(); i++) {
+            if (resultados.get(i) != null) {
+                continue;
+            }
+            PlanificarRutaRequest s = solicitudes.get(i);
+            // Ya planificadas o repetidas en el lote: de a una, devuelven la ruta existente
+            if (conRuta.contains(s.getNroSolicitud()) || !enLote.add(s.getNroSolicitud())) {
+                individuales.add(i);
+                continue;
+            }
+            try {
+                rutas.put(i, rutaService.armarRuta(s.getNroSolicitud(), depositosPorItem.get(i),
+                        s.getLatOrigen(), s.getLonOrigen(), s.getLatDestino(), s.getLonDestino(),
+                        tarifas.get(s.getIdTarifa())));
+            } catch (Exception e) {
+                log.warn("Lote: error planificando solicitud {}: {}", s.getNroSolicitud(), e.getMessage());
+                resultados.set(i, fallido(s, e.getMessage()));
+            }
+        }
+
+        int exitosas = 0;
+        List<Integer> pendientes = new ArrayList<>(rutas.keySet());
+        for (int desde = 0; desde < pendientes.size(); desde += rutasPorTransaccion) {
+            List<Integer> parte = pendientes.subList(desde, Math.min(pendientes.size(), desde + rutasPorTransaccion));
+            List<Ruta> rutasParte = parte.stream().map(rutas::get).toList();
+            try {
+                // Ids de secuencia en bloque: Hibernate agrupa los INSERT de rutas y tramos
+                transaccion.executeWithoutResult(estado -> rutaRepository.saveAll(rutasParte));
+            } catch (Exception e) {
+                // Otra instancia pudo planificar alguna a la vez: se reintentan de a una
+                log.warn("Lote: no se pudo guardar un grupo de {} rutas, se guardan de a una: {}",
+                        parte.size(), e.getMessage());
+                individuales.addAll(parte);
+                continue;
+            }
+            for (Integer i : parte) {
+                resultados.set(i, exitoso(solicitudes.get(i), rutaService.respuestaPlanificacion(rutas.get(i))));
+                exitosas++;
+            }
+        }
+
+        // 6. Las restantes, cada una en su propia transacción
+        individuales.sort(null);
+        for (Integer i : individuales) {
+            PlanificarRutaRequest s = solicitudes.get(i);
+            try {
+                RutaPlanningResponse ruta = planificacionRutaService.planificarRuta(s.getNroSolicitud(), depositosPorItem.get(i),
+                        s.getLatOrigen(), s.getLonOrigen(), s.getLatDestino(), s.getLonDestino(),
+                        tarifas.get(s.getIdTarifa()));
+                resultados.set(i, exitoso(s, ruta));
+                exitosas++;
+            } catch (Exception e) {
+                log.warn("Lote: error planificando solicitud {}: {}", s.getNroSolicitud(), e.getMessage());
+                resultados.set(i, fallido(s, e.getMessage()));
+            }
+        }
+
+        long duracion = System.currentTimeMillis() - inicio;
+        log.info("Lote planificado: {} de {} solicitudes en {} ms", exitosas, solicitudes.size(), duracion);
+
+        return PlanificacionLoteResponse.builder()
+                .total(solicitudes.size())
+                .exitosas(exitosas)
+                .fallidas(solicitudes.size() - exitosas)
+                .tramosUnicos(tramosUnicos)
+                .consultasOsrm(bloques.size())
+                .duracionMs(duracion)
+                .resultados(resultados)
+                .build();
+    }
+
+    /**
+     * Agrupa los pares (origen, destino) en bloques de a lo sumo tamanioBloque
+     * fuentes y tamanioBloque destinos, cada uno resoluble con una consulta /table.
+     * Un origen con más destinos que el tamaño del bloque se reparte en varios.
+     */
+    static List<Bloque> particionar(Map<Integer, Set<Integer>> destinosPorOrigen, int tamanioBloque) {
+        List<Bloque> bloques = new ArrayList<>();
+        LinkedHashSet<Integer> fuentes = new LinkedHashSet<>();
+        LinkedHashSet<Integer> destinos = new LinkedHashSet<>();
+
+        for (Map.Entry<Integer, Set<Integer>> entrada : destinosPorOrigen.entrySet()) {
+            List<Integer> pendientes = new ArrayList<>(entrada.getValue());
+            while (!pendientes.isEmpty()) {
+                long nuevos = pendientes.stream().filter(d -> !destinos.contains(d)).count();
+                if (fuentes.size() < tamanioBloque && destinos.size() + nuevos <= tamanioBloque) {
+                    fuentes.add(entrada.getKey());
+                    destinos.addAll(pendientes);
+                    pendientes.clear();
+                } else if (!fuentes.isEmpty()) {
+                    bloques.add(new Bloque(List.copyOf(fuentes), List.copyOf(destinos)));
+                    fuentes.clear();
+                    destinos.clear();
+                } else {
+                    // El origen solo ya excede el bloque: se corta su lista de destinos
+                    List<Integer> parte = pendientes.subList(0, tamanioBloque);
+                    bloques.add(new Bloque(List.of(entrada.getKey()), List.copyOf(parte)));
+                    parte.clear();
+                }
+            }
+        }
+        if (!fuentes.isEmpty()) {
+            bloques.add(new Bloque(List.copyOf(fuentes), List.copyOf(destinos)));
+        }
+        return bloques;
+    }
+
+    private void resolverBloque(Bloque bloque, List<Coordenada> puntos, Map<Integer, Set<Integer>> destinosPorOrigen) {
+        // Puntos de la consulta: primero las fuentes, después los destinos
+        List<Coordenada> puntosBloque = new ArrayList<>(bloque.fuentes().size() + bloque.destinos().size());
+        List<Integer> indicesFuentes = new ArrayList<>();
+        List<Integer> indicesDestinos = new ArrayList<>();
+        for (Integer f : bloque.fuentes()) {
+            indicesFuentes.add(puntosBloque.size());
+            puntosBloque.add(puntos.get(f));
+        }
+        for (Integer d : bloque.destinos()) {
+            indicesDestinos.add(puntosBloque.size());
+            puntosBloque.add(puntos.get(d));
+        }
+
+        OsrmTableResponse tabla;
+        try {
+            tabla = osrmClient.calcularTabla(puntosBloque, indicesFuentes, indicesDestinos);
+        } catch (Exception e) {
+            // Las solicitudes afectadas consultarán OSRM por su cuenta al planificarse
+            log.warn("Lote: no se pudo resolver un bloque /table: {}", e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < bloque.fuentes().size(); i++) {
+            Coordenada a = puntos.get(bloque.fuentes().get(i));
+            Set<Integer> necesarios = destinosPorOrigen.get(bloque.fuentes().get(i));
+            for (int j = 0; j < bloque.destinos().size(); j++) {
+                Double distancia = tabla.getDistances()[i][j];
+                Double duracion = tabla.getDurations()[i][j];
+                if (!necesarios.contains(bloque.destinos().get(j)) || distancia == null || duracion == null) {
+                    continue;
+                }
+                Coordenada b = puntos.get(bloque.destinos().get(j));
+                OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+                route.setDistance(distancia);
+                route.setDuration(duracion);
+                legCache.guardar(a.latitud(), a.longitud(), b.latitud(), b.longitud(), route);
+            }
+        }
+    }
+
+    private String validar(PlanificarRutaRequest s, Map<Long, Deposito> depositos, Map<Long, Tarifa> tarifas) {
+        if (s.getNroSolicitud() == null || s.getLatOrigen() == null || s.getLonOrigen() == null
+                || s.getLatDestino() == null || s.getLonDestino() == null) {
+            return "Faltan datos obligatorios (nroSolicitud, origen o destino)";
+        }
+        if (s.getIdTarifa() == null || !tarifas.containsKey(s.getIdTarifa())) {
+            return "Tarifa no encontrada con ID: " + s.getIdTarifa();
+        }
+        if (s.getIdDepositos() != null) {
+            List<Long> faltantes = s.getIdDepositos().stream()
+                    .filter(id -> id == null || !depositos.containsKey(id))
+                    .toList();
+            if (!faltantes.isEmpty()) {
+                return "Depósitos no encontrados: " + faltantes;
+            }
+        }
+        return null;
+    }
+
+    private List<Deposito> depositosDe(PlanificarRutaRequest s, Map<Long, Deposito> depositos) {
+        return s.getIdDepositos() == null
+                ? List.of()
+                : s.getIdDepositos().stream().map(depositos::get).toList();
+    }
+
+    private PlanificacionLoteItemResponse exitoso(PlanificarRutaRequest s, RutaPlanningResponse ruta) {
+        return PlanificacionLoteItemResponse.builder()
+                .nroSolicitud(s.getNroSolicitud())
+                .exitoso(true)
+                .ruta(ruta)
+                .build();
+    }
+
+    private PlanificacionLoteItemResponse fallido(PlanificarRutaRequest s, String error) {
+        return PlanificacionLoteItemResponse.builder()
+                .nroSolicitud(s.getNroSolicitud())
+                .exitoso(false)
+                .error(error)
+                .build();
+    }
+
+    record Bloque(List<Integer> fuentes, List<Integer> destinos) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.logistica.service;
+
+import com.logistica.dto.response.RutaPlanningResponse;
+import com.logistica.model.Deposito;
+import com.logistica.model.Tarifa;
+import com.logistica.util.SingleFlight;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Punto de entrada para planificar rutas. Fuera de la transacción:
+ * - las llamadas simultáneas para la misma solicitud comparten un solo cálculo;
+ * - si otra instancia guardó la ruta primero (índice único en nroSolicitudRef)
+ *   se devuelve la ruta existente en lugar de fallar.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlanificacionRutaService {
+
+    private final RutaService rutaService;
+    private final SingleFlight<String, RutaPlanningResponse> planificacionesEnCurso = new SingleFlight<>();
+
+    public RutaPlanningResponse planificarRuta(String nroSolicitud,
+            List<Deposito> depositosIntermedios,
+            Double latOrigen, Double lonOrigen,
+            Double latDestino, Double lonDestino,
+            Tarifa tarifa) {
+
+        return planificacionesEnCurso.ejecutar(nroSolicitud, () -> {
+            try {
+                return rutaService.planificarRuta(nroSolicitud, depositosIntermedios,
+                        latOrigen, lonOrigen, latDestino, lonDestino, tarifa);
+            } catch (DataIntegrityViolationException e) {
+                // Carrera con otra instancia: la ruta ya existe, se lee en una nueva transacción
+                log.info("Ruta para solicitud {} creada en paralelo, se devuelve la existente", nroSolicitud);
+                return rutaService.planificarRuta(nroSolicitud, depositosIntermedios,
+                        latOrigen, lonOrigen, latDestino, lonDestino, tarifa);
+            }
+        });
+    }
+}
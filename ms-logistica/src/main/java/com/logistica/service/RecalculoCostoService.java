@@ -0,0 +1,72 @@
+package com.logistica.service;
+
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.dto.CamionInfo;
+import com.logistica.event.CamionAsignadoEvent;
+import com.logistica.event.CostoProvisorioEvent;
+import com.logistica.model.Tramo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Trabajo en segundo plano sobre los datos de camiones, fuera de las transacciones:
+ * recálculo de costos provisorios y precarga de la cache al asignar un camión.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecalculoCostoService {
+
+    private final TramoService tramoService;
+    private final CamionInfoCache camionInfoCache;
+
+    @Async
+    @TransactionalEventListener
+    public void alFinalizarConCostoProvisorio(CostoProvisorioEvent evento) {
+        recalcular(evento.idTramo());
+    }
+
+    @Async
+    @TransactionalEventListener
+    public void alAsignarCamion(CamionAsignadoEvent evento) {
+        try {
+            camionInfoCache.consultar(evento.dominio());
+        } catch (Exception e) {
+            log.warn("No se pudo precargar el camión {}: {}", evento.dominio(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reintenta los costos que siguen provisorios (MS Flota caído al finalizar y al recalcular)
+     */
+    @Scheduled(fixedDelayString = "${app.tramos.costo-provisorio.reintento-ms:300000}",
+            initialDelayString = "${app.tramos.costo-provisorio.reintento-ms:300000}")
+    public void reintentarProvisorios() {
+        for (Long idTramo : tramoService.obtenerIdsConCostoProvisorio()) {
+            recalcular(idTramo);
+        }
+    }
+
+    void recalcular(Long idTramo) {
+        Tramo tramo = tramoService.obtenerTramo(idTramo).orElse(null);
+        if (tramo == null || !Boolean.TRUE.equals(tramo.getCostoProvisorio())) {
+            return;
+        }
+
+        CamionInfo camion;
+        try {
+            camion = camionInfoCache.consultar(tramo.getDominioCamionRef());
+        } catch (Exception e) {
+            log.warn("Tramo {}: MS Flota sigue sin responder, el costo queda provisorio: {}",
+                    idTramo, e.getMessage());
+            return;
+        }
+
+        // Guarda el costo y encola el ajuste para MS Solicitudes en la misma transacción
+        tramoService.aplicarCostoDefinitivo(idTramo, camion);
+    }
+}
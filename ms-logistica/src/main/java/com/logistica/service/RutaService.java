@@ -8,16 +8,20 @@ import com.logistica.repository.DepositoRepository;
 import com.logistica.repository.TarifaRepository;
 import com.logistica.client.OsrmClient2;
 import com.logistica.client.OsrmDistanceResponse;
-import lombok.RequiredArgsConstructor;
+import com.logistica.client.dto.Coordenada;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import com.logistica.dto.mapper.RutaMapper;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RutaService {
 
@@ -26,7 +30,28 @@ public class RutaService {
     private final DepositoRepository depositoRepository;
     private final TarifaRepository tarifaRepository;
     private final OsrmClient2 osrmClient;
+    private final MatrizDistanciasDepositos matrizDistancias;
+    private final ExecutorService osrmExecutor;
+    private final CalibradorEta calibradorEta;
     private final RutaMapper rutaMapper;
+    private final int maxOpcionesTentativas;
+
+    public RutaService(RutaRepository rutaRepository, TramoRepository tramoRepository,
+            DepositoRepository depositoRepository, TarifaRepository tarifaRepository,
+            OsrmClient2 osrmClient, MatrizDistanciasDepositos matrizDistancias,
+            ExecutorService osrmExecutor, CalibradorEta calibradorEta, RutaMapper rutaMapper,
+            @Value("${app.rutas.tentativas.max-opciones:3}") int maxOpcionesTentativas) {
+        this.rutaRepository = rutaRepository;
+        this.tramoRepository = tramoRepository;
+        this.depositoRepository = depositoRepository;
+        this.tarifaRepository = tarifaRepository;
+        this.osrmClient = osrmClient;
+        this.matrizDistancias = matrizDistancias;
+        this.osrmExecutor = osrmExecutor;
+        this.calibradorEta = calibradorEta;
+        this.rutaMapper = rutaMapper;
+        this.maxOpcionesTentativas = maxOpcionesTentativas;
+    }
 
     /**
      * Planifica una ruta calculando tramos, distancias y costos estimados
@@ -45,18 +70,32 @@ public class RutaService {
         Ruta existing = rutaRepository.findByNroSolicitudRef(nroSolicitud);
         if (existing != null) {
             log.info("Ruta ya existe para solicitud: {}. Retornando existente.", nroSolicitud);
-
-            // Calculate totals from existing tramos
-            double costoTotal = existing.getTramos().stream().mapToDouble(Tramo::getCostoEstimado).sum();
-            double tiempoTotal = existing.getTramos().stream().mapToDouble(Tramo::getTiempoEstimado).sum();
-
-            RutaResponse rutaDto = rutaMapper.toResponse(existing);
-            return new RutaPlanningResponse(rutaDto, costoTotal, tiempoTotal);
+            return respuestaPlanificacion(existing);
         }
 
+        Ruta ruta = armarRuta(nroSolicitud, depositosIntermedios, latOrigen, lonOrigen, latDestino, lonDestino, tarifa);
+        Ruta rutaGuardada = rutaRepository.save(ruta);
+        log.info("Ruta planificada: {} tramos, {} km, ${} estimado",
+                ruta.getCantidadTramos(), ruta.getDistanciaTotal(), ruta.getCostoEstimadoTotal());
+        return respuestaPlanificacion(rutaGuardada);
+    }
+
+    /**
+     * Arma la ruta con sus tramos y totales sin guardarla (la planificación por lote
+     * las guarda de a muchas en una transacción)
+     */
+    public Ruta armarRuta(String nroSolicitud,
+            List<Deposito> depositosIntermedios,
+            Double latOrigen, Double lonOrigen,
+            Double latDestino, Double lonDestino,
+            Tarifa tarifa) {
         // Crear Ruta
         Ruta ruta = new Ruta();
         ruta.setNroSolicitudRef(nroSolicitud);
+        ruta.setLatOrigen(latOrigen);
+        ruta.setLonOrigen(lonOrigen);
+        ruta.setLatDestino(latDestino);
+        ruta.setLonDestino(lonDestino);
         ruta.setTramos(new ArrayList<>());
 
         // Crear tramos
@@ -65,72 +104,119 @@ public class RutaService {
         double costoTotal = 0;
         int cantidadTramos = 0;
 
-        Double latActual = latOrigen;
-        Double lonActual = lonOrigen;
+        // Una sola consulta OSRM para todos los tramos de la ruta
+        List<OsrmDistanceResponse> legs = calcularTramos(latOrigen, lonOrigen,
+                depositosIntermedios, latDestino, lonDestino);
 
         // Tramos hacia depósitos intermedios
         Deposito depositoAnterior = null;
 
         for (Deposito deposito : depositosIntermedios) {
-            OsrmDistanceResponse response = osrmClient.calcularDistancia(
-                    latActual, lonActual, deposito.getLatitud(), deposito.getLongitud());
+            OsrmDistanceResponse response = legs.get(cantidadTramos);
 
             Tramo tramo = new Tramo();
             tramo.setRuta(ruta);
             tramo.setDepositoOrigen(depositoAnterior);
             tramo.setDepositoDestino(deposito);
             tramo.setTarifa(tarifa);
+            tramo.setOrden(cantidadTramos);
             tramo.setTipo(cantidadTramos == 0 ? "Origen-Deposito" : "Deposito-Deposito");
             tramo.setEstado(EstadoTramo.ESTIMADO);
             tramo.setKmEstimados(response.getDistanceKm());
-            tramo.setTiempoEstimado(response.getDurationSeconds());
+            tramo.setTiempoEstimadoBase(response.getDurationSeconds());
+            tramo.setTiempoEstimado(tiempoCalibrado(response.getDurationSeconds(), depositoAnterior, deposito,
+                    response.getDistanceKm()));
             tramo.setCostoEstimado(response.getDistanceKm() * tarifa.getValorKMBase());
 
             ruta.getTramos().add(tramo);
 
             distanciaTotal += response.getDistanceKm();
-            tiempoTotal += response.getDurationSeconds();
+            tiempoTotal += tramo.getTiempoEstimado();
             costoTotal += tramo.getCostoEstimado();
             cantidadTramos++;
 
-            latActual = deposito.getLatitud();
-            lonActual = deposito.getLongitud();
             depositoAnterior = deposito;
         }
 
         // Tramo final hacia destino
-        OsrmDistanceResponse responseFinal = osrmClient.calcularDistancia(
-                latActual, lonActual, latDestino, lonDestino);
+        OsrmDistanceResponse responseFinal = legs.get(cantidadTramos);
 
         Tramo tramoFinal = new Tramo();
         tramoFinal.setRuta(ruta);
         tramoFinal.setDepositoOrigen(depositoAnterior);
         tramoFinal.setDepositoDestino(null);
         tramoFinal.setTarifa(tarifa);
+        tramoFinal.setOrden(cantidadTramos);
         tramoFinal.setTipo(depositosIntermedios.isEmpty() ? "Origen-Destino" : "Deposito-Destino");
         tramoFinal.setEstado(EstadoTramo.ESTIMADO);
         tramoFinal.setKmEstimados(responseFinal.getDistanceKm());
-        tramoFinal.setTiempoEstimado(responseFinal.getDurationSeconds());
+        tramoFinal.setTiempoEstimadoBase(responseFinal.getDurationSeconds());
+        tramoFinal.setTiempoEstimado(tiempoCalibrado(responseFinal.getDurationSeconds(), depositoAnterior, null,
+                responseFinal.getDistanceKm()));
         tramoFinal.setCostoEstimado(responseFinal.getDistanceKm() * tarifa.getValorKMBase());
 
         ruta.getTramos().add(tramoFinal);
 
         distanciaTotal += responseFinal.getDistanceKm();
-        tiempoTotal += responseFinal.getDurationSeconds();
+        tiempoTotal += tramoFinal.getTiempoEstimado();
         costoTotal += tramoFinal.getCostoEstimado();
         cantidadTramos++;
 
-        // Guardar totales en Ruta (solo cantidad y distancia)
+        // Guardar totales en Ruta; los reales se acumulan al finalizar cada tramo
         ruta.setCantidadTramos(cantidadTramos);
         ruta.setDistanciaTotal(distanciaTotal);
+        ruta.setCostoEstimadoTotal(costoTotal);
+        ruta.setTiempoEstimadoTotal(tiempoTotal);
+        ruta.setTramosFinalizados(0);
+        ruta.setCostoRealTotal(0.0);
+        ruta.setTiempoRealTotal(0.0);
+        ruta.setKmRecorridosTotal(0.0);
+        boolean aproximada = legs.stream().anyMatch(OsrmDistanceResponse::isAproximada);
+        ruta.setAproximada(aproximada);
+        if (aproximada) {
+            log.warn("Ruta de solicitud {} planificada con distancias aproximadas (OSRM no disponible)", nroSolicitud);
+        }
 
-        Ruta rutaGuardada = rutaRepository.save(ruta);
-        log.info("Ruta planificada: {} tramos, {} km, ${} estimado",
-                cantidadTramos, distanciaTotal, costoTotal);
+        return ruta;
+    }
+
+    /**
+     * Respuesta de planificación de una ruta guardada, con los totales para MS Solicitudes
+     */
+    public RutaPlanningResponse respuestaPlanificacion(Ruta ruta) {
+        // Totales guardados en la ruta; sólo se suman los tramos si la creó una versión anterior
+        double costoTotal = ruta.getCostoEstimadoTotal() != null ? ruta.getCostoEstimadoTotal()
+                : ruta.getTramos().stream().mapToDouble(Tramo::getCostoEstimado).sum();
+        double tiempoTotal = ruta.getTiempoEstimadoTotal() != null ? ruta.getTiempoEstimadoTotal()
+                : ruta.getTramos().stream().mapToDouble(Tramo::getTiempoEstimado).sum();
+
+        RutaResponse rutaDto = rutaMapper.toResponse(ruta);
+        return new RutaPlanningResponse(rutaDto, costoTotal, tiempoTotal, Boolean.TRUE.equals(ruta.getAproximada()));
+    }
 
-        RutaResponse rutaDto = rutaMapper.toResponse(rutaGuardada);
-        // ✅ Devolver Response con costos para MS Solicitudes
-        return new RutaPlanningResponse(rutaDto, costoTotal, tiempoTotal);
+    /**
+     * Rutas y tramos pasaron de IDENTITY a secuencias con ids en bloque (para insertar
+     * por lote): la primera vez hay que adelantar las secuencias por encima de los ids existentes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alinearSecuencias() {
+        Long ruta = rutaRepository.alinearSecuencia();
+        Long tramo = tramoRepository.alinearSecuencia();
+        if (ruta != null || tramo != null) {
+            log.info("Secuencias de ids adelantadas: ruta_seq={}, tramo_seq={}", ruta, tramo);
+        }
+    }
+
+    /**
+     * Completa los agregados de las rutas creadas antes de que existieran (una sola vez)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void completarAgregadosRutas() {
+        int rutas = rutaRepository.completarAgregadosFaltantes();
+        if (rutas > 0) {
+            log.info("Agregados calculados para {} rutas anteriores", rutas);
+        }
     }
 
     public Ruta obtenerRuta(Long id) {
@@ -154,31 +240,21 @@ public class RutaService {
 
         double distanciaTotal = 0;
         double tiempoTotal = 0;
+        boolean aproximada = false;
 
-        Double latActual = latOrigen;
-        Double lonActual = lonOrigen;
-
-        // Calcular tramos intermedios
-        if (depositosIntermedios != null && !depositosIntermedios.isEmpty()) {
-            for (Deposito deposito : depositosIntermedios) {
-                OsrmDistanceResponse response = osrmClient.calcularDistancia(
-                        latActual, lonActual, deposito.getLatitud(), deposito.getLongitud());
-                distanciaTotal += response.getDistanceKm();
-                tiempoTotal += response.getDurationSeconds();
-
-                latActual = deposito.getLatitud();
-                lonActual = deposito.getLongitud();
-            }
+        // Todos los tramos (intermedios + final) en una sola consulta
+        List<Deposito> depositos = depositosIntermedios != null ? depositosIntermedios : List.of();
+        List<OsrmDistanceResponse> legs = calcularTramos(latOrigen, lonOrigen, depositos, latDestino, lonDestino);
+        for (int i = 0; i < legs.size(); i++) {
+            OsrmDistanceResponse response = legs.get(i);
+            distanciaTotal += response.getDistanceKm();
+            aproximada |= response.isAproximada();
+            tiempoTotal += tiempoCalibrado(response.getDurationSeconds(),
+                    i > 0 ? depositos.get(i - 1) : null, i < depositos.size() ? depositos.get(i) : null,
+                    response.getDistanceKm());
         }
 
-        // Calcular tramo final
-        OsrmDistanceResponse responseFinal = osrmClient.calcularDistancia(
-                latActual, lonActual, latDestino, lonDestino);
-
-        distanciaTotal += responseFinal.getDistanceKm();
-        tiempoTotal += responseFinal.getDurationSeconds();
-
-        return new DistanciaResponse(distanciaTotal, tiempoTotal);
+        return new DistanciaResponse(distanciaTotal, tiempoTotal, aproximada);
     }
 
     public RutaTentativaResponse calcularSimulacionRuta(
@@ -195,16 +271,21 @@ public class RutaService {
         double tiempoTotal = 0;
         double costoTotal = 0;
 
-        Double latActual = latOrigen;
-        Double lonActual = lonOrigen;
         String nombreOrigenAnterior = "Origen Solicitud";
+        Deposito depositoAnterior = null;
+
+        List<OsrmDistanceResponse> legs = calcularTramos(latOrigen, lonOrigen,
+                depositosIntermedios, latDestino, lonDestino);
+        int indiceLeg = 0;
+        boolean aproximada = legs.stream().anyMatch(OsrmDistanceResponse::isAproximada);
 
         // 1. Tramos intermedios
         for (Deposito deposito : depositosIntermedios) {
-            OsrmDistanceResponse osrm = osrmClient.calcularDistancia(
-                    latActual, lonActual, deposito.getLatitud(), deposito.getLongitud());
+            OsrmDistanceResponse osrm = legs.get(indiceLeg++);
 
             double costoTramo = osrm.getDistanceKm() * tarifa.getValorKMBase();
+            double tiempoTramo = tiempoCalibrado(osrm.getDurationSeconds(), depositoAnterior, deposito,
+                    osrm.getDistanceKm());
 
             TramoResponse tramo = TramoResponse.builder()
                     .origen(nombreOrigenAnterior)
@@ -212,26 +293,26 @@ public class RutaService {
                     .tipo("Intermedio")
                     .estado("ESTIMADO")
                     .kmEstimados(osrm.getDistanceKm())
-                    .tiempoEstimado(osrm.getDurationSeconds())
+                    .tiempoEstimado(tiempoTramo)
                     .costoEstimado(costoTramo)
                     .build();
 
             tramosDTO.add(tramo);
 
             distanciaTotal += osrm.getDistanceKm();
-            tiempoTotal += osrm.getDurationSeconds();
+            tiempoTotal += tiempoTramo;
             costoTotal += costoTramo;
 
-            latActual = deposito.getLatitud();
-            lonActual = deposito.getLongitud();
             nombreOrigenAnterior = deposito.getNombre();
+            depositoAnterior = deposito;
         }
 
         // 2. Tramo final
-        OsrmDistanceResponse osrmFinal = osrmClient.calcularDistancia(
-                latActual, lonActual, latDestino, lonDestino);
+        OsrmDistanceResponse osrmFinal = legs.get(indiceLeg);
 
         double costoFinal = osrmFinal.getDistanceKm() * tarifa.getValorKMBase();
+        double tiempoFinal = tiempoCalibrado(osrmFinal.getDurationSeconds(), depositoAnterior, null,
+                osrmFinal.getDistanceKm());
 
         TramoResponse tramoFinal = TramoResponse.builder()
                 .origen(nombreOrigenAnterior)
@@ -239,13 +320,13 @@ public class RutaService {
                 .tipo("Final")
                 .estado("ESTIMADO")
                 .kmEstimados(osrmFinal.getDistanceKm())
-                .tiempoEstimado(osrmFinal.getDurationSeconds())
+                .tiempoEstimado(tiempoFinal)
                 .costoEstimado(costoFinal)
                 .build();
 
         tramosDTO.add(tramoFinal);
         distanciaTotal += osrmFinal.getDistanceKm();
-        tiempoTotal += osrmFinal.getDurationSeconds();
+        tiempoTotal += tiempoFinal;
         costoTotal += costoFinal;
 
         return RutaTentativaResponse.builder()
@@ -254,33 +335,250 @@ public class RutaService {
                 .tiempoEstimadoTotalSegundos(tiempoTotal)
                 .costoEstimadoTotal(costoTotal)
                 .tramosSugeridos(tramosDTO)
+                .aproximada(aproximada)
                 .build();
     }
 
-    // Método nuevo para cumplir Req 3
+    /**
+     * Rutas tentativas (Req 3): pide a OSRM las alternativas reales de cada tramo
+     * en paralelo y las combina en el conjunto Pareto-óptimo de rutas completas
+     * (costo vs tiempo), limitado a maxOpcionesTentativas opciones.
+     * La latencia queda cerca de la del tramo más lento, no de la suma.
+     */
     public List<RutaTentativaResponse> obtenerRutasTentativas(
             List<Deposito> depositos,
             Double latOr, Double lonOr,
             Double latDes, Double lonDes,
             Tarifa tarifa) {
 
+        List<Coordenada> puntos = new ArrayList<>(depositos.size() + 2);
+        puntos.add(new Coordenada(latOr, lonOr));
+        for (Deposito deposito : depositos) {
+            puntos.add(new Coordenada(deposito.getLatitud(), deposito.getLongitud()));
+        }
+        puntos.add(new Coordenada(latDes, lonDes));
+
+        // 1. Alternativas de todos los tramos en paralelo
+        List<CompletableFuture<List<DistanciaResponse>>> pedidos = new ArrayList<>();
+        for (int i = 0; i + 1 < puntos.size(); i++) {
+            Coordenada a = puntos.get(i);
+            Coordenada b = puntos.get(i + 1);
+            pedidos.add(CompletableFuture.supplyAsync(() -> alternativasDeTramo(a, b), osrmExecutor));
+        }
+        List<List<DistanciaResponse>> alternativasPorTramo = new ArrayList<>(pedidos.size());
+        for (int i = 0; i < pedidos.size(); i++) {
+            // Tiempos calibrados antes de comparar: el frente se arma con las ETAs que se informan
+            Deposito origen = i > 0 ? depositos.get(i - 1) : null;
+            Deposito destino = i < depositos.size() ? depositos.get(i) : null;
+            alternativasPorTramo.add(pedidos.get(i).join().stream()
+                    .map(alt -> new DistanciaResponse(alt.getDistanciaKm(),
+                            tiempoCalibrado(alt.getTiempoSegundos(), origen, destino, alt.getDistanciaKm()),
+                            alt.isAproximada()))
+                    .toList());
+        }
+
+        // 2. Frente de Pareto de las combinaciones
+        List<int[]> elecciones = combinarPareto(alternativasPorTramo, tarifa.getValorKMBase(), maxOpcionesTentativas);
+
+        // 3. Armar respuestas
         List<RutaTentativaResponse> opciones = new ArrayList<>();
+        for (int o = 0; o < elecciones.size(); o++) {
+            String etiqueta;
+            if (o == 0) {
+                etiqueta = "Opción Recomendada (Más Rápida)";
+            } else if (o == elecciones.size() - 1) {
+                etiqueta = "Opción Más Económica";
+            } else {
+                etiqueta = "Opción Alternativa " + o;
+            }
+            opciones.add(armarTentativa(etiqueta, depositos, alternativasPorTramo, elecciones.get(o), tarifa));
+        }
+        return opciones;
+    }
 
-        // Opción A: Ruta calculada por OSRM (La óptima)
-        opciones.add(calcularSimulacionRuta("Opción Recomendada (Más Rápida)", depositos, latOr, lonOr, latDes, lonDes, tarifa));
-
-        // Opción B: Simulación de una ruta alternativa (Para cumplir el requisito académico)
-        // En la vida real, llamarías a OSRM con params 'alternatives=true', pero aquí podemos simular
-        // variando un poco los costos/tiempos para que el Operador tenga qué elegir.
-        if (depositos.isEmpty()) {
-            // Solo simulamos alternativa si es directo, para simplificar ejemplo
-            RutaTentativaResponse alt = calcularSimulacionRuta("Opción Alternativa (Evita Peajes)", depositos, latOr, lonOr, latDes, lonDes, tarifa);
-            alt.setCostoEstimadoTotal(alt.getCostoEstimadoTotal() * 1.15); // 15% más cara
-            alt.setTiempoEstimadoTotalSegundos(alt.getTiempoEstimadoTotalSegundos() * 1.20); // 20% más lenta
-            opciones.add(alt);
+    /**
+     * Alternativas OSRM entre dos puntos, como distancia/tiempo
+     */
+    public List<DistanciaResponse> obtenerRutasAlternativas(Double lat1, Double lon1, Double lat2, Double lon2) {
+        return osrmClient.getAlternativeRoutes(lat1, lon1, lat2, lon2).stream()
+                .map(r -> new DistanciaResponse(r.getDistanceKm(), r.getDurationSeconds(), r.isAproximada()))
+                .toList();
+    }
+
+    private List<DistanciaResponse> alternativasDeTramo(Coordenada a, Coordenada b) {
+        List<DistanciaResponse> alternativas = obtenerRutasAlternativas(a.latitud(), a.longitud(), b.latitud(), b.longitud());
+        if (!alternativas.isEmpty()) {
+            return alternativas;
         }
+        OsrmDistanceResponse unica = osrmClient.calcularDistancia(a.latitud(), a.longitud(), b.latitud(), b.longitud());
+        return List.of(new DistanciaResponse(unica.getDistanceKm(), unica.getDurationSeconds(), unica.isAproximada()));
+    }
 
-        return opciones;
+    /**
+     * Combina las alternativas de cada tramo manteniendo sólo las rutas completas
+     * no dominadas en (costo, tiempo). Devuelve, para cada opción, qué alternativa
+     * se eligió en cada tramo; ordenadas de la más rápida a la más económica.
+     */
+    static List<int[]> combinarPareto(List<List<DistanciaResponse>> alternativasPorTramo,
+            double valorKm, int maxOpciones) {
+        // cada parcial: {costo, tiempo} + elección por tramo
+        List<double[]> totales = new ArrayList<>();
+        List<int[]> elecciones = new ArrayList<>();
+        totales.add(new double[]{0, 0});
+        elecciones.add(new int[0]);
+
+        for (List<DistanciaResponse> alternativas : alternativasPorTramo) {
+            List<double[]> nuevosTotales = new ArrayList<>();
+            List<int[]> nuevasElecciones = new ArrayList<>();
+            for (int p = 0; p < totales.size(); p++) {
+                for (int a = 0; a < alternativas.size(); a++) {
+                    DistanciaResponse alt = alternativas.get(a);
+                    nuevosTotales.add(new double[]{
+                            totales.get(p)[0] + alt.getDistanciaKm() * valorKm,
+                            totales.get(p)[1] + alt.getTiempoSegundos()});
+                    int[] eleccion = java.util.Arrays.copyOf(elecciones.get(p), elecciones.get(p).length + 1);
+                    eleccion[eleccion.length - 1] = a;
+                    nuevasElecciones.add(eleccion);
+                }
+            }
+
+            // Frente de Pareto: ordenar por tiempo y quedarse con los que bajan el costo
+            Integer[] orden = new Integer[nuevosTotales.size()];
+            for (int i = 0; i < orden.length; i++) {
+                orden[i] = i;
+            }
+            java.util.Arrays.sort(orden, (x, y) -> {
+                int c = Double.compare(nuevosTotales.get(x)[1], nuevosTotales.get(y)[1]);
+                return c != 0 ? c : Double.compare(nuevosTotales.get(x)[0], nuevosTotales.get(y)[0]);
+            });
+            totales = new ArrayList<>();
+            elecciones = new ArrayList<>();
+            double mejorCosto = Double.POSITIVE_INFINITY;
+            for (int i : orden) {
+                if (nuevosTotales.get(i)[0] < mejorCosto) {
+                    mejorCosto = nuevosTotales.get(i)[0];
+                    totales.add(nuevosTotales.get(i));
+                    elecciones.add(nuevasElecciones.get(i));
+                }
+            }
+        }
+
+        if (elecciones.size() <= maxOpciones) {
+            return elecciones;
+        }
+        // Siempre la más rápida y la más económica; el resto, en orden de tiempo
+        List<int[]> resultado = new ArrayList<>(elecciones.subList(0, Math.max(1, maxOpciones - 1)));
+        if (maxOpciones > 1) {
+            resultado.add(elecciones.get(elecciones.size() - 1));
+        }
+        return resultado;
     }
 
-}
\ No newline at end of file
+    private RutaTentativaResponse armarTentativa(String etiqueta, List<Deposito> depositos,
+            List<List<DistanciaResponse>> alternativasPorTramo, int[] eleccion, Tarifa tarifa) {
+        List<TramoResponse> tramosDTO = new ArrayList<>();
+        double distanciaTotal = 0;
+        double tiempoTotal = 0;
+        double costoTotal = 0;
+        boolean aproximada = false;
+
+        for (int i = 0; i < eleccion.length; i++) {
+            DistanciaResponse alt = alternativasPorTramo.get(i).get(eleccion[i]);
+            aproximada |= alt.isAproximada();
+            boolean esFinal = i == eleccion.length - 1;
+            double costoTramo = alt.getDistanciaKm() * tarifa.getValorKMBase();
+
+            tramosDTO.add(TramoResponse.builder()
+                    .origen(i == 0 ? "Origen Solicitud" : depositos.get(i - 1).getNombre())
+                    .destino(esFinal ? "Destino Final" : depositos.get(i).getNombre())
+                    .tipo(esFinal ? "Final" : "Intermedio")
+                    .estado("ESTIMADO")
+                    .kmEstimados(alt.getDistanciaKm())
+                    .tiempoEstimado(alt.getTiempoSegundos())
+                    .costoEstimado(costoTramo)
+                    .build());
+
+            distanciaTotal += alt.getDistanciaKm();
+            tiempoTotal += alt.getTiempoSegundos();
+            costoTotal += costoTramo;
+        }
+
+        return RutaTentativaResponse.builder()
+                .descripcion(etiqueta)
+                .distanciaTotalKm(distanciaTotal)
+                .tiempoEstimadoTotalSegundos(tiempoTotal)
+                .costoEstimadoTotal(costoTotal)
+                .tramosSugeridos(tramosDTO)
+                .aproximada(aproximada)
+                .build();
+    }
+
+    /**
+     * Duración de OSRM corregida con la calibración de ETAs (null = extremo de la solicitud)
+     */
+    private double tiempoCalibrado(double tiempoOsrm, Deposito origen, Deposito destino, double km) {
+        return calibradorEta.calibrar(tiempoOsrm,
+                origen != null ? origen.getId() : null, destino != null ? destino.getId() : null, km);
+    }
+
+    /**
+     * Arma la lista de waypoints (origen, depósitos..., destino) y obtiene
+     * distancia y duración de cada tramo.
+     * Los tramos Deposito-Deposito salen de la matriz en memoria; el resto se
+     * resuelve con OSRM (cache o una sola consulta multi-waypoint).
+     */
+    private List<OsrmDistanceResponse> calcularTramos(Double latOrigen, Double lonOrigen,
+            List<Deposito> depositosIntermedios,
+            Double latDestino, Double lonDestino) {
+        List<Coordenada> puntos = new ArrayList<>(depositosIntermedios.size() + 2);
+        puntos.add(new Coordenada(latOrigen, lonOrigen));
+        for (Deposito deposito : depositosIntermedios) {
+            puntos.add(new Coordenada(deposito.getLatitud(), deposito.getLongitud()));
+        }
+        puntos.add(new Coordenada(latDestino, lonDestino));
+
+        OsrmDistanceResponse[] legs = new OsrmDistanceResponse[puntos.size() - 1];
+
+        // El tramo i va de puntos[i] a puntos[i+1]; entre depósitos: i = 1..k-1
+        for (int i = 1; i < depositosIntermedios.size(); i++) {
+            legs[i] = matrizDistancias.tramo(depositosIntermedios.get(i - 1).getId(),
+                    depositosIntermedios.get(i).getId());
+        }
+
+        // Tramos pendientes agrupados en corridas consecutivas [desde, hasta]
+        List<int[]> corridas = new ArrayList<>();
+        for (int i = 0; i < legs.length; i++) {
+            if (legs[i] == null) {
+                if (!corridas.isEmpty() && corridas.get(corridas.size() - 1)[1] == i - 1) {
+                    corridas.get(corridas.size() - 1)[1] = i;
+                } else {
+                    corridas.add(new int[]{i, i});
+                }
+            }
+        }
+
+        long corridasRemotas = corridas.stream()
+                .filter(c -> !osrmClient.tramosEnCache(puntos.subList(c[0], c[1] + 2)))
+                .count();
+
+        if (corridasRemotas > 1) {
+            // Más de una consulta por corrida: conviene pedir la ruta completa una sola vez
+            List<OsrmDistanceResponse> todos = osrmClient.calcularTramos(puntos);
+            for (int i = 0; i < legs.length; i++) {
+                if (legs[i] == null) {
+                    legs[i] = todos.get(i);
+                }
+            }
+        } else {
+            for (int[] corrida : corridas) {
+                List<OsrmDistanceResponse> tramos = osrmClient.calcularTramos(
+                        puntos.subList(corrida[0], corrida[1] + 2));
+                for (int i = corrida[0]; i <= corrida[1]; i++) {
+                    legs[i] = tramos.get(i - corrida[0]);
+                }
+            }
+        }
+
+        return java.util.Arrays.asList(legs);
+    }
+}
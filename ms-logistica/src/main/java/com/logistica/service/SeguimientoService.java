@@ -0,0 +1,367 @@
+package com.logistica.service;
+
+import com.logistica.dto.request.PosicionRequest;
+import com.logistica.dto.response.IngestaPosicionesResponse;
+import com.logistica.dto.response.ProgresoTramoResponse;
+import com.logistica.exception.LogisticaException;
+import com.logistica.exception.NotFoundException;
+import com.logistica.exception.TramoNotFoundException;
+import com.logistica.model.EstadoTramo;
+import com.logistica.model.PosicionTramo;
+import com.logistica.model.Tramo;
+import com.logistica.repository.PosicionTramoRepository;
+import com.logistica.repository.TramoRepository;
+import com.logistica.util.AnilloMpsc;
+import com.logistica.util.IndiceTrazado;
+import com.logistica.util.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seguimiento de los tramos en curso a partir de las posiciones GPS de los camiones.
+ * Cada posición se proyecta sobre el trazado del tramo (índice en memoria, se arma
+ * con la primera posición) para calcular avance y tiempo restante, y se encola en un
+ * buffer sin locks; un proceso periódico la inserta en lotes en posicion_tramo.
+ * El último avance de cada tramo queda en memoria de esta instancia; las demás lo leen
+ * de la base.
+ */
+@Service
+@Slf4j
+public class SeguimientoService {
+
+    private static final int MAX_LOTES_POR_PASADA = 20;
+    private static final String INSERT_POSICION = "INSERT INTO posicion_tramo (id_tramo, dominio_camion, latitud, " +
+            "longitud, fecha_hora, progreso, km_restantes, eta_segundos, desvio_metros, recibida_en) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final TramoRepository tramoRepository;
+    private final PosicionTramoRepository posicionRepository;
+    private final GeometriaTramoService geometriaService;
+    private final JdbcTemplate jdbcTemplate;
+    private final AnilloMpsc<PosicionTramo> pendientes;
+    private final int tamanioLote;
+    private final double umbralDesvioMetros;
+    private final double celdaMetros;
+    private final double ventanaAtrasMetros;
+    private final double ventanaAdelanteMetros;
+    private final long inactividadMs;
+
+    private final Map<Long, Seguimiento> seguimientos = new ConcurrentHashMap<>();
+    private final SingleFlight<Long, Seguimiento> armado = new SingleFlight<>();
+    private final LongAdder descartadas = new LongAdder();
+    private final LongAdder perdidas = new LongAdder();
+
+    /**
+     * Tramo en curso: trazado indexado, datos estimados y último avance calculado
+     */
+    static final class Seguimiento {
+        final IndiceTrazado indice;
+        final String dominioCamion;
+        final double kmEstimados;
+        final double tiempoEstimado;
+        final boolean aproximado;
+        final AtomicReference<ProgresoTramoResponse> ultimo = new AtomicReference<>();
+        volatile long ultimaPosicionMs = System.currentTimeMillis();
+
+        Seguimiento(IndiceTrazado indice, String dominioCamion, double kmEstimados, double tiempoEstimado,
+                boolean aproximado) {
+            this.indice = indice;
+            this.dominioCamion = dominioCamion;
+            this.kmEstimados = kmEstimados;
+            this.tiempoEstimado = tiempoEstimado;
+            this.aproximado = aproximado;
+        }
+    }
+
+    public SeguimientoService(TramoRepository tramoRepository, PosicionTramoRepository posicionRepository,
+            GeometriaTramoService geometriaService, JdbcTemplate jdbcTemplate,
+            @Value("${app.posiciones.buffer:65536}") int capacidadBuffer,
+            @Value("${app.posiciones.lote:1000}") int tamanioLote,
+            @Value("${app.posiciones.umbral-desvio-metros:500}") double umbralDesvioMetros,
+            @Value("${app.posiciones.celda-metros:500}") double celdaMetros,
+            @Value("${app.posiciones.ventana-atras-metros:1000}") double ventanaAtrasMetros,
+            @Value("${app.posiciones.ventana-adelante-metros:20000}") double ventanaAdelanteMetros,
+            @Value("${app.posiciones.inactividad-minutos:30}") long inactividadMinutos) {
+        this.tramoRepository = tramoRepository;
+        this.posicionRepository = posicionRepository;
+        this.geometriaService = geometriaService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pendientes = new AnilloMpsc<>(capacidadBuffer);
+        this.tamanioLote = tamanioLote;
+        this.umbralDesvioMetros = umbralDesvioMetros;
+        this.celdaMetros = celdaMetros;
+        this.ventanaAtrasMetros = ventanaAtrasMetros;
+        this.ventanaAdelanteMetros = ventanaAdelanteMetros;
+        this.inactividadMs = inactividadMinutos * 60_000;
+    }
+
+    /**
+     * Procesa una posición y la encola para guardarla
+     *
+     * @param dominioAutorizado camión de quien informa la posición; debe ser el asignado al
+     *                          tramo (null: sin restricción, para el operador)
+     * @return el avance calculado, o null si el buffer está lleno y la posición no se guardó
+     */
+    public ProgresoTramoResponse registrar(PosicionRequest posicion, String dominioAutorizado) {
+        validar(posicion);
+        Seguimiento seguimiento = seguimiento(posicion.getIdTramo());
+        if (dominioAutorizado != null && !dominioAutorizado.equalsIgnoreCase(seguimiento.dominioCamion)) {
+            throw new AccessDeniedException("El tramo " + posicion.getIdTramo() + " no está asignado al camión "
+                    + dominioAutorizado);
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime fechaHora = posicion.getFechaHora() != null ? posicion.getFechaHora() : ahora;
+
+        IndiceTrazado.Proyeccion proyeccion = proyectar(seguimiento, posicion);
+        double restante = 1 - proyeccion.progreso();
+        double kmRestantes = seguimiento.kmEstimados > 0
+                ? seguimiento.kmEstimados * restante
+                : (proyeccion.largoMetros() - proyeccion.recorridoMetros()) / 1000;
+        double etaSegundos = seguimiento.tiempoEstimado * restante;
+
+        ProgresoTramoResponse progreso = ProgresoTramoResponse.builder()
+                .idTramo(posicion.getIdTramo())
+                .dominioCamion(seguimiento.dominioCamion)
+                .fechaHora(fechaHora)
+                .latitud(posicion.getLatitud())
+                .longitud(posicion.getLongitud())
+                .progreso(proyeccion.progreso())
+                .kmRestantes(kmRestantes)
+                .etaSegundos(etaSegundos)
+                .llegadaEstimada(fechaHora.plusSeconds((long) etaSegundos))
+                .desvioMetros(proyeccion.desvioMetros())
+                .fueraDeRuta(proyeccion.desvioMetros() > umbralDesvioMetros)
+                .trazadoAproximado(seguimiento.aproximado)
+                .build();
+        if (!pendientes.ofrecer(aEntidad(progreso, ahora))) {
+            // Rechazada (503): el seguimiento en memoria queda como estaba
+            descartadas.increment();
+            return null;
+        }
+        // Las posiciones pueden llegar desordenadas: queda la más reciente según el GPS
+        seguimiento.ultimo.accumulateAndGet(progreso, (actual, nuevo) ->
+                actual == null || !nuevo.getFechaHora().isBefore(actual.getFechaHora()) ? nuevo : actual);
+        seguimiento.ultimaPosicionMs = System.currentTimeMillis();
+        return progreso;
+    }
+
+    /**
+     * Proyecta la posición cerca del último avance conocido, para no engancharla en otra
+     * pasada del trazado por el mismo lugar (rulos, ida y vuelta por la misma ruta).
+     * Si ahí queda fuera de ruta (hueco largo entre posiciones) se busca en todo el trazado.
+     */
+    private IndiceTrazado.Proyeccion proyectar(Seguimiento seguimiento, PosicionRequest posicion) {
+        double radio = umbralDesvioMetros * 4;
+        ProgresoTramoResponse anterior = seguimiento.ultimo.get();
+        if (anterior != null) {
+            double recorrido = anterior.getProgreso() * seguimiento.indice.largoMetros();
+            IndiceTrazado.Proyeccion cercana = seguimiento.indice.proyectar(posicion.getLatitud(),
+                    posicion.getLongitud(), radio, recorrido - ventanaAtrasMetros, recorrido + ventanaAdelanteMetros);
+            if (cercana.desvioMetros() <= umbralDesvioMetros) {
+                return cercana;
+            }
+        }
+        return seguimiento.indice.proyectar(posicion.getLatitud(), posicion.getLongitud(), radio);
+    }
+
+    /**
+     * Procesa un lote de posiciones; las inválidas, de tramos que no están en curso o
+     * de otro camión se cuentan como rechazadas sin cortar el resto
+     */
+    public IngestaPosicionesResponse registrarLote(Iterator<PosicionRequest> posiciones, String dominioAutorizado) {
+        int recibidas = 0;
+        int aceptadas = 0;
+        int rechazadas = 0;
+        int descartadasLote = 0;
+        while (posiciones.hasNext()) {
+            PosicionRequest posicion = posiciones.next();
+            recibidas++;
+            try {
+                if (registrar(posicion, dominioAutorizado) != null) {
+                    aceptadas++;
+                } else {
+                    descartadasLote++;
+                }
+            } catch (LogisticaException | NotFoundException | AccessDeniedException e) {
+                rechazadas++;
+            }
+        }
+        if (rechazadas > 0 || descartadasLote > 0) {
+            log.debug("Lote de posiciones: {} recibidas, {} rechazadas, {} descartadas por buffer lleno",
+                    recibidas, rechazadas, descartadasLote);
+        }
+        return IngestaPosicionesResponse.builder()
+                .recibidas(recibidas)
+                .aceptadas(aceptadas)
+                .rechazadas(rechazadas)
+                .descartadas(descartadasLote)
+                .build();
+    }
+
+    /**
+     * Último avance del tramo: el de memoria si esta instancia lo sigue, si no el último guardado
+     */
+    public ProgresoTramoResponse obtenerProgreso(Long idTramo) {
+        Seguimiento seguimiento = seguimientos.get(idTramo);
+        if (seguimiento != null && seguimiento.ultimo.get() != null) {
+            return seguimiento.ultimo.get();
+        }
+        return posicionRepository.findFirstByIdTramoOrderByFechaHoraDesc(idTramo)
+                .map(p -> ProgresoTramoResponse.builder()
+                        .idTramo(p.getIdTramo())
+                        .dominioCamion(p.getDominioCamion())
+                        .fechaHora(p.getFechaHora())
+                        .latitud(p.getLatitud())
+                        .longitud(p.getLongitud())
+                        .progreso(p.getProgreso())
+                        .kmRestantes(p.getKmRestantes())
+                        .etaSegundos(p.getEtaSegundos())
+                        .llegadaEstimada(p.getFechaHora().plusSeconds(p.getEtaSegundos().longValue()))
+                        .desvioMetros(p.getDesvioMetros())
+                        .fueraDeRuta(p.getDesvioMetros() > umbralDesvioMetros)
+                        .build())
+                .orElseThrow(() -> new NotFoundException("El tramo " + idTramo + " no tiene posiciones registradas"));
+    }
+
+    /**
+     * Inserta en lotes las posiciones encoladas
+     */
+    @Scheduled(fixedDelayString = "${app.posiciones.intervalo-ms:200}")
+    public void guardarPendientes() {
+        List<PosicionTramo> lote = new ArrayList<>(tamanioLote);
+        for (int i = 0; i < MAX_LOTES_POR_PASADA; i++) {
+            lote.clear();
+            int cantidad = pendientes.drenar(lote, tamanioLote);
+            if (cantidad == 0) {
+                break;
+            }
+            try {
+                jdbcTemplate.batchUpdate(INSERT_POSICION, lote, lote.size(), (ps, p) -> {
+                    ps.setLong(1, p.getIdTramo());
+                    ps.setString(2, p.getDominioCamion());
+                    ps.setDouble(3, p.getLatitud());
+                    ps.setDouble(4, p.getLongitud());
+                    ps.setTimestamp(5, Timestamp.valueOf(p.getFechaHora()));
+                    ps.setDouble(6, p.getProgreso());
+                    ps.setDouble(7, p.getKmRestantes());
+                    ps.setDouble(8, p.getEtaSegundos());
+                    ps.setDouble(9, p.getDesvioMetros());
+                    ps.setTimestamp(10, Timestamp.valueOf(p.getRecibidaEn()));
+                });
+            } catch (Exception e) {
+                // No se reencolan: con la base caída llenarían el buffer y frenarían la ingesta
+                perdidas.add(cantidad);
+                log.error("Posiciones: no se pudo guardar un lote de {}: {}", cantidad, e.getMessage());
+            }
+            if (cantidad < tamanioLote) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Deja de seguir los tramos sin posiciones recientes o que ya no están en curso,
+     * y los de trazado aproximado (la próxima posición reintenta el trazado real)
+     */
+    @Scheduled(fixedDelayString = "${app.posiciones.limpieza-ms:60000}")
+    public void limpiar() {
+        long limite = System.currentTimeMillis() - inactividadMs;
+        seguimientos.entrySet().removeIf(e -> e.getValue().ultimaPosicionMs < limite || e.getValue().aproximado);
+        if (seguimientos.isEmpty()) {
+            return;
+        }
+        for (Tramo tramo : tramoRepository.findAllById(List.copyOf(seguimientos.keySet()))) {
+            if (tramo.getEstado() != EstadoTramo.EN_CURSO) {
+                seguimientos.remove(tramo.getId());
+            }
+        }
+        log.debug("Seguimiento: {} tramos activos, {} posiciones en buffer, {} descartadas, {} perdidas",
+                seguimientos.size(), pendientes.tamanio(), descartadas.sum(), perdidas.sum());
+    }
+
+    @PreDestroy
+    public void alDetener() {
+        while (pendientes.tamanio() > 0) {
+            int antes = pendientes.tamanio();
+            guardarPendientes();
+            if (pendientes.tamanio() >= antes) {
+                break;
+            }
+        }
+    }
+
+    public int tramosSeguidos() {
+        return seguimientos.size();
+    }
+
+    private Seguimiento seguimiento(Long idTramo) {
+        Seguimiento seguimiento = seguimientos.get(idTramo);
+        if (seguimiento != null) {
+            return seguimiento;
+        }
+        // Una sola construcción por tramo aunque lleguen muchas posiciones juntas
+        // (fuera de computeIfAbsent: lee la base y puede llamar al motor de ruteo)
+        return armado.ejecutar(idTramo, () -> {
+            Seguimiento existente = seguimientos.get(idTramo);
+            if (existente != null) {
+                return existente;
+            }
+            Seguimiento nuevo = construir(idTramo);
+            seguimientos.put(idTramo, nuevo);
+            return nuevo;
+        });
+    }
+
+    private Seguimiento construir(Long idTramo) {
+        Tramo tramo = tramoRepository.findById(idTramo)
+                .orElseThrow(() -> new TramoNotFoundException(idTramo));
+        if (tramo.getEstado() != EstadoTramo.EN_CURSO) {
+            throw new LogisticaException("El tramo " + idTramo + " no está en curso (estado " + tramo.getEstado() + ")");
+        }
+        GeometriaTramoService.Trazado trazado = geometriaService.obtener(idTramo);
+        IndiceTrazado indice = new IndiceTrazado(trazado.puntos(), celdaMetros);
+        log.debug("Seguimiento del tramo {}: {} segmentos en {} celdas, {} m{}", idTramo, indice.cantidadSegmentos(),
+                indice.cantidadCeldas(), Math.round(indice.largoMetros()),
+                trazado.aproximado() ? " (trazado aproximado)" : "");
+        return new Seguimiento(indice, tramo.getDominioCamionRef(), tramo.getKmEstimados(),
+                tramo.getTiempoEstimado(), trazado.aproximado());
+    }
+
+    private static void validar(PosicionRequest posicion) {
+        if (posicion == null || posicion.getIdTramo() == null
+                || posicion.getLatitud() == null || posicion.getLongitud() == null
+                || Math.abs(posicion.getLatitud()) > 90 || Math.abs(posicion.getLongitud()) > 180) {
+            throw new LogisticaException("Posición inválida: se requieren idTramo, latitud y longitud");
+        }
+    }
+
+    private static PosicionTramo aEntidad(ProgresoTramoResponse progreso, LocalDateTime recibidaEn) {
+        PosicionTramo posicion = new PosicionTramo();
+        posicion.setIdTramo(progreso.getIdTramo());
+        posicion.setDominioCamion(progreso.getDominioCamion());
+        posicion.setLatitud(progreso.getLatitud());
+        posicion.setLongitud(progreso.getLongitud());
+        posicion.setFechaHora(progreso.getFechaHora());
+        posicion.setProgreso(progreso.getProgreso());
+        posicion.setKmRestantes(progreso.getKmRestantes());
+        posicion.setEtaSegundos(progreso.getEtaSegundos());
+        posicion.setDesvioMetros(progreso.getDesvioMetros());
+        posicion.setRecibidaEn(recibidaEn);
+        return posicion;
+    }
+}
@@ -1,10 +1,12 @@
 package com.logistica.service;
 
+import com.logistica.exception.NotFoundException;
 import com.logistica.model.Tarifa;
 import com.logistica.repository.TarifaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
@@ -13,6 +15,7 @@ import java.util.List;
 public class TarifaService {
 
     private final TarifaRepository tarifaRepository;
+    private final CatalogoTarifas catalogoTarifas;
 
     public Tarifa crearTarifa(Tarifa tarifa) {
         log.info("Creando tarifa vigente desde: {}", tarifa.getFechaVigencia());
@@ -24,26 +27,56 @@ public class TarifaService {
             return existing.get(0);
         }
 
-        return tarifaRepository.save(tarifa);
+        Tarifa creada = tarifaRepository.save(tarifa);
+        catalogoTarifas.recargar();
+        return creada;
     }
 
     public List<Tarifa> listarTarifas() {
         return tarifaRepository.findAll();
     }
 
+    /**
+     * Tarifa por id desde el catálogo en memoria; sólo va a la base si no está
+     * (por ejemplo, creada por otra instancia después de la última recarga)
+     */
     public Tarifa obtenerTarifa(Long id) {
-        return tarifaRepository.findById(id)
-                .orElseThrow(() -> new com.logistica.exception.NotFoundException("Tarifa no encontrada: " + id));
+        Tarifa tarifa = catalogoTarifas.porId(id);
+        if (tarifa != null) {
+            return tarifa;
+        }
+        tarifa = buscarTarifa(id);
+        catalogoTarifas.recargar();
+        return tarifa;
+    }
+
+    /**
+     * Tarifa vigente en la fecha indicada (la última con fechaVigencia <= fecha)
+     */
+    public Tarifa obtenerTarifaVigente(LocalDate fecha) {
+        Tarifa tarifa = catalogoTarifas.vigenteEn(fecha);
+        if (tarifa == null) {
+            throw new NotFoundException("No hay tarifa vigente al " + fecha);
+        }
+        return tarifa;
     }
 
     public Tarifa actualizarTarifa(Long id, Tarifa tarifaActualizada) {
-        Tarifa tarifa = obtenerTarifa(id);
+        // Se lee de la base: las instancias del catálogo son compartidas y no se modifican
+        Tarifa tarifa = buscarTarifa(id);
 
         tarifa.setValorKMBase(tarifaActualizada.getValorKMBase());
         tarifa.setCostoLitroCombustible(tarifaActualizada.getCostoLitroCombustible());
         tarifa.setFechaVigencia(tarifaActualizada.getFechaVigencia());
         tarifa.setPorcentajeRecargo(tarifaActualizada.getPorcentajeRecargo());
 
-        return tarifaRepository.save(tarifa);
+        Tarifa guardada = tarifaRepository.save(tarifa);
+        catalogoTarifas.recargar();
+        return guardada;
+    }
+
+    private Tarifa buscarTarifa(Long id) {
+        return tarifaRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Tarifa no encontrada: " + id));
     }
 }
\ No newline at end of file
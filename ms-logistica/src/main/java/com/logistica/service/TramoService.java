@@ -1,7 +1,10 @@
 package com.logistica.service;
 
 import com.logistica.model.*;
+import com.logistica.repository.AvanceRuta;
+import com.logistica.repository.RutaRepository;
 import com.logistica.repository.TramoRepository;
+import com.logistica.repository.TramoVista;
 
 import com.logistica.client.FlotaApiClient;
 import com.logistica.exception.TramoNotFoundException;
@@ -11,11 +14,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import com.logistica.dto.request.FiltroTramos;
+import org.springframework.data.domain.PageRequest;
 import com.logistica.client.dto.CamionInfo;
-import com.logistica.client.SolicitudesApiClient;
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.dto.TramoFinalizado;
+import com.logistica.client.dto.TramoIniciado;
+import com.logistica.event.CamionAsignadoEvent;
+import com.logistica.event.CostoProvisorioEvent;
+import com.logistica.event.TiempoRealRegistradoEvent;
+import org.springframework.context.ApplicationEventPublisher;
 
 @Service
 @RequiredArgsConstructor
@@ -23,8 +41,12 @@ import com.logistica.client.SolicitudesApiClient;
 public class TramoService {
 
     private final TramoRepository tramoRepository;
+    private final RutaRepository rutaRepository;
     private final FlotaApiClient flotaApiClient;
-    private final SolicitudesApiClient solicitudesApiClient;
+    private final OutboxSolicitudesService outboxSolicitudes;
+    private final EstadiaDepositoService estadias;
+    private final CamionInfoCache camionInfoCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Marca un tramo como INICIADO (llamado por MS Flota)
@@ -33,10 +55,6 @@ public class TramoService {
      */
     @Transactional
     public Tramo marcarTramoIniciado(Long idTramo) {
-        validarSecuenciaTramos(idTramo);
-
-        log.info("Marcando tramo {} como EN CURSO", idTramo);
-
         Tramo tramo = tramoRepository.findById(idTramo)
                 .orElseThrow(() -> new TramoNotFoundException(idTramo));
 
@@ -45,26 +63,45 @@ public class TramoService {
             throw new RutaNotFoundException(null);
         }
 
+        validarSecuenciaTramos(tramo);
+
+        log.info("Marcando tramo {} como EN CURSO", idTramo);
+
         tramo.setEstado(EstadoTramo.EN_CURSO);
         tramo.setFechaHoraInicioReal(LocalDateTime.now());
         tramoRepository.save(tramo);
 
         log.info("Tramo {} ahora está EN CURSO, publicando evento", idTramo);
 
-        solicitudesApiClient.notificarTramoIniciado(ruta.getNroSolicitudRef(), idTramo);
+        // Se encola en esta transacción; el relay del outbox lo envía a MS Solicitudes
+        outboxSolicitudes.registrar(ruta.getNroSolicitudRef(), TipoMensajeSolicitudes.TRAMO_INICIADO,
+                new TramoIniciado(idTramo, ruta.getNroSolicitudRef(), LocalDateTime.now(), "EN_TRANSITO"));
+        // El contenedor sale del depósito: se ajusta su estadía con los días reales
+        estadias.cerrar(tramo);
 
         return tramo;
     }
 
     /**
      * Marca un tramo como FINALIZADO (llamado por MS Flota)
-     * Calcula costos y tiempos reales
-     * Publica evento a RabbitMQ para MS Solicitudes
+     * Calcula costos y tiempos reales con los datos del camión en cache (sin llamar a
+     * MS Flota dentro de la transacción). Si el camión no está, el costo queda
+     * provisorio (tarifa base) y se recalcula en segundo plano después del commit.
+     * Encola la notificación para MS Solicitudes en el outbox (misma transacción)
      * 
      * @return El tramo actualizado
      */
     @Transactional
     public Tramo marcarTramoFinalizado(Long idTramo, double kmRecorridos) {
+        return marcarTramoFinalizado(idTramo, kmRecorridos, null);
+    }
+
+    /**
+     * Igual que {@link #marcarTramoFinalizado(Long, double)}, pero con los datos del
+     * camión que informa MS Flota en el evento (si vienen, no se usa la cache)
+     */
+    @Transactional
+    public Tramo marcarTramoFinalizado(Long idTramo, double kmRecorridos, CamionInfo datosCamion) {
         log.info("Marcando tramo {} como FINALIZADO con {} km recorridos", idTramo, kmRecorridos);
 
         Tramo tramo = tramoRepository.findById(idTramo)
@@ -75,20 +112,51 @@ public class TramoService {
             throw new RutaNotFoundException(null);
         }
 
-        tramo.setFechaHoraFinReal(LocalDateTime.now());
+        // Una finalización repetida sólo corrige la diferencia en los agregados de la ruta
+        boolean yaFinalizado = tramo.getEstado() == EstadoTramo.FINALIZADO;
+        double costoAnterior = yaFinalizado ? tramo.getCostoReal() : 0;
+        double tiempoAnterior = yaFinalizado ? tramo.getTiempoReal() : 0;
+        double kmAnteriores = yaFinalizado ? tramo.getKmRecorridos() : 0;
+
+        // La hora de fin es la de la primera finalización: el tiempo real no cambia al repetirla
+        if (!yaFinalizado) {
+            tramo.setFechaHoraFinReal(LocalDateTime.now());
+        }
 
         // Calcular costo real y tiempo real
-        double costoReal = calcularCostoReal(tramo, kmRecorridos);
+        CamionInfo camion = datosCamion != null ? datosCamion : camionInfoCache.obtener(tramo.getDominioCamionRef());
+        boolean provisorio = tieneCamion(tramo) && camion == null;
+        // La estadía en el depósito de llegada entra con un día provisorio; se ajusta cuando sale
+        double costoReal = calcularCostoReal(tramo, kmRecorridos, camion) + estadias.abrir(tramo);
         double tiempoReal = calcularTiempoReal(tramo);
 
         tramo.setEstado(EstadoTramo.FINALIZADO);
         tramo.setKmRecorridos(kmRecorridos);
         tramo.setCostoReal(costoReal);
+        tramo.setCostoProvisorio(provisorio);
         tramo.setTiempoReal(tiempoReal);
 
         tramoRepository.save(tramo);
-        log.info("Tramo {} finalizado. Costo real: ${}, Tiempo real: {}s",
-                idTramo, costoReal, tiempoReal);
+        rutaRepository.acumularFinalizacion(ruta.getId(), yaFinalizado ? 0 : 1, costoReal - costoAnterior,
+                tiempoReal - tiempoAnterior, kmRecorridos - kmAnteriores);
+        if (!yaFinalizado) {
+            verificarYActualizarEstadoRuta(ruta);
+        }
+        log.info("Tramo {} finalizado. Costo real: ${}{}, Tiempo real: {}s",
+                idTramo, costoReal, provisorio ? " (provisorio)" : "", tiempoReal);
+        if (provisorio) {
+            eventPublisher.publishEvent(new CostoProvisorioEvent(idTramo));
+        }
+        // Una sola muestra por tramo para la calibración de ETA
+        if (tiempoReal > 0 && !yaFinalizado) {
+            // Tramos anteriores a la calibración: su tiempo estimado es el de OSRM
+            double tiempoBase = tramo.getTiempoEstimadoBase() != null
+                    ? tramo.getTiempoEstimadoBase() : tramo.getTiempoEstimado();
+            eventPublisher.publishEvent(new TiempoRealRegistradoEvent(
+                    tramo.getDepositoOrigen() != null ? tramo.getDepositoOrigen().getId() : null,
+                    tramo.getDepositoDestino() != null ? tramo.getDepositoDestino().getId() : null,
+                    tramo.getKmEstimados(), tiempoBase, tiempoReal));
+        }
 
         // LÓGICA UBICACIÓN
         String ubicacionFin;
@@ -101,45 +169,37 @@ public class TramoService {
             esDestinoFinal = true;
         }
 
-        // ...
-
-        // CORREGIDO: Pasar kmRecorridos
-        solicitudesApiClient.notificarTramoFinalizado(
-                ruta.getNroSolicitudRef(),
-                idTramo,
-                kmRecorridos,
-                costoReal,
-                tiempoReal,
-                ubicacionFin,
-                esDestinoFinal
-        );
+        // Si es destino final, sugerimos ENTREGADA, si no, sigue EN_TRANSITO
+        // (ms-solicitudes tiene la última palabra)
+        outboxSolicitudes.registrar(ruta.getNroSolicitudRef(), TipoMensajeSolicitudes.TRAMO_FINALIZADO,
+                new TramoFinalizado(
+                        idTramo,
+                        ruta.getNroSolicitudRef(),
+                        kmRecorridos,
+                        costoReal,
+                        tiempoReal,
+                        LocalDateTime.now(),
+                        esDestinoFinal ? "ENTREGADA" : "EN_TRANSITO",
+                        ubicacionFin,
+                        esDestinoFinal));
 
         return tramo;
     }
 
     /**
      * Verifica si todos los tramos de una ruta están finalizados
-     * y publica evento para actualizar el estado de la solicitud
+     * y publica evento para actualizar el estado de la solicitud.
+     * Lee los agregados de la ruta (ya incluyen este tramo), no los tramos.
      */
     private void verificarYActualizarEstadoRuta(Ruta ruta) {
-        List<Tramo> tramos = tramoRepository.findByRutaId(ruta.getId());
-        boolean todosFinalizados = tramos.stream()
-                .allMatch(t -> t.getEstado() == EstadoTramo.FINALIZADO);
-
-        if (todosFinalizados && !tramos.isEmpty()) {
-            // Calcular costos totales
-            double costoTotalReal = tramos.stream()
-                    .mapToDouble(Tramo::getCostoReal)
-                    .sum();
-
-            double tiempoTotalReal = tramos.stream()
-                    .mapToDouble(Tramo::getTiempoReal)
-                    .sum();
+        AvanceRuta avance = rutaRepository.obtenerAvance(ruta.getId());
 
+        if (avance.completa()) {
             log.info("Todos los tramos de la ruta {} están finalizados. Costo total: ${}, Tiempo total: {}s",
-                    ruta.getId(), costoTotalReal, tiempoTotalReal);
+                    ruta.getId(), avance.costoRealTotal(), avance.tiempoRealTotal());
 
-            solicitudesApiClient.notificarRutaCompletada(ruta.getNroSolicitudRef());
+            outboxSolicitudes.registrar(ruta.getNroSolicitudRef(), TipoMensajeSolicitudes.RUTA_COMPLETADA,
+                    java.util.Map.of("estado", "ENTREGADA"));
         }
     }
 
@@ -147,17 +207,15 @@ public class TramoService {
      * Calcula el costo real del tramo según requerimientos:
      * - Costo por km del camión específico
      * - Costo de combustible (km * consumo del camión * precio del litro)
-     * - Estadía en depósito (días * costo diario del depósito)
+     * La estadía en depósito la lleva EstadiaDepositoService
      */
-    private double calcularCostoReal(Tramo tramo, double kmRecorridos) {
+    private double calcularCostoReal(Tramo tramo, double kmRecorridos, CamionInfo camion) {
         Tarifa tarifa = tramo.getTarifa();
         double costoTotal = 0.0;
 
         // 1. CÁLCULO DE COSTO DE TRANSPORTE
-        if (tramo.getDominioCamionRef() != null && !tramo.getDominioCamionRef().isEmpty()) {
-            try {
-                CamionInfo camion = flotaApiClient.obtenerCamionPorDominio(tramo.getDominioCamionRef());
-
+        if (tieneCamion(tramo)) {
+            if (camion != null && camion.getConsumoCombustiblePromedio() != null) {
                 // Calcular litros: (L/100km / 100) * km
                 double litrosConsumidos = kmRecorridos * (camion.getConsumoCombustiblePromedio() / 100.0);
 
@@ -182,10 +240,10 @@ public class TramoService {
                         String.format("%.2f", costoCombustible),
                         porcentaje,
                         String.format("%.2f", costoTransporte));
-            } catch (Exception e) {
-                log.warn("No se pudo obtener información del camión {}, usando tarifa base: {}",
-                        tramo.getDominioCamionRef(), e.getMessage());
-                 // Fallback: usar tarifa base si no se puede obtener el camión
+            } else {
+                log.warn("Camión {} sin datos en cache, usando tarifa base (costo provisorio)",
+                        tramo.getDominioCamionRef());
+                // Fallback: usar tarifa base hasta tener los datos del camión
                 costoTotal += kmRecorridos * tarifa.getValorKMBase();
             }
         } else {
@@ -193,49 +251,59 @@ public class TramoService {
             costoTotal += kmRecorridos * tarifa.getValorKMBase();
         }
 
-        // 3. Estadía en depósito (calculada entre fin de este tramo y inicio del
-        // siguiente)
-        // Nota: La estadía se calcula cuando el siguiente tramo inicia desde este
-        // depósito
-        // Por ahora, si el tramo termina en un depósito, calculamos estadía mínima de 1
-        // día
-        // La estadía completa se calculará cuando el siguiente tramo inicie
-        if (tramo.getDepositoDestino() != null && tramo.getFechaHoraFinReal() != null) {
-            // Buscar el siguiente tramo que sale de este depósito
-            List<Tramo> tramosRuta = tramoRepository.findByRutaId(tramo.getRuta().getId());
-            Tramo siguienteTramo = tramosRuta.stream()
-                    .filter(t -> t.getDepositoOrigen() != null &&
-                            t.getDepositoOrigen().getId().equals(tramo.getDepositoDestino().getId()) &&
-                            t.getFechaHoraInicioReal() != null)
-                    .findFirst()
-                    .orElse(null);
-
-            if (siguienteTramo != null && siguienteTramo.getFechaHoraInicioReal() != null) {
-                // Calcular días entre fin de este tramo e inicio del siguiente
-                long diasEstadia = ChronoUnit.DAYS.between(tramo.getFechaHoraFinReal(),
-                        siguienteTramo.getFechaHoraInicioReal());
-                if (diasEstadia > 0) {
-                    double costoEstadia = diasEstadia * tramo.getDepositoDestino().getCostoEstadiaDiario();
-                    costoTotal += costoEstadia;
-                    log.debug("Costo de estadía en depósito {}: {} días * ${}/día = ${}",
-                            tramo.getDepositoDestino().getNombre(), diasEstadia,
-                            tramo.getDepositoDestino().getCostoEstadiaDiario(), costoEstadia);
-                }
-            } else if (tramo.getFechaHoraFinReal() != null) {
-                // Si no hay siguiente tramo aún, asumir estadía mínima de 1 día
-                // Esto se ajustará cuando el siguiente tramo inicie
-                double costoEstadia = 1 * tramo.getDepositoDestino().getCostoEstadiaDiario();
-                costoTotal += costoEstadia;
-                log.debug("Costo de estadía estimada en depósito {}: 1 día * ${}/día = ${}",
-                        tramo.getDepositoDestino().getNombre(),
-                        tramo.getDepositoDestino().getCostoEstadiaDiario(), costoEstadia);
-            }
-        }
-
         log.info("Costo real calculado para tramo {}: ${}", tramo.getId(), costoTotal);
         return costoTotal;
     }
 
+    private boolean tieneCamion(Tramo tramo) {
+        return tramo.getDominioCamionRef() != null && !tramo.getDominioCamionRef().isEmpty();
+    }
+
+    /**
+     * Recalcula el costo real de un tramo finalizado con costo provisorio, ahora
+     * con los datos del camión.
+     *
+     * La diferencia con el costo ya informado se encola para MS Solicitudes en la misma transacción.
+     * El tramo se lee bloqueado, así que sólo una llamada concurrente lo encuentra provisorio.
+     *
+     * @return diferencia con el costo ya informado, o null si el tramo ya no estaba provisorio
+     */
+    @Transactional
+    public Double aplicarCostoDefinitivo(Long idTramo, CamionInfo camion) {
+        Tramo tramo = tramoRepository.buscarParaCorregirCosto(idTramo)
+                .orElseThrow(() -> new TramoNotFoundException(idTramo));
+        if (!Boolean.TRUE.equals(tramo.getCostoProvisorio())) {
+            return null;
+        }
+
+        double costoAnterior = tramo.getCostoReal();
+        double costoReal = calcularCostoReal(tramo, tramo.getKmRecorridos(), camion)
+                + estadias.costoCobrado(idTramo);
+        tramo.setCostoReal(costoReal);
+        tramo.setCostoProvisorio(false);
+        tramoRepository.save(tramo);
+        rutaRepository.acumularFinalizacion(tramo.getRuta().getId(), 0, costoReal - costoAnterior, 0, 0);
+
+        log.info("Costo real del tramo {} recalculado: ${} -> ${}", idTramo, costoAnterior, costoReal);
+        double delta = costoReal - costoAnterior;
+        if (Math.abs(delta) > 0.005) {
+            outboxSolicitudes.registrar(tramo.getRuta().getNroSolicitudRef(), TipoMensajeSolicitudes.AJUSTE_COSTO,
+                    java.util.Map.of("idTramo", idTramo, "delta", delta));
+        }
+        return delta;
+    }
+
+    /**
+     * Dominios de camiones con tramos asignados o en curso
+     */
+    public List<String> obtenerDominiosEnUso() {
+        return tramoRepository.findDominiosEnUso();
+    }
+
+    public List<Long> obtenerIdsConCostoProvisorio() {
+        return tramoRepository.findIdsConCostoProvisorio();
+    }
+
     /**
      * Calcula el tiempo real del tramo
      */
@@ -257,42 +325,90 @@ public class TramoService {
     public void asignarCamionConPlanificacion(Long idTramo, String dominio,
                                             LocalDateTime fechaInicioEstimada,
                                             LocalDateTime fechaFinEstimada) {
-        Tramo tramo = tramoRepository.findById(idTramo)
-                .orElseThrow(() -> new TramoNotFoundException(idTramo));
+        asignarEnBloque(dominio, List.of(idTramo),
+                Collections.singletonList(fechaInicioEstimada), Collections.singletonList(fechaFinEstimada));
+    }
 
-        // 1. Actualizar tramo en MS-LOGÍSTICA
-        tramo.setDominioCamionRef(dominio);
-        tramo.setEstado(EstadoTramo.ASIGNADO);
-        tramo.setFechaHoraInicioEstimada(fechaInicioEstimada);
-        tramo.setFechaHoraFinEstimada(fechaFinEstimada);
+    /**
+     * Asigna el camión a todos los tramos con una lectura (findAllById), un update
+     * por lotes y una sola notificación a MS-Flota con todos los ids.
+     * Si MS-Flota rechaza la asignación se hace rollback de todo el bloque.
+     */
+    private void asignarEnBloque(String dominio, List<Long> tramoIds,
+                                 List<LocalDateTime> fechasInicio, List<LocalDateTime> fechasFin) {
+        if (new HashSet<>(tramoIds).size() != tramoIds.size()) {
+            throw new IllegalArgumentException("La lista de tramos tiene ids repetidos");
+        }
 
-        tramoRepository.save(tramo);
-        log.info("Camión {} asignado al tramo {}. Planificado para: {} - {}",
-                dominio, idTramo, fechaInicioEstimada, fechaFinEstimada);
+        Map<Long, Tramo> porId = new HashMap<>();
+        for (Tramo tramo : tramoRepository.findAllById(tramoIds)) {
+            porId.put(tramo.getId(), tramo);
+        }
+
+        // 1. Actualizar tramos en MS-LOGÍSTICA (en el orden pedido)
+        List<Tramo> tramos = new ArrayList<>(tramoIds.size());
+        for (int i = 0; i < tramoIds.size(); i++) {
+            Long idTramo = tramoIds.get(i);
+            Tramo tramo = porId.get(idTramo);
+            if (tramo == null) {
+                throw new TramoNotFoundException(idTramo);
+            }
+            tramo.setDominioCamionRef(dominio);
+            tramo.setEstado(EstadoTramo.ASIGNADO);
+            tramo.setFechaHoraInicioEstimada(fechasInicio.get(i));
+            tramo.setFechaHoraFinEstimada(fechasFin.get(i));
+            tramos.add(tramo);
+            log.info("Camión {} asignado al tramo {}. Planificado para: {} - {}",
+                    dominio, idTramo, fechasInicio.get(i), fechasFin.get(i));
+        }
 
-        // 2. Notificar a MS-FLOTA de la asignación
+        // Flush antes de llamar a MS-Flota: un error de base aparece antes de la llamada remota
+        tramoRepository.saveAllAndFlush(tramos);
+        eventPublisher.publishEvent(new CamionAsignadoEvent(dominio));
+
+        // 2. Notificar a MS-FLOTA de la asignación (una sola llamada)
         try {
-            notificarAsignacionAFlota(dominio, idTramo);
-            log.info("MS-Flota notificado exitosamente de asignación: {} -> {}", dominio, idTramo);
+            notificarAsignacionAFlota(dominio, tramoIds);
+            log.info("MS-Flota notificado exitosamente de asignación: {} -> {}", dominio, tramoIds);
         } catch (Exception e) {
-            log.error("Error notificando asignación a MS-Flota para camión {} y tramo {}: {}",
-                     dominio, idTramo, e.getMessage());
+            log.error("Error notificando asignación a MS-Flota para camión {} y tramos {}: {}",
+                     dominio, tramoIds, e.getMessage());
             // Relanzar excepción para hacer rollback de la transacción
             throw new RuntimeException("Error sincronizando con MS-Flota: " + e.getMessage(), e);
         }
     }
 
-    public List<Tramo> obtenerTramosPendientes() {
-        // Retorna tramos que están ASIGNADO, INICIADO o ESTIMADO (no FINALIZADO)
-        return tramoRepository.findByEstadoNot(EstadoTramo.FINALIZADO);
-    }
 
     public Optional<Tramo> obtenerTramo(Long id) {
         return tramoRepository.findById(id);
     }
 
-    public List<Tramo> listarTramos() {
-        return tramoRepository.findAll();
+    /**
+     * Página de tramos por clave: los siguientes a "cursor" (id), ordenados por id.
+     * Con filtro.soloPendientes() devuelve los no FINALIZADOS (ASIGNADO, INICIADO o ESTIMADO).
+     */
+    public List<TramoVista> listarTramos(FiltroTramos filtro, Long cursor, int limite) {
+        return tramoRepository.buscarPagina(cursor != null ? cursor : 0L,
+                filtro.estado(), filtro.soloPendientes(), filtro.dominio(), filtro.desde(), filtro.hasta(),
+                PageRequest.of(0, limite));
+    }
+
+    /**
+     * Recorre todos los tramos del filtro con un cursor JDBC, sin cargarlos juntos
+     * en memoria. Las vistas no son entidades, así que el contexto de persistencia no crece.
+     */
+    @Transactional(readOnly = true)
+    public long recorrerTramos(FiltroTramos filtro, Consumer<TramoVista> consumidor) {
+        long cantidad = 0;
+        try (Stream<TramoVista> tramos = tramoRepository.streamFiltrado(0L,
+                filtro.estado(), filtro.soloPendientes(), filtro.dominio(), filtro.desde(), filtro.hasta())) {
+            Iterator<TramoVista> iterador = tramos.iterator();
+            while (iterador.hasNext()) {
+                consumidor.accept(iterador.next());
+                cantidad++;
+            }
+        }
+        return cantidad;
     }
 
     /**
@@ -301,31 +417,22 @@ public class TramoService {
     public void validarSecuenciaTramos(Long tramoId) {
         Tramo tramo = tramoRepository.findById(tramoId)
             .orElseThrow(() -> new TramoNotFoundException(tramoId));
+        validarSecuenciaTramos(tramo);
+    }
 
-        List<Tramo> tramosRuta = tramoRepository.findByRutaId(tramo.getRuta().getId());
-
-        // Ordenar tramos por ID (asumiendo que IDs mayores = tramos posteriores)
-        tramosRuta.sort((t1, t2) -> t1.getId().compareTo(t2.getId()));
-
-        // Verificar que tramos anteriores estén finalizados
-        boolean tramoEncontrado = false;
-        for (Tramo t : tramosRuta) {
-            if (t.getId().equals(tramoId)) {
-                tramoEncontrado = true;
-                break;
-            }
-
-            if (t.getEstado() != EstadoTramo.FINALIZADO) {
-                throw new IllegalStateException(
-                    "Debe finalizar el tramo " + t.getId() + " antes de iniciar el tramo " + tramoId);
-            }
-        }
-
-        if (!tramoEncontrado) {
-            throw new TramoNotFoundException(tramoId);
+    /**
+     * Verifica que los tramos anteriores (por orden) estén finalizados, con una
+     * sola consulta indexada en vez de recorrer todos los tramos de la ruta
+     */
+    private void validarSecuenciaTramos(Tramo tramo) {
+        Long pendiente = tramoRepository.buscarAnteriorSinFinalizar(
+                tramo.getRuta().getId(), tramo.getOrden(), tramo.getId());
+        if (pendiente != null) {
+            throw new IllegalStateException(
+                "Debe finalizar el tramo " + pendiente + " antes de iniciar el tramo " + tramo.getId());
         }
 
-        log.info("Secuencia de tramos validada correctamente para tramo {}", tramoId);
+        log.info("Secuencia de tramos validada correctamente para tramo {}", tramo.getId());
     }
 
     /**
@@ -343,11 +450,7 @@ public class TramoService {
         // Validar que todas las fechas sean secuenciales y coherentes
         validarSecuenciaFechas(fechasInicio, fechasFin);
 
-        // Asignar cada tramo individualmente
-        for (int i = 0; i < tramoIds.size(); i++) {
-            asignarCamionConPlanificacion(tramoIds.get(i), dominio,
-                fechasInicio.get(i), fechasFin.get(i));
-        }
+        asignarEnBloque(dominio, tramoIds, fechasInicio, fechasFin);
 
         log.info("Camión {} asignado a {} tramos consecutivos", dominio, tramoIds.size());
     }
@@ -381,6 +484,7 @@ public class TramoService {
         Tramo tramoActualizado = tramoRepository.save(tramo);
 
         log.info("Tramo {} reasignado del camión {} al camión {}", tramoId, dominioAnterior, nuevoDominio);
+        eventPublisher.publishEvent(new CamionAsignadoEvent(nuevoDominio));
 
         // Notificar a MS-FLOTA (sin cambios aquí)
         try {
@@ -401,6 +505,13 @@ public class TramoService {
         return tramoRepository.findByRutaId(rutaId);
     }
 
+    /**
+     * Tramos de una ruta para mostrar (proyección, una sola consulta)
+     */
+    public List<TramoVista> obtenerVistaPorRuta(Long rutaId) {
+        return tramoRepository.vistaPorRuta(rutaId);
+    }
+
     // Métodos helper privados
     private void validarSecuenciaFechas(List<LocalDateTime> fechasInicio, List<LocalDateTime> fechasFin) {
         for (int i = 0; i < fechasInicio.size(); i++) {
@@ -427,9 +538,9 @@ public class TramoService {
     /**
      * Notifica a MS-FLOTA sobre la asignación de un tramo a un camión
      */
-    private void notificarAsignacionAFlota(String dominio, Long tramoId) {
+    private void notificarAsignacionAFlota(String dominio, List<Long> tramoIds) {
         try {
-            flotaApiClient.notificarAsignacionMultiple(dominio, List.of(tramoId));
+            flotaApiClient.notificarAsignacionMultiple(dominio, tramoIds);
         } catch (Exception e) {
             log.error("Error en comunicación con MS-Flota: {}", e.getMessage());
             throw e; // Propagar para rollback
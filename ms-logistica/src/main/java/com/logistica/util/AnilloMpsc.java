@@ -0,0 +1,97 @@
+package com.logistica.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer circular acotado sin locks para muchos productores y un consumidor
+ * (esquema de Vyukov: cada celda lleva un número de secuencia que indica si
+ * está libre o publicada). ofrecer no bloquea: con el buffer lleno devuelve false.
+ * drenar lo llama un solo hilo por vez.
+ */
+public final class AnilloMpsc<E> {
+
+    private final int capacidad;
+    private final int mascara;
+    private final AtomicReferenceArray<E> elementos;
+    private final AtomicLongArray secuencias;
+    private final AtomicLong cola = new AtomicLong();
+    private volatile long cabeza;
+
+    /**
+     * @param capacidad se redondea a la potencia de 2 siguiente
+     */
+    public AnilloMpsc(int capacidad) {
+        if (capacidad < 2) {
+            throw new IllegalArgumentException("La capacidad debe ser al menos 2");
+        }
+        this.capacidad = Integer.highestOneBit(capacidad - 1) << 1;
+        this.mascara = this.capacidad - 1;
+        this.elementos = new AtomicReferenceArray<>(this.capacidad);
+        this.secuencias = new AtomicLongArray(this.capacidad);
+        for (int i = 0; i < this.capacidad; i++) {
+            secuencias.set(i, i);
+        }
+    }
+
+    public boolean ofrecer(E elemento) {
+        long posicion = cola.get();
+        while (true) {
+            int i = (int) (posicion & mascara);
+            long diferencia = secuencias.get(i) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    elementos.set(i, elemento);
+                    // Publica la celda para el consumidor
+                    secuencias.set(i, posicion + 1);
+                    return true;
+                }
+                posicion = cola.get();
+            } else if (diferencia < 0) {
+                // La celda todavía no la liberó el consumidor: lleno
+                return false;
+            } else {
+                // Otro productor tomó la posición
+                posicion = cola.get();
+            }
+        }
+    }
+
+    /**
+     * Mueve hasta max elementos a destino, en orden de llegada
+     *
+     * @return cantidad movida
+     */
+    public synchronized int drenar(List<E> destino, int max) {
+        long posicion = cabeza;
+        int movidos = 0;
+        while (movidos < max) {
+            int i = (int) (posicion & mascara);
+            // Vacío, o un productor tomó la celda y aún no la publicó
+            if (secuencias.get(i) != posicion + 1) {
+                break;
+            }
+            destino.add(elementos.get(i));
+            elementos.set(i, null);
+            // Libera la celda para la próxima vuelta
+            secuencias.set(i, posicion + capacidad);
+            posicion++;
+            movidos++;
+        }
+        cabeza = posicion;
+        return movidos;
+    }
+
+    public int capacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Aproximado mientras hay productores escribiendo
+     */
+    public int tamanio() {
+        return (int) Math.max(0, Math.min(capacidad, cola.get() - cabeza));
+    }
+}
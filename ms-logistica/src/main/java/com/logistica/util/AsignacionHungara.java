@@ -0,0 +1,93 @@
+package com.logistica.util;
+
+import java.util.Arrays;
+
+/**
+ * Asignación de costo mínimo (algoritmo húngaro con potenciales, O(filas² · columnas)).
+ * La matriz es un double[] plano por filas, sin objetos por celda. Requiere
+ * filas <= columnas: cada fila recibe una columna distinta.
+ * Los pares prohibidos se marcan con {@link #INVIABLE}; como el costo es tan alto,
+ * la solución primero maximiza la cantidad de pares viables y después minimiza el costo.
+ */
+public final class AsignacionHungara {
+
+    public static final double INVIABLE = 1e12;
+
+    private AsignacionHungara() {
+    }
+
+    /**
+     * @param costos   matriz filas x columnas, costos[f * columnas + c]
+     * @return para cada fila, la columna asignada (el llamador descarta las INVIABLE)
+     */
+    public static int[] resolver(double[] costos, int filas, int columnas) {
+        if (filas > columnas) {
+            throw new IllegalArgumentException("Se requieren filas <= columnas (" + filas + " > " + columnas + ")");
+        }
+        if (costos.length != filas * columnas) {
+            throw new IllegalArgumentException("La matriz no tiene " + filas + " x " + columnas + " celdas");
+        }
+
+        // Índices desde 1; la columna 0 es ficticia (raíz del camino aumentante)
+        double[] u = new double[filas + 1];
+        double[] v = new double[columnas + 1];
+        int[] filaDeColumna = new int[columnas + 1];
+        int[] previa = new int[columnas + 1];
+        double[] minimo = new double[columnas + 1];
+        boolean[] visitada = new boolean[columnas + 1];
+
+        for (int fila = 1; fila <= filas; fila++) {
+            filaDeColumna[0] = fila;
+            int actual = 0;
+            Arrays.fill(minimo, Double.POSITIVE_INFINITY);
+            Arrays.fill(visitada, false);
+
+            // Dijkstra sobre costos reducidos hasta llegar a una columna libre
+            do {
+                visitada[actual] = true;
+                int f = filaDeColumna[actual];
+                int base = (f - 1) * columnas - 1;
+                double uf = u[f];
+                double delta = Double.POSITIVE_INFINITY;
+                int siguiente = 0;
+                for (int c = 1; c <= columnas; c++) {
+                    if (!visitada[c]) {
+                        double reducido = costos[base + c] - uf - v[c];
+                        if (reducido < minimo[c]) {
+                            minimo[c] = reducido;
+                            previa[c] = actual;
+                        }
+                        if (minimo[c] < delta) {
+                            delta = minimo[c];
+                            siguiente = c;
+                        }
+                    }
+                }
+                for (int c = 0; c <= columnas; c++) {
+                    if (visitada[c]) {
+                        u[filaDeColumna[c]] += delta;
+                        v[c] -= delta;
+                    } else {
+                        minimo[c] -= delta;
+                    }
+                }
+                actual = siguiente;
+            } while (filaDeColumna[actual] != 0);
+
+            // Invertir el camino aumentante
+            do {
+                int anterior = previa[actual];
+                filaDeColumna[actual] = filaDeColumna[anterior];
+                actual = anterior;
+            } while (actual != 0);
+        }
+
+        int[] asignacion = new int[filas];
+        for (int c = 1; c <= columnas; c++) {
+            if (filaDeColumna[c] != 0) {
+                asignacion[filaDeColumna[c] - 1] = c - 1;
+            }
+        }
+        return asignacion;
+    }
+}
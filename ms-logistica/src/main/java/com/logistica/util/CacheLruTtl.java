@@ -0,0 +1,114 @@
+package com.logistica.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache en memoria acotada por cantidad de entradas (LRU) y con vencimiento por TTL.
+ * Registra contadores de aciertos, fallos y desalojos.
+ */
+public class CacheLruTtl<K, V> {
+
+    private final int maxEntradas;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    public CacheLruTtl(int maxEntradas, long ttlSegundos) {
+        this.maxEntradas = maxEntradas;
+        this.ttlNanos = ttlSegundos * 1_000_000_000L;
+        // accessOrder = true: el más antiguo es el menos usado recientemente
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                if (size() > CacheLruTtl.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K clave) {
+        Entrada<V> entrada = entradas.get(clave);
+        if (entrada == null) {
+            fallos.incrementAndGet();
+            return null;
+        }
+        if (entrada.vence() - System.nanoTime() < 0) {
+            entradas.remove(clave);
+            desalojos.incrementAndGet();
+            fallos.incrementAndGet();
+            return null;
+        }
+        aciertos.incrementAndGet();
+        return entrada.valor();
+    }
+
+    /**
+     * Consulta sin afectar los contadores (para decidir si hace falta ir al origen).
+     */
+    public synchronized boolean contiene(K clave) {
+        Entrada<V> entrada = entradas.get(clave);
+        return entrada != null && entrada.vence() - System.nanoTime() >= 0;
+    }
+
+    public synchronized void put(K clave, V valor) {
+        entradas.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidar(K clave) {
+        entradas.remove(clave);
+    }
+
+    /**
+     * Elimina todas las entradas cuya clave cumpla la condición
+     *
+     * @return cantidad de entradas eliminadas
+     */
+    public synchronized int invalidarSi(Predicate<K> condicion) {
+        int eliminadas = 0;
+        Iterator<K> it = entradas.keySet().iterator();
+        while (it.hasNext()) {
+            if (condicion.test(it.next())) {
+                it.remove();
+                eliminadas++;
+            }
+        }
+        return eliminadas;
+    }
+
+    public synchronized void limpiar() {
+        entradas.clear();
+    }
+
+    public synchronized int tamanio() {
+        return entradas.size();
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getDesalojos() {
+        return desalojos.get();
+    }
+
+    public int getMaxEntradas() {
+        return maxEntradas;
+    }
+
+    private record Entrada<V>(V valor, long vence) {
+    }
+}
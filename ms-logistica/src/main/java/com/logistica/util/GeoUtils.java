@@ -0,0 +1,24 @@
+package com.logistica.util;
+
+/**
+ * Cálculos geográficos simples sobre coordenadas en grados
+ */
+public final class GeoUtils {
+
+    public static final double RADIO_TIERRA_KM = 6371.0088;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Distancia en línea recta (gran círculo) entre dos puntos, en kilómetros
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
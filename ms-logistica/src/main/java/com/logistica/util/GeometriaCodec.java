@@ -0,0 +1,261 @@
+package com.logistica.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Codificación compacta de trazados. Las coordenadas van como enteros en
+ * millonésimas de grado (E6, ~11 cm) y se guardan como diferencias con el punto
+ * anterior en zig-zag + varint: un tramo vial típico ocupa 2 a 4 bytes por punto.
+ * También codifica/decodifica el formato polyline de Google (el que devuelve OSRM
+ * con geometries=polyline6) y calcula niveles de simplificación Douglas-Peucker.
+ */
+public final class GeometriaCodec {
+
+    private static final double METROS_POR_GRADO_LAT = 110_540;
+    private static final double METROS_POR_GRADO_LON = 111_320;
+
+    private GeometriaCodec() {
+    }
+
+    /**
+     * Trazado en E6; latE6[i], lonE6[i] es el punto i
+     */
+    public record Puntos(int[] latE6, int[] lonE6) {
+        public int size() {
+            return latE6.length;
+        }
+    }
+
+    // ---------- varint ----------
+
+    public static byte[] codificar(Puntos puntos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(puntos.size() * 4 + 4);
+        escribirVarint(salida, puntos.size());
+        int latAnterior = 0;
+        int lonAnterior = 0;
+        for (int i = 0; i < puntos.size(); i++) {
+            escribirVarint(salida, zigZag(puntos.latE6()[i] - latAnterior));
+            escribirVarint(salida, zigZag(puntos.lonE6()[i] - lonAnterior));
+            latAnterior = puntos.latE6()[i];
+            lonAnterior = puntos.lonE6()[i];
+        }
+        return salida.toByteArray();
+    }
+
+    public static Puntos decodificar(byte[] datos) {
+        int[] posicion = {0};
+        int cantidad = leerVarint(datos, posicion);
+        int[] lat = new int[cantidad];
+        int[] lon = new int[cantidad];
+        int latActual = 0;
+        int lonActual = 0;
+        for (int i = 0; i < cantidad; i++) {
+            latActual += desZigZag(leerVarint(datos, posicion));
+            lonActual += desZigZag(leerVarint(datos, posicion));
+            lat[i] = latActual;
+            lon[i] = lonActual;
+        }
+        return new Puntos(lat, lon);
+    }
+
+    private static int zigZag(int valor) {
+        return (valor << 1) ^ (valor >> 31);
+    }
+
+    private static int desZigZag(int valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            salida.write((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        salida.write(valor);
+    }
+
+    private static int leerVarint(byte[] datos, int[] posicion) {
+        int valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = datos[posicion[0]++];
+            valor |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return valor;
+    }
+
+    // ---------- polyline de Google ----------
+
+    /**
+     * @param precision decimales: 5 para el formato clásico, 6 para polyline6
+     */
+    public static String codificarPolyline(Puntos puntos, int precision) {
+        StringBuilder sb = new StringBuilder(puntos.size() * 8);
+        long latAnterior = 0;
+        long lonAnterior = 0;
+        for (int i = 0; i < puntos.size(); i++) {
+            long lat = desdeE6(puntos.latE6()[i], precision);
+            long lon = desdeE6(puntos.lonE6()[i], precision);
+            escribirPolyline(sb, lat - latAnterior);
+            escribirPolyline(sb, lon - lonAnterior);
+            latAnterior = lat;
+            lonAnterior = lon;
+        }
+        return sb.toString();
+    }
+
+    public static Puntos decodificarPolyline(String polyline, int precision) {
+        int[] lat = new int[polyline.length() / 2 + 1];
+        int[] lon = new int[lat.length];
+        int cantidad = 0;
+        int[] posicion = {0};
+        long latActual = 0;
+        long lonActual = 0;
+        while (posicion[0] < polyline.length()) {
+            latActual += leerPolyline(polyline, posicion);
+            lonActual += leerPolyline(polyline, posicion);
+            lat[cantidad] = aE6(latActual, precision);
+            lon[cantidad] = aE6(lonActual, precision);
+            cantidad++;
+        }
+        return new Puntos(Arrays.copyOf(lat, cantidad), Arrays.copyOf(lon, cantidad));
+    }
+
+    private static void escribirPolyline(StringBuilder sb, long valor) {
+        long v = valor < 0 ? ~(valor << 1) : valor << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1F)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    private static long leerPolyline(String polyline, int[] posicion) {
+        long resultado = 0;
+        int desplazamiento = 0;
+        int b;
+        do {
+            b = polyline.charAt(posicion[0]++) - 63;
+            resultado |= (long) (b & 0x1F) << desplazamiento;
+            desplazamiento += 5;
+        } while (b >= 0x20);
+        return (resultado & 1) != 0 ? ~(resultado >> 1) : resultado >> 1;
+    }
+
+    private static long desdeE6(int e6, int precision) {
+        return precision >= 6 ? (long) e6 * pow10(precision - 6) : Math.round(e6 / (double) pow10(6 - precision));
+    }
+
+    private static int aE6(long valor, int precision) {
+        return (int) (precision >= 6 ? Math.round(valor / (double) pow10(precision - 6)) : valor * pow10(6 - precision));
+    }
+
+    private static long pow10(int n) {
+        long r = 1;
+        for (int i = 0; i < n; i++) {
+            r *= 10;
+        }
+        return r;
+    }
+
+    // ---------- Douglas-Peucker por niveles ----------
+
+    /**
+     * Nivel de detalle de cada punto: el punto i aparece en los niveles >= niveles[i].
+     * tolerancias va de la más gruesa a la más fina; cada nivel refina los segmentos
+     * del anterior, así los niveles quedan anidados. Los extremos son nivel 0 y los
+     * puntos que ningún nivel necesita quedan en tolerancias.length (trazado completo).
+     */
+    public static byte[] niveles(Puntos puntos, double[] toleranciasMetros) {
+        int n = puntos.size();
+        byte[] niveles = new byte[n];
+        Arrays.fill(niveles, (byte) toleranciasMetros.length);
+        if (n == 0) {
+            return niveles;
+        }
+        niveles[0] = 0;
+        niveles[n - 1] = 0;
+
+        // Proyección equirectangular local: suficiente para distancias de un tramo
+        double cosLat = Math.cos(Math.toRadians(puntos.latE6()[0] / 1e6));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = puntos.lonE6()[i] / 1e6 * METROS_POR_GRADO_LON * cosLat;
+            y[i] = puntos.latE6()[i] / 1e6 * METROS_POR_GRADO_LAT;
+        }
+
+        int[] pila = new int[2 * n];
+        for (int nivel = 0; nivel < toleranciasMetros.length; nivel++) {
+            double tolerancia = toleranciasMetros[nivel];
+            // Segmentos entre puntos consecutivos que ya están en niveles anteriores
+            int tope = 0;
+            int anterior = 0;
+            for (int i = 1; i < n; i++) {
+                if (niveles[i] < nivel || i == n - 1) {
+                    if (i - anterior > 1) {
+                        pila[tope++] = anterior;
+                        pila[tope++] = i;
+                    }
+                    anterior = i;
+                }
+            }
+            // Douglas-Peucker iterativo (sin recursión: los trazados largos tienen miles de puntos)
+            while (tope > 0) {
+                int fin = pila[--tope];
+                int inicio = pila[--tope];
+                int peor = -1;
+                double peorDistancia = tolerancia;
+                for (int i = inicio + 1; i < fin; i++) {
+                    double d = distanciaASegmento(x[i], y[i], x[inicio], y[inicio], x[fin], y[fin]);
+                    if (d > peorDistancia) {
+                        peorDistancia = d;
+                        peor = i;
+                    }
+                }
+                if (peor >= 0) {
+                    niveles[peor] = (byte) nivel;
+                    if (peor - inicio > 1) {
+                        pila[tope++] = inicio;
+                        pila[tope++] = peor;
+                    }
+                    if (fin - peor > 1) {
+                        pila[tope++] = peor;
+                        pila[tope++] = fin;
+                    }
+                }
+            }
+        }
+        return niveles;
+    }
+
+    /**
+     * Puntos presentes en el nivel pedido
+     */
+    public static Puntos filtrar(Puntos puntos, byte[] niveles, int nivel) {
+        int[] lat = new int[puntos.size()];
+        int[] lon = new int[puntos.size()];
+        int cantidad = 0;
+        for (int i = 0; i < puntos.size(); i++) {
+            if (niveles[i] <= nivel) {
+                lat[cantidad] = puntos.latE6()[i];
+                lon[cantidad] = puntos.lonE6()[i];
+                cantidad++;
+            }
+        }
+        return new Puntos(Arrays.copyOf(lat, cantidad), Arrays.copyOf(lon, cantidad));
+    }
+
+    private static double distanciaASegmento(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double largo2 = dx * dx + dy * dy;
+        double t = largo2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / largo2));
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return Math.sqrt(cx * cx + cy * cy);
+    }
+}
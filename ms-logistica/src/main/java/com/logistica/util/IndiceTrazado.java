@@ -0,0 +1,221 @@
+package com.logistica.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice espacial (grilla regular en metros) sobre los segmentos de un trazado,
+ * para proyectar una posición GPS sobre la ruta sin recorrer todos los segmentos.
+ * Es inmutable: se arma una vez por tramo y lo leen muchos hilos a la vez.
+ */
+public final class IndiceTrazado {
+
+    private static final double METROS_POR_GRADO_LAT = 110_540;
+    private static final double METROS_POR_GRADO_LON = 111_320;
+
+    private final double cosLat;
+    private final double[] x;
+    private final double[] y;
+    private final double[] acumulado; // metros desde el inicio hasta el punto i
+    private final double celdaMetros;
+    private final Map<Long, int[]> segmentosPorCelda;
+
+    /**
+     * Dónde cae una posición sobre el trazado
+     *
+     * @param recorridoMetros distancia a lo largo del trazado hasta el punto proyectado
+     * @param desvioMetros    distancia entre la posición y el trazado
+     */
+    public record Proyeccion(double recorridoMetros, double largoMetros, double desvioMetros) {
+        public double progreso() {
+            return largoMetros > 0 ? Math.min(1, recorridoMetros / largoMetros) : 1;
+        }
+    }
+
+    public IndiceTrazado(GeometriaCodec.Puntos puntos, double celdaMetros) {
+        int n = puntos.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("El trazado necesita al menos dos puntos");
+        }
+        this.celdaMetros = celdaMetros;
+        this.cosLat = Math.cos(Math.toRadians(puntos.latE6()[0] / 1e6));
+        this.x = new double[n];
+        this.y = new double[n];
+        this.acumulado = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = puntos.lonE6()[i] / 1e6 * METROS_POR_GRADO_LON * cosLat;
+            y[i] = puntos.latE6()[i] / 1e6 * METROS_POR_GRADO_LAT;
+            if (i > 0) {
+                acumulado[i] = acumulado[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+            }
+        }
+
+        // Cada segmento se registra sólo en las celdas que atraviesa (no en todo su
+        // rectángulo envolvente: una recta larga en diagonal ocuparía miles de celdas)
+        Map<Long, List<Integer>> celdas = new HashMap<>();
+        for (int s = 0; s + 1 < n; s++) {
+            registrar(s, celdas);
+        }
+        Map<Long, int[]> compactas = new HashMap<>(celdas.size() * 2);
+        celdas.forEach((clave, segmentos) ->
+                compactas.put(clave, segmentos.stream().mapToInt(Integer::intValue).toArray()));
+        this.segmentosPorCelda = compactas;
+    }
+
+    public double largoMetros() {
+        return acumulado[acumulado.length - 1];
+    }
+
+    public int cantidadSegmentos() {
+        return x.length - 1;
+    }
+
+    public int cantidadCeldas() {
+        return segmentosPorCelda.size();
+    }
+
+    /**
+     * Proyecta la posición sobre el segmento más cercano. Busca en anillos de celdas
+     * crecientes hasta radioMaximoMetros; más lejos, recorre todos los segmentos.
+     */
+    public Proyeccion proyectar(double lat, double lon, double radioMaximoMetros) {
+        return proyectar(lat, lon, radioMaximoMetros, 0, largoMetros());
+    }
+
+    /**
+     * Igual que {@link #proyectar(double, double, double)} pero sólo con los segmentos
+     * que tienen algún punto entre desdeMetros y hastaMetros del recorrido (evita
+     * enganchar la posición en otra pasada del trazado por el mismo lugar)
+     */
+    public Proyeccion proyectar(double lat, double lon, double radioMaximoMetros,
+            double desdeMetros, double hastaMetros) {
+        int primero = primerSegmento(desdeMetros);
+        int ultimo = ultimoSegmento(hastaMetros);
+        double px = lon * METROS_POR_GRADO_LON * cosLat;
+        double py = lat * METROS_POR_GRADO_LAT;
+        int cx = celda(px);
+        int cy = celda(py);
+        int anillos = (int) Math.ceil(radioMaximoMetros / celdaMetros);
+
+        double[] mejor = {Double.POSITIVE_INFINITY, 0};
+        for (int r = 0; r <= anillos; r++) {
+            for (int i = cx - r; i <= cx + r; i++) {
+                for (int j = cy - r; j <= cy + r; j++) {
+                    // Sólo el borde del anillo: el interior ya se revisó
+                    if (Math.max(Math.abs(i - cx), Math.abs(j - cy)) != r) {
+                        continue;
+                    }
+                    int[] segmentos = segmentosPorCelda.get(clave(i, j));
+                    if (segmentos != null) {
+                        for (int s : segmentos) {
+                            if (s >= primero && s <= ultimo) {
+                                evaluar(s, px, py, mejor);
+                            }
+                        }
+                    }
+                }
+            }
+            // Un segmento a más de r celdas no puede estar más cerca que lo encontrado
+            if (mejor[0] <= r * celdaMetros) {
+                break;
+            }
+        }
+        // Lejos del trazado el mejor encontrado puede no ser el más cercano
+        if (mejor[0] > anillos * celdaMetros) {
+            for (int s = primero; s <= ultimo; s++) {
+                evaluar(s, px, py, mejor);
+            }
+        }
+        return new Proyeccion(mejor[1], largoMetros(), mejor[0]);
+    }
+
+    // Primer segmento que termina en desdeMetros o después
+    private int primerSegmento(double desdeMetros) {
+        int i = Arrays.binarySearch(acumulado, desdeMetros);
+        int punto = i >= 0 ? i : -i - 1;
+        return Math.min(Math.max(0, punto - 1), cantidadSegmentos() - 1);
+    }
+
+    // Último segmento que empieza en hastaMetros o antes
+    private int ultimoSegmento(double hastaMetros) {
+        int i = Arrays.binarySearch(acumulado, hastaMetros);
+        int punto = i >= 0 ? i : -i - 2;
+        return Math.max(0, Math.min(punto, cantidadSegmentos() - 1));
+    }
+
+    private void evaluar(int s, double px, double py, double[] mejor) {
+        double dx = x[s + 1] - x[s];
+        double dy = y[s + 1] - y[s];
+        double largo2 = dx * dx + dy * dy;
+        double t = largo2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - x[s]) * dx + (py - y[s]) * dy) / largo2));
+        double distancia = Math.hypot(x[s] + t * dx - px, y[s] + t * dy - py);
+        if (distancia < mejor[0]) {
+            mejor[0] = distancia;
+            mejor[1] = acumulado[s] + t * Math.sqrt(largo2);
+        }
+    }
+
+    /**
+     * Recorre la grilla a lo largo del segmento (Amanatides-Woo) y lo agrega a cada
+     * celda que toca. Si pasa justo por una esquina se agregan también las dos vecinas.
+     */
+    private void registrar(int s, Map<Long, List<Integer>> celdas) {
+        double x0 = x[s];
+        double y0 = y[s];
+        double dx = x[s + 1] - x0;
+        double dy = y[s + 1] - y0;
+        int cx = celda(x0);
+        int cy = celda(y0);
+        int fx = celda(x[s + 1]);
+        int fy = celda(y[s + 1]);
+        int pasoX = Integer.signum(fx - cx);
+        int pasoY = Integer.signum(fy - cy);
+        // Fracción del segmento hasta el próximo borde vertical/horizontal y entre bordes
+        double proximoX = pasoX == 0 ? Double.POSITIVE_INFINITY
+                : ((pasoX > 0 ? cx + 1 : cx) * celdaMetros - x0) / dx;
+        double proximoY = pasoY == 0 ? Double.POSITIVE_INFINITY
+                : ((pasoY > 0 ? cy + 1 : cy) * celdaMetros - y0) / dy;
+        double deltaX = pasoX == 0 ? Double.POSITIVE_INFINITY : celdaMetros / Math.abs(dx);
+        double deltaY = pasoY == 0 ? Double.POSITIVE_INFINITY : celdaMetros / Math.abs(dy);
+
+        agregar(celdas, cx, cy, s);
+        while (cx != fx || cy != fy) {
+            if (cx == fx) {
+                cy += pasoY;
+                proximoY += deltaY;
+            } else if (cy == fy) {
+                cx += pasoX;
+                proximoX += deltaX;
+            } else if (proximoX < proximoY) {
+                cx += pasoX;
+                proximoX += deltaX;
+            } else if (proximoY < proximoX) {
+                cy += pasoY;
+                proximoY += deltaY;
+            } else {
+                agregar(celdas, cx + pasoX, cy, s);
+                agregar(celdas, cx, cy + pasoY, s);
+                cx += pasoX;
+                cy += pasoY;
+                proximoX += deltaX;
+                proximoY += deltaY;
+            }
+            agregar(celdas, cx, cy, s);
+        }
+    }
+
+    private static void agregar(Map<Long, List<Integer>> celdas, int cx, int cy, int s) {
+        celdas.computeIfAbsent(clave(cx, cy), c -> new ArrayList<>()).add(s);
+    }
+
+    private int celda(double metros) {
+        return (int) Math.floor(metros / celdaMetros);
+    }
+
+    private static long clave(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
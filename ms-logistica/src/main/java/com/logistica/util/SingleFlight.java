@@ -0,0 +1,52 @@
+package com.logistica.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas concurrentes con la misma clave: la primera ejecuta el
+ * cálculo y las que llegan mientras está en curso esperan y reciben el mismo
+ * resultado (o la misma excepción). Al terminar la clave se libera.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> enCurso = new ConcurrentHashMap<>();
+
+    public V ejecutar(K clave, Supplier<V> calculo) {
+        CompletableFuture<V> propio = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(clave, propio);
+        if (existente != null) {
+            return esperar(existente);
+        }
+        try {
+            V resultado = calculo.get();
+            propio.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propio);
+        }
+    }
+
+    public int enCurso() {
+        return enCurso.size();
+    }
+
+    private V esperar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+}
@@ -5,8 +5,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.client.routing.OsrmHttpRoutingEngine;
+import com.logistica.exception.LogisticaException;
 
 import java.util.List;
 
@@ -21,27 +28,33 @@ class OsrmClient2Test {
     private RestClient restClient;
 
     @Mock
-    private RestClient.RequestHeadersUriSpec requestHeadersUriSpec;
+    private RestClient.RequestHeadersUriSpec<?> requestHeadersUriSpec;
 
     @Mock
-    private RestClient.RequestHeadersSpec requestHeadersSpec;
+    private RestClient.RequestHeadersSpec<?> requestHeadersSpec;
 
     @Mock
     private RestClient.ResponseSpec responseSpec;
 
     private OsrmClient2 osrmClient;
+    private OsrmResiliencia resiliencia;
 
     @BeforeEach
     void setUp() {
-        osrmClient = new OsrmClient2("http://localhost:5000");
-        ReflectionTestUtils.setField(osrmClient, "restClient", restClient);
+        OsrmHttpRoutingEngine motor = new OsrmHttpRoutingEngine("http://localhost:5000", 1000, 5000);
+        ReflectionTestUtils.setField(motor, "restClient", restClient);
+        resiliencia = new OsrmResiliencia(2, 30, false, 50, null);
+        osrmClient = new OsrmClient2(motor,
+                new OsrmLegCache(4, 100, 3600),
+                resiliencia,
+                new EstimadorDistanciaOffline(1.3, 35, 75, 30));
     }
 
     @Test
     void testGetAlternativeRoutes() {
         // Mocking the chain
-        when(restClient.get()).thenReturn(requestHeadersUriSpec);
-        when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
+        doReturn(requestHeadersUriSpec).when(restClient).get();
+        doReturn(requestHeadersSpec).when(requestHeadersUriSpec).uri(anyString());
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
 
         // Prepare response
@@ -75,8 +88,8 @@ class OsrmClient2Test {
     @Test
     void testCalcularDistancia() {
         // Mocking the chain
-        when(restClient.get()).thenReturn(requestHeadersUriSpec);
-        when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
+        doReturn(requestHeadersUriSpec).when(restClient).get();
+        doReturn(requestHeadersSpec).when(requestHeadersUriSpec).uri(anyString());
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
 
         // Prepare response
@@ -96,4 +109,119 @@ class OsrmClient2Test {
         assertEquals(5.0, result.getDistanceKm(), 0.001);
         assertEquals(300.0, result.getDurationSeconds(), 0.001);
     }
+
+    @Test
+    void testCalcularDistanciaUsaCache() {
+        doReturn(requestHeadersUriSpec).when(restClient).get();
+        doReturn(requestHeadersSpec).when(requestHeadersUriSpec).uri(anyString());
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+
+        OsrmDistanceResponse mockResponse = new OsrmDistanceResponse();
+        OsrmDistanceResponse.Route route1 = new OsrmDistanceResponse.Route();
+        route1.setDistance(5000);
+        route1.setDuration(300);
+        mockResponse.setRoutes(List.of(route1));
+
+        when(responseSpec.body(OsrmDistanceResponse.class)).thenReturn(mockResponse);
+
+        // Segunda consulta con coordenadas que redondean a la misma clave
+        osrmClient.calcularDistancia(1.0, 1.0, 2.0, 2.0);
+        OsrmDistanceResponse result = osrmClient.calcularDistancia(1.00001, 1.0, 2.0, 2.00002);
+
+        assertEquals(5.0, result.getDistanceKm(), 0.001);
+        assertEquals(300.0, result.getDurationSeconds(), 0.001);
+        verify(restClient, times(1)).get();
+    }
+
+    @Test
+    void testCalcularTramosUnaSolaConsulta() {
+        doReturn(requestHeadersUriSpec).when(restClient).get();
+        doReturn(requestHeadersSpec).when(requestHeadersUriSpec).uri(anyString());
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+
+        OsrmDistanceResponse.Leg leg1 = new OsrmDistanceResponse.Leg();
+        leg1.setDistance(2000);
+        leg1.setDuration(120);
+        OsrmDistanceResponse.Leg leg2 = new OsrmDistanceResponse.Leg();
+        leg2.setDistance(3000);
+        leg2.setDuration(180);
+        OsrmDistanceResponse.Route route = new OsrmDistanceResponse.Route();
+        route.setDistance(5000);
+        route.setDuration(300);
+        route.setLegs(List.of(leg1, leg2));
+        OsrmDistanceResponse mockResponse = new OsrmDistanceResponse();
+        mockResponse.setRoutes(List.of(route));
+
+        when(responseSpec.body(OsrmDistanceResponse.class)).thenReturn(mockResponse);
+
+        List<Coordenada> puntos = List.of(new Coordenada(1.0, 1.0), new Coordenada(1.5, 1.5), new Coordenada(2.0, 2.0));
+        List<OsrmDistanceResponse> tramos = osrmClient.calcularTramos(puntos);
+
+        assertEquals(2, tramos.size());
+        assertEquals(2.0, tramos.get(0).getDistanceKm(), 0.001);
+        assertEquals(180.0, tramos.get(1).getDurationSeconds(), 0.001);
+
+        // Los legs quedan en cache: la segunda vez no se consulta OSRM
+        osrmClient.calcularTramos(puntos);
+        osrmClient.calcularDistancia(1.5, 1.5, 2.0, 2.0);
+        verify(restClient, times(1)).get();
+    }
+
+    @Test
+    void testCircuitoAbiertoUsaEstimacionAproximada() {
+        when(restClient.get()).thenThrow(new ResourceAccessException("Connection refused"));
+
+        // Dos fallos abren el circuito; la tercera consulta ya no llama a OSRM
+        OsrmDistanceResponse primera = osrmClient.calcularDistancia(-31.4, -64.2, -31.5, -64.3);
+        osrmClient.calcularDistancia(-31.4, -64.2, -32.0, -64.0);
+        OsrmDistanceResponse tercera = osrmClient.calcularDistancia(-31.4, -64.2, -33.0, -64.0);
+
+        assertTrue(primera.isAproximada());
+        assertTrue(tercera.isAproximada());
+        assertTrue(primera.getDistanceKm() > 0);
+        assertTrue(primera.getDurationSeconds() > 0);
+        verify(restClient, times(2)).get();
+
+        // Las estimaciones no se guardan en cache
+        assertTrue(osrmClient.calcularDistancia(-31.4, -64.2, -31.5, -64.3).isAproximada());
+    }
+
+    @Test
+    void test5xxCuentaParaElCircuito() {
+        when(restClient.get()).thenThrow(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY,
+                "Bad Gateway", null, null, null));
+
+        assertTrue(osrmClient.calcularDistancia(-31.4, -64.2, -31.5, -64.3).isAproximada());
+        assertTrue(osrmClient.calcularDistancia(-31.4, -64.2, -32.0, -64.0).isAproximada());
+
+        assertEquals(OsrmResiliencia.Estado.ABIERTO, resiliencia.getEstado());
+    }
+
+    @Test
+    void test4xxSePropagaSinAbrirElCircuito() {
+        when(restClient.get()).thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST,
+                "Bad Request", null, "{\"code\":\"InvalidQuery\"}".getBytes(), null));
+
+        LogisticaException error = assertThrows(LogisticaException.class,
+                () -> osrmClient.calcularDistancia(-31.4, -64.2, -31.5, -64.3));
+        assertTrue(error.getMessage().contains("InvalidQuery"));
+        assertThrows(LogisticaException.class,
+                () -> osrmClient.calcularTramos(List.of(new Coordenada(1.0, 1.0), new Coordenada(2.0, 2.0))));
+        assertThrows(LogisticaException.class, () -> osrmClient.getAlternativeRoutes(1.0, 1.0, 2.0, 2.0));
+
+        assertEquals(OsrmResiliencia.Estado.CERRADO, resiliencia.getEstado());
+        verify(restClient, times(3)).get();
+    }
+
+    @Test
+    void testErrorDeProgramacionNoSeTapaConEstimacion() {
+        when(restClient.get()).thenThrow(new NullPointerException("uri nula"));
+
+        assertThrows(NullPointerException.class, () -> osrmClient.calcularDistancia(-31.4, -64.2, -31.5, -64.3));
+        assertThrows(NullPointerException.class, () -> osrmClient.calcularDistancia(-31.4, -64.2, -32.0, -64.0));
+        assertThrows(NullPointerException.class, () -> osrmClient.calcularGeometria(
+                new Coordenada(-31.4, -64.2), new Coordenada(-31.5, -64.3)));
+
+        assertEquals(OsrmResiliencia.Estado.CERRADO, resiliencia.getEstado());
+    }
 }
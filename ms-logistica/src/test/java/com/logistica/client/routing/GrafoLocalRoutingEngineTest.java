@@ -0,0 +1,78 @@
+package com.logistica.client.routing;
+
+import com.logistica.client.OsrmDistanceResponse;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.client.dto.Coordenada;
+import com.logistica.exception.LogisticaException;
+import com.logistica.util.GeometriaCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrafoLocalRoutingEngineTest {
+
+    @TempDir
+    Path tmp;
+
+    private GrafoLocalRoutingEngine motor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 0 - 1 - 2 camino corto pero lento; 0 - 3 - 2 más largo y rápido; 4 aislado
+        double[] lat = {-31.40, -31.40, -31.40, -31.41, -31.50};
+        double[] lon = {-64.20, -64.19, -64.18, -64.19, -64.50};
+        int[] origen =    {0, 1, 1, 2, 0, 3, 3, 2};
+        int[] destino =   {1, 0, 2, 1, 3, 0, 2, 3};
+        float[] metros =  {1000, 1000, 1000, 1000, 1500, 1500, 1500, 1500};
+        float[] segundos = {100, 100, 100, 100, 40, 40, 40, 40};
+        Path archivo = tmp.resolve("grafo.grf");
+        GrafoVial.escribir(archivo, lat, lon, origen, destino, metros, segundos);
+
+        motor = new GrafoLocalRoutingEngine(GrafoVial.abrir(archivo), 5, 20, 0.05, 2);
+    }
+
+    @Test
+    void testRutaEligeElCaminoMasRapido() {
+        OsrmDistanceResponse ruta = motor.ruta(List.of(new Coordenada(-31.40, -64.20), new Coordenada(-31.40, -64.18)));
+
+        assertEquals(3.0, ruta.getDistanceKm(), 0.001);
+        assertEquals(80.0, ruta.getDurationSeconds(), 0.001);
+        assertEquals(1, ruta.getRoutes().get(0).getLegs().size());
+    }
+
+    @Test
+    void testTablaMarcaInalcanzablesConNull() {
+        List<Coordenada> puntos = List.of(new Coordenada(-31.40, -64.20), new Coordenada(-31.40, -64.19),
+                new Coordenada(-31.50, -64.50));
+
+        OsrmTableResponse tabla = motor.tabla(puntos, List.of(0), List.of(1, 2));
+
+        assertEquals(1000.0, tabla.getDistances()[0][0], 0.001);
+        assertEquals(100.0, tabla.getDurations()[0][0], 0.001);
+        assertNull(tabla.getDistances()[0][1]);
+    }
+
+    @Test
+    void testAjusteAlNodoMasCercano() {
+        assertEquals(1, motor.nodoMasCercano(-31.4005, -64.1905));
+        assertEquals(-1, motor.nodoMasCercano(-40.0, -60.0));
+        assertThrows(LogisticaException.class,
+                () -> motor.ruta(List.of(new Coordenada(-40.0, -60.0), new Coordenada(-31.40, -64.18))));
+    }
+
+    @Test
+    void testTrazadoSigueLosNodosDelCamino() {
+        OsrmDistanceResponse ruta = motor.rutaConGeometria(new Coordenada(-31.40, -64.20), new Coordenada(-31.40, -64.18));
+
+        assertEquals(80.0, ruta.getDurationSeconds(), 0.001);
+        GeometriaCodec.Puntos puntos = GeometriaCodec.decodificarPolyline(ruta.getRoutes().get(0).getGeometry(), 6);
+        // Origen, nodos 0 - 3 - 2 (el camino rápido, no la recta por 1) y destino
+        assertArrayEquals(new int[]{-31_400_000, -31_400_000, -31_410_000, -31_400_000, -31_400_000}, puntos.latE6());
+        assertArrayEquals(new int[]{-64_200_000, -64_200_000, -64_190_000, -64_180_000, -64_180_000}, puntos.lonE6());
+    }
+}
@@ -0,0 +1,176 @@
+package com.logistica.config;
+
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmLegCache;
+import com.logistica.client.OsrmResiliencia;
+import com.logistica.controller.LogisticaController;
+import com.logistica.dto.mapper.DepositoMapper;
+import com.logistica.dto.mapper.RutaMapper;
+import com.logistica.dto.mapper.TarifaMapper;
+import com.logistica.dto.mapper.TramoMapper;
+import com.logistica.dto.response.ProgresoTramoResponse;
+import com.logistica.service.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(LogisticaController.class)
+@Import(SecurityConfig.class)
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+    @MockitoBean
+    private CamionInfoCache camionInfoCache;
+    @MockitoBean
+    private TramoService tramoService;
+    @MockitoBean
+    private RutaService rutaService;
+    @MockitoBean
+    private DepositoService depositoService;
+    @MockitoBean
+    private TarifaService tarifaService;
+    @MockitoBean
+    private TramoMapper tramoMapper;
+    @MockitoBean
+    private TarifaMapper tarifaMapper;
+    @MockitoBean
+    private DepositoMapper depositoMapper;
+    @MockitoBean
+    private RutaMapper rutaMapper;
+    @MockitoBean
+    private OsrmLegCache osrmLegCache;
+    @MockitoBean
+    private OsrmClient2 osrmClient;
+    @MockitoBean
+    private OsrmResiliencia osrmResiliencia;
+    @MockitoBean
+    private OptimizadorRutaService optimizadorRutaService;
+    @MockitoBean
+    private PlanificacionLoteService planificacionLoteService;
+    @MockitoBean
+    private PlanificacionRutaService planificacionRutaService;
+    @MockitoBean
+    private AsignacionOptimaService asignacionOptimaService;
+    @MockitoBean
+    private EstadiaDepositoService estadiaDepositoService;
+    @MockitoBean
+    private GeometriaTramoService geometriaTramoService;
+    @MockitoBean
+    private SeguimientoService seguimientoService;
+
+    private void token(String valor, String... roles) {
+        token(valor, Map.of(), roles);
+    }
+
+    private void token(String valor, Map<String, Object> claims, String... roles) {
+        Jwt jwt = Jwt.withTokenValue(valor)
+                .header("alg", "none")
+                .subject("usuario-" + valor)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(300))
+                .claim("realm_access", Map.of("roles", List.of(roles)))
+                .claims(c -> c.putAll(claims))
+                .build();
+        when(jwtDecoder.decode(valor)).thenReturn(jwt);
+    }
+
+    @Test
+    void testCacheDeCamionesSoloParaOperador() throws Exception {
+        token("cliente", "CLIENTE");
+        token("transportista", "TRANSPORTISTA");
+        token("operador", "OPERADOR");
+
+        for (String usuario : List.of("cliente", "transportista")) {
+            mockMvc.perform(post("/api/v1/camiones/AB123CD/actualizado").header("Authorization", "Bearer " + usuario))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(post("/api/v1/camiones/cache/precargar").header("Authorization", "Bearer " + usuario))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(get("/api/v1/camiones/cache").header("Authorization", "Bearer " + usuario))
+                    .andExpect(status().isForbidden());
+        }
+        mockMvc.perform(post("/api/v1/camiones/AB123CD/actualizado"))
+                .andExpect(status().isUnauthorized());
+        verifyNoInteractions(camionInfoCache);
+
+        mockMvc.perform(post("/api/v1/camiones/AB123CD/actualizado").header("Authorization", "Bearer operador"))
+                .andExpect(status().isNoContent());
+        verify(camionInfoCache).invalidar("AB123CD");
+        mockMvc.perform(get("/api/v1/camiones/cache").header("Authorization", "Bearer operador"))
+                .andExpect(status().isOk());
+        verify(tramoService, never()).obtenerDominiosEnUso();
+        verify(camionInfoCache, never()).precargar(anyList());
+        verify(jwtDecoder, atLeastOnce()).decode(anyString());
+    }
+
+    @Test
+    void testPosicionesSoloDelTransportistaDelCamionOOperador() throws Exception {
+        token("cliente", "CLIENTE");
+        token("sin-camion", "TRANSPORTISTA");
+        token("transportista", Map.of("dominio_camion", "AB123CD"), "TRANSPORTISTA");
+        token("operador", "OPERADOR");
+        when(seguimientoService.registrar(any(), any())).thenReturn(ProgresoTramoResponse.builder().build());
+        String posicion = "{\"idTramo\": 1, \"latitud\": -31.4, \"longitud\": -64.2}";
+
+        for (String usuario : List.of("cliente", "sin-camion")) {
+            mockMvc.perform(post("/api/v1/tramos/posiciones").header("Authorization", "Bearer " + usuario)
+                            .contentType(MediaType.APPLICATION_JSON).content(posicion))
+                    .andExpect(status().isForbidden());
+        }
+        verifyNoInteractions(seguimientoService);
+
+        mockMvc.perform(post("/api/v1/tramos/posiciones").header("Authorization", "Bearer transportista")
+                        .contentType(MediaType.APPLICATION_JSON).content(posicion))
+                .andExpect(status().isAccepted());
+        verify(seguimientoService).registrar(any(), eq("AB123CD"));
+
+        mockMvc.perform(post("/api/v1/tramos/posiciones").header("Authorization", "Bearer operador")
+                        .contentType(MediaType.APPLICATION_JSON).content(posicion))
+                .andExpect(status().isAccepted());
+        verify(seguimientoService).registrar(any(), isNull());
+    }
+
+    @Test
+    void testAsignacionOptimaSoloParaOperador() throws Exception {
+        token("cliente", "CLIENTE");
+        token("transportista", "TRANSPORTISTA");
+        token("operador", "OPERADOR");
+        String pedido = "{\"desde\": \"2025-03-10T08:00:00\", \"hasta\": \"2025-03-11T08:00:00\"}";
+
+        for (String usuario : List.of("cliente", "transportista")) {
+            mockMvc.perform(post("/api/v1/tramos/asignacion-optima").header("Authorization", "Bearer " + usuario)
+                            .contentType(MediaType.APPLICATION_JSON).content(pedido))
+                    .andExpect(status().isForbidden());
+        }
+        verifyNoInteractions(asignacionOptimaService);
+
+        mockMvc.perform(post("/api/v1/tramos/asignacion-optima").header("Authorization", "Bearer operador")
+                        .contentType(MediaType.APPLICATION_JSON).content(pedido))
+                .andExpect(status().isOk());
+        verify(asignacionOptimaService).optimizar(any());
+    }
+}
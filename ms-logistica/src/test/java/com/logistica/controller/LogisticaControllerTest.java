@@ -0,0 +1,144 @@
+package com.logistica.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmLegCache;
+import com.logistica.client.OsrmResiliencia;
+import com.logistica.dto.mapper.DepositoMapper;
+import com.logistica.dto.mapper.RutaMapper;
+import com.logistica.dto.mapper.TarifaMapper;
+import com.logistica.dto.mapper.TramoMapper;
+import com.logistica.dto.request.FiltroTramos;
+import com.logistica.exception.GlobalExceptionHandler;
+import com.logistica.model.EstadoTramo;
+import com.logistica.repository.TramoVista;
+import com.logistica.service.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class LogisticaControllerTest {
+
+    private final TramoService tramoService = mock(TramoService.class);
+    private final PlanificacionRutaService planificacionRutaService = mock(PlanificacionRutaService.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller())
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    private LogisticaController controller() {
+        LogisticaController controller = new LogisticaController(
+                mock(RutaService.class), mock(DepositoService.class), mock(TarifaService.class), tramoService,
+                new TramoMapper(), mock(TarifaMapper.class), mock(DepositoMapper.class), mock(RutaMapper.class),
+                mock(OsrmLegCache.class), mock(CamionInfoCache.class), mock(OsrmClient2.class),
+                mock(OsrmResiliencia.class), mock(OptimizadorRutaService.class), mock(PlanificacionLoteService.class),
+                planificacionRutaService, mock(AsignacionOptimaService.class),
+                mock(EstadiaDepositoService.class), mock(GeometriaTramoService.class), mock(SeguimientoService.class),
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(controller, "limiteTramosDefecto", 3);
+        ReflectionTestUtils.setField(controller, "limiteTramosMaximo", 5);
+        return controller;
+    }
+
+    private static TramoVista vista(long id) {
+        return new TramoVista(id, EstadoTramo.ASIGNADO, "Intermedio", "Origen Solicitud", "Depósito " + id,
+                "AA111AA", 10, 0, 600, 0, 1000, 0, null, null, null, null);
+    }
+
+    private static List<TramoVista> vistas(long desde, long hasta) {
+        return LongStream.rangeClosed(desde, hasta).mapToObj(LogisticaControllerTest::vista).toList();
+    }
+
+    @Test
+    void testPaginaCompletaInformaElSiguienteCursor() throws Exception {
+        // Se piden limite + 1 para saber si hay otra página
+        when(tramoService.listarTramos(any(), eq(7L), eq(3))).thenReturn(vistas(8, 10));
+
+        mockMvc.perform(get("/api/v1/tramos").param("cursor", "7").param("limite", "2")
+                        .param("estado", "ASIGNADO").param("dominio", "AA111AA"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Siguiente-Cursor", "9"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(9));
+
+        verify(tramoService).listarTramos(new FiltroTramos(EstadoTramo.ASIGNADO, "AA111AA", null, null, false), 7L, 3);
+    }
+
+    @Test
+    void testUltimaPaginaNoTraeCursor() throws Exception {
+        when(tramoService.listarTramos(any(), eq(9L), eq(3))).thenReturn(vistas(10, 10));
+
+        mockMvc.perform(get("/api/v1/contenedores/pendientes").param("cursor", "9").param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Siguiente-Cursor"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        verify(tramoService).listarTramos(new FiltroTramos(null, null, null, null, true), 9L, 3);
+    }
+
+    @Test
+    void testLimiteSeAcotaAlMaximo() throws Exception {
+        when(tramoService.listarTramos(any(), any(), anyInt())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/tramos").param("limite", "1000")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/tramos")).andExpect(status().isOk());
+
+        verify(tramoService).listarTramos(any(), isNull(), eq(6));
+        verify(tramoService).listarTramos(any(), isNull(), eq(4));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testNdjsonEscribeUnTramoPorLinea() throws Exception {
+        when(tramoService.recorrerTramos(any(), any())).thenAnswer(inv -> {
+            Consumer<TramoVista> consumidor = inv.getArgument(1);
+            vistas(1, 3).forEach(consumidor);
+            return 3L;
+        });
+
+        MvcResult inicio = mockMvc.perform(get("/api/v1/tramos").param("estado", "ASIGNADO")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String cuerpo = mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(3, lineas.length);
+        assertTrue(cuerpo.endsWith("\n"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < lineas.length; i++) {
+            assertEquals(i + 1, objectMapper.readTree(lineas[i]).get("id").asLong());
+        }
+        verify(tramoService).recorrerTramos(eq(new FiltroTramos(EstadoTramo.ASIGNADO, null, null, null, false)), any());
+        verify(tramoService, never()).listarTramos(any(), any(), anyInt());
+    }
+
+    @Test
+    void testPlanificarSinNumeroDeSolicitudEsSolicitudInvalida() throws Exception {
+        mockMvc.perform(post("/api/v1/rutas/planificar").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"latOrigen\": -31.4, \"lonOrigen\": -64.2, \"latDestino\": -34.6, \"lonDestino\": -58.4}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("El número de solicitud es obligatorio"));
+
+        verifyNoInteractions(planificacionRutaService);
+    }
+}
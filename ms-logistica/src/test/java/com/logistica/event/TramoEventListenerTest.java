@@ -0,0 +1,122 @@
+package com.logistica.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistica.exception.TramoNotFoundException;
+import com.logistica.service.EventosTramoService;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TramoEventListenerTest {
+
+    private Message mensaje(long tag, long idTramo) {
+        MessageProperties propiedades = new MessageProperties();
+        propiedades.setDeliveryTag(tag);
+        return new Message(("{\"idTramo\":" + idTramo + ",\"dominioCamion\":\"AA123BB\",\"kmRecorridos\":10.0}")
+                .getBytes(), propiedades);
+    }
+
+    // El broker confirma toda publicación
+    private RabbitTemplate rabbitQueConfirma() {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(inv -> {
+            inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        return rabbitTemplate;
+    }
+
+    @Test
+    void testLoteConfirmaCorrectosReintentaPasajerosYDescartaInvalidos() throws Exception {
+        EventosTramoService service = mock(EventosTramoService.class);
+        RabbitTemplate rabbitTemplate = rabbitQueConfirma();
+        Channel canal = mock(Channel.class);
+        TramoEventListener listener = new TramoEventListener(service, new ObjectMapper(), rabbitTemplate);
+
+        when(service.procesarFin(argThat(e -> e != null && e.idTramo() == 2L)))
+                .thenThrow(new IllegalStateException("El tramo 2 todavía no está EN_CURSO"));
+        when(service.procesarFin(argThat(e -> e != null && e.idTramo() == 3L)))
+                .thenThrow(new TramoNotFoundException(3L));
+
+        Message reintentado = mensaje(2, 2);
+        listener.alFinalizarTramos(List.of(mensaje(1, 1), reintentado, mensaje(3, 3), mensaje(4, 4)), canal);
+
+        // El pasajero se copia a la cola de reintento con el contador
+        verify(rabbitTemplate).send(eq(""), eq(RabbitMQConfig.REINTENTO_TRAMO_FINALIZADO), eq(reintentado),
+                any(CorrelationData.class));
+        assertEquals(1, reintentado.getMessageProperties().<Integer>getHeader(TramoEventListener.HEADER_REINTENTOS));
+        // El que no tiene arreglo va a la DLQ y el resto se confirma con un ack múltiple
+        verify(canal).basicNack(3, false, false);
+        verify(canal).basicAck(4, true);
+        verifyNoMoreInteractions(canal);
+    }
+
+    @Test
+    void testAgotadosLosReintentosVaALaDlq() throws Exception {
+        EventosTramoService service = mock(EventosTramoService.class);
+        RabbitTemplate rabbitTemplate = rabbitQueConfirma();
+        Channel canal = mock(Channel.class);
+        TramoEventListener listener = new TramoEventListener(service, new ObjectMapper(), rabbitTemplate);
+        when(service.procesarInicio(any())).thenThrow(new IllegalStateException("Debe finalizar el tramo 1"));
+
+        Message mensaje = mensaje(7, 5);
+        mensaje.getMessageProperties().setHeader(TramoEventListener.HEADER_REINTENTOS, 5);
+        listener.alIniciarTramos(List.of(mensaje), canal);
+
+        verify(rabbitTemplate, never()).send(eq(""), anyString(), any(Message.class), any(CorrelationData.class));
+        verify(canal).basicNack(7, false, false);
+        verify(canal, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testEventoALaDlqPublicaElRechazoParaQueFlotaCompense() throws Exception {
+        EventosTramoService service = mock(EventosTramoService.class);
+        RabbitTemplate rabbitTemplate = rabbitQueConfirma();
+        Channel canal = mock(Channel.class);
+        TramoEventListener listener = new TramoEventListener(service, new ObjectMapper().findAndRegisterModules(),
+                rabbitTemplate);
+        when(service.procesarFin(any())).thenThrow(new TramoNotFoundException(9L));
+
+        listener.alFinalizarTramos(List.of(mensaje(1, 9)), canal);
+
+        ArgumentCaptor<Message> aviso = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.EXCHANGE_LOGISTICA), eq(RabbitMQConfig.EVENTO_TRAMO_RECHAZADO),
+                aviso.capture(), any(CorrelationData.class));
+        TramoRechazadoEvent rechazo = new ObjectMapper().findAndRegisterModules()
+                .readValue(aviso.getValue().getBody(), TramoRechazadoEvent.class);
+        assertEquals(9L, rechazo.idTramo());
+        assertEquals("AA123BB", rechazo.dominioCamion());
+        assertEquals(RabbitMQConfig.EVENTO_TRAMO_FINALIZADO, rechazo.evento());
+        assertEquals(10.0, rechazo.kmRecorridos());
+        verify(canal).basicNack(1, false, false);
+    }
+
+    @Test
+    void testSinConfirmDelBrokerElPasajeroVaALaDlq() throws Exception {
+        EventosTramoService service = mock(EventosTramoService.class);
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(inv -> {
+            inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        Channel canal = mock(Channel.class);
+        TramoEventListener listener = new TramoEventListener(service, new ObjectMapper(), rabbitTemplate);
+        when(service.procesarInicio(any())).thenThrow(new IllegalStateException("Debe finalizar el tramo 1"));
+
+        listener.alIniciarTramos(List.of(mensaje(3, 5)), canal);
+
+        // La copia no quedó en la cola de reintento: no se puede confirmar el original
+        verify(canal).basicNack(3, false, false);
+        verify(canal, never()).basicAck(anyLong(), anyBoolean());
+    }
+}
@@ -0,0 +1,84 @@
+package com.logistica.repository;
+
+import com.logistica.model.EstadoTramo;
+import com.logistica.model.Ruta;
+import com.logistica.model.Tarifa;
+import com.logistica.model.Tramo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // cada hilo con su propia transacción
+class TramoRepositoryTest {
+
+    @Autowired
+    private TramoRepository tramoRepository;
+    @Autowired
+    private RutaRepository rutaRepository;
+    @Autowired
+    private TarifaRepository tarifaRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void limpiar() {
+        rutaRepository.deleteAll();
+        tarifaRepository.deleteAll();
+    }
+
+    private Long tramoConCostoProvisorio() {
+        Tarifa tarifa = new Tarifa();
+        tarifa.setValorKMBase(10);
+        tarifaRepository.save(tarifa);
+        Ruta ruta = new Ruta();
+        ruta.setNroSolicitudRef("SOL-LOCK");
+        Tramo tramo = new Tramo();
+        tramo.setRuta(ruta);
+        tramo.setTarifa(tarifa);
+        tramo.setEstado(EstadoTramo.FINALIZADO);
+        tramo.setCostoProvisorio(true);
+        ruta.setTramos(new ArrayList<>(List.of(tramo)));
+        return rutaRepository.save(ruta).getTramos().get(0).getId();
+    }
+
+    @Test
+    void testBuscarParaCorregirCostoSerializaAQuienesLoCorrigen() throws Exception {
+        Long id = tramoConCostoProvisorio();
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        CountDownLatch bloqueado = new CountDownLatch(1);
+
+        // La primera transacción toma el lock y lo suelta al confirmar el costo definitivo
+        CompletableFuture<Void> primera = CompletableFuture.runAsync(() -> transaccion.executeWithoutResult(estado -> {
+            Tramo tramo = tramoRepository.buscarParaCorregirCosto(id).orElseThrow();
+            bloqueado.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            tramo.setCostoProvisorio(false);
+        }));
+        assertTrue(bloqueado.await(5, TimeUnit.SECONDS));
+
+        // La segunda espera el lock y lee el valor ya confirmado
+        Boolean provisorioVisto = transaccion.execute(estado ->
+                tramoRepository.buscarParaCorregirCosto(id).orElseThrow().getCostoProvisorio());
+
+        primera.get(5, TimeUnit.SECONDS);
+        assertFalse(provisorioVisto);
+    }
+}
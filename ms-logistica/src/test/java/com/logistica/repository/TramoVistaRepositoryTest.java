@@ -0,0 +1,241 @@
+package com.logistica.repository;
+
+import com.logistica.dto.mapper.TramoMapper;
+import com.logistica.dto.response.TramoResponse;
+import com.logistica.model.*;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TramoVistaRepositoryTest {
+
+    @Autowired
+    private TramoRepository tramoRepository;
+    @Autowired
+    private RutaRepository rutaRepository;
+    @Autowired
+    private DepositoRepository depositoRepository;
+    @Autowired
+    private TarifaRepository tarifaRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private final TramoMapper tramoMapper = new TramoMapper();
+
+    /**
+     * Crea rutas de 3 tramos (origen-depósito, depósito-depósito, depósito-destino)
+     */
+    private void cargarTramos(int cantidad) {
+        Tarifa tarifa = new Tarifa();
+        tarifa.setValorKMBase(100);
+        tarifaRepository.save(tarifa);
+        List<Deposito> depositos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Deposito deposito = new Deposito();
+            deposito.setNombre("Depósito " + i);
+            depositos.add(depositoRepository.save(deposito));
+        }
+
+        List<Ruta> rutas = new ArrayList<>();
+        for (int i = 0; i < cantidad; i += 3) {
+            Ruta ruta = new Ruta();
+            ruta.setNroSolicitudRef("SOL-" + i);
+            ruta.setTramos(new ArrayList<>());
+            for (int j = 0; j < 3 && i + j < cantidad; j++) {
+                Tramo tramo = new Tramo();
+                tramo.setRuta(ruta);
+                tramo.setTarifa(tarifa);
+                tramo.setEstado(EstadoTramo.ESTIMADO);
+                tramo.setKmEstimados(10 * (i + j));
+                tramo.setDepositoOrigen(j > 0 ? depositos.get((i + j) % 5) : null);
+                tramo.setDepositoDestino(j < 2 ? depositos.get((i + j + 1) % 5) : null);
+                ruta.getTramos().add(tramo);
+            }
+            rutas.add(ruta);
+        }
+        rutaRepository.saveAll(rutas);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Statistics estadisticas() {
+        Statistics estadisticas = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        return estadisticas;
+    }
+
+    private List<TramoResponse> listadoConEntidades() {
+        return tramoRepository.findAll().stream().map(tramoMapper::toResponse).toList();
+    }
+
+    private List<TramoResponse> listadoConVista(int limite) {
+        return tramoRepository.buscarPagina(0L, null, false, null, null, null, PageRequest.of(0, limite))
+                .stream().map(tramoMapper::toResponse).toList();
+    }
+
+    @Test
+    void testVistaDevuelveLoMismoQueLaEntidadEnUnaSolaConsulta() {
+        cargarTramos(30);
+
+        List<TramoResponse> esperado = listadoConEntidades();
+        entityManager.clear();
+
+        Statistics estadisticas = estadisticas();
+        List<TramoResponse> vista = listadoConVista(100);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(esperado, vista);
+        assertEquals("Origen Solicitud", vista.get(0).getOrigen());
+        assertEquals("Destino Final", vista.get(2).getDestino());
+    }
+
+    @Test
+    void testVistaPorRutaEnUnaSolaConsulta() {
+        cargarTramos(6);
+        Long rutaId = tramoRepository.findAll().get(3).getRuta().getId();
+        entityManager.clear();
+
+        Statistics estadisticas = estadisticas();
+        List<TramoVista> vista = tramoRepository.vistaPorRuta(rutaId);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(3, vista.size());
+        assertTrue(vista.get(0).id() < vista.get(1).id());
+    }
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+    /**
+     * Marca los tramos por posición (orden de id): estado, camión y fecha de inicio
+     */
+    private List<Tramo> marcarTramos() {
+        List<Tramo> tramos = tramoRepository.findAll(org.springframework.data.domain.Sort.by("id"));
+        for (int i = 0; i < tramos.size(); i++) {
+            Tramo tramo = tramos.get(i);
+            tramo.setEstado(i % 3 == 0 ? EstadoTramo.FINALIZADO : i % 3 == 1 ? EstadoTramo.ASIGNADO : EstadoTramo.ESTIMADO);
+            tramo.setDominioCamionRef(i % 2 == 0 ? "AA111AA" : "BB222BB");
+            // De a dos con la misma fecha: el orden lo define el id
+            tramo.setFechaHoraInicioEstimada(INICIO.plusDays(i / 2));
+        }
+        tramoRepository.saveAll(tramos);
+        entityManager.flush();
+        entityManager.clear();
+        return tramos;
+    }
+
+    private List<Long> recorrerPaginas(Long cursorInicial, EstadoTramo estado, boolean soloPendientes, String dominio,
+            LocalDateTime desde, LocalDateTime hasta, int limite) {
+        List<Long> ids = new ArrayList<>();
+        Long cursor = cursorInicial;
+        while (true) {
+            List<TramoVista> pagina = tramoRepository.buscarPagina(cursor, estado, soloPendientes, dominio,
+                    desde, hasta, PageRequest.of(0, limite));
+            pagina.forEach(t -> ids.add(t.id()));
+            if (pagina.size() < limite) {
+                return ids;
+            }
+            cursor = pagina.get(pagina.size() - 1).id();
+        }
+    }
+
+    @Test
+    void testKeysetRecorreTodoSinRepetirNiSaltearConFechasIguales() {
+        cargarTramos(11);
+        List<Long> todos = marcarTramos().stream().map(Tramo::getId).toList();
+
+        List<Long> recorridos = recorrerPaginas(0L, null, false, null, null, null, 2);
+
+        assertEquals(todos, recorridos);
+        // El cursor es exclusivo: empezar en un id devuelve desde el siguiente
+        assertEquals(todos.get(3), tramoRepository.buscarPagina(todos.get(2), null, false, null, null, null,
+                PageRequest.of(0, 1)).get(0).id());
+    }
+
+    @Test
+    void testKeysetCombinaFiltros() {
+        cargarTramos(12);
+        List<Tramo> tramos = marcarTramos();
+        LocalDateTime desde = INICIO.plusDays(1);
+        LocalDateTime hasta = INICIO.plusDays(5);
+
+        List<Long> esperado = new ArrayList<>();
+        List<Long> pendientesEsperados = new ArrayList<>();
+        for (int i = 0; i < tramos.size(); i++) {
+            boolean enVentana = i / 2 >= 1 && i / 2 < 5;
+            if (enVentana && i % 3 == 1 && i % 2 == 1) {
+                esperado.add(tramos.get(i).getId());
+            }
+            if (i % 3 != 0 && i % 2 == 0) {
+                pendientesEsperados.add(tramos.get(i).getId());
+            }
+        }
+
+        assertFalse(esperado.isEmpty());
+        assertEquals(esperado, recorrerPaginas(0L, EstadoTramo.ASIGNADO, false, "BB222BB", desde, hasta, 1));
+        assertEquals(pendientesEsperados, recorrerPaginas(0L, null, true, "AA111AA", null, null, 2));
+        assertTrue(recorrerPaginas(0L, EstadoTramo.FINALIZADO, true, null, null, null, 5).isEmpty());
+    }
+
+    @Test
+    void testStreamDevuelveLoMismoQueLasPaginas() {
+        cargarTramos(9);
+        marcarTramos();
+
+        List<Long> paginado = recorrerPaginas(0L, null, true, null, null, null, 4);
+        try (Stream<TramoVista> stream = tramoRepository.streamFiltrado(0L, null, true, null, null, null)) {
+            assertEquals(paginado, stream.map(TramoVista::id).toList());
+        }
+    }
+
+    /**
+     * Benchmark: consultas por listado y p99 con 10k tramos, entidades vs proyección.
+     * Sólo corre con -Dbenchmark=true (mvn test -Dtest=TramoVistaRepositoryTest -Dbenchmark=true).
+     * Sobre H2 en memoria: sirve para comparar, no como medida absoluta de Postgres.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkListado10k() {
+        cargarTramos(10_000);
+        medir("entidades", this::listadoConEntidades);
+        medir("proyeccion", () -> listadoConVista(10_000));
+    }
+
+    private void medir(String nombre, Supplier<List<TramoResponse>> listado) {
+        int calentamiento = 5;
+        int iteraciones = 30;
+        long[] nanos = new long[iteraciones];
+        long consultas = 0;
+        for (int i = -calentamiento; i < iteraciones; i++) {
+            entityManager.clear();
+            Statistics estadisticas = estadisticas();
+            long inicio = System.nanoTime();
+            int filas = listado.get().size();
+            long duracion = System.nanoTime() - inicio;
+            assertEquals(10_000, filas);
+            if (i >= 0) {
+                nanos[i] = duracion;
+                consultas = estadisticas.getPrepareStatementCount();
+            }
+        }
+        Arrays.sort(nanos);
+        int p99 = (int) Math.ceil(0.99 * iteraciones) - 1;
+        System.out.printf("[benchmark] %-10s consultas/listado=%d  p50=%.1f ms  p99=%.1f ms%n",
+                nombre, consultas, nanos[iteraciones / 2] / 1e6, nanos[p99] / 1e6);
+    }
+}
@@ -0,0 +1,147 @@
+package com.logistica.service;
+
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.FlotaApiClient;
+import com.logistica.client.dto.CamionInfo;
+import com.logistica.dto.request.AsignacionOptimaRequest.RequisitoCarga;
+import com.logistica.dto.response.AsignacionOptimaItemResponse;
+import com.logistica.dto.response.AsignacionOptimaResponse;
+import com.logistica.repository.TramoAsignable;
+import com.logistica.repository.TramoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AsignacionOptimaServiceTest {
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2026, 3, 2, 8, 0);
+    private static final LocalDateTime HASTA = DESDE.plusHours(10);
+
+    private final AsignacionOptimaService service = new AsignacionOptimaService(
+            mock(TramoRepository.class), mock(FlotaApiClient.class), mock(CamionInfoCache.class), 1_000_000);
+
+    private TramoAsignable tramo(long id, long rutaId, String nro, double km, double horas, LocalDateTime inicio) {
+        return new TramoAsignable(id, rutaId, (int) id, nro, km, horas * 3600, inicio, 1000.0, 0.0);
+    }
+
+    private CamionInfo camion(String dominio, double peso, double costoKm, double consumo, LocalDateTime libre) {
+        CamionInfo camion = new CamionInfo();
+        camion.setDominio(dominio);
+        camion.setCapacidadPeso(peso);
+        camion.setCapacidadVolumen(100.0);
+        camion.setCostoPorKm(costoKm);
+        camion.setConsumoCombustiblePromedio(consumo);
+        camion.setProximaDisponibilidad(libre);
+        return camion;
+    }
+
+    private Map<Long, String> porTramo(AsignacionOptimaResponse respuesta) {
+        return respuesta.getAsignaciones().stream()
+                .collect(Collectors.toMap(AsignacionOptimaItemResponse::getIdTramo,
+                        AsignacionOptimaItemResponse::getDominioCamion));
+    }
+
+    @Test
+    void testMinimizaCostoRespetandoCapacidad() {
+        RequisitoCarga pesado = new RequisitoCarga();
+        pesado.setNroSolicitud("SOL-P");
+        pesado.setPeso(20_000.0);
+
+        // El tramo largo conviene al camión barato, pero la carga pesada sólo entra en el grande
+        List<TramoAsignable> tramos = List.of(
+                tramo(1, 1, "SOL-P", 100, 2, null),
+                tramo(2, 2, "SOL-L", 500, 6, null));
+        List<CamionInfo> camiones = List.of(
+                camion("BARATO", 10_000, 100, 20, null),
+                camion("GRANDE", 30_000, 300, 40, null));
+
+        AsignacionOptimaResponse respuesta = service.resolver(tramos, camiones,
+                Map.of("SOL-P", pesado), DESDE, HASTA);
+
+        assertEquals(Map.of(1L, "GRANDE", 2L, "BARATO"), porTramo(respuesta));
+        // 100 km * (300 + 0.4 L * $1000) + 500 km * (100 + 0.2 L * $1000)
+        assertEquals(100 * 700.0 + 500 * 300.0, respuesta.getCostoTotal(), 1e-6);
+        assertTrue(respuesta.getTramosSinAsignar().isEmpty());
+    }
+
+    @Test
+    void testVentanaYSecuenciaDeLaRuta() {
+        // Ventana 08:00-18:00. El tramo 2 sigue al 1 en la ruta: no empieza antes de las 12:00.
+        // El tramo 3 está planificado a las 09:00 y sólo LIBRE está disponible a esa hora
+        // (TARDE se libera a las 12:00). Con dos camiones queda afuera el tramo más caro.
+        List<TramoAsignable> tramos = List.of(
+                tramo(1, 1, "SOL-1", 300, 4, null),
+                tramo(2, 1, "SOL-1", 200, 3, null),
+                tramo(3, 2, "SOL-2", 50, 1, DESDE.plusHours(1)));
+        List<CamionInfo> camiones = List.of(
+                camion("LIBRE", 30_000, 500, 30, null),
+                camion("TARDE", 30_000, 100, 30, DESDE.plusHours(4)));
+
+        AsignacionOptimaResponse respuesta = service.resolver(tramos, camiones, Map.of(), DESDE, HASTA);
+
+        assertEquals(Map.of(3L, "LIBRE", 2L, "TARDE"), porTramo(respuesta));
+        assertEquals(List.of(1L), respuesta.getTramosSinAsignar());
+        AsignacionOptimaItemResponse segundo = respuesta.getAsignaciones().stream()
+                .filter(a -> a.getIdTramo() == 2L).findFirst().orElseThrow();
+        assertEquals(DESDE.plusHours(4), segundo.getFechaHoraInicio());
+        assertEquals(DESDE.plusHours(7), segundo.getFechaHoraFin());
+    }
+
+    @Test
+    void testSinCamionViableQuedaSinAsignar() {
+        RequisitoCarga enorme = new RequisitoCarga();
+        enorme.setNroSolicitud("SOL-X");
+        enorme.setPeso(99_000.0);
+
+        AsignacionOptimaResponse respuesta = service.resolver(
+                List.of(tramo(1, 1, "SOL-X", 10, 1, null)),
+                List.of(camion("CHICO", 1_000, 100, 20, null), camion("MEDIANO", 5_000, 100, 20, null)),
+                Map.of("SOL-X", enorme), DESDE, HASTA);
+
+        assertTrue(respuesta.getAsignaciones().isEmpty());
+        assertEquals(List.of(1L), respuesta.getTramosSinAsignar());
+    }
+
+    @Test
+    void testCamionTardeEnElPrimerTramoCorreAlSiguiente() {
+        // Conviene que TARDE (barato) haga el tramo largo, pero recién está libre a las 11:00:
+        // el tramo 2 no puede arrancar a las 10:00 aunque PRONTO esté libre
+        List<TramoAsignable> tramos = List.of(
+                tramo(1, 1, "SOL-1", 300, 2, null),
+                tramo(2, 1, "SOL-1", 100, 2, null));
+        List<CamionInfo> camiones = List.of(
+                camion("TARDE", 30_000, 100, 20, DESDE.plusHours(3)),
+                camion("PRONTO", 30_000, 500, 20, null));
+
+        AsignacionOptimaResponse respuesta = service.resolver(tramos, camiones, Map.of(), DESDE, HASTA);
+
+        assertEquals(Map.of(1L, "TARDE", 2L, "PRONTO"), porTramo(respuesta));
+        AsignacionOptimaItemResponse segundo = respuesta.getAsignaciones().stream()
+                .filter(a -> a.getIdTramo() == 2L).findFirst().orElseThrow();
+        assertEquals(DESDE.plusHours(5), segundo.getFechaHoraInicio());
+        assertEquals(DESDE.plusHours(7), segundo.getFechaHoraFin());
+    }
+
+    @Test
+    void testCamionTardeDescartaElSiguienteConHoraFija() {
+        // El tramo 2 está planificado a las 10:00 y el 1 recién termina a las 13:00
+        List<TramoAsignable> tramos = List.of(
+                tramo(1, 1, "SOL-1", 300, 2, null),
+                tramo(2, 1, "SOL-1", 100, 2, DESDE.plusHours(2)));
+        List<CamionInfo> camiones = List.of(
+                camion("TARDE", 30_000, 100, 20, DESDE.plusHours(3)),
+                camion("PRONTO", 30_000, 500, 20, null));
+
+        AsignacionOptimaResponse respuesta = service.resolver(tramos, camiones, Map.of(), DESDE, HASTA);
+
+        assertEquals(Map.of(1L, "TARDE"), porTramo(respuesta));
+        assertEquals(List.of(2L), respuesta.getTramosSinAsignar());
+        assertEquals(300 * (100 + 0.2 * 1000), respuesta.getCostoTotal(), 1e-6);
+    }
+}
@@ -0,0 +1,183 @@
+package com.logistica.service;
+
+import com.logistica.model.FactorEta;
+import com.logistica.repository.FactorEtaRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CalibradorEtaTest {
+
+    private static final long HORA = 3_600_000L;
+    private static final long AHORA = 1_000 * HORA;
+
+    private final FactorEtaRepository repository = mock(FactorEtaRepository.class);
+
+    // Vida media de 10 horas para poder probar el decaimiento
+    private CalibradorEta calibrador() {
+        return new CalibradorEta(repository, 10, 5, 0.5, 3);
+    }
+
+    @Test
+    void testSinDatosNoCorrige() {
+        assertEquals(1.0, calibrador().factor(1L, 2L, 40, AHORA));
+    }
+
+    @Test
+    void testParAprendeYContraeHaciaSuRango() {
+        CalibradorEta calibrador = calibrador();
+        for (int i = 0; i < 200; i++) {
+            calibrador.registrar(1L, 2L, 40, 1000, 1500, AHORA);
+        }
+
+        assertEquals(1.5, calibrador.factor(1L, 2L, 40, AHORA), 0.01);
+        // Otro par del mismo rango (25-50 km) hereda el factor del rango
+        assertEquals(1.5, calibrador.factor(3L, 4L, 30, AHORA), 0.01);
+        // Otro rango: se apoya en el global, contraído hacia 1 por no tener datos propios
+        double otroRango = calibrador.factor(3L, 4L, 400, AHORA);
+        assertTrue(otroRango > 1.0 && otroRango < 1.5);
+    }
+
+    @Test
+    void testPocosDatosQuedanCercaDelNivelSuperior() {
+        CalibradorEta calibrador = calibrador();
+        calibrador.registrar(1L, 2L, 40, 1000, 2000, AHORA);
+
+        // Un solo tramo no alcanza para pasar a 2.0
+        double factor = calibrador.factor(1L, 2L, 40, AHORA);
+        assertTrue(factor > 1.0 && factor < 1.5, "factor " + factor);
+    }
+
+    @Test
+    void testLoViejoPierdePeso() {
+        CalibradorEta calibrador = calibrador();
+        for (int i = 0; i < 50; i++) {
+            calibrador.registrar(1L, 2L, 40, 1000, 2000, AHORA);
+        }
+        // Diez vidas medias después
+        long despues = AHORA + 100 * HORA;
+        for (int i = 0; i < 50; i++) {
+            calibrador.registrar(1L, 2L, 40, 1000, 1000, despues);
+        }
+
+        assertEquals(1.0, calibrador.factor(1L, 2L, 40, despues), 0.01);
+    }
+
+    @Test
+    void testCocientesAcotadosEIgnoraSinTiempo() {
+        CalibradorEta calibrador = calibrador();
+        calibrador.registrar(1L, 2L, 40, 1000, 0, AHORA);
+        calibrador.registrar(1L, 2L, 40, 0, 1000, AHORA);
+        assertEquals(1.0, calibrador.factor(1L, 2L, 40, AHORA));
+
+        for (int i = 0; i < 500; i++) {
+            calibrador.registrar(1L, 2L, 40, 100, 100_000, AHORA);
+        }
+        assertEquals(3.0, calibrador.factor(1L, 2L, 40, AHORA), 0.05);
+    }
+
+    // factor_eta en memoria, con la misma mezcla que el upsert de FactorEtaRepository.sumar
+    private Map<String, FactorEta> baseCompartida() {
+        Map<String, FactorEta> filas = new HashMap<>();
+        when(repository.sumar(anyString(), anyDouble(), anyDouble(), any(), anyDouble())).thenAnswer(inv -> {
+            String clave = inv.getArgument(0);
+            double suma = inv.getArgument(1);
+            double pesos = inv.getArgument(2);
+            LocalDateTime instante = inv.getArgument(3);
+            double lambda = inv.getArgument(4);
+            FactorEta fila = filas.get(clave);
+            if (fila == null) {
+                fila = new FactorEta();
+                fila.setClave(clave);
+                fila.setSuma(suma);
+                fila.setPesos(pesos);
+                fila.setActualizadoEn(instante);
+                filas.put(clave, fila);
+                return 1;
+            }
+            double segundos = Duration.between(fila.getActualizadoEn(), instante).toMillis() / 1000.0;
+            double viejo = Math.exp(-lambda * Math.max(0, segundos));
+            double nuevo = Math.exp(-lambda * Math.max(0, -segundos));
+            fila.setSuma(fila.getSuma() * viejo + suma * nuevo);
+            fila.setPesos(fila.getPesos() * viejo + pesos * nuevo);
+            fila.setActualizadoEn(segundos > 0 ? instante : fila.getActualizadoEn());
+            return 1;
+        });
+        when(repository.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(filas.get(inv.<String>getArgument(0))));
+        when(repository.findAll()).thenAnswer(inv -> new ArrayList<>(filas.values()));
+        return filas;
+    }
+
+    @Test
+    void testCheckpointGuardaPendientesYSeRecupera() {
+        Map<String, FactorEta> filas = baseCompartida();
+        CalibradorEta calibrador = calibrador();
+        for (int i = 0; i < 20; i++) {
+            calibrador.registrar(1L, 2L, 40, 1000, 1800, AHORA);
+        }
+
+        calibrador.guardar();
+        // global, rango y par
+        assertEquals(3, filas.size());
+        assertEquals(20, filas.get("global").getPesos(), 1e-9);
+        // Sin cambios nuevos no vuelve a guardar
+        calibrador.guardar();
+        verify(repository, times(3)).sumar(anyString(), anyDouble(), anyDouble(), any(), anyDouble());
+        assertEquals(1.8, calibrador.factor(1L, 2L, 40, AHORA), 0.2);
+
+        CalibradorEta otraInstancia = calibrador();
+        otraInstancia.cargar();
+        assertEquals(calibrador.factor(1L, 2L, 40, AHORA), otraInstancia.factor(1L, 2L, 40, AHORA), 1e-9);
+    }
+
+    @Test
+    void testVariasInstanciasSumanSusTramosSinPisarse() {
+        Map<String, FactorEta> filas = baseCompartida();
+        CalibradorEta a = calibrador();
+        CalibradorEta b = calibrador();
+        for (int i = 0; i < 30; i++) {
+            a.registrar(1L, 2L, 40, 1000, 2000, AHORA);
+            b.registrar(1L, 2L, 40, 1000, 1000, AHORA);
+        }
+
+        a.guardar();
+        b.guardar();
+        a.guardar();
+
+        // Los 60 tramos cuentan una sola vez, y las dos instancias ven el promedio
+        assertEquals(60, filas.get("par:1:2").getPesos(), 1e-9);
+        assertEquals(1.5 * 60, filas.get("par:1:2").getSuma(), 1e-9);
+        assertEquals(a.factor(1L, 2L, 40, AHORA), b.factor(1L, 2L, 40, AHORA), 1e-9);
+        assertEquals(1.5, a.factor(1L, 2L, 40, AHORA), 0.01);
+    }
+
+    @Test
+    void testCheckpointFallidoQuedaPendienteSinDuplicar() {
+        Map<String, FactorEta> filas = baseCompartida();
+        CalibradorEta calibrador = calibrador();
+        calibrador.registrar(null, null, 40, 1000, 1500, AHORA);
+        doThrow(new RuntimeException("base caída"))
+                .when(repository).sumar(eq("global"), anyDouble(), anyDouble(), any(), anyDouble());
+
+        calibrador.guardar();
+        assertFalse(filas.containsKey("global"));
+        assertEquals(1, filas.get("km:25-50").getPesos(), 1e-9);
+
+        reset(repository);
+        baseCompartida().putAll(filas);
+        calibrador.registrar(null, null, 40, 1000, 1500, AHORA);
+        calibrador.guardar();
+        // El rango sólo recibe el tramo nuevo; el global, los dos
+        verify(repository).sumar(eq("km:25-50"), anyDouble(), eq(1.0), any(), anyDouble());
+        verify(repository).sumar(eq("global"), anyDouble(), eq(2.0), any(), anyDouble());
+    }
+}
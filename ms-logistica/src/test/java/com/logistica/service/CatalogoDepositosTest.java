@@ -0,0 +1,47 @@
+package com.logistica.service;
+
+import com.logistica.model.Deposito;
+import com.logistica.repository.DepositoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.logistica.service.DepositosDePrueba.deposito;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogoDepositosTest {
+
+    private final DepositoRepository repository = mock(DepositoRepository.class);
+    private final CatalogoDepositos catalogo = new CatalogoDepositos(repository);
+
+    @Test
+    void testActualizarPublicaUnaFotoNuevaSinTocarLaAnterior() {
+        when(repository.findAll()).thenReturn(List.of(deposito(1L, "Córdoba"), deposito(2L, "Rosario")));
+        catalogo.cargar();
+        List<Deposito> antes = catalogo.todos();
+
+        catalogo.actualizar(List.of(deposito(2L, "Rosario Norte"), deposito(3L, "Mendoza")));
+
+        assertEquals(2, antes.size());
+        assertEquals("Rosario", antes.stream().filter(d -> d.getId() == 2L).findFirst().orElseThrow().getNombre());
+        assertEquals("Rosario Norte", catalogo.porId(2L).getNombre());
+        assertEquals("Mendoza", catalogo.porId(3L).getNombre());
+        assertEquals(3, catalogo.todos().size());
+        assertNull(catalogo.porId(null));
+    }
+
+    @Test
+    void testSuscriptoresRecibenLaFotoActualYCadaPublicacion() {
+        when(repository.findAll()).thenReturn(List.of(deposito(1L, "Córdoba")));
+        List<Integer> tamanios = new ArrayList<>();
+
+        catalogo.suscribir(foto -> tamanios.add(foto.size()));
+        catalogo.cargar();
+        catalogo.actualizar(List.of(deposito(2L, "Rosario")));
+
+        assertEquals(List.of(0, 1, 2), tamanios);
+        verify(repository, times(1)).findAll();
+    }
+}
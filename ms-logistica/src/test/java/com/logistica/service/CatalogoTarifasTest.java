@@ -0,0 +1,59 @@
+package com.logistica.service;
+
+import com.logistica.model.Tarifa;
+import com.logistica.repository.TarifaRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogoTarifasTest {
+
+    private Tarifa tarifa(long id, LocalDate vigencia) {
+        Tarifa tarifa = new Tarifa();
+        tarifa.setId(id);
+        tarifa.setFechaVigencia(vigencia);
+        tarifa.setValorKMBase(100 * id);
+        return tarifa;
+    }
+
+    @Test
+    void testVigenteEnUsaLaUltimaTarifaAnteriorOIgual() {
+        TarifaRepository repository = mock(TarifaRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                tarifa(1, LocalDate.of(2025, 1, 1)),
+                tarifa(2, LocalDate.of(2025, 6, 1)),
+                tarifa(3, LocalDate.of(2025, 6, 1))));
+        CatalogoTarifas catalogo = new CatalogoTarifas(repository);
+        catalogo.cargar();
+
+        assertNull(catalogo.vigenteEn(LocalDate.of(2024, 12, 31)));
+        assertEquals(1L, catalogo.vigenteEn(LocalDate.of(2025, 5, 31)).getId());
+        assertEquals(3L, catalogo.vigenteEn(LocalDate.of(2025, 6, 1)).getId());
+        assertEquals(3L, catalogo.vigenteEn(LocalDate.of(2026, 1, 1)).getId());
+        assertEquals(2L, catalogo.porId(2L).getId());
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    void testRefrescoFallidoSigueSirviendoElCatalogoAnterior() {
+        TarifaRepository repository = mock(TarifaRepository.class);
+        when(repository.findAll())
+                .thenReturn(List.of(tarifa(1, LocalDate.of(2025, 1, 1))))
+                .thenThrow(new IllegalStateException("base caída"))
+                .thenReturn(List.of(tarifa(1, LocalDate.of(2025, 1, 1)), tarifa(2, LocalDate.of(2025, 6, 1))));
+        CatalogoTarifas catalogo = new CatalogoTarifas(repository);
+        catalogo.cargar();
+
+        catalogo.refrescar();
+        assertEquals(1L, catalogo.vigenteEn(LocalDate.of(2025, 7, 1)).getId());
+
+        catalogo.refrescar();
+        assertEquals(2L, catalogo.vigenteEn(LocalDate.of(2025, 7, 1)).getId());
+        // Las consultas nunca releen: sólo la carga inicial y los dos refrescos
+        verify(repository, times(3)).findAll();
+    }
+}
@@ -0,0 +1,51 @@
+package com.logistica.service;
+
+import com.logistica.client.OsrmLegCache;
+import com.logistica.exception.NotFoundException;
+import com.logistica.model.Deposito;
+import com.logistica.repository.DepositoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.logistica.service.DepositosDePrueba.deposito;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DepositoServiceTest {
+
+    private final DepositoRepository repository = mock(DepositoRepository.class);
+    private final CatalogoDepositos catalogo = new CatalogoDepositos(repository);
+    private final DepositoService service = new DepositoService(repository, mock(OsrmLegCache.class),
+            mock(MatrizDistanciasDepositos.class), new IndiceEspacialDepositos(catalogo, 0.5), catalogo);
+
+    @Test
+    void testObtenerDepositosLeeLaFotoYBuscaLosFaltantesEnUnaConsulta() {
+        when(repository.findAll()).thenReturn(List.of(deposito(1L), deposito(2L)));
+        catalogo.cargar();
+        when(repository.findAllById(List.of(3L))).thenReturn(List.of(deposito(3L)));
+
+        List<Deposito> resultado = service.obtenerDepositos(List.of(2L, 3L, 1L, 3L));
+
+        assertEquals(List.of(2L, 3L, 1L, 3L), resultado.stream().map(Deposito::getId).toList());
+        verify(repository, times(1)).findAllById(List.of(3L));
+        // El faltante queda en la foto y en el índice espacial
+        assertNotNull(catalogo.porId(3L));
+        assertEquals(3L, service.buscarCercanos(-31.4, -61.2, 1).get(0).deposito().getId());
+
+        service.obtenerDepositos(List.of(3L));
+        verifyNoMoreInteractions(ignoreStubs(repository));
+    }
+
+    @Test
+    void testObtenerDepositosInformaTodosLosFaltantes() {
+        when(repository.findAll()).thenReturn(List.of(deposito(1L)));
+        catalogo.cargar();
+        when(repository.findAllById(List.of(7L, 8L))).thenReturn(List.of());
+
+        NotFoundException error = assertThrows(NotFoundException.class,
+                () -> service.obtenerDepositos(List.of(1L, 7L, 8L)));
+
+        assertEquals("Depósitos no encontrados: [7, 8]", error.getMessage());
+    }
+}
@@ -0,0 +1,33 @@
+package com.logistica.service;
+
+import com.logistica.model.Deposito;
+
+/**
+ * Depósitos de prueba compartidos por los tests del servicio. Sin coordenadas
+ * explícitas cada id queda en una longitud distinta: (-31.4, -64.2 + id).
+ */
+final class DepositosDePrueba {
+
+    static final double COSTO_ESTADIA_DIARIO = 1000;
+
+    private DepositosDePrueba() {
+    }
+
+    static Deposito deposito(Long id) {
+        return deposito(id, "D" + id);
+    }
+
+    static Deposito deposito(Long id, String nombre) {
+        return deposito(id, nombre, -31.4, -64.2 + id);
+    }
+
+    static Deposito deposito(Long id, String nombre, double latitud, double longitud) {
+        Deposito deposito = new Deposito();
+        deposito.setId(id);
+        deposito.setNombre(nombre);
+        deposito.setLatitud(latitud);
+        deposito.setLongitud(longitud);
+        deposito.setCostoEstadiaDiario(COSTO_ESTADIA_DIARIO);
+        return deposito;
+    }
+}
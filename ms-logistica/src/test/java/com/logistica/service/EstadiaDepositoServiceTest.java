@@ -0,0 +1,155 @@
+package com.logistica.service;
+
+import com.logistica.dto.response.OcupacionDepositoResponse;
+import com.logistica.model.Deposito;
+import com.logistica.model.EstadiaDeposito;
+import com.logistica.model.Ruta;
+import com.logistica.model.TipoMensajeSolicitudes;
+import com.logistica.model.Tramo;
+import com.logistica.repository.EstadiaAbierta;
+import com.logistica.repository.EstadiaDepositoRepository;
+import com.logistica.repository.RutaRepository;
+import com.logistica.repository.TramoRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.logistica.service.DepositosDePrueba.deposito;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EstadiaDepositoServiceTest {
+
+    private static final LocalDateTime LLEGADA = LocalDateTime.of(2026, 3, 2, 18, 0);
+
+    private final EstadiaDepositoRepository estadiaRepository = mock(EstadiaDepositoRepository.class);
+    private final TramoRepository tramoRepository = mock(TramoRepository.class);
+    private final RutaRepository rutaRepository = mock(RutaRepository.class);
+    private final OutboxSolicitudesService outbox = mock(OutboxSolicitudesService.class);
+    private final EstadiaDepositoService service =
+            new EstadiaDepositoService(estadiaRepository, tramoRepository, rutaRepository, outbox);
+
+    private final Deposito deposito = deposito(5L, "Córdoba");
+    private final Ruta ruta = ruta();
+
+    private static Ruta ruta() {
+        Ruta ruta = new Ruta();
+        ruta.setId(7L);
+        ruta.setNroSolicitudRef("SOL-1");
+        return ruta;
+    }
+
+    private Tramo tramo(long id, Deposito origen, Deposito destino) {
+        Tramo tramo = new Tramo();
+        tramo.setId(id);
+        tramo.setRuta(ruta);
+        tramo.setDepositoOrigen(origen);
+        tramo.setDepositoDestino(destino);
+        return tramo;
+    }
+
+    @Test
+    void testAbrirCobraUnDiaProvisorio() {
+        Tramo llegada = tramo(1, null, deposito);
+        llegada.setFechaHoraFinReal(LLEGADA);
+        when(estadiaRepository.findByIdTramoLlegada(1L)).thenReturn(Optional.empty());
+
+        assertEquals(1000, service.abrir(llegada));
+
+        ArgumentCaptor<EstadiaDeposito> captor = ArgumentCaptor.forClass(EstadiaDeposito.class);
+        verify(estadiaRepository).save(captor.capture());
+        assertEquals(LLEGADA, captor.getValue().getFechaIngreso());
+        assertEquals("SOL-1", captor.getValue().getNroSolicitud());
+        assertNull(captor.getValue().getFechaEgreso());
+    }
+
+    @Test
+    void testAbrirSinDepositoDestinoNoRegistra() {
+        assertEquals(0, service.abrir(tramo(1, deposito, null)));
+        verifyNoInteractions(estadiaRepository);
+    }
+
+    @Test
+    void testCerrarAjustaConLosDiasReales() {
+        EstadiaDeposito estadia = new EstadiaDeposito();
+        estadia.setDeposito(deposito);
+        estadia.setIdRuta(7L);
+        estadia.setNroSolicitud("SOL-1");
+        estadia.setIdTramoLlegada(1L);
+        estadia.setFechaIngreso(LLEGADA);
+        estadia.setCostoDiario(1000.0);
+        estadia.setCostoCobrado(1000.0);
+        when(estadiaRepository.buscarAbiertaParaCerrar(7L, 5L)).thenReturn(Optional.of(estadia));
+        Tramo llegada = tramo(1, null, deposito);
+        llegada.setCostoReal(5000);
+        when(tramoRepository.findById(1L)).thenReturn(Optional.of(llegada));
+
+        // Sale tres días después: se cobran dos días más
+        Tramo salida = tramo(2, deposito, null);
+        salida.setFechaHoraInicioReal(LLEGADA.plusDays(3).plusHours(2));
+        service.cerrar(salida);
+
+        assertEquals(2L, estadia.getIdTramoSalida());
+        assertEquals(3000.0, estadia.getCostoCobrado());
+        assertEquals(7000.0, llegada.getCostoReal());
+        verify(rutaRepository).acumularFinalizacion(7L, 0, 2000.0, 0, 0);
+        verify(outbox).registrar("SOL-1", TipoMensajeSolicitudes.AJUSTE_COSTO,
+                Map.of("idTramo", 1L, "delta", 2000.0));
+    }
+
+    @Test
+    void testCerrarElMismoDiaCobraElDiaMinimo() {
+        EstadiaDeposito estadia = new EstadiaDeposito();
+        estadia.setDeposito(deposito);
+        estadia.setIdRuta(7L);
+        estadia.setNroSolicitud("SOL-1");
+        estadia.setIdTramoLlegada(1L);
+        estadia.setFechaIngreso(LLEGADA);
+        estadia.setCostoDiario(1000.0);
+        estadia.setCostoCobrado(1000.0);
+        when(estadiaRepository.buscarAbiertaParaCerrar(7L, 5L)).thenReturn(Optional.of(estadia));
+
+        // Sale a las pocas horas: queda el día provisorio, sin ajuste
+        Tramo salida = tramo(2, deposito, null);
+        salida.setFechaHoraInicioReal(LLEGADA.plusHours(3));
+        service.cerrar(salida);
+
+        assertEquals(1000.0, estadia.getCostoCobrado());
+        assertEquals(LLEGADA.plusHours(3), estadia.getFechaEgreso());
+        verifyNoInteractions(tramoRepository, rutaRepository, outbox);
+    }
+
+    @Test
+    void testCerrarSinEstadiaAbiertaNoHaceNada() {
+        when(estadiaRepository.buscarAbiertaParaCerrar(any(), any())).thenReturn(Optional.empty());
+
+        service.cerrar(tramo(2, deposito, null));
+
+        verifyNoInteractions(tramoRepository, rutaRepository, outbox);
+    }
+
+    @Test
+    void testOcupacionAgrupaPorDeposito() {
+        LocalDateTime hace2Dias = LocalDateTime.now().minusDays(2).minusHours(1);
+        LocalDateTime hoy = LocalDateTime.now().minusHours(1);
+        when(estadiaRepository.buscarAbiertas(null)).thenReturn(List.of(
+                new EstadiaAbierta(5L, "Córdoba", "SOL-1", 1L, hace2Dias, 1000),
+                new EstadiaAbierta(5L, "Córdoba", "SOL-2", 3L, hoy, 1000),
+                new EstadiaAbierta(6L, "Rosario", "SOL-3", 9L, hoy, 500)));
+
+        List<OcupacionDepositoResponse> ocupacion = service.ocupacion(null);
+
+        assertEquals(2, ocupacion.size());
+        OcupacionDepositoResponse cordoba = ocupacion.get(0);
+        assertEquals(2, cordoba.getContenedores());
+        // Dos días + el mínimo de un día del que llegó hoy
+        assertEquals(3, cordoba.getDiasAcumulados());
+        assertEquals(3000, cordoba.getCostoAcumulado());
+        assertEquals(1, ocupacion.get(1).getContenedores());
+    }
+}
@@ -0,0 +1,79 @@
+package com.logistica.service;
+
+import com.logistica.model.Deposito;
+import com.logistica.repository.DepositoRepository;
+import com.logistica.util.GeoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.logistica.service.DepositosDePrueba.deposito;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceEspacialDepositosTest {
+
+    @Mock
+    private DepositoRepository depositoRepository;
+
+    private CatalogoDepositos catalogo;
+    private IndiceEspacialDepositos indice;
+    private List<Deposito> depositos;
+
+    @BeforeEach
+    void setUp() {
+        // Depósitos aleatorios sobre Argentina
+        Random random = new Random(42);
+        depositos = new ArrayList<>();
+        for (long i = 1; i <= 300; i++) {
+            depositos.add(deposito(i, "D" + i, -55 + random.nextDouble() * 33, -73 + random.nextDouble() * 20));
+        }
+        when(depositoRepository.findAll()).thenReturn(depositos);
+        catalogo = new CatalogoDepositos(depositoRepository);
+        indice = new IndiceEspacialDepositos(catalogo, 0.5);
+        catalogo.cargar();
+    }
+
+    @Test
+    void testCercanosCoincideConBusquedaLineal() {
+        double lat = -31.42, lon = -64.18;
+
+        List<IndiceEspacialDepositos.DepositoCercano> resultado = indice.cercanos(lat, lon, 5);
+
+        List<Deposito> esperado = depositos.stream()
+                .sorted(Comparator.comparingDouble(d -> GeoUtils.haversineKm(lat, lon, d.getLatitud(), d.getLongitud())))
+                .limit(5)
+                .toList();
+        assertEquals(esperado, resultado.stream().map(IndiceEspacialDepositos.DepositoCercano::deposito).toList());
+    }
+
+    @Test
+    void testEnRadio() {
+        double lat = -34.6, lon = -58.4;
+
+        List<IndiceEspacialDepositos.DepositoCercano> resultado = indice.enRadio(lat, lon, 300);
+
+        long esperado = depositos.stream()
+                .filter(d -> GeoUtils.haversineKm(lat, lon, d.getLatitud(), d.getLongitud()) <= 300)
+                .count();
+        assertEquals(esperado, resultado.size());
+        assertTrue(resultado.stream().allMatch(c -> c.distanciaKm() <= 300));
+    }
+
+    @Test
+    void testActualizarMueveDeposito() {
+        Deposito movido = deposito(1L, "D1", -31.4201, -64.1801);
+
+        catalogo.actualizar(List.of(movido));
+
+        assertEquals(1L, indice.cercanos(-31.42, -64.18, 1).get(0).deposito().getId());
+    }
+}
@@ -0,0 +1,133 @@
+package com.logistica.service;
+
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmTableResponse;
+import com.logistica.model.Deposito;
+import com.logistica.model.DistanciaDeposito;
+import com.logistica.repository.DepositoRepository;
+import com.logistica.repository.DistanciaDepositoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.logistica.service.DepositosDePrueba.deposito;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MatrizDistanciasDepositosTest {
+
+    private final DepositoRepository depositoRepository = mock(DepositoRepository.class);
+    private final DistanciaDepositoRepository distanciaRepository = mock(DistanciaDepositoRepository.class);
+    private final OsrmClient2 osrmClient = mock(OsrmClient2.class);
+    private final CatalogoDepositos catalogo = new CatalogoDepositos(depositoRepository);
+    private final MatrizDistanciasDepositos matriz = new MatrizDistanciasDepositos(catalogo,
+            distanciaRepository, osrmClient, new TransactionTemplate(mock(PlatformTransactionManager.class)), 100);
+
+    private final Deposito a = deposito(1L);
+    private final Deposito b = deposito(2L);
+
+    private static DistanciaDeposito celda(Long origen, Long destino, double km) {
+        DistanciaDeposito celda = new DistanciaDeposito();
+        celda.setDepositoOrigenId(origen);
+        celda.setDepositoDestinoId(destino);
+        celda.setDistanciaKm(km);
+        celda.setDuracionSegundos(km * 60);
+        return celda;
+    }
+
+    // Tabla 1 x 2 o 2 x 1 con la misma distancia en todas las celdas
+    private static OsrmTableResponse tabla(int filas, int columnas, double metros) {
+        Double[][] distancias = new Double[filas][columnas];
+        Double[][] duraciones = new Double[filas][columnas];
+        for (int i = 0; i < filas; i++) {
+            for (int j = 0; j < columnas; j++) {
+                distancias[i][j] = metros;
+                duraciones[i][j] = metros / 10;
+            }
+        }
+        OsrmTableResponse tabla = new OsrmTableResponse();
+        tabla.setDistances(distancias);
+        tabla.setDurations(duraciones);
+        return tabla;
+    }
+
+    private void cargarPersistida() {
+        when(depositoRepository.findAll()).thenReturn(List.of(a, b));
+        when(distanciaRepository.findAll()).thenReturn(List.of(
+                celda(1L, 1L, 0), celda(1L, 2L, 100), celda(2L, 1L, 110), celda(2L, 2L, 0)));
+        catalogo.cargar();
+        matriz.cargar();
+    }
+
+    @Test
+    void testCargaLaMatrizPersistidaSinLlamarAOsrm() {
+        cargarPersistida();
+
+        assertEquals(100, matriz.distanciaKm(1L, 2L));
+        assertEquals(110, matriz.distanciaKm(2L, 1L));
+        assertArrayEquals(new double[]{0, 110, 100, 0}, matriz.distanciasKm(List.of(2L, 1L)));
+        verifyNoInteractions(osrmClient);
+        // Los depósitos salen del catálogo: una sola lectura de la tabla
+        verify(depositoRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testRecalculoFallidoNoBorraNada() {
+        cargarPersistida();
+        when(osrmClient.calcularTabla(anyList(), anyList(), anyList()))
+                .thenThrow(new RuntimeException("OSRM caído"));
+
+        assertThrows(RuntimeException.class, () -> matriz.recalcularDeposito(a));
+
+        verify(distanciaRepository, never()).deleteByDeposito(any());
+        verify(distanciaRepository, never()).saveAll(anyList());
+        assertEquals(100, matriz.distanciaKm(1L, 2L));
+    }
+
+    @Test
+    void testRecalculoReemplazaFilaYColumnaSinTocarLaFotoAnterior() {
+        cargarPersistida();
+        double[] antes = matriz.distanciasKm(List.of(1L, 2L));
+        when(osrmClient.calcularTabla(anyList(), anyList(), anyList()))
+                .thenAnswer(inv -> tabla(((List<?>) inv.getArgument(1)).size(),
+                        ((List<?>) inv.getArgument(2)).size(), 250_000));
+
+        matriz.recalcularDeposito(a);
+
+        verify(distanciaRepository).deleteByDeposito(1L);
+        // Fila y columna de a sin repetir la diagonal: 2n - 1 celdas, sin pares duplicados
+        verify(distanciaRepository).saveAll(argThat(celdas -> {
+            List<?> lista = (List<?>) celdas;
+            long pares = lista.stream()
+                    .map(DistanciaDeposito.class::cast)
+                    .map(c -> c.getDepositoOrigenId() + "-" + c.getDepositoDestinoId())
+                    .distinct()
+                    .count();
+            return lista.size() == 3 && pares == 3;
+        }));
+        assertEquals(250, matriz.distanciaKm(1L, 2L));
+        assertEquals(250, matriz.distanciaKm(2L, 1L));
+        assertEquals(0, matriz.distanciaKm(1L, 1L));
+        assertArrayEquals(new double[]{0, 100, 110, 0}, antes);
+    }
+
+    @Test
+    void testDepositoNuevoSeAgregaALaMatriz() {
+        cargarPersistida();
+        Deposito c = deposito(3L);
+        catalogo.actualizar(List.of(c));
+        when(osrmClient.calcularTabla(anyList(), anyList(), anyList()))
+                .thenAnswer(inv -> tabla(((List<?>) inv.getArgument(1)).size(),
+                        ((List<?>) inv.getArgument(2)).size(), 50_000));
+
+        matriz.recalcularDeposito(c);
+
+        assertEquals(50, matriz.distanciaKm(3L, 1L));
+        assertEquals(50, matriz.distanciaKm(2L, 3L));
+        assertEquals(100, matriz.distanciaKm(1L, 2L));
+    }
+}
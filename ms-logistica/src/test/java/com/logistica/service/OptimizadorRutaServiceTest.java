@@ -0,0 +1,51 @@
+package com.logistica.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizadorRutaServiceTest {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    @Test
+    void testDirectoCuandoEsMasBarato() {
+        double[] desdeOrigen = {50, 60};
+        double[] entre = {INF, 10, 10, INF};
+        double[] haciaDestino = {50, 60};
+
+        int[] secuencia = OptimizadorRutaService.mejorSecuencia(desdeOrigen, entre, haciaDestino, 80, 2);
+
+        assertEquals(0, secuencia.length);
+    }
+
+    @Test
+    void testEligeSecuenciaDeMenorCosto() {
+        // 3 depósitos: el camino 0 -> 2 es el más barato
+        double[] desdeOrigen = {10, 40, 30};
+        double[] entre = {
+                INF, 20, 5,
+                20, INF, 20,
+                5, 20, INF};
+        double[] haciaDestino = {40, 30, 10};
+
+        int[] secuencia = OptimizadorRutaService.mejorSecuencia(desdeOrigen, entre, haciaDestino, 100, 3);
+
+        assertArrayEquals(new int[]{0, 2}, secuencia);
+    }
+
+    @Test
+    void testRespetaMaximoDeParadas() {
+        double[] desdeOrigen = {10, 40, 30};
+        double[] entre = {
+                INF, 20, 5,
+                20, INF, 20,
+                5, 20, INF};
+        double[] haciaDestino = {40, 30, 10};
+
+        int[] secuencia = OptimizadorRutaService.mejorSecuencia(desdeOrigen, entre, haciaDestino, 100, 1);
+
+        // Con una sola parada: 0 -> destino = 50, 1 = 70, 2 = 40
+        assertArrayEquals(new int[]{2}, secuencia);
+    }
+}
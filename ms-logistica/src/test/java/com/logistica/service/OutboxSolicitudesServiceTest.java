@@ -0,0 +1,98 @@
+package com.logistica.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistica.client.SolicitudesApiClient;
+import com.logistica.model.EstadoMensajeOutbox;
+import com.logistica.model.MensajeOutbox;
+import com.logistica.model.TipoMensajeSolicitudes;
+import com.logistica.repository.MensajeOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxSolicitudesServiceTest {
+
+    private final MensajeOutboxRepository repository = mock(MensajeOutboxRepository.class);
+    private final SolicitudesApiClient cliente = mock(SolicitudesApiClient.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final OutboxSolicitudesService service = new OutboxSolicitudesService(repository, cliente,
+            new ObjectMapper(), new TransactionTemplate(transactionManager), 100, 10, 2000, 300000, 60000);
+
+    private MensajeOutbox mensaje(long id, String nro) {
+        MensajeOutbox mensaje = new MensajeOutbox();
+        mensaje.setId(id);
+        mensaje.setNroSolicitud(nro);
+        mensaje.setTipo(TipoMensajeSolicitudes.TRAMO_INICIADO);
+        mensaje.setPayload("{}");
+        mensaje.setEstado(EstadoMensajeOutbox.PENDIENTE);
+        mensaje.setProximoIntento(LocalDateTime.now());
+        return mensaje;
+    }
+
+    @Test
+    void testProcesarLoteMarcaEnviadosYReprogramaFallidos() {
+        MensajeOutbox ok = mensaje(1, "SOL-1");
+        MensajeOutbox caido = mensaje(2, "SOL-2");
+        caido.setIntentos(2);
+        MensajeOutbox rechazado = mensaje(3, "SOL-3");
+        when(repository.tomarSiguientes(any(), any())).thenReturn(List.of(ok, caido, rechazado));
+        doThrow(new ResourceAccessException("timeout")).when(cliente).enviar(anyString(), eq("SOL-2"), anyString(), anyString());
+        doThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "no existe", null, null, null))
+                .when(cliente).enviar(anyString(), eq("SOL-3"), anyString(), anyString());
+
+        LocalDateTime antes = LocalDateTime.now();
+        assertEquals(3, service.procesarLote());
+
+        assertEquals(EstadoMensajeOutbox.ENVIADO, ok.getEstado());
+        assertNotNull(ok.getEnviadoEn());
+
+        // Tercer intento fallido: espera 2 s * 2^2 = 8 s
+        assertEquals(EstadoMensajeOutbox.PENDIENTE, caido.getEstado());
+        assertEquals(3, caido.getIntentos());
+        assertFalse(caido.getProximoIntento().isBefore(antes.plusSeconds(8)));
+        assertEquals("timeout", caido.getUltimoError());
+
+        // Un 404 no se reintenta
+        assertEquals(EstadoMensajeOutbox.FALLIDO, rechazado.getEstado());
+    }
+
+    @Test
+    void testReservaLosMensajesAntesDelHttpYGuardaCadaResultadoEnSuTransaccion() {
+        MensajeOutbox primero = mensaje(1, "SOL-1");
+        MensajeOutbox segundo = mensaje(2, "SOL-2");
+        when(repository.tomarSiguientes(any(), any())).thenReturn(List.of(primero, segundo));
+        LocalDateTime antes = LocalDateTime.now();
+        // Al momento del HTTP el mensaje ya está reservado y la transacción de la toma, cerrada
+        doAnswer(inv -> {
+            assertFalse(primero.getProximoIntento().isBefore(antes.plusSeconds(60)));
+            verify(transactionManager, times(1)).commit(any());
+            return null;
+        }).when(cliente).enviar(anyString(), eq("SOL-1"), anyString(), anyString());
+
+        service.procesarLote();
+
+        // Toma + un guardado por mensaje
+        verify(transactionManager, times(3)).commit(any());
+        verify(repository).save(primero);
+        verify(repository).save(segundo);
+    }
+
+    @Test
+    void testEnviaLaClaveDeIdempotenciaDelMensaje() {
+        when(repository.tomarSiguientes(any(), any())).thenReturn(List.of(mensaje(42, "SOL-1")));
+
+        service.procesarLote();
+
+        verify(cliente).enviar(TipoMensajeSolicitudes.TRAMO_INICIADO.getUri(), "SOL-1", "{}", "logistica-outbox-42");
+    }
+}
@@ -0,0 +1,145 @@
+package com.logistica.service;
+
+import com.logistica.client.OsrmClient2;
+import com.logistica.client.OsrmLegCache;
+import com.logistica.dto.request.PlanificarRutaRequest;
+import com.logistica.dto.response.PlanificacionLoteResponse;
+import com.logistica.dto.response.RutaPlanningResponse;
+import com.logistica.model.Ruta;
+import com.logistica.model.Tarifa;
+import com.logistica.repository.DepositoRepository;
+import com.logistica.repository.RutaRepository;
+import com.logistica.repository.TarifaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PlanificacionLoteServiceTest {
+
+    private final PlanificacionRutaService planificacionRutaService = mock(PlanificacionRutaService.class);
+    private final RutaService rutaService = mock(RutaService.class);
+    private final RutaRepository rutaRepository = mock(RutaRepository.class);
+    private final TarifaRepository tarifaRepository = mock(TarifaRepository.class);
+    private final OsrmLegCache legCache = mock(OsrmLegCache.class);
+    private final PlanificacionLoteService service = new PlanificacionLoteService(planificacionRutaService,
+            rutaService, rutaRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+            mock(DepositoRepository.class), mock(CatalogoDepositos.class), tarifaRepository,
+            mock(OsrmClient2.class), legCache, mock(MatrizDistanciasDepositos.class),
+            Executors.newSingleThreadExecutor(), 100, 1000, 2);
+
+    private PlanificarRutaRequest solicitud(String nro) {
+        PlanificarRutaRequest s = new PlanificarRutaRequest();
+        s.setNroSolicitud(nro);
+        s.setLatOrigen(-31.4);
+        s.setLonOrigen(-64.2);
+        s.setLatDestino(-32.9);
+        s.setLonDestino(-60.6);
+        s.setIdTarifa(1L);
+        return s;
+    }
+
+    private void prepararLote() {
+        Tarifa tarifa = new Tarifa();
+        tarifa.setId(1L);
+        when(tarifaRepository.findAllById(any())).thenReturn(List.of(tarifa));
+        // Tramos ya en cache: no se consulta OSRM
+        when(legCache.contiene(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(true);
+        when(rutaService.armarRuta(anyString(), anyList(), any(), any(), any(), any(), any()))
+                .thenAnswer(inv -> {
+                    Ruta ruta = new Ruta();
+                    ruta.setNroSolicitudRef(inv.getArgument(0));
+                    return ruta;
+                });
+        when(rutaService.respuestaPlanificacion(any())).thenReturn(new RutaPlanningResponse(null, 100, 60, false));
+    }
+
+    @Test
+    void testGuardaLasRutasEnGruposConUnErrorPorItem() {
+        prepararLote();
+        when(rutaService.armarRuta(eq("SOL-3"), anyList(), any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("sin tarifa para el tramo"));
+        PlanificarRutaRequest sinDestino = solicitud("SOL-5");
+        sinDestino.setLatDestino(null);
+
+        PlanificacionLoteResponse respuesta = service.planificarLote(List.of(
+                solicitud("SOL-1"), solicitud("SOL-2"), solicitud("SOL-3"), solicitud("SOL-4"), sinDestino));
+
+        assertEquals(3, respuesta.getExitosas());
+        assertEquals(2, respuesta.getFallidas());
+        assertFalse(respuesta.getResultados().get(2).isExitoso());
+        assertEquals("sin tarifa para el tramo", respuesta.getResultados().get(2).getError());
+        assertFalse(respuesta.getResultados().get(4).isExitoso());
+        // Tres rutas en grupos de dos: dos saveAll y ninguna de a una
+        verify(rutaRepository, times(2)).saveAll(anyList());
+        verifyNoInteractions(planificacionRutaService);
+    }
+
+    @Test
+    void testGrupoFallidoSeGuardaDeAUna() {
+        prepararLote();
+        when(rutaRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_ruta_nro_solicitud_ref"));
+        when(planificacionRutaService.planificarRuta(anyString(), anyList(), any(), any(), any(), any(), any()))
+                .thenReturn(new RutaPlanningResponse(null, 100, 60, false));
+
+        PlanificacionLoteResponse respuesta = service.planificarLote(List.of(solicitud("SOL-1"), solicitud("SOL-2")));
+
+        assertEquals(2, respuesta.getExitosas());
+        verify(planificacionRutaService).planificarRuta(eq("SOL-1"), anyList(), any(), any(), any(), any(), any());
+        verify(planificacionRutaService).planificarRuta(eq("SOL-2"), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testSolicitudesYaPlanificadasORepetidasVanDeAUna() {
+        prepararLote();
+        when(rutaRepository.buscarSolicitudesConRuta(any())).thenReturn(List.of("SOL-1"));
+        when(planificacionRutaService.planificarRuta(anyString(), anyList(), any(), any(), any(), any(), any()))
+                .thenReturn(new RutaPlanningResponse(null, 100, 60, false));
+
+        PlanificacionLoteResponse respuesta = service.planificarLote(List.of(
+                solicitud("SOL-1"), solicitud("SOL-2"), solicitud("SOL-2")));
+
+        assertEquals(3, respuesta.getExitosas());
+        verify(rutaService, times(1)).armarRuta(anyString(), anyList(), any(), any(), any(), any(), any());
+        verify(planificacionRutaService).planificarRuta(eq("SOL-1"), anyList(), any(), any(), any(), any(), any());
+        verify(planificacionRutaService).planificarRuta(eq("SOL-2"), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testParticionarRespetaTamanioYCubreTodosLosPares() {
+        Map<Integer, Set<Integer>> destinosPorOrigen = new LinkedHashMap<>();
+        destinosPorOrigen.put(0, new LinkedHashSet<>(List.of(10, 11)));
+        destinosPorOrigen.put(1, new LinkedHashSet<>(List.of(11, 12)));
+        destinosPorOrigen.put(2, new LinkedHashSet<>(List.of(13, 14, 15, 16, 17))); // excede el bloque solo
+
+        List<PlanificacionLoteService.Bloque> bloques = PlanificacionLoteService.particionar(destinosPorOrigen, 3);
+
+        int pares = 0;
+        for (PlanificacionLoteService.Bloque bloque : bloques) {
+            assertTrue(bloque.fuentes().size() <= 3);
+            assertTrue(bloque.destinos().size() <= 3);
+        }
+        for (Map.Entry<Integer, Set<Integer>> e : destinosPorOrigen.entrySet()) {
+            for (Integer destino : e.getValue()) {
+                assertTrue(bloques.stream().anyMatch(b -> b.fuentes().contains(e.getKey())
+                        && b.destinos().contains(destino)), "par sin cubrir: " + e.getKey() + "->" + destino);
+                pares++;
+            }
+        }
+        assertEquals(9, pares);
+        // orígenes 0 y 1 comparten bloque (destinos 10, 11, 12); el 2 se reparte en dos
+        assertEquals(3, bloques.size());
+    }
+}
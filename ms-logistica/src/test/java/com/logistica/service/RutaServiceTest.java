@@ -4,24 +4,17 @@ import com.logistica.client.OsrmClient2;
 import com.logistica.client.OsrmDistanceResponse;
 import com.logistica.dto.response.DistanciaResponse;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
-@ExtendWith(MockitoExtension.class)
 class RutaServiceTest {
 
-    @Mock
-    private OsrmClient2 osrmClient;
-
-    @InjectMocks
-    private RutaService rutaService;
+    private final OsrmClient2 osrmClient = mock(OsrmClient2.class);
+    private final RutaService rutaService = new RutaService(null, null, null, null, osrmClient,
+            null, null, null, null, 3);
 
     @Test
     void testObtenerRutasAlternativas() {
@@ -41,6 +34,7 @@ class RutaServiceTest {
         r2.setDistance(1200);
         r2.setDuration(70);
         resp2.setRoutes(List.of(r2));
+        resp2.setAproximada(true);
 
         when(osrmClient.getAlternativeRoutes(lat1, lon1, lat2, lon2))
                 .thenReturn(List.of(resp1, resp2));
@@ -57,7 +51,23 @@ class RutaServiceTest {
 
         assertEquals(1.2, result.get(1).getDistanciaKm());
         assertEquals(70.0, result.get(1).getTiempoSegundos());
+        assertFalse(result.get(0).isAproximada());
+        assertTrue(result.get(1).isAproximada());
 
         verify(osrmClient).getAlternativeRoutes(lat1, lon1, lat2, lon2);
     }
+
+    @Test
+    void testCombinarParetoDescartaDominadas() {
+        // Tramo 1: rápida y cara / lenta y barata; tramo 2: una alternativa dominada
+        List<List<DistanciaResponse>> alternativas = List.of(
+                List.of(new DistanciaResponse(10, 100), new DistanciaResponse(8, 200)),
+                List.of(new DistanciaResponse(5, 50), new DistanciaResponse(6, 60)));
+
+        List<int[]> opciones = RutaService.combinarPareto(alternativas, 1.0, 3);
+
+        assertEquals(2, opciones.size());
+        assertArrayEquals(new int[]{0, 0}, opciones.get(0)); // más rápida
+        assertArrayEquals(new int[]{1, 0}, opciones.get(1)); // más económica
+    }
 }
@@ -0,0 +1,110 @@
+package com.logistica.service;
+
+import com.logistica.dto.request.PosicionRequest;
+import com.logistica.dto.response.IngestaPosicionesResponse;
+import com.logistica.dto.response.ProgresoTramoResponse;
+import com.logistica.model.EstadoTramo;
+import com.logistica.model.Tramo;
+import com.logistica.repository.PosicionTramoRepository;
+import com.logistica.repository.TramoRepository;
+import com.logistica.util.GeometriaCodec.Puntos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SeguimientoServiceTest {
+
+    // Ida 0.1 grados al norte (~11 km) y vuelta por la misma ruta ~20 m al este
+    private static final Puntos IDA_Y_VUELTA = new Puntos(
+            new int[]{-31_000_000, -30_900_000, -30_900_000, -31_000_000},
+            new int[]{-64_000_000, -64_000_000, -63_999_790, -63_999_790});
+
+    private final TramoRepository tramoRepository = mock(TramoRepository.class);
+    private final PosicionTramoRepository posicionRepository = mock(PosicionTramoRepository.class);
+    private final GeometriaTramoService geometriaService = mock(GeometriaTramoService.class);
+    private final LocalDateTime inicio = LocalDateTime.of(2025, 3, 10, 8, 0);
+
+    @BeforeEach
+    void setUp() {
+        Tramo tramo = new Tramo();
+        tramo.setId(1L);
+        tramo.setEstado(EstadoTramo.EN_CURSO);
+        tramo.setDominioCamionRef("AB123CD");
+        tramo.setKmEstimados(22);
+        tramo.setTiempoEstimado(3600);
+        when(tramoRepository.findById(1L)).thenReturn(Optional.of(tramo));
+        when(geometriaService.obtener(1L))
+                .thenReturn(new GeometriaTramoService.Trazado(1L, IDA_Y_VUELTA, null, false, 0));
+    }
+
+    private SeguimientoService servicio(int capacidadBuffer) {
+        return new SeguimientoService(tramoRepository, posicionRepository, geometriaService,
+                mock(JdbcTemplate.class), capacidadBuffer, 1000, 500, 500, 1000, 5000, 30);
+    }
+
+    private PosicionRequest posicion(double lat, double lon, int minuto) {
+        PosicionRequest posicion = new PosicionRequest();
+        posicion.setIdTramo(1L);
+        posicion.setLatitud(lat);
+        posicion.setLongitud(lon);
+        posicion.setFechaHora(inicio.plusMinutes(minuto));
+        return posicion;
+    }
+
+    @Test
+    void testIdaYVueltaSeAjustaCercaDelAvanceAnterior() {
+        SeguimientoService service = servicio(16);
+        service.registrar(posicion(-30.99, -64.0, 0), "AB123CD");
+
+        // ~15 m al este de la ida: más cerca de la vuelta, pero el camión sigue yendo
+        ProgresoTramoResponse progreso = service.registrar(posicion(-30.98, -63.999843, 2), "AB123CD");
+
+        assertEquals(0.1, progreso.getProgreso(), 0.01);
+        assertEquals(15, progreso.getDesvioMetros(), 2);
+    }
+
+    @Test
+    void testSinAvanceAnteriorBuscaEnTodoElTrazado() {
+        SeguimientoService service = servicio(16);
+
+        // Primera posición del tramo, ya de vuelta
+        ProgresoTramoResponse progreso = service.registrar(posicion(-30.95, -63.99979, 60), "AB123CD");
+
+        assertEquals(0.75, progreso.getProgreso(), 0.01);
+        assertFalse(progreso.isFueraDeRuta());
+    }
+
+    @Test
+    void testBufferLlenoNoCambiaElSeguimiento() {
+        SeguimientoService service = servicio(2);
+        service.registrar(posicion(-30.99, -64.0, 0), "AB123CD");
+        ProgresoTramoResponse segunda = service.registrar(posicion(-30.98, -64.0, 1), "AB123CD");
+
+        assertNull(service.registrar(posicion(-30.97, -64.0, 2), "AB123CD"));
+
+        assertSame(segunda, service.obtenerProgreso(1L));
+        verifyNoInteractions(posicionRepository);
+    }
+
+    @Test
+    void testOtroCamionNoPuedeInformarPosicionesDelTramo() {
+        SeguimientoService service = servicio(16);
+
+        assertThrows(AccessDeniedException.class, () -> service.registrar(posicion(-30.99, -64.0, 0), "ZZ999ZZ"));
+        IngestaPosicionesResponse lote = service.registrarLote(
+                List.of(posicion(-30.99, -64.0, 0), posicion(-30.98, -64.0, 1)).iterator(), "ZZ999ZZ");
+
+        assertEquals(2, lote.getRechazadas());
+        assertEquals(0, lote.getAceptadas());
+        // El operador no tiene restricción de camión
+        assertNotNull(service.registrar(posicion(-30.99, -64.0, 0), null));
+    }
+}
@@ -0,0 +1,200 @@
+package com.logistica.service;
+
+import com.logistica.client.CamionInfoCache;
+import com.logistica.client.FlotaApiClient;
+import com.logistica.event.TiempoRealRegistradoEvent;
+import com.logistica.exception.TramoNotFoundException;
+import com.logistica.model.EstadoTramo;
+import com.logistica.model.Ruta;
+import com.logistica.model.Tarifa;
+import com.logistica.model.TipoMensajeSolicitudes;
+import com.logistica.model.Tramo;
+import com.logistica.repository.AvanceRuta;
+import com.logistica.repository.RutaRepository;
+import com.logistica.repository.TramoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TramoServiceTest {
+
+    private Tramo tramo(long id) {
+        Tramo tramo = new Tramo();
+        tramo.setId(id);
+        tramo.setEstado(EstadoTramo.ESTIMADO);
+        return tramo;
+    }
+
+    @Test
+    void testAsignarTramosConsecutivosUnaLecturaYUnaLlamadaAFlota() {
+        TramoRepository repository = mock(TramoRepository.class);
+        FlotaApiClient flota = mock(FlotaApiClient.class);
+        TramoService service = new TramoService(repository, mock(RutaRepository.class), flota,
+                mock(OutboxSolicitudesService.class), mock(EstadiaDepositoService.class),
+                mock(CamionInfoCache.class), mock(ApplicationEventPublisher.class));
+
+        List<Long> ids = List.of(30L, 10L, 20L);
+        // El repositorio devuelve en otro orden: se respeta el orden pedido
+        when(repository.findAllById(ids)).thenReturn(List.of(tramo(10), tramo(20), tramo(30)));
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 8, 0);
+        List<LocalDateTime> inicios = List.of(base, base.plusHours(3), base.plusHours(6));
+        List<LocalDateTime> fines = List.of(base.plusHours(2), base.plusHours(5), base.plusHours(8));
+
+        service.asignarTramosConsecutivos("AB123CD", ids, inicios, fines);
+
+        verify(repository, times(1)).findAllById(ids);
+        verify(repository, never()).findById(any());
+        verify(repository).saveAllAndFlush(argThat((List<Tramo> tramos) ->
+                tramos.stream().map(Tramo::getId).toList().equals(ids)
+                        && tramos.stream().allMatch(t -> t.getEstado() == EstadoTramo.ASIGNADO
+                                && "AB123CD".equals(t.getDominioCamionRef()))
+                        && tramos.get(0).getFechaHoraInicioEstimada().equals(base)));
+        verify(flota, times(1)).notificarAsignacionMultiple("AB123CD", ids);
+        verifyNoMoreInteractions(flota);
+    }
+
+    @Test
+    void testAsignarTramosConsecutivosTramoInexistenteNoLlamaAFlota() {
+        TramoRepository repository = mock(TramoRepository.class);
+        FlotaApiClient flota = mock(FlotaApiClient.class);
+        TramoService service = new TramoService(repository, mock(RutaRepository.class), flota,
+                mock(OutboxSolicitudesService.class), mock(EstadiaDepositoService.class),
+                mock(CamionInfoCache.class), mock(ApplicationEventPublisher.class));
+        when(repository.findAllById(any())).thenReturn(List.of(tramo(1)));
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+        assertThrows(TramoNotFoundException.class, () -> service.asignarTramosConsecutivos("AB123CD",
+                List.of(1L, 2L), List.of(base, base.plusHours(2)), List.of(base.plusHours(1), base.plusHours(3))));
+        verifyNoInteractions(flota);
+    }
+
+    @Test
+    void testFinalizarAcumulaEnLaRutaYUnaRepeticionSoloCorrigeLaDiferencia() {
+        TramoRepository repository = mock(TramoRepository.class);
+        RutaRepository rutaRepository = mock(RutaRepository.class);
+        TramoService service = new TramoService(repository, rutaRepository, mock(FlotaApiClient.class),
+                mock(OutboxSolicitudesService.class), mock(EstadiaDepositoService.class),
+                mock(CamionInfoCache.class), mock(ApplicationEventPublisher.class));
+
+        Ruta ruta = new Ruta();
+        ruta.setId(7L);
+        ruta.setNroSolicitudRef("SOL-1");
+        Tarifa tarifa = new Tarifa();
+        tarifa.setValorKMBase(10);
+        Tramo tramo = tramo(1);
+        tramo.setRuta(ruta);
+        tramo.setTarifa(tarifa);
+        tramo.setEstado(EstadoTramo.EN_CURSO);
+        when(repository.findById(1L)).thenReturn(Optional.of(tramo));
+        when(rutaRepository.obtenerAvance(7L)).thenReturn(new AvanceRuta(2, 1, 1000, 0));
+
+        // Sin camión: costo con la tarifa base
+        service.marcarTramoFinalizado(1L, 100);
+        verify(rutaRepository).acumularFinalizacion(7L, 1, 1000.0, 0.0, 100.0);
+
+        service.marcarTramoFinalizado(1L, 80);
+        verify(rutaRepository).acumularFinalizacion(7L, 0, -200.0, 0.0, -20.0);
+    }
+
+    @Test
+    void testFinalizarElUltimoTramoCompletaLaRuta() {
+        TramoRepository repository = mock(TramoRepository.class);
+        RutaRepository rutaRepository = mock(RutaRepository.class);
+        OutboxSolicitudesService outbox = mock(OutboxSolicitudesService.class);
+        TramoService service = new TramoService(repository, rutaRepository, mock(FlotaApiClient.class),
+                outbox, mock(EstadiaDepositoService.class),
+                mock(CamionInfoCache.class), mock(ApplicationEventPublisher.class));
+
+        Ruta ruta = new Ruta();
+        ruta.setId(7L);
+        ruta.setNroSolicitudRef("SOL-1");
+        Tarifa tarifa = new Tarifa();
+        tarifa.setValorKMBase(10);
+        Tramo tramo = tramo(2);
+        tramo.setRuta(ruta);
+        tramo.setTarifa(tarifa);
+        tramo.setEstado(EstadoTramo.EN_CURSO);
+        when(repository.findById(2L)).thenReturn(Optional.of(tramo));
+        // Los agregados ya incluyen este tramo: 2 de 2 finalizados
+        when(rutaRepository.obtenerAvance(7L)).thenReturn(new AvanceRuta(2, 2, 2000, 7200));
+
+        service.marcarTramoFinalizado(2L, 100);
+
+        verify(outbox).registrar(eq("SOL-1"), eq(TipoMensajeSolicitudes.RUTA_COMPLETADA), any());
+
+        // Una finalización repetida no vuelve a completar la ruta
+        service.marcarTramoFinalizado(2L, 100);
+        verify(outbox, times(1)).registrar(eq("SOL-1"), eq(TipoMensajeSolicitudes.RUTA_COMPLETADA), any());
+        verify(rutaRepository, times(1)).obtenerAvance(7L);
+    }
+
+    @Test
+    void testFinalizacionRepetidaNoVuelveACalibrar() {
+        TramoRepository repository = mock(TramoRepository.class);
+        RutaRepository rutaRepository = mock(RutaRepository.class);
+        ApplicationEventPublisher eventos = mock(ApplicationEventPublisher.class);
+        TramoService service = new TramoService(repository, rutaRepository, mock(FlotaApiClient.class),
+                mock(OutboxSolicitudesService.class), mock(EstadiaDepositoService.class),
+                mock(CamionInfoCache.class), eventos);
+
+        Ruta ruta = new Ruta();
+        ruta.setId(7L);
+        ruta.setNroSolicitudRef("SOL-1");
+        Tarifa tarifa = new Tarifa();
+        tarifa.setValorKMBase(10);
+        Tramo tramo = tramo(1);
+        tramo.setRuta(ruta);
+        tramo.setTarifa(tarifa);
+        tramo.setEstado(EstadoTramo.EN_CURSO);
+        tramo.setFechaHoraInicioReal(LocalDateTime.now().minusHours(2));
+        when(repository.findById(1L)).thenReturn(Optional.of(tramo));
+        when(rutaRepository.obtenerAvance(7L)).thenReturn(new AvanceRuta(2, 1, 1000, 7200));
+
+        service.marcarTramoFinalizado(1L, 100);
+        LocalDateTime fin = tramo.getFechaHoraFinReal();
+        double tiempoReal = tramo.getTiempoReal();
+
+        service.marcarTramoFinalizado(1L, 100);
+
+        verify(eventos, times(1)).publishEvent(any(TiempoRealRegistradoEvent.class));
+        assertEquals(fin, tramo.getFechaHoraFinReal());
+        assertEquals(tiempoReal, tramo.getTiempoReal());
+    }
+
+    @Test
+    void testAplicarCostoDefinitivoLeeBloqueadoYAjustaUnaSolaVez() {
+        TramoRepository repository = mock(TramoRepository.class);
+        OutboxSolicitudesService outbox = mock(OutboxSolicitudesService.class);
+        TramoService service = new TramoService(repository, mock(RutaRepository.class), mock(FlotaApiClient.class),
+                outbox, mock(EstadiaDepositoService.class),
+                mock(CamionInfoCache.class), mock(ApplicationEventPublisher.class));
+
+        Ruta ruta = new Ruta();
+        ruta.setId(7L);
+        ruta.setNroSolicitudRef("SOL-1");
+        Tarifa tarifa = new Tarifa();
+        tarifa.setValorKMBase(10);
+        Tramo tramo = tramo(1);
+        tramo.setRuta(ruta);
+        tramo.setTarifa(tarifa);
+        tramo.setEstado(EstadoTramo.FINALIZADO);
+        tramo.setKmRecorridos(100);
+        tramo.setCostoReal(600);
+        tramo.setCostoProvisorio(true);
+        when(repository.buscarParaCorregirCosto(1L)).thenReturn(Optional.of(tramo));
+
+        assertEquals(400.0, service.aplicarCostoDefinitivo(1L, null), 0.001);
+        // Quien llega después (reintento o listener) ya lo ve definitivo
+        assertNull(service.aplicarCostoDefinitivo(1L, null));
+
+        verify(outbox, times(1)).registrar(eq("SOL-1"), any(), any());
+        verify(repository, never()).findById(any());
+    }
+}
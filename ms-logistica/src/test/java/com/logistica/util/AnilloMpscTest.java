@@ -0,0 +1,81 @@
+package com.logistica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnilloMpscTest {
+
+    @Test
+    void testLlenoRechazaYAlDrenarLiberaLugar() {
+        AnilloMpsc<Integer> anillo = new AnilloMpsc<>(3);
+        assertEquals(4, anillo.capacidad());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(anillo.ofrecer(i));
+        }
+        assertFalse(anillo.ofrecer(99));
+
+        List<Integer> drenados = new ArrayList<>();
+        assertEquals(2, anillo.drenar(drenados, 2));
+        assertEquals(List.of(0, 1), drenados);
+        assertTrue(anillo.ofrecer(4));
+        assertTrue(anillo.ofrecer(5));
+
+        drenados.clear();
+        assertEquals(4, anillo.drenar(drenados, 10));
+        assertEquals(List.of(2, 3, 4, 5), drenados);
+        assertEquals(0, anillo.tamanio());
+    }
+
+    @Test
+    void testVariosProductoresNoPierdenNiDuplican() throws Exception {
+        int productores = 4;
+        int porProductor = 50_000;
+        AnilloMpsc<Integer> anillo = new AnilloMpsc<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(productores);
+        CountDownLatch inicio = new CountDownLatch(1);
+        for (int p = 0; p < productores; p++) {
+            int base = p * porProductor;
+            pool.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < porProductor; i++) {
+                    while (!anillo.ofrecer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            });
+        }
+
+        inicio.countDown();
+        boolean[] vistos = new boolean[productores * porProductor];
+        int[] ultimoPorProductor = new int[productores];
+        java.util.Arrays.fill(ultimoPorProductor, -1);
+        List<Integer> lote = new ArrayList<>();
+        int total = 0;
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (total < vistos.length && System.nanoTime() < limite) {
+            lote.clear();
+            anillo.drenar(lote, 256);
+            for (int valor : lote) {
+                assertFalse(vistos[valor], "duplicado " + valor);
+                vistos[valor] = true;
+                // Cada productor se lee en el orden en que escribió
+                assertTrue(valor > ultimoPorProductor[valor / porProductor]);
+                ultimoPorProductor[valor / porProductor] = valor;
+            }
+            total += lote.size();
+        }
+        pool.shutdown();
+
+        assertEquals(vistos.length, total);
+    }
+}
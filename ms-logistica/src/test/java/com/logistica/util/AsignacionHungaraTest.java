@@ -0,0 +1,89 @@
+package com.logistica.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsignacionHungaraTest {
+
+    private double costo(double[] costos, int columnas, int[] asignacion) {
+        double total = 0;
+        for (int f = 0; f < asignacion.length; f++) {
+            total += costos[f * columnas + asignacion[f]];
+        }
+        return total;
+    }
+
+    // Mínimo por fuerza bruta: todas las formas de elegir una columna distinta por fila
+    private double minimoExhaustivo(double[] costos, int filas, int columnas, int fila, boolean[] usadas) {
+        if (fila == filas) {
+            return 0;
+        }
+        double mejor = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < columnas; c++) {
+            if (!usadas[c]) {
+                usadas[c] = true;
+                mejor = Math.min(mejor, costos[fila * columnas + c]
+                        + minimoExhaustivo(costos, filas, columnas, fila + 1, usadas));
+                usadas[c] = false;
+            }
+        }
+        return mejor;
+    }
+
+    @Test
+    void testCoincideConBusquedaExhaustiva() {
+        Random random = new Random(42);
+        for (int caso = 0; caso < 200; caso++) {
+            int filas = 1 + random.nextInt(5);
+            int columnas = filas + random.nextInt(3);
+            double[] costos = new double[filas * columnas];
+            for (int i = 0; i < costos.length; i++) {
+                costos[i] = random.nextInt(10) == 0 ? AsignacionHungara.INVIABLE : random.nextInt(1000) / 10.0;
+            }
+
+            int[] asignacion = AsignacionHungara.resolver(costos, filas, columnas);
+
+            Set<Integer> columnasUsadas = new HashSet<>();
+            for (int c : asignacion) {
+                assertTrue(columnasUsadas.add(c), "columna repetida");
+            }
+            double esperado = minimoExhaustivo(costos, filas, columnas, 0, new boolean[columnas]);
+            // Con pares INVIABLES la suma ronda 1e12: tolerancia relativa
+            assertEquals(esperado, costo(costos, columnas, asignacion), Math.max(1e-6, esperado * 1e-12));
+        }
+    }
+
+    @Test
+    void testEvitaParesInviablesSiHayAlternativa() {
+        // La fila 0 sólo puede ir a la columna 1, aunque la columna 0 sea más barata para ambas
+        double I = AsignacionHungara.INVIABLE;
+        double[] costos = {
+                I, 50,
+                1, 100
+        };
+        assertArrayEquals(new int[]{1, 0}, AsignacionHungara.resolver(costos, 2, 2));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkTrescientosCamionesPorTresMilTramos() {
+        int filas = 300;
+        int columnas = 3000;
+        Random random = new Random(7);
+        double[] costos = new double[filas * columnas];
+        for (int i = 0; i < costos.length; i++) {
+            costos[i] = random.nextInt(5) == 0 ? AsignacionHungara.INVIABLE : random.nextDouble() * 100_000;
+        }
+        for (int i = 0; i < 3; i++) {
+            long inicio = System.nanoTime();
+            AsignacionHungara.resolver(costos, filas, columnas);
+            System.out.printf("Húngaro %dx%d: %d ms%n", filas, columnas, (System.nanoTime() - inicio) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.logistica.util;
+
+import com.logistica.util.GeometriaCodec.Puntos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeometriaCodecTest {
+
+    // Recorrido tipo ruta: pasos de ~10-100 m con curvas
+    private Puntos recorrido(int n, long semilla) {
+        Random random = new Random(semilla);
+        int[] lat = new int[n];
+        int[] lon = new int[n];
+        lat[0] = -31_416_000;
+        lon[0] = -64_183_000;
+        double rumbo = 0;
+        for (int i = 1; i < n; i++) {
+            rumbo += random.nextGaussian() * 0.2;
+            double paso = 100 + random.nextInt(800);
+            lat[i] = lat[i - 1] + (int) (Math.cos(rumbo) * paso);
+            lon[i] = lon[i - 1] + (int) (Math.sin(rumbo) * paso);
+        }
+        return new Puntos(lat, lon);
+    }
+
+    @Test
+    void testVarintIdaYVuelta() {
+        Puntos puntos = recorrido(5000, 1);
+
+        byte[] datos = GeometriaCodec.codificar(puntos);
+        Puntos leidos = GeometriaCodec.decodificar(datos);
+
+        assertArrayEquals(puntos.latE6(), leidos.latE6());
+        assertArrayEquals(puntos.lonE6(), leidos.lonE6());
+        // Deltas de hasta ~900 millonésimas: 2 bytes por coordenada como mucho
+        assertTrue(datos.length <= 4 * puntos.size() + 4, datos.length + " bytes");
+    }
+
+    @Test
+    void testPolylineEjemploDeGoogle() {
+        Puntos puntos = new Puntos(
+                new int[]{38_500_000, 40_700_000, 43_252_000},
+                new int[]{-120_200_000, -120_950_000, -126_453_000});
+
+        String polyline = GeometriaCodec.codificarPolyline(puntos, 5);
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", polyline);
+        Puntos leidos = GeometriaCodec.decodificarPolyline(polyline, 5);
+        assertArrayEquals(puntos.latE6(), leidos.latE6());
+        assertArrayEquals(puntos.lonE6(), leidos.lonE6());
+    }
+
+    @Test
+    void testPolyline6IdaYVuelta() {
+        Puntos puntos = recorrido(300, 2);
+
+        Puntos leidos = GeometriaCodec.decodificarPolyline(GeometriaCodec.codificarPolyline(puntos, 6), 6);
+
+        assertArrayEquals(puntos.latE6(), leidos.latE6());
+        assertArrayEquals(puntos.lonE6(), leidos.lonE6());
+    }
+
+    @Test
+    void testNivelesAnidadosYExtremosSiempre() {
+        Puntos puntos = recorrido(3000, 3);
+        double[] tolerancias = {500, 100, 20};
+
+        byte[] niveles = GeometriaCodec.niveles(puntos, tolerancias);
+
+        assertEquals(0, niveles[0]);
+        assertEquals(0, niveles[niveles.length - 1]);
+        int anterior = 0;
+        for (int nivel = 0; nivel <= tolerancias.length; nivel++) {
+            int cantidad = GeometriaCodec.filtrar(puntos, niveles, nivel).size();
+            assertTrue(cantidad >= anterior, "los niveles más finos no pierden puntos");
+            anterior = cantidad;
+        }
+        assertTrue(GeometriaCodec.filtrar(puntos, niveles, 0).size() < puntos.size() / 10);
+        assertEquals(puntos.size(), GeometriaCodec.filtrar(puntos, niveles, tolerancias.length).size());
+    }
+
+    @Test
+    void testRectaSeReduceASusExtremos() {
+        int n = 50;
+        int[] lat = new int[n];
+        int[] lon = new int[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = -31_000_000 + i * 1000;
+            lon[i] = -64_000_000 + i * 500;
+        }
+
+        byte[] niveles = GeometriaCodec.niveles(new Puntos(lat, lon), new double[]{10});
+
+        assertEquals(2, GeometriaCodec.filtrar(new Puntos(lat, lon), niveles, 0).size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.logistica.util;
+
+import com.logistica.util.GeometriaCodec.Puntos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceTrazadoTest {
+
+    // Recorrido con curvas de ~2000 puntos (unos 100 km)
+    private Puntos recorrido(int n, long semilla) {
+        Random random = new Random(semilla);
+        int[] lat = new int[n];
+        int[] lon = new int[n];
+        lat[0] = -31_416_000;
+        lon[0] = -64_183_000;
+        double rumbo = 0;
+        for (int i = 1; i < n; i++) {
+            rumbo += random.nextGaussian() * 0.1;
+            double paso = 200 + random.nextInt(600);
+            lat[i] = lat[i - 1] + (int) (Math.cos(rumbo) * paso);
+            lon[i] = lon[i - 1] + (int) (Math.sin(rumbo) * paso);
+        }
+        return new Puntos(lat, lon);
+    }
+
+    @Test
+    void testRectaProgresoProporcional() {
+        // 0.1 grados de latitud hacia el norte: ~11 km
+        Puntos recta = new Puntos(new int[]{-31_000_000, -30_900_000}, new int[]{-64_000_000, -64_000_000});
+        IndiceTrazado indice = new IndiceTrazado(recta, 500);
+
+        // A un cuarto del camino y ~100 m al este
+        IndiceTrazado.Proyeccion p = indice.proyectar(-30.975, -63.99895, 2000);
+
+        assertEquals(0.25, p.progreso(), 1e-3);
+        assertEquals(100, p.desvioMetros(), 2);
+        assertEquals(11_054, indice.largoMetros(), 1);
+    }
+
+    @Test
+    void testExtremosSeAcotan() {
+        Puntos recta = new Puntos(new int[]{-31_000_000, -30_900_000}, new int[]{-64_000_000, -64_000_000});
+        IndiceTrazado indice = new IndiceTrazado(recta, 500);
+
+        assertEquals(0, indice.proyectar(-31.01, -64.0, 2000).progreso(), 1e-9);
+        assertEquals(1, indice.proyectar(-30.89, -64.0, 2000).progreso(), 1e-9);
+    }
+
+    @Test
+    void testCoincideConRecorridoCompleto() {
+        Puntos puntos = recorrido(2000, 7);
+        IndiceTrazado indice = new IndiceTrazado(puntos, 500);
+        // Una sola celda: recorre todos los segmentos
+        IndiceTrazado sinIndice = new IndiceTrazado(puntos, 1e9);
+        Random random = new Random(11);
+
+        for (int k = 0; k < 500; k++) {
+            int i = random.nextInt(puntos.size());
+            // Hasta ~3 km del trazado, más allá del radio de búsqueda en varios casos
+            double lat = puntos.latE6()[i] / 1e6 + (random.nextDouble() - 0.5) * 0.05;
+            double lon = puntos.lonE6()[i] / 1e6 + (random.nextDouble() - 0.5) * 0.05;
+
+            IndiceTrazado.Proyeccion conIndice = indice.proyectar(lat, lon, 1000);
+            IndiceTrazado.Proyeccion completo = sinIndice.proyectar(lat, lon, 0);
+
+            assertEquals(completo.desvioMetros(), conIndice.desvioMetros(), 1e-6);
+            assertEquals(completo.recorridoMetros(), conIndice.recorridoMetros(), 1e-6);
+        }
+    }
+
+    @Test
+    void testRectaLargaSoloOcupaLasCeldasQueAtraviesa() {
+        // Línea recta de ~650 km en diagonal, como el trazado aproximado sin motor de ruteo
+        Puntos recta = new Puntos(new int[]{-31_416_000, -34_603_000}, new int[]{-64_183_000, -58_381_000});
+        IndiceTrazado indice = new IndiceTrazado(recta, 500);
+        IndiceTrazado sinIndice = new IndiceTrazado(recta, 1e9);
+
+        // Del orden del largo en celdas, no del área del rectángulo envolvente
+        assertTrue(indice.cantidadCeldas() < 3 * indice.largoMetros() / 500, "celdas: " + indice.cantidadCeldas());
+
+        Random random = new Random(3);
+        for (int k = 0; k < 500; k++) {
+            double t = random.nextDouble();
+            double lat = -31.416 + t * (-34.603 + 31.416) + (random.nextDouble() - 0.5) * 0.02;
+            double lon = -64.183 + t * (-58.381 + 64.183) + (random.nextDouble() - 0.5) * 0.02;
+
+            IndiceTrazado.Proyeccion conIndice = indice.proyectar(lat, lon, 2000);
+            IndiceTrazado.Proyeccion completo = sinIndice.proyectar(lat, lon, 0);
+
+            assertEquals(completo.desvioMetros(), conIndice.desvioMetros(), 1e-6);
+            assertEquals(completo.recorridoMetros(), conIndice.recorridoMetros(), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.logistica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testLlamadasConcurrentesCompartenUnSoloCalculo() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                resultados.add(executor.submit(() -> singleFlight.ejecutar("SOL-1", () -> {
+                    ejecuciones.incrementAndGet();
+                    try {
+                        liberar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 42;
+                })));
+            }
+            // Esperar a que todas estén esperando al mismo cálculo
+            long limite = System.currentTimeMillis() + 5000;
+            while (ejecuciones.get() == 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            liberar.countDown();
+
+            for (Future<Integer> resultado : resultados) {
+                assertEquals(42, resultado.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, ejecuciones.get());
+            assertEquals(0, singleFlight.enCurso());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLaExcepcionSePropagaYLiberaLaClave() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class,
+                () -> singleFlight.ejecutar("SOL-2", () -> { throw new IllegalStateException("falla"); }));
+        assertEquals(7, singleFlight.ejecutar("SOL-2", () -> 7));
+    }
+}
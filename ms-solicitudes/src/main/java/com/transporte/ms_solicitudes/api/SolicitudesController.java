@@ -92,12 +92,26 @@ public class SolicitudesController {
     }
 
     // Endpoint llamado por ms-logistica al finalizar un tramo (suma costos)
+    // Idempotency-Key: un reintento con la misma clave no vuelve a sumar
     @PutMapping("/{nro}/actualizar-metricas")
     public ResponseEntity<Void> actualizarMetricas(
             @PathVariable String nro,
-            @RequestBody TramoFinalizadoDTO request) { // Usamos el DTO de clase
+            @RequestBody TramoFinalizadoDTO request, // Usamos el DTO de clase
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
 
-        service.actualizarMetricas(nro, request);
+        service.actualizarMetricas(nro, request, claveIdempotencia);
+        return ResponseEntity.ok().build();
+    }
+
+    // Endpoint llamado por ms-logistica cuando recalcula el costo real de un tramo
+    // (suma la diferencia, no el costo completo)
+    @PutMapping("/{nro}/ajuste-costo")
+    public ResponseEntity<Void> ajustarCosto(
+            @PathVariable String nro,
+            @RequestBody AjusteCostoDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
+
+        service.ajustarCosto(nro, request, claveIdempotencia);
         return ResponseEntity.ok().build();
     }
 
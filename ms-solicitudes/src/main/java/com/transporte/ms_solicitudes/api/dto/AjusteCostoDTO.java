@@ -0,0 +1,17 @@
+package com.transporte.ms_solicitudes.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Corrección del costo de un tramo ya informado (ms-logistica recalculó su costo real).
+ * delta = costo nuevo - costo informado antes; puede ser negativo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AjusteCostoDTO {
+    private Long idTramo;
+    private double delta;
+}
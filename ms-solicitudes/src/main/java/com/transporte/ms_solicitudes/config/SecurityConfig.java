@@ -42,6 +42,7 @@ public class SecurityConfig {
                                                 // En SecurityConfig de ms-solicitudes
                                                 .requestMatchers(HttpMethod.PUT, "/api/v1/solicitudes/*/estado").hasAnyRole("OPERADOR", "TRANSPORTISTA")
                                                 .requestMatchers(HttpMethod.PUT, "/api/v1/solicitudes/*/actualizar-metricas").hasAnyRole("OPERADOR", "TRANSPORTISTA")
+                                                .requestMatchers(HttpMethod.PUT, "/api/v1/solicitudes/*/ajuste-costo").hasAnyRole("OPERADOR", "TRANSPORTISTA")
 
 
                                                 // Denegar todo lo demás por defecto
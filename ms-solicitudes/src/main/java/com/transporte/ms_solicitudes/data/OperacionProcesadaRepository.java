@@ -0,0 +1,19 @@
+package com.transporte.ms_solicitudes.data;
+
+import com.transporte.ms_solicitudes.model.OperacionProcesada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OperacionProcesadaRepository extends JpaRepository<OperacionProcesada, String> {
+
+    /**
+     * Registra la clave en la transacción en curso. Devuelve 0 si ya estaba
+     * (la operación se aplicó antes o la está aplicando un pedido simultáneo).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO operaciones_procesadas (clave, procesada_en) VALUES (:clave, now()) " +
+                   "ON CONFLICT (clave) DO NOTHING", nativeQuery = true)
+    int registrarSiNoExiste(@Param("clave") String clave);
+}
@@ -0,0 +1,28 @@
+package com.transporte.ms_solicitudes.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clave de idempotencia de una notificación de ms-logistica ya aplicada.
+ * Las notificaciones suman costos y tiempos, así que un reintento no se debe aplicar dos veces.
+ */
+@Entity
+@Table(name = "operaciones_procesadas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionProcesada {
+    @Id
+    private String clave;
+
+    @Column(nullable = false)
+    private LocalDateTime procesadaEn;
+}
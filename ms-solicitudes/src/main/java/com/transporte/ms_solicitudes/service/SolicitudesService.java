@@ -1,10 +1,12 @@
 package com.transporte.ms_solicitudes.service;
 
+import com.transporte.ms_solicitudes.api.dto.AjusteCostoDTO;
 import com.transporte.ms_solicitudes.api.dto.EstadoContenedorDTO;
 import com.transporte.ms_solicitudes.api.dto.SolicitudRequestDTO;
 import com.transporte.ms_solicitudes.api.dto.TramoFinalizadoDTO;
 import com.transporte.ms_solicitudes.data.ClienteRepository;
 import com.transporte.ms_solicitudes.data.ContenedorRepository;
+import com.transporte.ms_solicitudes.data.OperacionProcesadaRepository;
 import com.transporte.ms_solicitudes.data.SolicitudRepository;
 import com.transporte.ms_solicitudes.model.*;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +24,7 @@ public class SolicitudesService {
     private final SolicitudRepository solicitudRepository;
     private final ClienteRepository clienteRepository;
     private final ContenedorRepository contenedorRepository;
+    private final OperacionProcesadaRepository operacionRepository;
 
     @Transactional
     public Solicitud crearSolicitud(SolicitudRequestDTO req, String idClienteAutenticado) {
@@ -126,8 +129,15 @@ public class SolicitudesService {
 
     }
 
+    /**
+     * Suma costo y tiempo del tramo. Con clave de idempotencia, un reintento de la
+     * misma notificación no vuelve a sumar.
+     */
     @Transactional
-    public void actualizarMetricas(String nro, TramoFinalizadoDTO info) {
+    public void actualizarMetricas(String nro, TramoFinalizadoDTO info, String claveIdempotencia) {
+        if (yaProcesada(claveIdempotencia)) {
+            return;
+        }
         Solicitud solicitud = solicitudRepository.findById(nro)
                 .orElseThrow(() -> new RuntimeException("Solicitud no encontrada: " + nro));
 
@@ -165,6 +175,24 @@ public class SolicitudesService {
         }
     }
 
+    @Transactional
+    public void ajustarCosto(String nro, AjusteCostoDTO ajuste, String claveIdempotencia) {
+        if (yaProcesada(claveIdempotencia)) {
+            return;
+        }
+        Solicitud solicitud = solicitudRepository.findById(nro)
+                .orElseThrow(() -> new RuntimeException("Solicitud no encontrada: " + nro));
+
+        double costoActual = solicitud.getCostoFinal() == null ? 0.0 : solicitud.getCostoFinal();
+        solicitud.setCostoFinal(costoActual + ajuste.getDelta());
+        solicitudRepository.save(solicitud);
+    }
+
+    // La clave se guarda en la misma transacción que el cambio: si hay rollback, el reintento se aplica
+    private boolean yaProcesada(String claveIdempotencia) {
+        return claveIdempotencia != null && operacionRepository.registrarSiNoExiste(claveIdempotencia) == 0;
+    }
+
     // Método para el endpoint de consulta
     public EstadoContenedorDTO obtenerEstadoContenedor(String idContenedor) {
         Contenedor c = contenedorRepository.findById(idContenedor)
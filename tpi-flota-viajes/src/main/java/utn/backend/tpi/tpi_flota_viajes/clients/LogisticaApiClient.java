@@ -1,5 +1,6 @@
 package utn.backend.tpi.tpi_flota_viajes.clients;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
@@ -9,6 +10,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 
 import utn.backend.tpi.tpi_flota_viajes.clients.dto.TramoDTO;
+import utn.backend.tpi.tpi_flota_viajes.dto.response.CamionResponse;
 import utn.backend.tpi.tpi_flota_viajes.exception.BadRequestException;
 
 import java.time.LocalDateTime;
@@ -16,6 +18,7 @@ import java.util.Map;
 
 
 @Component
+@Slf4j
 public class LogisticaApiClient {
     private final RestClient restClient;
 
@@ -118,4 +121,20 @@ public class LogisticaApiClient {
                 })
                 .toBodilessEntity();
     }
-}
\ No newline at end of file
+
+    /**
+     * Avisa a ms-logistica que cambiaron los datos de un camión (consumo, costo por km),
+     * para que actualice su cache. Best-effort: si falla, la cache vence sola por TTL.
+     */
+    public void notificarCamionActualizado(CamionResponse camion) {
+        try {
+            restClient.post()
+                    .uri("/api/v1/camiones/{dominio}/actualizado", camion.getDominio())
+                    .body(camion)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception e) {
+            log.warn("No se pudo avisar a Logística del camión {}: {}", camion.getDominio(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package utn.backend.tpi.tpi_flota_viajes.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exchange de eventos de viajes y conversión a JSON (MS Logística los consume por lotes).
+ * También la cola de rechazos: los inicios/fines que MS Logística no pudo aplicar.
+ */
+@Configuration
+public class RabbitConfig {
+
+    public static final String EXCHANGE_EVENTOS = "flota-viajes-events";
+    public static final String EXCHANGE_LOGISTICA = "logistica-events";
+    public static final String COLA_TRAMOS_RECHAZADOS = "flota.tramos.rechazados";
+
+    @Bean
+    public TopicExchange flotaViajesExchange() {
+        return new TopicExchange(EXCHANGE_EVENTOS, true, false);
+    }
+
+    // Lo declara también MS Logística, que es quien publica
+    @Bean
+    public TopicExchange logisticaExchange() {
+        return new TopicExchange(EXCHANGE_LOGISTICA, true, false);
+    }
+
+    @Bean
+    public Queue tramosRechazados() {
+        return QueueBuilder.durable(COLA_TRAMOS_RECHAZADOS).build();
+    }
+
+    @Bean
+    public Binding bindingTramosRechazados(Queue tramosRechazados, TopicExchange logisticaExchange) {
+        return BindingBuilder.bind(tramosRechazados).to(logisticaExchange).with("tramo.rechazado");
+    }
+
+    // Mismo ObjectMapper que la API: fechas ISO, legibles desde otros servicios
+    @Bean
+    public MessageConverter jsonMessageConverter(ObjectMapper objectMapper) {
+        return new Jackson2JsonMessageConverter(objectMapper);
+    }
+}
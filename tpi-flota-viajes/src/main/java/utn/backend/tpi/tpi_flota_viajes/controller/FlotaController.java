@@ -165,10 +165,9 @@ public class FlotaController {
             @PathVariable String dominio,
             @RequestBody AsignacionSimpleRequest request) {
 
-        if (request.getTramoIds() != null) {
-            for (Long tramoId : request.getTramoIds()) {
-                camionService.asignarCamionATramo(dominio, tramoId);
-            }
+        // Una sola transacción para todo el lote: si un tramo falla no queda ninguno asignado
+        if (request.getTramoIds() != null && !request.getTramoIds().isEmpty()) {
+            camionService.asignarCamionATramos(dominio, request.getTramoIds());
         }
 
         return ResponseEntity.ok().build();
@@ -17,6 +17,7 @@ public class CamionMapper {
                 .transportistaId(getTransportistaId(entity))  // ← Helper method
                 .transportistaNombre(getTransportistaNombre(entity))  // ← Helper method
                 .tramoEnCursoId(entity.getTramoEnEjecucion())
+                .proximaDisponibilidad(entity.getProximaDisponibilidad())
                 .build();
     }
 
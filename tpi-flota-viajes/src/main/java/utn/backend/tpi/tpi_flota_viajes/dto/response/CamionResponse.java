@@ -19,6 +19,7 @@ public class CamionResponse {
     private Long transportistaId;
     private String transportistaNombre;
     private Long tramoEnCursoId;
+    private LocalDateTime proximaDisponibilidad;  // fin del último tramo programado (null si está libre)
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
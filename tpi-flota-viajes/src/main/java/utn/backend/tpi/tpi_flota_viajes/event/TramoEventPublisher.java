@@ -1,44 +1,43 @@
 package utn.backend.tpi.tpi_flota_viajes.event;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import utn.backend.tpi.tpi_flota_viajes.config.RabbitConfig;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Publisher de eventos para RabbitMQ.
- * Solo se crea si RabbitTemplate está disponible (RabbitMQ configurado).
+ * Los métodos devuelven false si no se pudo publicar (broker caído, sin confirm
+ * o sin cola para la routing key), para que quien llama pueda usar la API REST
+ * como alternativa.
  */
 @Component
-@ConditionalOnBean(RabbitTemplate.class)
-@RequiredArgsConstructor
 @Slf4j
 public class TramoEventPublisher {
     private final RabbitTemplate rabbitTemplate;
+    private final long esperaConfirmacionMs;
 
     // Nombre del exchange (tema principal)
-    private static final String EXCHANGE_NAME = "flota-viajes-events";
+    private static final String EXCHANGE_NAME = RabbitConfig.EXCHANGE_EVENTOS;
+
+    public TramoEventPublisher(RabbitTemplate rabbitTemplate,
+            @Value("${app.eventos.confirmacion-ms:5000}") long esperaConfirmacionMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.esperaConfirmacionMs = esperaConfirmacionMs;
+    }
 
     /**
      * Publicar evento: Tramo INICIADO
      * Este evento notifica a otros MSs que un tramo comenzó
      * Lo reciben: MS Solicitudes (para actualizar tracking), MS Logística (para actualizar estado)
      */
-    public void publicarTramoIniciado(TramoIniciadoEvent evento) {
+    public boolean publicarTramoIniciado(TramoIniciadoEvent evento) {
         log.info("Publicando evento 'tramo.iniciado' para tramo: {}", evento.getIdTramo());
-
-        try {
-            rabbitTemplate.convertAndSend(
-                    EXCHANGE_NAME,
-                    "tramo.iniciado",
-                    evento
-            );
-            log.debug("Evento 'tramo.iniciado' enviado exitosamente a RabbitMQ");
-        } catch (Exception e) {
-            log.error("Error al publicar evento 'tramo.iniciado': {}", e.getMessage(), e);
-            // Nota: En producción, podrías implementar reintentOS o guardar en BD para reintentOS posteriores
-        }
+        return publicar("tramo.iniciado", evento, evento.getIdTramo());
     }
 
     /**
@@ -46,18 +45,36 @@ public class TramoEventPublisher {
      * Este evento notifica a otros MSs que un tramo terminó
      * Lo reciben: MS Solicitudes (para actualizar tracking), MS Logística (para calcular costos finales)
      */
-    public void publicarTramoFinalizado(TramoFinalizadoEvent evento) {
+    public boolean publicarTramoFinalizado(TramoFinalizadoEvent evento) {
         log.info("Publicando evento 'tramo.finalizado' para tramo: {}", evento.getIdTramo());
+        return publicar("tramo.finalizado", evento, evento.getIdTramo());
+    }
 
+    // Espera el confirm del broker (publisher-confirm-type: correlated); con mandatory,
+    // un mensaje sin cola vuelve como devuelto antes del confirm
+    private boolean publicar(String routingKey, Object evento, Long idTramo) {
+        CorrelationData correlacion = new CorrelationData(routingKey + "-" + idTramo);
         try {
-            rabbitTemplate.convertAndSend(
-                    EXCHANGE_NAME,
-                    "tramo.finalizado",
-                    evento
-            );
-            log.debug("Evento 'tramo.finalizado' enviado exitosamente a RabbitMQ");
+            rabbitTemplate.convertAndSend(EXCHANGE_NAME, routingKey, evento, correlacion);
+            CorrelationData.Confirm confirmacion = correlacion.getFuture()
+                    .get(esperaConfirmacionMs, TimeUnit.MILLISECONDS);
+            if (!confirmacion.isAck()) {
+                log.error("RabbitMQ no confirmó '{}' del tramo {}: {}", routingKey, idTramo, confirmacion.getReason());
+                return false;
+            }
+            if (correlacion.getReturned() != null) {
+                log.error("'{}' del tramo {} no llegó a ninguna cola: {}", routingKey, idTramo,
+                        correlacion.getReturned().getReplyText());
+                return false;
+            }
+            log.debug("Evento '{}' confirmado por RabbitMQ", routingKey);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
-            log.error("Error al publicar evento 'tramo.finalizado': {}", e.getMessage(), e);
+            log.error("Error al publicar evento '{}': {}", routingKey, e.getMessage(), e);
+            return false;
         }
     }
 }
@@ -0,0 +1,21 @@
+package utn.backend.tpi.tpi_flota_viajes.event;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lo publica MS Logística cuando no pudo aplicar un tramo.iniciado o tramo.finalizado
+ * (el evento quedó en su DLQ): el cambio que se hizo en el camión hay que deshacerlo
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TramoRechazadoEvent {
+    private Long idTramo;
+    private String dominioCamion;
+    private String evento;  // tramo.iniciado | tramo.finalizado
+    private Double kmRecorridos;
+    private String motivo;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,28 @@
+package utn.backend.tpi.tpi_flota_viajes.event;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import utn.backend.tpi.tpi_flota_viajes.config.RabbitConfig;
+import utn.backend.tpi.tpi_flota_viajes.service.TramoExecutionService;
+
+/**
+ * Consume los rechazos de MS Logística y deshace el cambio del camión
+ * (sólo en modo eventos, que es cuando el camión cambia antes de que Logística valide)
+ */
+@Component
+@ConditionalOnProperty(name = "app.tramos.modo", havingValue = "eventos")
+@RequiredArgsConstructor
+@Slf4j
+public class TramoRechazadoListener {
+
+    private final TramoExecutionService tramoExecutionService;
+
+    @RabbitListener(queues = RabbitConfig.COLA_TRAMOS_RECHAZADOS)
+    public void alRechazarTramo(TramoRechazadoEvent evento) {
+        log.warn("MS Logística rechazó {} del tramo {}: {}", evento.getEvento(), evento.getIdTramo(), evento.getMotivo());
+        tramoExecutionService.compensarRechazo(evento);
+    }
+}
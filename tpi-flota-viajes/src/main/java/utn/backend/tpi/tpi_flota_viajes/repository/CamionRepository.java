@@ -35,4 +35,10 @@ public interface CamionRepository extends JpaRepository<Camion, Long> {
     boolean existsByTransportistaAndEstado(Transportista transportista, EstadoCamion estado);
 
     List<Camion> findByTransportistaIdAndEstado(Long transportistaId, EstadoCamion estado);
+
+    // Camión que tiene el tramo en su lista de programados (inicio sin consultar a ms-logistica)
+    @Query("SELECT c FROM Camion c WHERE :tramoId MEMBER OF c.tramosProgramados")
+    Optional<Camion> findByTramoProgramado(@Param("tramoId") Long tramoId);
+
+    Optional<Camion> findByTramoEnEjecucion(Long tramoEnEjecucion);
 }
\ No newline at end of file
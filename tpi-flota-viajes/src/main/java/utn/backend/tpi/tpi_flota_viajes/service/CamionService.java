@@ -15,7 +15,11 @@ import utn.backend.tpi.tpi_flota_viajes.exception.BadRequestException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import utn.backend.tpi.tpi_flota_viajes.clients.LogisticaApiClient;
 
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +31,7 @@ import java.util.stream.Collectors;
 public class CamionService {
     private final CamionRepository camionRepository;
     private final TransportistaRepository transportistaRepository;
+    private final LogisticaApiClient logisticaApiClient;
 
     /**
      * Crear un nuevo camión
@@ -97,7 +102,9 @@ public class CamionService {
             log.info("Camión creado exitosamente con ID: {}, dominio: {}, transportista: {}",
                     guardado.getId(), guardado.getDominio(), transportista.getNombre());
 
-            return CamionMapper.toResponse(guardado);
+            CamionResponse response = CamionMapper.toResponse(guardado);
+            notificarCamionActualizado(response);
+            return response;
 
         } catch (DataIntegrityViolationException e) {
             // Captura race condition: dos peticiones simultáneas con mismo dominio
@@ -107,6 +114,23 @@ public class CamionService {
         }
     }
 
+    /**
+     * Después del commit, avisa a ms-logistica para que tenga el camión en su cache
+     * de costos (evento de camión actualizado)
+     */
+    private void notificarCamionActualizado(CamionResponse camion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            logisticaApiClient.notificarCamionActualizado(camion);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                logisticaApiClient.notificarCamionActualizado(camion);
+            }
+        });
+    }
+
     /**
      * Obtener camión por ID
      */
@@ -348,18 +372,81 @@ public class CamionService {
         }
     }
 
+    /**
+     * Deshace ocuparCamion cuando MS Logística rechazó el inicio: el tramo vuelve
+     * a ser el próximo programado y el camión queda ASIGNADO. Transacción propia:
+     * también se llama desde afterCommit, donde la transacción original ya terminó.
+     *
+     * @return false si el camión ya no está en ese tramo (no hay nada que deshacer)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean revertirInicio(String dominio, Long tramoId) {
+        Camion camion = camionRepository.findByDominio(dominio)
+                .orElseThrow(() -> new NotFoundException("Camión con dominio " + dominio + " no encontrado"));
+
+        if (camion.getEstado() != EstadoCamion.EN_VIAJE || !tramoId.equals(camion.getTramoEnEjecucion())) {
+            log.warn("Inicio rechazado del tramo {} no revertido: el camión {} está {} (tramo en ejecución {})",
+                    tramoId, dominio, camion.getEstado(), camion.getTramoEnEjecucion());
+            return false;
+        }
+
+        camion.setTramoEnEjecucion(null);
+        camion.getTramosProgramados().add(0, tramoId);
+        camion.setEstado(EstadoCamion.ASIGNADO);
+        camionRepository.save(camion);
+        log.info("Inicio del tramo {} revertido en el camión {}", tramoId, dominio);
+        return true;
+    }
+
+    /**
+     * Deshace liberarCamion cuando MS Logística rechazó el fin: el camión vuelve a
+     * EN_VIAJE en ese tramo y se descuentan los km sumados.
+     *
+     * @return false si el camión ya empezó otro tramo (hay que resolverlo a mano)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean revertirFin(String dominio, Long tramoId, double kmRecorridos) {
+        Camion camion = camionRepository.findByDominio(dominio)
+                .orElseThrow(() -> new NotFoundException("Camión con dominio " + dominio + " no encontrado"));
+
+        if (camion.getEstado() == EstadoCamion.EN_VIAJE || camion.getTramoEnEjecucion() != null) {
+            log.error("Fin rechazado del tramo {} no revertido: el camión {} ya está en el tramo {}",
+                    tramoId, dominio, camion.getTramoEnEjecucion());
+            return false;
+        }
+
+        camion.setTramoEnEjecucion(tramoId);
+        camion.setKmRecorridos(Math.max(0, camion.getKmRecorridos() - kmRecorridos));
+        camion.setEstado(EstadoCamion.EN_VIAJE);
+        camionRepository.save(camion);
+        log.info("Fin del tramo {} revertido en el camión {}", tramoId, dominio);
+        return true;
+    }
+
     /**
      * Asignar camión a tramo (solo reserva, no inicia)
      * Usado por el operador para asignar trabajo al transportista
      */
     @Transactional
     public void asignarCamionATramo(String dominio, Long tramoId) {
-        log.debug("Asignando camión {} al tramo {} (estado ASIGNADO)", dominio, tramoId);
+        asignarCamionATramos(dominio, java.util.List.of(tramoId));
+    }
 
-        // VALIDACIÓN: tramoId debe ser válido
-        if (tramoId == null || tramoId <= 0) {
-            log.warn("Intento de asignar tramoId inválido. Camión: {}, Tramo: {}", dominio, tramoId);
-            throw new BadRequestException("ID de tramo inválido");
+    /**
+     * Asignar camión a varios tramos en una sola transacción (todos o ninguno).
+     * Los tramos que ya estaban programados en el camión se ignoran, así un
+     * reintento de ms-logistica no los duplica.
+     */
+    @Transactional
+    public void asignarCamionATramos(String dominio, java.util.List<Long> tramoIds) {
+        log.debug("Asignando camión {} a los tramos {} (estado ASIGNADO)", dominio, tramoIds);
+
+        // VALIDACIÓN: todos los tramoId deben ser válidos
+        for (Long tramoId : tramoIds) {
+            if (tramoId == null || tramoId <= 0) {
+                log.warn("Intento de asignar tramoId inválido. Camión: {}, Tramo: {}", dominio, tramoId);
+                throw new BadRequestException("ID de tramo inválido");
+            }
         }
 
         Camion camion = camionRepository.findByDominio(dominio)
@@ -367,8 +454,8 @@ public class CamionService {
 
         // VALIDACIÓN: Camión debe estar disponible (DISPONIBLE o PROGRAMADO)
         if (camion.getEstado() == EstadoCamion.EN_VIAJE || camion.getEstado() == EstadoCamion.MANTENIMIENTO) {
-            log.warn("Intento de asignar tramo a camión no disponible. Camión: {}, Estado: {}, Tramo: {}",
-                    dominio, camion.getEstado(), tramoId);
+            log.warn("Intento de asignar tramos a camión no disponible. Camión: {}, Estado: {}, Tramos: {}",
+                    dominio, camion.getEstado(), tramoIds);
             throw new ConflictException("El camión no está disponible para asignación");
         }
 
@@ -380,8 +467,12 @@ public class CamionService {
             throw new ConflictException("El transportista ya tiene un tramo en curso");
         }
 
-        // Agregar tramo a la lista de programados
-        camion.getTramosProgramados().add(tramoId);
+        // Agregar tramos a la lista de programados (en el orden recibido)
+        for (Long tramoId : tramoIds) {
+            if (!camion.getTramosProgramados().contains(tramoId)) {
+                camion.getTramosProgramados().add(tramoId);
+            }
+        }
 
         // Actualizar estado
         if (camion.getTramosProgramados().size() == 1) {
@@ -392,8 +483,8 @@ public class CamionService {
 
         camionRepository.save(camion);
 
-        log.info("Camión {} asignado al tramo {}. Transportista: {} - Estado: {}",
-                dominio, tramoId, transportista.getNombre(), camion.getEstado());
+        log.info("Camión {} asignado a los tramos {}. Transportista: {} - Estado: {}",
+                dominio, tramoIds, transportista.getNombre(), camion.getEstado());
     }
 
     /**
@@ -2,17 +2,27 @@ package utn.backend.tpi.tpi_flota_viajes.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import utn.backend.tpi.tpi_flota_viajes.clients.LogisticaApiClient;
 import utn.backend.tpi.tpi_flota_viajes.clients.dto.TramoDTO;
 import utn.backend.tpi.tpi_flota_viajes.dto.response.TramoResponse;
 import utn.backend.tpi.tpi_flota_viajes.dto.response.TramoPendienteResponse;
 import utn.backend.tpi.tpi_flota_viajes.dto.mapper.TramoMapper;
+import utn.backend.tpi.tpi_flota_viajes.event.TramoEventPublisher;
+import utn.backend.tpi.tpi_flota_viajes.event.TramoFinalizadoEvent;
+import utn.backend.tpi.tpi_flota_viajes.event.TramoIniciadoEvent;
+import utn.backend.tpi.tpi_flota_viajes.event.TramoRechazadoEvent;
+import utn.backend.tpi.tpi_flota_viajes.exception.BadRequestException;
+import utn.backend.tpi.tpi_flota_viajes.exception.NotFoundException;
 import utn.backend.tpi.tpi_flota_viajes.model.Camion;
 import utn.backend.tpi.tpi_flota_viajes.model.EstadoCamion;
 import utn.backend.tpi.tpi_flota_viajes.repository.CamionRepository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,7 +35,11 @@ public class TramoExecutionService {
     private final CamionService camionService;
     private final TramoMapper tramoMapper;
     private final CamionRepository camionRepository;
+    private final TramoEventPublisher tramoEventPublisher;
 
+    // rest | eventos (ver application.yml)
+    @Value("${app.tramos.modo:rest}")
+    private String modo = "rest";
 
     /**
      * Inicia un tramo buscando automáticamente el camión asignado
@@ -36,6 +50,10 @@ public class TramoExecutionService {
     public TramoResponse iniciarTramo(Long idTramo) {
         log.info("Iniciando tramo {}", idTramo);
 
+        if (modoEventos()) {
+            return iniciarTramoPorEvento(idTramo);
+        }
+
         // 1. Obtener información del tramo para saber qué camión está asignado
         TramoDTO tramoInfo = logisticaApiClient.obtenerTramo(idTramo);
 
@@ -66,6 +84,10 @@ public class TramoExecutionService {
     public TramoResponse finalizarTramo(Long idTramo, double kmRecorridos) {
         log.info("Finalizando tramo {}. KMs recorridos: {}", idTramo, kmRecorridos);
 
+        if (modoEventos()) {
+            return finalizarTramoPorEvento(idTramo, kmRecorridos);
+        }
+
         // 1. Obtener información del tramo para saber qué camión está asignado
         TramoDTO tramoInfo = logisticaApiClient.obtenerTramo(idTramo);
 
@@ -87,6 +109,130 @@ public class TramoExecutionService {
     }
 
 
+    private boolean modoEventos() {
+        return "eventos".equalsIgnoreCase(modo);
+    }
+
+    /**
+     * Modo eventos: el camión se busca localmente (no se consulta el tramo a ms-logistica)
+     * y el inicio se publica a RabbitMQ después del commit. ms-logistica lo aplica
+     * cuando consume el evento; si el broker no responde se usa la API REST.
+     */
+    private TramoResponse iniciarTramoPorEvento(Long idTramo) {
+        Camion camion = camionRepository.findByTramoProgramado(idTramo)
+                .orElseThrow(() -> new NotFoundException("Ningún camión tiene programado el tramo " + idTramo));
+
+        // Valida estado del camión y secuencia de tramos: ASIGNADO → EN_VIAJE
+        camionService.ocuparCamion(camion.getDominio(), idTramo);
+
+        LocalDateTime inicio = LocalDateTime.now();
+        TramoIniciadoEvent evento = TramoIniciadoEvent.builder()
+                .idTramo(idTramo)
+                .camionId(camion.getId())
+                .dominioCamion(camion.getDominio())
+                .fechaHoraInicio(inicio)
+                .timestamp(inicio)
+                .build();
+        despuesDelCommit(() -> {
+            if (!tramoEventPublisher.publicarTramoIniciado(evento)) {
+                try {
+                    logisticaApiClient.iniciarTramo(idTramo);
+                } catch (BadRequestException e) {
+                    // Logística rechazó el inicio: el camión no debe quedar en viaje
+                    camionService.revertirInicio(camion.getDominio(), idTramo);
+                    throw e;
+                }
+            }
+        }, idTramo);
+
+        return TramoResponse.builder()
+                .idTramo(idTramo)
+                .estado("EN_CURSO")
+                .fechaHoraInicio(inicio)
+                .dominioCamion(camion.getDominio())
+                .build();
+    }
+
+    /**
+     * Modo eventos: libera el camión localmente y publica el fin con los datos del
+     * camión, así ms-logistica calcula el costo real sin volver a consultarlos
+     */
+    private TramoResponse finalizarTramoPorEvento(Long idTramo, double kmRecorridos) {
+        Camion camion = camionRepository.findByTramoEnEjecucion(idTramo)
+                .orElseThrow(() -> new NotFoundException("Ningún camión está ejecutando el tramo " + idTramo));
+
+        // EN_VIAJE → ASIGNADO / DISPONIBLE
+        camionService.liberarCamion(camion.getDominio(), idTramo, kmRecorridos);
+
+        LocalDateTime fin = LocalDateTime.now();
+        TramoFinalizadoEvent evento = TramoFinalizadoEvent.builder()
+                .idTramo(idTramo)
+                .camionId(camion.getId())
+                .dominioCamion(camion.getDominio())
+                .kmRecorridos(kmRecorridos)
+                .costoPorKmCamion(camion.getCostoPorKm())
+                .consumoCombustibleCamion(camion.getConsumoCombustiblePromedio())
+                .fechaHoraFin(fin)
+                .timestamp(fin)
+                .build();
+        despuesDelCommit(() -> {
+            if (!tramoEventPublisher.publicarTramoFinalizado(evento)) {
+                try {
+                    logisticaApiClient.finalizarTramo(idTramo, kmRecorridos);
+                } catch (BadRequestException e) {
+                    camionService.revertirFin(camion.getDominio(), idTramo, kmRecorridos);
+                    throw e;
+                }
+            }
+        }, idTramo);
+
+        return TramoResponse.builder()
+                .idTramo(idTramo)
+                .estado("FINALIZADO")
+                .fechaHoraFin(fin)
+                .kmRecorridos(kmRecorridos)
+                .dominioCamion(camion.getDominio())
+                .build();
+    }
+
+    /**
+     * MS Logística no pudo aplicar un evento que se publicó después de cambiar el
+     * camión (ver iniciarTramoPorEvento / finalizarTramoPorEvento): se deshace el cambio
+     */
+    public void compensarRechazo(TramoRechazadoEvent rechazo) {
+        if ("tramo.iniciado".equals(rechazo.getEvento())) {
+            camionService.revertirInicio(rechazo.getDominioCamion(), rechazo.getIdTramo());
+        } else if ("tramo.finalizado".equals(rechazo.getEvento())) {
+            double km = rechazo.getKmRecorridos() != null ? rechazo.getKmRecorridos() : 0;
+            camionService.revertirFin(rechazo.getDominioCamion(), rechazo.getIdTramo(), km);
+        } else {
+            log.error("Rechazo de tramo {} con evento desconocido: {}", rechazo.getIdTramo(), rechazo.getEvento());
+        }
+    }
+
+    /**
+     * Publica sólo si el cambio del camión quedó guardado (si hay rollback no sale el evento)
+     */
+    private void despuesDelCommit(Runnable publicacion, Long idTramo) {
+        Runnable segura = () -> {
+            try {
+                publicacion.run();
+            } catch (Exception e) {
+                log.error("No se pudo informar a ms-logistica el tramo {}: {}", idTramo, e.getMessage(), e);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            segura.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                segura.run();
+            }
+        });
+    }
+
     //este metodo esta raro osea le actualiza el estado al camion y lo pasa EN VIAJE
     // se supone que deberia haber estado antes en ASIGNADO, osea que fue asignado por el operador
     //y ademas hay algo raro que es porque le avisa al ms-logistica que el camion esta en viaje?